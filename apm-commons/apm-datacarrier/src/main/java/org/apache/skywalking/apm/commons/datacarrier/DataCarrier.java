@@ -19,6 +19,7 @@
 package org.apache.skywalking.apm.commons.datacarrier;
 
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumeDriver;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPool;
@@ -46,10 +47,19 @@ public class DataCarrier<T> {
     }
 
     public DataCarrier(String name, String envPrefix, int channelSize, int bufferSize) {
+        this(name, envPrefix, channelSize, bufferSize, BufferType.DEFAULT);
+    }
+
+    /**
+     * @param bufferType the implementation of the channel buffers, {@link BufferType#RING} is lock-free and designed
+     *                   for multiple producers.
+     */
+    public DataCarrier(String name, String envPrefix, int channelSize, int bufferSize, BufferType bufferType) {
         this.name = name;
         this.bufferSize = EnvUtil.getInt(envPrefix + "_BUFFER_SIZE", bufferSize);
         this.channelSize = EnvUtil.getInt(envPrefix + "_CHANNEL_SIZE", channelSize);
-        channels = new Channels<T>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), BufferStrategy.BLOCKING);
+        channels = new Channels<T>(
+            channelSize, bufferSize, new SimpleRollingPartitioner<T>(), BufferStrategy.BLOCKING, bufferType);
     }
 
     /**
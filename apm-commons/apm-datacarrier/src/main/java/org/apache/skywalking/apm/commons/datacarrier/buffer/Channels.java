@@ -31,11 +31,18 @@ public class Channels<T> {
     private final long size;
 
     public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy) {
+        this(channelSize, bufferSize, partitioner, strategy, BufferType.DEFAULT);
+    }
+
+    public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy,
+        BufferType bufferType) {
         this.dataPartitioner = partitioner;
         this.strategy = strategy;
         bufferChannels = new QueueBuffer[channelSize];
         for (int i = 0; i < channelSize; i++) {
-            if (BufferStrategy.BLOCKING.equals(strategy)) {
+            if (BufferType.RING.equals(bufferType)) {
+                bufferChannels[i] = new RingBuffer<T>(bufferSize, strategy);
+            } else if (BufferStrategy.BLOCKING.equals(strategy)) {
                 bufferChannels[i] = new ArrayBlockingQueueBuffer<T>(bufferSize, strategy);
             } else {
                 bufferChannels[i] = new Buffer<T>(bufferSize, strategy);
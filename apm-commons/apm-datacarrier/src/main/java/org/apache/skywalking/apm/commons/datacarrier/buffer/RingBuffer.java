@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free multiple producers, single consumer ring queue.
+ * <p>
+ * Producers claim a sequence through CAS on the producer cursor, then publish the element into the claimed slot. The
+ * consumer only reads the continuous published range after its own cursor, so the cost of {@link #obtain(List)} is
+ * relative to the number of available elements, rather than the buffer size as {@link Buffer} does.
+ * <p>
+ * When the queue is full, {@link BufferStrategy#BLOCKING} producers park themselves, and are unparked by the consumer
+ * after it releases slots.
+ * <p>
+ * Each {@link RingBuffer} must be consumed by one thread only, which is the way {@link Channels} are assigned to the
+ * consumer threads.
+ */
+public class RingBuffer<T> implements QueueBuffer<T> {
+    /**
+     * Both cursors are stored in one padded array, and locate in different cache lines, to avoid false sharing between
+     * producers and consumer.
+     */
+    private static final int PRODUCER_CURSOR = 7;
+    private static final int CONSUMER_CURSOR = 23;
+    private static final int CURSORS_LENGTH = 31;
+    /**
+     * The max time of one park, the producer rechecks the capacity after that, even no unpark happens.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray cursors;
+    private final Queue<Thread> waitingProducers;
+    private final int bufferSize;
+    private final int mask;
+    private volatile BufferStrategy strategy;
+
+    RingBuffer(int bufferSize, BufferStrategy strategy) {
+        this.bufferSize = bufferSize;
+        final int capacity = ceilingPowerOfTwo(bufferSize);
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<T>(capacity);
+        this.cursors = new AtomicLongArray(CURSORS_LENGTH);
+        this.waitingProducers = new ConcurrentLinkedQueue<Thread>();
+        this.strategy = strategy;
+    }
+
+    @Override
+    public boolean save(T data) {
+        long sequence;
+        while (true) {
+            sequence = cursors.get(PRODUCER_CURSOR);
+            if (sequence - cursors.get(CONSUMER_CURSOR) >= bufferSize) {
+                if (BufferStrategy.IF_POSSIBLE.equals(strategy)) {
+                    return false;
+                }
+                if (!waitForCapacity(sequence)) {
+                    return false;
+                }
+                continue;
+            }
+            if (cursors.compareAndSet(PRODUCER_CURSOR, sequence, sequence + 1)) {
+                break;
+            }
+        }
+        slots.lazySet((int) sequence & mask, data);
+        return true;
+    }
+
+    /**
+     * Park the current thread until the consumer releases slots.
+     *
+     * @return false if the thread has been interrupted.
+     */
+    private boolean waitForCapacity(long sequence) {
+        Thread current = Thread.currentThread();
+        waitingProducers.offer(current);
+        try {
+            if (sequence - cursors.get(CONSUMER_CURSOR) >= bufferSize) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+        } finally {
+            waitingProducers.remove(current);
+        }
+        return !current.isInterrupted();
+    }
+
+    @Override
+    public void setStrategy(BufferStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void obtain(List<T> consumeList) {
+        long consumed = cursors.get(CONSUMER_CURSOR);
+        final long published = cursors.get(PRODUCER_CURSOR);
+        long sequence = consumed;
+        for (; sequence < published; sequence++) {
+            int index = (int) sequence & mask;
+            T data = slots.get(index);
+            if (data == null) {
+                // Claimed, but the producer hasn't published yet. Read it in the next round.
+                break;
+            }
+            consumeList.add(data);
+            slots.lazySet(index, null);
+        }
+        if (sequence != consumed) {
+            cursors.lazySet(CONSUMER_CURSOR, sequence);
+            wakeUpProducers();
+        }
+    }
+
+    private void wakeUpProducers() {
+        if (waitingProducers.isEmpty()) {
+            return;
+        }
+        for (Thread producer : waitingProducers) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        if (value <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+}
@@ -80,6 +80,11 @@ public class ConsumerThread<T> extends Thread {
             }
             return true;
         }
+        try {
+            consumer.nothingToConsume();
+        } catch (Throwable t) {
+            consumer.onError(consumeList, t);
+        }
         return false;
     }
 
@@ -28,4 +28,11 @@ public interface IConsumer<T> {
     void onError(List<T> data, Throwable t);
 
     void onExit();
+
+    /**
+     * Notify the consumer that no data is available in this consume cycle, the consumer could do the time based work
+     * here, as {@link #consume(List)} is only called with data.
+     */
+    default void nothingToConsume() {
+    }
 }
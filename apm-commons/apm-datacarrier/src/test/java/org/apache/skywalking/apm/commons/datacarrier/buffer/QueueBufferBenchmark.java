@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare {@link Buffer}, {@link ArrayBlockingQueueBuffer} and {@link RingBuffer}.
+ * <p>
+ * produceAndConsume: 4 producers and 1 consumer share one buffer, IF_POSSIBLE is used, because a BLOCKING producer
+ * could never return when JMH stops the consumer thread at the end of the iteration.
+ * <p>
+ * sparseDrain: only a few elements are in a large buffer, which is the common case of the consumer thread.
+ */
+@BenchmarkMode({Mode.Throughput})
+public class QueueBufferBenchmark {
+
+    @State(Scope.Group)
+    public static class SharedBuffer {
+        @Param({
+            "BUFFER",
+            "ARRAY_BLOCKING_QUEUE",
+            "RING"
+        })
+        public String type;
+
+        private QueueBuffer<SampleData> buffer;
+        private List<SampleData> consumeList;
+        private SampleData data;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            buffer = create(type, 10000, BufferStrategy.IF_POSSIBLE);
+            consumeList = new ArrayList<SampleData>(10000);
+            data = new SampleData();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SparseBuffer {
+        @Param({
+            "BUFFER",
+            "ARRAY_BLOCKING_QUEUE",
+            "RING"
+        })
+        public String type;
+
+        private QueueBuffer<SampleData> buffer;
+        private List<SampleData> consumeList;
+        private SampleData data;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            buffer = create(type, 10000, BufferStrategy.BLOCKING);
+            consumeList = new ArrayList<SampleData>(100);
+            data = new SampleData();
+        }
+    }
+
+    private static QueueBuffer<SampleData> create(String type, int bufferSize, BufferStrategy strategy) {
+        if ("BUFFER".equals(type)) {
+            return new Buffer<SampleData>(bufferSize, strategy);
+        } else if ("ARRAY_BLOCKING_QUEUE".equals(type)) {
+            return new ArrayBlockingQueueBuffer<SampleData>(bufferSize, strategy);
+        }
+        return new RingBuffer<SampleData>(bufferSize, strategy);
+    }
+
+    @Benchmark
+    @Group("produceAndConsume")
+    @GroupThreads(4)
+    public boolean produce(SharedBuffer state) {
+        return state.buffer.save(state.data);
+    }
+
+    @Benchmark
+    @Group("produceAndConsume")
+    @GroupThreads(1)
+    public int consume(SharedBuffer state) {
+        state.buffer.obtain(state.consumeList);
+        int size = state.consumeList.size();
+        state.consumeList.clear();
+        return size;
+    }
+
+    @Benchmark
+    public int sparseDrain(SparseBuffer state) {
+        for (int i = 0; i < 10; i++) {
+            state.buffer.save(state.data);
+        }
+        state.buffer.obtain(state.consumeList);
+        int size = state.consumeList.size();
+        state.consumeList.clear();
+        return size;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(QueueBufferBenchmark.class.getName())
+                                          .addProfiler(GCProfiler.class)
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
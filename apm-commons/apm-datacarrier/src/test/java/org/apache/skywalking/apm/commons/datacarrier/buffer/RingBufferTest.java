@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferTest {
+    @Test
+    public void testSaveAndObtain() {
+        RingBuffer<SampleData> buffer = new RingBuffer<SampleData>(5, BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(buffer.save(new SampleData().setIntValue(i)));
+        }
+        Assert.assertFalse(buffer.save(new SampleData().setIntValue(5)));
+
+        List<SampleData> result = new ArrayList<SampleData>();
+        buffer.obtain(result);
+        Assert.assertEquals(5, result.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, result.get(i).getIntValue());
+        }
+
+        result.clear();
+        buffer.obtain(result);
+        Assert.assertTrue(result.isEmpty());
+
+        // Wrap around the ring.
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(buffer.save(new SampleData().setIntValue(i)));
+        }
+        buffer.obtain(result);
+        Assert.assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testBlockingProducers() throws InterruptedException {
+        final RingBuffer<SampleData> buffer = new RingBuffer<SampleData>(16, BufferStrategy.BLOCKING);
+        final int producerNum = 4;
+        final int dataPerProducer = 10000;
+        final CountDownLatch finished = new CountDownLatch(producerNum);
+        for (int p = 0; p < producerNum; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < dataPerProducer; i++) {
+                        buffer.save(new SampleData().setIntValue(producer * dataPerProducer + i));
+                    }
+                    finished.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Set<Integer> consumed = new HashSet<Integer>();
+        List<SampleData> consumeList = new ArrayList<SampleData>();
+        while (consumed.size() < producerNum * dataPerProducer) {
+            buffer.obtain(consumeList);
+            Assert.assertTrue(consumeList.size() <= 16);
+            for (SampleData data : consumeList) {
+                Assert.assertTrue(consumed.add(data.getIntValue()));
+            }
+            consumeList.clear();
+        }
+        finished.await();
+        buffer.obtain(consumeList);
+        Assert.assertTrue(consumeList.isEmpty());
+    }
+
+    @Test
+    public void testSelectedByChannels() {
+        Channels<SampleData> channels = new Channels<SampleData>(
+            2, 100, new SimpleRollingPartitioner<SampleData>(),
+            BufferStrategy.BLOCKING, BufferType.RING
+        );
+        Assert.assertTrue(channels.getBuffer(0) instanceof RingBuffer);
+        Assert.assertEquals(100, channels.getBuffer(1).getBufferSize());
+    }
+}
@@ -94,6 +94,8 @@ public class OALRuntime implements OALEngine {
         "equals",
         "serialize",
         "deserialize",
+        "serializeCompact",
+        "deserializeCompact",
         "getMeta",
         "toHour",
         "toDay"
@@ -143,6 +143,9 @@ public class AnalysisResult {
                 case "IntKeyLongValueHashMap":
                     serializeFields.addIntKeyLongValueHashMapField(column.getFieldName());
                     break;
+                case "IntKeyLongHistogram":
+                    serializeFields.addIntKeyLongHistogramField(column.getFieldName());
+                    break;
                 default:
                     throw new IllegalStateException("Unexpected field type [" + type + "] of persistence column [" + column
                         .getFieldName() + "]");
@@ -27,6 +27,7 @@ public class PersistenceColumns {
     private List<PersistenceField> doubleFields = new LinkedList<>();
     private List<PersistenceField> intFields = new LinkedList<>();
     private List<PersistenceField> intKeyLongValueHashMap = new LinkedList<>();
+    private List<PersistenceField> intKeyLongHistogram = new LinkedList<>();
 
     public void addStringField(String fieldName) {
         stringFields.add(new PersistenceField(fieldName));
@@ -48,6 +49,10 @@ public class PersistenceColumns {
         intKeyLongValueHashMap.add(new PersistenceField(fieldName));
     }
 
+    public void addIntKeyLongHistogramField(String fieldName) {
+        intKeyLongHistogram.add(new PersistenceField(fieldName));
+    }
+
     public List<PersistenceField> getStringFields() {
         return stringFields;
     }
@@ -67,4 +72,8 @@ public class PersistenceColumns {
     public List<PersistenceField> getIntKeyLongValueHashMapFields() {
         return intKeyLongValueHashMap;
     }
+
+    public List<PersistenceField> getIntKeyLongHistogramFields() {
+        return intKeyLongHistogram;
+    }
 }
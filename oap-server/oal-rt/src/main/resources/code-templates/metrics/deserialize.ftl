@@ -23,4 +23,7 @@ java.util.Iterator iterator;
     super.${field.getter}().put(new Integer(element.getKey()), new org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue(element.getKey(), element.getValue()));
     }
 </#list>
+<#list serializeFields.intKeyLongHistogramFields as field>
+    super.${field.getter}().deserialize(remoteData.getDataLists(${serializeFields.intKeyLongValueHashMapFields?size + field?index}));
+</#list>
 }
\ No newline at end of file
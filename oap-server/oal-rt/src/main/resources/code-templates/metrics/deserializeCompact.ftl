@@ -0,0 +1,29 @@
+public void deserializeCompact(org.apache.skywalking.oap.server.core.remote.codec.CompactInput input) {
+<#list serializeFields.stringFields as field>
+    ${field.setter}(input.readString());
+</#list>
+
+<#list serializeFields.longFields as field>
+    <#if field.fieldName == "timeBucket">
+        ${field.setter}(input.readTimeBucket());
+    <#else>
+        ${field.setter}(input.readLong());
+    </#if>
+</#list>
+
+<#list serializeFields.doubleFields as field>
+    ${field.setter}(input.readDouble());
+</#list>
+
+<#list serializeFields.intFields as field>
+    ${field.setter}(input.readInt());
+</#list>
+
+<#list serializeFields.intKeyLongValueHashMapFields as field>
+    input.readIntKeyLongValues(super.${field.getter}());
+</#list>
+
+<#list serializeFields.intKeyLongHistogramFields as field>
+    input.readIntKeyLongHistogram(super.${field.getter}());
+</#list>
+}
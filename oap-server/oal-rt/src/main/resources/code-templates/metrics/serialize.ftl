@@ -25,6 +25,9 @@ org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList.Buil
     }
     remoteBuilder.addDataLists(pairListBuilder);
 </#list>
+<#list serializeFields.intKeyLongHistogramFields as field>
+    remoteBuilder.addDataLists(super.${field.getter}().serialize());
+</#list>
 
 return remoteBuilder;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+public void serializeCompact(org.apache.skywalking.oap.server.core.remote.codec.CompactOutput output) {
+<#list serializeFields.stringFields as field>
+    output.writeString(${field.getter}());
+</#list>
+
+<#list serializeFields.longFields as field>
+    <#if field.fieldName == "timeBucket">
+        output.writeTimeBucket(${field.getter}());
+    <#else>
+        output.writeLong(${field.getter}());
+    </#if>
+</#list>
+
+<#list serializeFields.doubleFields as field>
+    output.writeDouble(${field.getter}());
+</#list>
+
+<#list serializeFields.intFields as field>
+    output.writeInt(${field.getter}());
+</#list>
+
+<#list serializeFields.intKeyLongValueHashMapFields as field>
+    output.writeIntKeyLongValues(super.${field.getter}());
+</#list>
+
+<#list serializeFields.intKeyLongHistogramFields as field>
+    output.writeIntKeyLongHistogram(super.${field.getter}());
+</#list>
+}
@@ -29,6 +29,8 @@ import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.MetricsMetaInfo;
 import org.apache.skywalking.oap.server.core.analysis.metrics.WithMetadata;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactInput;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactOutput;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
 import org.apache.skywalking.oap.server.core.storage.StorageBuilder;
 import org.apache.skywalking.oap.server.core.storage.annotation.Column;
@@ -113,6 +115,30 @@ public class ServiceAvgMetrics extends LongAvgMetrics implements WithMetadata {
 
     }
 
+    @Override
+    public void serializeCompact(CompactOutput output) {
+        output.writeString(getEntityId());
+        output.writeString(getStringField());
+
+        output.writeLong(getSummation());
+        output.writeLong(getValue());
+        output.writeTimeBucket(getTimeBucket());
+
+        output.writeInt(getCount());
+    }
+
+    @Override
+    public void deserializeCompact(CompactInput input) {
+        setEntityId(input.readString());
+        setStringField(input.readString());
+
+        setSummation(input.readLong());
+        setValue(input.readLong());
+        setTimeBucket(input.readTimeBucket());
+
+        setCount(input.readInt());
+    }
+
     @Override
     public MetricsMetaInfo getMeta() {
         return new MetricsMetaInfo("generate_metrics", 1, entityId);
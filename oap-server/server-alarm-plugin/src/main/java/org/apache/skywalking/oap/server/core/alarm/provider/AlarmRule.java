@@ -40,6 +40,8 @@ public class AlarmRule {
     private String metricsName;
     private ArrayList<String> includeNames;
     private ArrayList<String> excludeNames;
+    private String includeNamesRegex;
+    private String excludeNamesRegex;
     private String threshold;
     private String op;
     private int period;
@@ -62,11 +64,12 @@ public class AlarmRule {
         return period == alarmRule.period && count == alarmRule.count && silencePeriod == alarmRule.silencePeriod && Objects
             .equals(alarmRuleName, alarmRule.alarmRuleName) && Objects.equals(metricsName, alarmRule.metricsName) && Objects
             .equals(includeNames, alarmRule.includeNames) && Objects.equals(excludeNames, alarmRule.excludeNames) && Objects
+            .equals(includeNamesRegex, alarmRule.includeNamesRegex) && Objects.equals(excludeNamesRegex, alarmRule.excludeNamesRegex) && Objects
             .equals(threshold, alarmRule.threshold) && Objects.equals(op, alarmRule.op) && Objects.equals(message, alarmRule.message);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(alarmRuleName, metricsName, includeNames, excludeNames, threshold, op, period, count, silencePeriod, message);
+        return Objects.hash(alarmRuleName, metricsName, includeNames, excludeNames, includeNamesRegex, excludeNamesRegex, threshold, op, period, count, silencePeriod, message);
     }
 }
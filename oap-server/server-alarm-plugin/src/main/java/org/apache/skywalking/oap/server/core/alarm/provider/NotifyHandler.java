@@ -29,7 +29,6 @@ import org.apache.skywalking.oap.server.core.alarm.MetricsNotify;
 import org.apache.skywalking.oap.server.core.alarm.ServiceInstanceMetaInAlarm;
 import org.apache.skywalking.oap.server.core.alarm.ServiceMetaInAlarm;
 import org.apache.skywalking.oap.server.core.alarm.provider.grpc.GRPCCallback;
-import org.apache.skywalking.oap.server.core.analysis.IDManager;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.MetricsMetaInfo;
 import org.apache.skywalking.oap.server.core.analysis.metrics.WithMetadata;
@@ -57,49 +56,32 @@ public class NotifyHandler implements MetricsNotify {
             return;
         }
 
+        List<RunningRule> runningRules = core.findRunningRule(meta.getMetricsName());
+        if (runningRules == null) {
+            return;
+        }
+
+        // The names are decoded from the ID lazily, only when the rule filters by name or the alarm is triggered.
         MetaInAlarm metaInAlarm;
         if (DefaultScopeDefine.inServiceCatalog(scope)) {
-            final String serviceId = meta.getId();
-            final IDManager.ServiceID.ServiceIDDefinition serviceIDDefinition = IDManager.ServiceID.analysisId(
-                serviceId);
             ServiceMetaInAlarm serviceMetaInAlarm = new ServiceMetaInAlarm();
             serviceMetaInAlarm.setMetricsName(meta.getMetricsName());
-            serviceMetaInAlarm.setId(serviceId);
-            serviceMetaInAlarm.setName(serviceIDDefinition.getName());
+            serviceMetaInAlarm.setId(meta.getId());
             metaInAlarm = serviceMetaInAlarm;
         } else if (DefaultScopeDefine.inServiceInstanceCatalog(scope)) {
-            final String instanceId = meta.getId();
-            final IDManager.ServiceInstanceID.InstanceIDDefinition instanceIDDefinition = IDManager.ServiceInstanceID.analysisId(
-                instanceId);
-            final IDManager.ServiceID.ServiceIDDefinition serviceIDDefinition = IDManager.ServiceID.analysisId(
-                instanceIDDefinition.getServiceId());
             ServiceInstanceMetaInAlarm instanceMetaInAlarm = new ServiceInstanceMetaInAlarm();
             instanceMetaInAlarm.setMetricsName(meta.getMetricsName());
-            instanceMetaInAlarm.setId(instanceId);
-            instanceMetaInAlarm.setName(instanceIDDefinition.getName() + " of " + serviceIDDefinition.getName());
+            instanceMetaInAlarm.setId(meta.getId());
             metaInAlarm = instanceMetaInAlarm;
         } else if (DefaultScopeDefine.inEndpointCatalog(scope)) {
-            final String endpointId = meta.getId();
-            final IDManager.EndpointID.EndpointIDDefinition endpointIDDefinition = IDManager.EndpointID.analysisId(
-                endpointId);
-            final IDManager.ServiceID.ServiceIDDefinition serviceIDDefinition = IDManager.ServiceID.analysisId(
-                endpointIDDefinition.getServiceId());
-
             EndpointMetaInAlarm endpointMetaInAlarm = new EndpointMetaInAlarm();
             endpointMetaInAlarm.setMetricsName(meta.getMetricsName());
             endpointMetaInAlarm.setId(meta.getId());
-            endpointMetaInAlarm.setName(
-                endpointIDDefinition.getEndpointName() + " in " + serviceIDDefinition.getName());
             metaInAlarm = endpointMetaInAlarm;
         } else {
             return;
         }
 
-        List<RunningRule> runningRules = core.findRunningRule(meta.getMetricsName());
-        if (runningRules == null) {
-            return;
-        }
-
         runningRules.forEach(rule -> rule.in(metaInAlarm, metrics));
     }
 
@@ -20,14 +20,20 @@ package org.apache.skywalking.oap.server.core.alarm.provider;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oap.server.core.alarm.AlarmMessage;
 import org.apache.skywalking.oap.server.core.alarm.MetaInAlarm;
 import org.apache.skywalking.oap.server.core.analysis.metrics.DoubleValueHolder;
@@ -36,18 +42,14 @@ import org.apache.skywalking.oap.server.core.analysis.metrics.LongValueHolder;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.MultiIntValuesHolder;
 import org.apache.skywalking.oap.server.library.util.CollectionUtils;
+import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
-import org.joda.time.Minutes;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
 /**
  * RunningRule represents each rule in running status. Based on the {@link AlarmRule} definition,
  */
 @Slf4j
 public class RunningRule {
-    private static DateTimeFormatter TIME_BUCKET_FORMATTER = DateTimeFormat.forPattern("yyyyMMddHHmm");
-
     private final String ruleName;
     private final int period;
     private final String metricsName;
@@ -57,8 +59,10 @@ public class RunningRule {
     private final int silencePeriod;
     private final Map<MetaInAlarm, Window> windows;
     private volatile MetricsValueType valueType;
-    private final List<String> includeNames;
-    private final List<String> excludeNames;
+    private final Set<String> includeNames;
+    private final Set<String> excludeNames;
+    private final Pattern includeNamesRegex;
+    private final Pattern excludeNamesRegex;
     private final AlarmMessageFormatter formatter;
 
     public RunningRule(AlarmRule alarmRule) {
@@ -76,8 +80,10 @@ public class RunningRule {
         this.countThreshold = alarmRule.getCount();
         this.silencePeriod = alarmRule.getSilencePeriod();
 
-        this.includeNames = alarmRule.getIncludeNames();
-        this.excludeNames = alarmRule.getExcludeNames();
+        this.includeNames = toSet(alarmRule.getIncludeNames());
+        this.excludeNames = toSet(alarmRule.getExcludeNames());
+        this.includeNamesRegex = compile(alarmRule.getIncludeNamesRegex());
+        this.excludeNamesRegex = compile(alarmRule.getExcludeNamesRegex());
         this.formatter = new AlarmMessageFormatter(alarmRule.getMessage());
     }
 
@@ -97,19 +103,23 @@ public class RunningRule {
             return;
         }
 
-        if (CollectionUtils.isNotEmpty(includeNames)) {
-            if (!includeNames.contains(meta.getName())) {
+        if (includeNames != null || includeNamesRegex != null) {
+            final String name = meta.getName();
+            if (!(includeNames != null && includeNames.contains(name))
+                && !(includeNamesRegex != null && includeNamesRegex.matcher(name).matches())) {
                 if (log.isTraceEnabled()) {
-                    log.trace("{} isn't in the including list {}", meta.getName(), includeNames);
+                    log.trace("{} isn't in the including list {} or regex {}", name, includeNames, includeNamesRegex);
                 }
                 return;
             }
         }
 
-        if (CollectionUtils.isNotEmpty(excludeNames)) {
-            if (excludeNames.contains(meta.getName())) {
+        if (excludeNames != null || excludeNamesRegex != null) {
+            final String name = meta.getName();
+            if ((excludeNames != null && excludeNames.contains(name))
+                || (excludeNamesRegex != null && excludeNamesRegex.matcher(name).matches())) {
                 if (log.isTraceEnabled()) {
-                    log.trace("{} is in the excluding list {}", meta.getName(), excludeNames);
+                    log.trace("{} is in the excluding list {} or regex {}", name, excludeNames, excludeNamesRegex);
                 }
                 return;
             }
@@ -140,6 +150,17 @@ public class RunningRule {
         }
     }
 
+    /**
+     * @return null if no name is given, for skipping the check directly.
+     */
+    private static Set<String> toSet(List<String> names) {
+        return CollectionUtils.isEmpty(names) ? null : new HashSet<>(names);
+    }
+
+    private static Pattern compile(String regex) {
+        return StringUtil.isEmpty(regex) ? null : Pattern.compile(regex);
+    }
+
     /**
      * Move the buffer window to give time.
      *
@@ -176,85 +197,181 @@ public class RunningRule {
     /**
      * A metrics window, based on AlarmRule#period. This window slides with time, just keeps the recent N(period)
      * buckets.
+     * <p>
+     * The buckets are a ring indexed by the minute of the time bucket, the values are kept in the primitive array of
+     * the value type. Every slot state packs the minute and whether the value matches the threshold, and only changes
+     * by CAS, so {@link #add(Metrics)} and {@link #moveTo(LocalDateTime)} don't lock each other. The thread changing
+     * the state of a slot updates the count of the matched values, so checking the window is O(1).
      */
     public class Window {
-        private LocalDateTime endTime;
-        private int period;
+        private static final long EMPTY = -1;
+
+        /**
+         * The minute of the latest bucket in this window, {@link #EMPTY} before the first moving or adding.
+         */
+        private final AtomicLong endTime;
+        private final int period;
+        private final AtomicLongArray slots;
+        private final AtomicInteger matchCount;
         private int counter;
         private int silenceCountdown;
 
-        private LinkedList<Metrics> values;
-        private ReentrantLock lock = new ReentrantLock();
+        private long[] longValues;
+        private int[] intValues;
+        private double[] doubleValues;
+        private int[][] multiIntValues;
 
         public Window(int period) {
             this.period = period;
+            this.endTime = new AtomicLong(EMPTY);
+            this.slots = new AtomicLongArray(period);
+            for (int i = 0; i < period; i++) {
+                slots.set(i, EMPTY);
+            }
+            this.matchCount = new AtomicInteger();
             // -1 means silence countdown is not running.
             silenceCountdown = -1;
             counter = 0;
-            init();
+            switch (valueType) {
+                case LONG:
+                    longValues = new long[period];
+                    break;
+                case INT:
+                    intValues = new int[period];
+                    break;
+                case DOUBLE:
+                    doubleValues = new double[period];
+                    break;
+                case MULTI_INTS:
+                    multiIntValues = new int[period][];
+                    break;
+            }
         }
 
         public void moveTo(LocalDateTime current) {
-            lock.lock();
-            try {
-                if (endTime == null) {
-                    init();
-                } else {
-                    int minutes = Minutes.minutesBetween(endTime, current).getMinutes();
-                    if (minutes <= 0) {
-                        return;
-                    }
-                    if (minutes > values.size()) {
-                        // re-init
-                        init();
-                    } else {
-                        for (int i = 0; i < minutes; i++) {
-                            values.removeFirst();
-                            values.addLast(null);
-                        }
-                    }
-                }
-                endTime = current;
-            } finally {
-                lock.unlock();
-            }
+            advanceTo(toMinute(current));
             if (log.isTraceEnabled()) {
-                log.trace("Move window {}", transformValues(values));
+                log.trace("Move window {}", transformValues(this));
             }
         }
 
         public void add(Metrics metrics) {
-            long bucket = metrics.getTimeBucket();
-
-            LocalDateTime timeBucket = TIME_BUCKET_FORMATTER.parseLocalDateTime(bucket + "");
+            final long minute = toMinute(metrics.getTimeBucket());
+            advanceTo(minute);
+            if (minute <= endTime.get() - period) {
+                // too old data
+                // also should happen, but maybe if agent/probe mechanism time is not right.
+                if (log.isTraceEnabled()) {
+                    log.trace("Timebucket is {}, endTime is {} and period is {}", metrics.getTimeBucket(), endTime.get(), period);
+                }
+                return;
+            }
 
-            this.lock.lock();
-            try {
-                if (this.endTime == null) {
-                    init();
-                    this.endTime = timeBucket;
+            final int slot = (int) Math.floorMod(minute, (long) period);
+            final long state = minute << 1 | (setValue(slot, metrics) ? 1 : 0);
+            while (true) {
+                long previous = slots.get(slot);
+                if (previous != EMPTY && previous >> 1 > minute) {
+                    // The slot has been taken by the newer bucket.
+                    return;
                 }
-                int minutes = Minutes.minutesBetween(timeBucket, this.endTime).getMinutes();
-                if (minutes < 0) {
-                    this.moveTo(timeBucket);
-                    minutes = 0;
+                if (slots.compareAndSet(slot, previous, state)) {
+                    matchCount.addAndGet(matched(state) - matched(previous));
+                    break;
                 }
+            }
+            // The window may have been moved over this bucket concurrently, after the evicting of this slot.
+            if (minute <= endTime.get() - period) {
+                evict(slot, minute);
+            }
 
-                if (minutes >= values.size()) {
-                    // too old data
-                    // also should happen, but maybe if agent/probe mechanism time is not right.
-                    if (log.isTraceEnabled()) {
-                        log.trace("Timebucket is {}, endTime is {} and value size is {}", timeBucket, this.endTime, values.size());
+            if (log.isTraceEnabled()) {
+                log.trace("Add metric {} to window {}", metrics, transformValues(this));
+            }
+        }
+
+        /**
+         * Move the end of the window forward, and evict the buckets out of the new window.
+         */
+        private void advanceTo(long minute) {
+            while (true) {
+                final long end = endTime.get();
+                if (end != EMPTY && minute <= end) {
+                    return;
+                }
+                if (endTime.compareAndSet(end, minute)) {
+                    if (end != EMPTY) {
+                        final long evictTo = minute - period;
+                        for (long evicting = Math.max(end - period + 1, evictTo - period + 1); evicting <= evictTo; evicting++) {
+                            evict((int) Math.floorMod(evicting, (long) period), evictTo);
+                        }
                     }
                     return;
                 }
+            }
+        }
 
-                this.values.set(values.size() - minutes - 1, metrics);
-            } finally {
-                this.lock.unlock();
+        /**
+         * Clear the slot, if its bucket isn't newer than the given minute.
+         */
+        private void evict(int slot, long minute) {
+            while (true) {
+                long previous = slots.get(slot);
+                if (previous == EMPTY || previous >> 1 > minute) {
+                    return;
+                }
+                if (slots.compareAndSet(slot, previous, EMPTY)) {
+                    matchCount.addAndGet(-matched(previous));
+                    return;
+                }
             }
-            if (log.isTraceEnabled()) {
-                log.trace("Add metric {} to window {}", metrics, transformValues(this.values));
+        }
+
+        /**
+         * Keep the value in the slot.
+         *
+         * @return true if the value matches the threshold.
+         */
+        private boolean setValue(int slot, Metrics metrics) {
+            switch (valueType) {
+                case LONG:
+                    long lvalue = ((LongValueHolder) metrics).getValue();
+                    longValues[slot] = lvalue;
+                    return op.test(RunningRule.this.threshold.getLongThreshold(), lvalue);
+                case INT:
+                    int ivalue = ((IntValueHolder) metrics).getValue();
+                    intValues[slot] = ivalue;
+                    return op.test(RunningRule.this.threshold.getIntThreshold(), ivalue);
+                case DOUBLE:
+                    double dvalue = ((DoubleValueHolder) metrics).getValue();
+                    doubleValues[slot] = dvalue;
+                    return op.test(RunningRule.this.threshold.getDoubleThreshold(), dvalue);
+                case MULTI_INTS:
+                    int[] ivalueArray = ((MultiIntValuesHolder) metrics).getValues();
+                    multiIntValues[slot] = ivalueArray;
+                    Integer[] iaexpected = RunningRule.this.threshold.getIntValuesThreshold();
+                    if (log.isTraceEnabled()) {
+                        log.trace("Value array is {}, expected array is {}", ivalueArray, iaexpected);
+                    }
+                    for (int i = 0; i < ivalueArray.length; i++) {
+                        ivalue = ivalueArray[i];
+                        Integer iNullableExpected = 0;
+                        if (iaexpected.length > i) {
+                            iNullableExpected = iaexpected[i];
+                            if (iNullableExpected == null) {
+                                continue;
+                            }
+                        }
+                        if (op.test(iNullableExpected, ivalue)) {
+                            if (log.isTraceEnabled()) {
+                                log.trace("Matched, expected {}, value {}", iNullableExpected, ivalue);
+                            }
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    return false;
             }
         }
 
@@ -285,106 +402,68 @@ public class RunningRule {
         }
 
         private boolean isMatch() {
-            int matchCount = 0;
-            for (Metrics metrics : values) {
-                if (metrics == null) {
-                    continue;
-                }
-
-                switch (valueType) {
-                    case LONG:
-                        long lvalue = ((LongValueHolder) metrics).getValue();
-                        long lexpected = RunningRule.this.threshold.getLongThreshold();
-                        if (op.test(lexpected, lvalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case INT:
-                        int ivalue = ((IntValueHolder) metrics).getValue();
-                        int iexpected = RunningRule.this.threshold.getIntThreshold();
-                        if (op.test(iexpected, ivalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case DOUBLE:
-                        double dvalue = ((DoubleValueHolder) metrics).getValue();
-                        double dexpected = RunningRule.this.threshold.getDoubleThreshold();
-                        if (op.test(dexpected, dvalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case MULTI_INTS:
-                        int[] ivalueArray = ((MultiIntValuesHolder) metrics).getValues();
-                        Integer[] iaexpected = RunningRule.this.threshold.getIntValuesThreshold();
-                        if (log.isTraceEnabled()) {
-                            log.trace("Value array is {}, expected array is {}", ivalueArray, iaexpected);
-                        }
-                        for (int i = 0; i < ivalueArray.length; i++) {
-                            ivalue = ivalueArray[i];
-                            Integer iNullableExpected = 0;
-                            if (iaexpected.length > i) {
-                                iNullableExpected = iaexpected[i];
-                                if (iNullableExpected == null) {
-                                    continue;
-                                }
-                            }
-                            if (op.test(iNullableExpected, ivalue)) {
-                                if (log.isTraceEnabled()) {
-                                    log.trace("Matched, expected {}, value {}", iNullableExpected, ivalue);
-                                }
-                                matchCount++;
-                                break;
-                            }
-                        }
-                        break;
-                }
-            }
-
+            final int matched = matchCount.get();
             if (log.isTraceEnabled()) {
-                log.trace("Match count is {}, threshold is {}", matchCount, countThreshold);
+                log.trace("Match count is {}, threshold is {}", matched, countThreshold);
             }
             // Reach the threshold in current bucket.
-            return matchCount >= countThreshold;
+            return matched >= countThreshold;
         }
+    }
 
-        private void init() {
-            values = new LinkedList<>();
-            for (int i = 0; i < period; i++) {
-                values.add(null);
-            }
-        }
+    private static int matched(long state) {
+        return state == Window.EMPTY ? 0 : (int) (state & 1);
+    }
+
+    /**
+     * @return the minutes from the epoch, of the time bucket in minute, yyyyMMddHHmm.
+     */
+    private static long toMinute(long timeBucket) {
+        return toMinute(new LocalDateTime(
+            (int) (timeBucket / 100_000_000),
+            (int) (timeBucket / 1_000_000 % 100),
+            (int) (timeBucket / 10_000 % 100),
+            (int) (timeBucket / 100 % 100),
+            (int) (timeBucket % 100)
+        ));
     }
 
-    private LinkedList<TraceLogMetric> transformValues(final LinkedList<Metrics> values) {
+    private static long toMinute(LocalDateTime time) {
+        return time.toDateTime(DateTimeZone.UTC).getMillis() / 60_000L;
+    }
+
+    private LinkedList<TraceLogMetric> transformValues(final Window window) {
         LinkedList<TraceLogMetric> r = new LinkedList<>();
-        values.forEach(m -> {
-            if (m == null) {
+        final long end = window.endTime.get();
+        for (long minute = end - window.period + 1; minute <= end; minute++) {
+            final int slot = (int) Math.floorMod(minute, (long) window.period);
+            if (window.slots.get(slot) >> 1 != minute) {
                 r.add(null);
-                return;
+                continue;
             }
             switch (valueType) {
                 case LONG:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((LongValueHolder) m).getValue()}));
+                    r.add(new TraceLogMetric(minute, new Number[] {window.longValues[slot]}));
                     break;
                 case INT:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((IntValueHolder) m).getValue()}));
+                    r.add(new TraceLogMetric(minute, new Number[] {window.intValues[slot]}));
                     break;
                 case DOUBLE:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((DoubleValueHolder) m).getValue()}));
+                    r.add(new TraceLogMetric(minute, new Number[] {window.doubleValues[slot]}));
                     break;
                 case MULTI_INTS:
-                    int[] iArr = ((MultiIntValuesHolder) m).getValues();
-                    r.add(new TraceLogMetric(m.getTimeBucket(), Arrays.stream(iArr).boxed().toArray(Number[]::new)));
+                    int[] iArr = window.multiIntValues[slot];
+                    r.add(new TraceLogMetric(minute, Arrays.stream(iArr).boxed().toArray(Number[]::new)));
                     break;
             }
-        });
+        }
         return r;
     }
 
     @RequiredArgsConstructor
     @ToString
     private static class TraceLogMetric {
-        private final long timeBucket;
+        private final long minute;
         private final Number[] value;
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.alarm.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.analysis.NodeType;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntValueHolder;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.MetricsMetaInfo;
+import org.apache.skywalking.oap.server.core.analysis.metrics.WithMetadata;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The throughput of the metrics notified into the {@link AlarmCore} through {@link NotifyHandler}, with 300 rules on
+ * 100 endpoint metrics, while the other 100 metrics have no rule. One third of the rules filter by the names.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class AlarmCoreBenchmark {
+    private static final int METRICS_NAMES = 200;
+    private static final int METRICS_NAMES_WITH_RULE = 100;
+    private static final int RULES_PER_METRICS = 3;
+    private static final int ENDPOINTS = 1000;
+
+    private NotifyHandler notifyHandler;
+    private List<Metrics> metricsList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Rules rules = new Rules();
+        for (int i = 0; i < METRICS_NAMES_WITH_RULE; i++) {
+            for (int j = 0; j < RULES_PER_METRICS; j++) {
+                AlarmRule rule = new AlarmRule();
+                rule.setAlarmRuleName("endpoint_metrics_" + i + "_" + j + "_rule");
+                rule.setMetricsName("endpoint_metrics_" + i);
+                rule.setThreshold("75");
+                rule.setOp("<");
+                rule.setPeriod(10);
+                rule.setCount(3);
+                rule.setMessage("Alarm of {name}");
+                rule.setIncludeNames(new ArrayList<>());
+                rule.setExcludeNames(new ArrayList<>());
+                if (j == 0) {
+                    for (int k = 0; k < 50; k++) {
+                        rule.getExcludeNames().add("/api/" + k * 7 + " in service");
+                    }
+                    rule.setIncludeNamesRegex("/api/\\d*0 in service");
+                }
+                rules.getRules().add(rule);
+            }
+        }
+        // No alarm callback is triggered, as the core isn't started.
+        notifyHandler = new NotifyHandler(new AlarmRulesWatcher(rules, null));
+
+        final String serviceId = IDManager.ServiceID.buildId("service", NodeType.Normal);
+        metricsList = new ArrayList<>(METRICS_NAMES * 10);
+        for (int i = 0; i < METRICS_NAMES * 10; i++) {
+            final String endpointId = IDManager.EndpointID.buildId(serviceId, "/api/" + i % ENDPOINTS);
+            metricsList.add(new EndpointMetrics(
+                new MetricsMetaInfo("endpoint_metrics_" + i % METRICS_NAMES, DefaultScopeDefine.ENDPOINT, endpointId),
+                201808301434L + i % 10,
+                i % 100
+            ));
+        }
+    }
+
+    @Benchmark
+    public void notifyMetrics() {
+        for (Metrics metrics : metricsList) {
+            notifyHandler.notify(metrics);
+        }
+    }
+
+    private static class EndpointMetrics extends Metrics implements IntValueHolder, WithMetadata {
+        private final MetricsMetaInfo meta;
+        private final int value;
+
+        private EndpointMetrics(MetricsMetaInfo meta, long timeBucket, int value) {
+            this.meta = meta;
+            this.value = value;
+            setTimeBucket(timeBucket);
+        }
+
+        @Override
+        public MetricsMetaInfo getMeta() {
+            return meta;
+        }
+
+        @Override
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public String id() {
+            return meta.getId();
+        }
+
+        @Override
+        public void combine(Metrics metrics) {
+        }
+
+        @Override
+        public void calculate() {
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return 0;
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(AlarmCoreBenchmark.class.getName())
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
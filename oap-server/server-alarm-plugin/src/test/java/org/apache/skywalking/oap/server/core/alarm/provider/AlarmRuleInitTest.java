@@ -40,6 +40,8 @@ public class AlarmRuleInitTest {
 
         Assert.assertEquals("service_b", ruleList.get(1).getIncludeNames().get(1));
         Assert.assertEquals("service_c", ruleList.get(1).getExcludeNames().get(0));
+        Assert.assertNull(ruleList.get(1).getIncludeNamesRegex());
+        Assert.assertEquals("service_test_.*", ruleList.get(1).getExcludeNamesRegex());
         Assert.assertEquals("Alarm caused by Rule service_percent_rule", ruleList.get(1).getMessage());
 
         List<String> rulesWebhooks = rules.getWebhooks();
@@ -19,10 +19,16 @@
 package org.apache.skywalking.oap.server.core.alarm.provider;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
 import org.apache.skywalking.oap.server.core.Const;
 import org.apache.skywalking.oap.server.core.alarm.AlarmCallback;
 import org.apache.skywalking.oap.server.core.alarm.AlarmMessage;
@@ -32,6 +38,7 @@ import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.MultiIntValuesHolder;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
 import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
+import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -65,13 +72,51 @@ public class RunningRuleTest {
         Map<MetaInAlarm, RunningRule.Window> windows = Whitebox.getInternalState(runningRule, "windows");
 
         RunningRule.Window window = windows.get(getMetaInAlarm(123));
-        LocalDateTime endTime = Whitebox.getInternalState(window, "endTime");
+        AtomicLong endTime = Whitebox.getInternalState(window, "endTime");
         int period = Whitebox.getInternalState(window, "period");
-        LinkedList<Metrics> metricsBuffer = Whitebox.getInternalState(window, "values");
+        AtomicLongArray slots = Whitebox.getInternalState(window, "slots");
+        AtomicInteger matchCount = Whitebox.getInternalState(window, "matchCount");
 
-        Assert.assertTrue(startTime.equals(endTime));
+        Assert.assertEquals(startTime.toDateTime(DateTimeZone.UTC).getMillis() / 60_000, endTime.get());
         Assert.assertEquals(15, period);
-        Assert.assertEquals(15, metricsBuffer.size());
+        Assert.assertEquals(15, slots.length());
+        Assert.assertEquals(1, matchCount.get());
+    }
+
+    @Test
+    public void testMatchedValuesMoveOutOfWindow() {
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setAlarmRuleName("endpoint_percent_rule");
+        alarmRule.setMetricsName("endpoint_percent");
+        alarmRule.setOp("<");
+        alarmRule.setThreshold("75");
+        alarmRule.setCount(3);
+        alarmRule.setPeriod(15);
+        alarmRule.setMessage("Successful rate of endpoint {name} is lower than 75%");
+
+        RunningRule runningRule = new RunningRule(alarmRule);
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301430L, 70));
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301431L, 70));
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301432L, 70));
+        runningRule.moveTo(TIME_BUCKET_FORMATTER.parseLocalDateTime("201808301440"));
+        // Out of the window already.
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301425L, 70));
+        // Replaces the matched value of the same bucket.
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301432L, 80));
+
+        Map<MetaInAlarm, RunningRule.Window> windows = Whitebox.getInternalState(runningRule, "windows");
+        AtomicInteger matchCount = Whitebox.getInternalState(windows.get(getMetaInAlarm(123)), "matchCount");
+        Assert.assertEquals(2, matchCount.get());
+
+        runningRule.in(getMetaInAlarm(123), getMetrics(201808301440L, 70));
+        Assert.assertEquals(3, matchCount.get());
+
+        runningRule.moveTo(TIME_BUCKET_FORMATTER.parseLocalDateTime("201808301445"));
+        Assert.assertEquals(2, matchCount.get());
+
+        runningRule.moveTo(TIME_BUCKET_FORMATTER.parseLocalDateTime("201808301510"));
+        Assert.assertEquals(0, matchCount.get());
+        Assert.assertEquals(0, runningRule.check().size());
     }
 
     @Test
@@ -262,6 +307,35 @@ public class RunningRuleTest {
         Assert.assertEquals(0, runningRule.check().size());
     }
 
+    @Test
+    public void testIncludeNamesRegex() {
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setAlarmRuleName("endpoint_percent_rule");
+        alarmRule.setMetricsName("endpoint_percent");
+        alarmRule.setOp("<");
+        alarmRule.setThreshold("75");
+        alarmRule.setCount(1);
+        alarmRule.setPeriod(15);
+        alarmRule.setMessage("Successful rate of endpoint {name} is lower than 75%");
+        alarmRule.setIncludeNames(Lists.newArrayList("Service_123"));
+        alarmRule.setIncludeNamesRegex("Service_4\\d+");
+        alarmRule.setExcludeNamesRegex(".*_456");
+
+        RunningRule runningRule = new RunningRule(alarmRule);
+
+        long timeInPeriod1 = 201808301434L;
+        runningRule.in(getMetaInAlarm(123), getMetrics(timeInPeriod1, 70));
+        runningRule.in(getMetaInAlarm(234), getMetrics(timeInPeriod1, 70));
+        runningRule.in(getMetaInAlarm(456), getMetrics(timeInPeriod1, 70));
+        runningRule.in(getMetaInAlarm(457), getMetrics(timeInPeriod1, 70));
+
+        runningRule.moveTo(TIME_BUCKET_FORMATTER.parseLocalDateTime("201808301440"));
+        List<AlarmMessage> alarmMessages = runningRule.check();
+        Assert.assertEquals(2, alarmMessages.size());
+        Set<String> names = alarmMessages.stream().map(AlarmMessage::getName).collect(Collectors.toSet());
+        Assert.assertEquals(Sets.newHashSet("Service_123", "Service_457"), names);
+    }
+
     private MetaInAlarm getMetaInAlarm(int id) {
         return new MetaInAlarm() {
             @Override
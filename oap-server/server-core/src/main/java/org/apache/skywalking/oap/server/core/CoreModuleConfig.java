@@ -65,6 +65,82 @@ public class CoreModuleConfig extends ModuleConfig {
      */
     @Setter
     private long persistentPeriod = 3;
+    /**
+     * The number of shards of the L1 aggregation of each metrics. The metrics are partitioned by the entity, and every
+     * shard merges and flushes its own part in its consumer thread. 0 keeps one aggregation queue per metrics.
+     */
+    @Setter
+    private int l1AggregationShards = 0;
+    /**
+     * The max time of the metrics waiting in the L1 aggregation before being sent to the L2 aggregation. Unit is
+     * millisecond. 0 means sending at the end of every consumed batch, and the other flush triggers are ignored.
+     */
+    @Setter
+    private long l1FlushMaxAge = 0;
+    /**
+     * Send the metrics when the number of the merged entries reaches it. 0 means no limit.
+     */
+    @Setter
+    private int l1FlushMaxEntries = 0;
+    /**
+     * Send the metrics when the received metrics per merged entry reaches it. 0 means no target.
+     */
+    @Setter
+    private double l1FlushMergeRatio = 0;
+    /**
+     * Pipeline the persistence. The prepare stage of all persistent workers runs in parallel, and overlaps with the
+     * execute stage of the previous round. Only works when {@link #enableDatabaseSession} == true.
+     */
+    @Setter
+    private boolean enablePersistencePipeline = false;
+    /**
+     * The number of threads running the prepare stage in the persistence pipeline.
+     */
+    @Setter
+    private int persistencePrepareThreads = 2;
+    /**
+     * The memory budget of the metrics session cache shared by all persistent workers. Unit is MB. The least recently
+     * used metrics are evicted when the estimated size of the cached metrics exceeds it.
+     */
+    @Setter
+    private int metricsSessionCacheMaxSizeInMB = 256;
+    /**
+     * The time to live of the minute/hour/day metrics in the session cache, since the last access. Unit is second.
+     */
+    @Setter
+    private int metricsSessionMinuteTTL = 70;
+    @Setter
+    private int metricsSessionHourTTL = 600;
+    @Setter
+    private int metricsSessionDayTTL = 3600;
+    /**
+     * The memory budget of the metrics query cache, which keeps the values of the closed time buckets. Unit is MB. 0
+     * means disabled.
+     */
+    @Setter
+    private int metricsQueryCacheMaxSizeInMB = 64;
+    /**
+     * The time bucket is closed and could be cached after it has ended longer than this delay. Unit is second.
+     */
+    @Setter
+    private int metricsQueryCacheBucketDelay = 180;
+    /**
+     * The cached values of the closed time buckets expire after this time, so the late updates of them show up
+     * eventually. Unit is second.
+     */
+    @Setter
+    private int metricsQueryCacheTTL = 600;
+    /**
+     * The max number of the IDs queried in one storage call by the batch metrics queries of multiple entities. The
+     * entities over it are split and queried concurrently.
+     */
+    @Setter
+    private int metricsQueryBatchSize = 1000;
+    /**
+     * The max number of the threads querying the split batches concurrently.
+     */
+    @Setter
+    private int metricsQueryParallelism = 8;
     @Setter
     private boolean enableDataKeeperExecutor = true;
     @Setter
@@ -88,6 +164,34 @@ public class CoreModuleConfig extends ModuleConfig {
      */
     @Setter
     private int remoteTimeout = 20;
+    /**
+     * The codec of cluster internal communication, proto or compact. The compact codec sends the metrics in batch,
+     * with the varint and dictionary encoding. All nodes in the cluster should support the compact codec before it is
+     * activated.
+     */
+    @Setter
+    private String remoteCodec = "proto";
+    /**
+     * The max number of stream data in one batch of the compact codec.
+     */
+    @Setter
+    private int remoteCompactBatchSize = 500;
+    /**
+     * The selector routing the metrics to the L2 aggregation node, hashCode or consistentHash. The consistentHash
+     * selector moves only about 1/N of the metrics when the cluster changes.
+     */
+    @Setter
+    private String remoteHashSelector = "hashCode";
+    /**
+     * The number of virtual nodes of each OAP node in the consistent hash ring.
+     */
+    @Setter
+    private int remoteVirtualNodes = 160;
+    /**
+     * The max hash space owned by one OAP node in the consistent hash ring, relative to the average. Not less than 1.
+     */
+    @Setter
+    private double remoteLoadFactor = 1.25;
     /**
      * The size of network address alias.
      */
@@ -104,6 +208,27 @@ public class CoreModuleConfig extends ModuleConfig {
      * Analyze profile snapshots max size.
      */
     private int maxSizeOfAnalyzeProfileSnapshot = 12000;
+    /**
+     * Maintain the service and service instance relations in memory from the persisted relation metrics, and serve
+     * the topology queries from it when this node is the only one in the cluster.
+     * <p>
+     * NOTICE, it only works for the single node OAP. In the cluster mode, the relations are partitioned across the
+     * nodes, the queries always go to the storage, while the memory of the snapshot is still taken.
+     */
+    @Setter
+    private boolean enableTopologySnapshot = false;
+    /**
+     * The period in seconds, the metadata catalog of the services, instances and endpoints in memory is reconciled
+     * with the storage. The metadata queries read the storage directly if it is 0.
+     */
+    @Setter
+    private int metadataCatalogRefreshPeriod = 30;
+    /**
+     * The max number of the spans returned by querying a trace, the spans are truncated in the order of the trace tree.
+     * 0 means no limit, the spans of the huge trace could be queried page by page.
+     */
+    @Setter
+    private int maxSpansOfQueryTrace = 0;
     /**
      * Extra model column are the column defined by {@link ScopeDefaultColumn.DefinedByField#requireDynamicActive()} ==
      * true. These columns of model are not required logically in aggregation or further query, and it will cause more
@@ -120,6 +245,15 @@ public class CoreModuleConfig extends ModuleConfig {
      * In the current practice, we don't recommend the length over 190.
      */
     private int endpointNameMaxLength = 150;
+    /**
+     * Compress the raw data of the segments before persistence. The uncompressed data written before is still readable.
+     */
+    private boolean segmentDataCompression = false;
+    /**
+     * The max number of the entries in every cache of the encoded names and the IDs in {@link
+     * org.apache.skywalking.oap.server.core.analysis.IDManager}. The least recently used entries are evicted.
+     */
+    private long idCacheMaxSize = 100_000;
 
     public CoreModuleConfig() {
         this.downsampling = new ArrayList<>();
@@ -24,12 +24,18 @@ import org.apache.skywalking.oap.server.configuration.api.ConfigurationModule;
 import org.apache.skywalking.oap.server.configuration.api.DynamicConfigurationService;
 import org.apache.skywalking.oap.server.core.analysis.ApdexThresholdConfig;
 import org.apache.skywalking.oap.server.core.analysis.DisableRegister;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
 import org.apache.skywalking.oap.server.core.analysis.StreamAnnotationListener;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.TopologySnapshot;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentDataCodec;
 import org.apache.skywalking.oap.server.core.analysis.metrics.ApdexMetrics;
+import org.apache.skywalking.oap.server.core.analysis.worker.MetricsFlushPolicy;
+import org.apache.skywalking.oap.server.core.analysis.worker.MetricsSessionCache;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
 import org.apache.skywalking.oap.server.core.analysis.worker.TopNStreamProcessor;
 import org.apache.skywalking.oap.server.core.annotation.AnnotationScan;
 import org.apache.skywalking.oap.server.core.cache.CacheUpdateTimer;
+import org.apache.skywalking.oap.server.core.cache.MetadataCatalog;
 import org.apache.skywalking.oap.server.core.cache.NetworkAddressAliasCache;
 import org.apache.skywalking.oap.server.core.cache.ProfileTaskCache;
 import org.apache.skywalking.oap.server.core.cluster.ClusterModule;
@@ -56,7 +62,11 @@ import org.apache.skywalking.oap.server.core.remote.RemoteSenderService;
 import org.apache.skywalking.oap.server.core.remote.RemoteServiceHandler;
 import org.apache.skywalking.oap.server.core.remote.client.Address;
 import org.apache.skywalking.oap.server.core.remote.client.RemoteClientManager;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactRemoteCodec;
 import org.apache.skywalking.oap.server.core.remote.health.HealthCheckServiceHandler;
+import org.apache.skywalking.oap.server.core.remote.selector.ConsistentHashSelector;
+import org.apache.skywalking.oap.server.core.remote.selector.HashCodeSelector;
+import org.apache.skywalking.oap.server.core.remote.selector.RemoteClientSelector;
 import org.apache.skywalking.oap.server.core.server.GRPCHandlerRegister;
 import org.apache.skywalking.oap.server.core.server.GRPCHandlerRegisterImpl;
 import org.apache.skywalking.oap.server.core.server.JettyHandlerRegister;
@@ -134,6 +144,8 @@ public class CoreModuleProvider extends ModuleProvider {
         if (moduleConfig.getEndpointNameMaxLength() > 0) {
             CoreModule.setEndpointNameMaxLength(moduleConfig.getEndpointNameMaxLength());
         }
+        SegmentDataCodec.setCompressionEnabled(moduleConfig.isSegmentDataCompression());
+        IDManager.setCacheSize(moduleConfig.getIdCacheMaxSize());
 
         StreamAnnotationListener streamAnnotationListener = new StreamAnnotationListener(getManager());
 
@@ -201,7 +213,13 @@ public class CoreModuleProvider extends ModuleProvider {
         this.registerServiceImplementation(IWorkerInstanceGetter.class, instancesService);
         this.registerServiceImplementation(IWorkerInstanceSetter.class, instancesService);
 
-        this.registerServiceImplementation(RemoteSenderService.class, new RemoteSenderService(getManager()));
+        RemoteClientSelector hashCodeSelector = new HashCodeSelector();
+        if (ConsistentHashSelector.NAME.equalsIgnoreCase(moduleConfig.getRemoteHashSelector())) {
+            hashCodeSelector = new ConsistentHashSelector(
+                moduleConfig.getRemoteVirtualNodes(), moduleConfig.getRemoteLoadFactor());
+        }
+        this.registerServiceImplementation(
+            RemoteSenderService.class, new RemoteSenderService(getManager(), hashCodeSelector));
         this.registerServiceImplementation(INewModel.class, storageModels);
         this.registerServiceImplementation(IModelManager.class, storageModels);
         this.registerServiceImplementation(IModelOverride.class, storageModels);
@@ -209,11 +227,17 @@ public class CoreModuleProvider extends ModuleProvider {
         this.registerServiceImplementation(
             NetworkAddressAliasCache.class, new NetworkAddressAliasCache(moduleConfig));
 
-        this.registerServiceImplementation(TopologyQueryService.class, new TopologyQueryService(getManager()));
-        this.registerServiceImplementation(MetricQueryService.class, new MetricQueryService(getManager()));
-        this.registerServiceImplementation(TraceQueryService.class, new TraceQueryService(getManager()));
+        final TopologySnapshot topologySnapshot = moduleConfig.isEnableTopologySnapshot()
+            ? new TopologySnapshot(getManager()) : null;
+        this.registerServiceImplementation(
+            TopologyQueryService.class, new TopologyQueryService(getManager(), topologySnapshot));
+        this.registerServiceImplementation(MetricQueryService.class, new MetricQueryService(getManager(), moduleConfig));
+        this.registerServiceImplementation(TraceQueryService.class, new TraceQueryService(getManager(), moduleConfig));
         this.registerServiceImplementation(LogQueryService.class, new LogQueryService(getManager()));
-        this.registerServiceImplementation(MetadataQueryService.class, new MetadataQueryService(getManager()));
+        final MetadataCatalog metadataCatalog = moduleConfig.getMetadataCatalogRefreshPeriod() > 0
+            ? new MetadataCatalog(getManager(), moduleConfig.getMetadataCatalogRefreshPeriod()) : null;
+        this.registerServiceImplementation(
+            MetadataQueryService.class, new MetadataQueryService(getManager(), metadataCatalog));
         this.registerServiceImplementation(AggregationQueryService.class, new AggregationQueryService(getManager()));
         this.registerServiceImplementation(AlarmQueryService.class, new AlarmQueryService(getManager()));
         this.registerServiceImplementation(TopNRecordsQueryService.class, new TopNRecordsQueryService(getManager()));
@@ -237,9 +261,17 @@ public class CoreModuleProvider extends ModuleProvider {
         } else {
             this.remoteClientManager = new RemoteClientManager(getManager(), moduleConfig.getRemoteTimeout());
         }
+        if (CompactRemoteCodec.NAME.equalsIgnoreCase(moduleConfig.getRemoteCodec())) {
+            remoteClientManager.setRemoteCodec(new CompactRemoteCodec(moduleConfig.getRemoteCompactBatchSize()));
+        }
         this.registerServiceImplementation(RemoteClientManager.class, remoteClientManager);
 
         MetricsStreamProcessor.getInstance().setEnableDatabaseSession(moduleConfig.isEnableDatabaseSession());
+        MetricsStreamProcessor.getInstance().setL1AggregationShards(moduleConfig.getL1AggregationShards());
+        MetricsStreamProcessor.getInstance().setFlushPolicy(new MetricsFlushPolicy(moduleConfig));
+        MetricsStreamProcessor.getInstance().setSessionCache(new MetricsSessionCache(moduleConfig));
+        MetricsStreamProcessor.getInstance().setTopologySnapshot(topologySnapshot);
+        MetricsStreamProcessor.getInstance().setMetadataCatalog(metadataCatalog);
         TopNStreamProcessor.getInstance().setTopNWorkerReportCycle(moduleConfig.getTopNReportPeriod());
         apdexThresholdConfig = new ApdexThresholdConfig(this);
         ApdexMetrics.setDICT(apdexThresholdConfig);
@@ -22,6 +22,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
 import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
 
 @Getter(AccessLevel.PUBLIC)
@@ -34,6 +35,21 @@ public class ServiceInstanceMetaInAlarm extends MetaInAlarm {
     private String[] tags;
     private String[] properties;
 
+    /**
+     * Decoded from the {@link #id} at the first reading, if it isn't set.
+     */
+    @Override
+    public String getName() {
+        if (name == null && id != null) {
+            final IDManager.ServiceInstanceID.InstanceIDDefinition instanceIDDefinition = IDManager.ServiceInstanceID.analysisId(
+                id);
+            final IDManager.ServiceID.ServiceIDDefinition serviceIDDefinition = IDManager.ServiceID.analysisId(
+                instanceIDDefinition.getServiceId());
+            name = instanceIDDefinition.getName() + " of " + serviceIDDefinition.getName();
+        }
+        return name;
+    }
+
     @Override
     public String getScope() {
         return DefaultScopeDefine.SERVICE_INSTANCE_CATALOG_NAME;
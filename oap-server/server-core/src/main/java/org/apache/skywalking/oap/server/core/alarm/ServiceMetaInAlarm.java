@@ -22,6 +22,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
 import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
 
 @Getter(AccessLevel.PUBLIC)
@@ -34,6 +35,17 @@ public class ServiceMetaInAlarm extends MetaInAlarm {
     private String[] tags;
     private String[] properties;
 
+    /**
+     * Decoded from the {@link #id} at the first reading, if it isn't set.
+     */
+    @Override
+    public String getName() {
+        if (name == null && id != null) {
+            name = IDManager.ServiceID.analysisId(id).getName();
+        }
+        return name;
+    }
+
     @Override
     public String getScope() {
         return DefaultScopeDefine.SERVICE_CATALOG_NAME;
@@ -62,6 +62,30 @@ public class DispatcherManager implements DispatcherDetectorListener {
         }
     }
 
+    /**
+     * Forward a batch of sources. The dispatchers are only looked up again when the scope changes, so the continuous
+     * sources of the same scope share one lookup.
+     */
+    public void forward(List<? extends Source> sources) {
+        int scope = -1;
+        List<SourceDispatcher> dispatchers = null;
+        for (Source source : sources) {
+            if (source == null) {
+                continue;
+            }
+            if (source.scope() != scope) {
+                scope = source.scope();
+                dispatchers = dispatcherMap.get(scope);
+            }
+            if (dispatchers != null) {
+                source.prepare();
+                for (SourceDispatcher dispatcher : dispatchers) {
+                    dispatcher.dispatch(source);
+                }
+            }
+        }
+    }
+
     /**
      * Scan all classes under `org.apache.skywalking` package,
      * <p>
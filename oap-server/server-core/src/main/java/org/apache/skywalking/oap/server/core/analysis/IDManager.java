@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.core.analysis;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -29,25 +30,65 @@ import org.apache.skywalking.oap.server.library.util.BooleanUtils;
 
 /**
  * IDManager includes all ID encode/decode functions for service, service instance and endpoint.
+ * <p>
+ * The encoded names, the decoded names and the ID definitions are cached in the bounded {@link InternCache}s, as
+ * these functions run for every span, metrics and alarm message, while the number of the entities is limited.
  */
 public class IDManager {
+    /**
+     * The default max size of every cache, changed by {@link #setCacheSize(long)}.
+     */
+    private static final int CACHE_SIZE = 100_000;
+
+    private static final InternCache<String, String> ENCODED_NAMES = new InternCache<>(
+        CACHE_SIZE, IDManager::doEncode);
+    private static final InternCache<String, String> DECODED_NAMES = new InternCache<>(
+        CACHE_SIZE, IDManager::doDecode);
+
+    /**
+     * Set the max size of every cache. The cached entries are dropped, so it is expected to be called at the booting.
+     */
+    public static void setCacheSize(long cacheSize) {
+        ENCODED_NAMES.resize(cacheSize);
+        DECODED_NAMES.resize(cacheSize);
+        ServiceID.REAL_SERVICE_IDS.resize(cacheSize);
+        ServiceID.CONJECTURAL_SERVICE_IDS.resize(cacheSize);
+        ServiceID.DEFINITIONS.resize(cacheSize);
+        ServiceInstanceID.DEFINITIONS.resize(cacheSize);
+        EndpointID.DEFINITIONS.resize(cacheSize);
+    }
+
     /**
      * Service ID related functions.
      */
     public static class ServiceID {
+        private static final InternCache<String, String> REAL_SERVICE_IDS = new InternCache<>(
+            CACHE_SIZE, name -> doBuildId(name, true));
+        private static final InternCache<String, String> CONJECTURAL_SERVICE_IDS = new InternCache<>(
+            CACHE_SIZE, name -> doBuildId(name, false));
+        private static final InternCache<String, ServiceIDDefinition> DEFINITIONS = new InternCache<>(
+            CACHE_SIZE, ServiceID::doAnalysisId);
+
         /**
          * @return encoded service id
          */
         public static String buildId(String name, NodeType type) {
-            return encode(name) + Const.SERVICE_ID_CONNECTOR + BooleanUtils.booleanToValue(
-                type.equals(NodeType.Normal));
+            return type.equals(NodeType.Normal) ? REAL_SERVICE_IDS.get(name) : CONJECTURAL_SERVICE_IDS.get(name);
+        }
+
+        private static String doBuildId(String name, boolean isReal) {
+            return encode(name) + Const.SERVICE_ID_CONNECTOR + BooleanUtils.booleanToValue(isReal);
         }
 
         /**
          * @return service ID object decoded from {@link #buildId(String, NodeType)} result
          */
         public static ServiceIDDefinition analysisId(String id) {
-            final String[] strings = id.split(Const.SERVICE_ID_PARSER_SPLIT);
+            return DEFINITIONS.get(id);
+        }
+
+        private static ServiceIDDefinition doAnalysisId(String id) {
+            final String[] strings = split(id, Const.SERVICE_ID_CONNECTOR);
             if (strings.length != 2) {
                 throw new UnexpectedException("Can't split service id into 2 parts, " + id);
             }
@@ -68,7 +109,7 @@ public class IDManager {
          * @return service relation ID object decoded from {@link #buildRelationId(ServiceRelationDefine)} result
          */
         public static ServiceRelationDefine analysisRelationId(String entityId) {
-            String[] parts = entityId.split(Const.RELATION_ID_PARSER_SPLIT);
+            String[] parts = split(entityId, Const.RELATION_ID_CONNECTOR);
             if (parts.length != 2) {
                 throw new RuntimeException("Illegal Service Relation entity id");
             }
@@ -99,6 +140,9 @@ public class IDManager {
      * Service Instance ID related functions.
      */
     public static class ServiceInstanceID {
+        private static final InternCache<String, InstanceIDDefinition> DEFINITIONS = new InternCache<>(
+            CACHE_SIZE, ServiceInstanceID::doAnalysisId);
+
         /**
          * @param serviceId built by {@link ServiceID#buildId(String, NodeType)}
          * @return service instance id
@@ -113,7 +157,11 @@ public class IDManager {
          * @return service instance id object decoded from {@link #buildId(String, String)} result
          */
         public static ServiceInstanceID.InstanceIDDefinition analysisId(String id) {
-            final String[] strings = id.split(Const.ID_PARSER_SPLIT);
+            return DEFINITIONS.get(id);
+        }
+
+        private static ServiceInstanceID.InstanceIDDefinition doAnalysisId(String id) {
+            final String[] strings = split(id, Const.ID_CONNECTOR);
             if (strings.length != 2) {
                 throw new UnexpectedException("Can't split instance id into 2 parts, " + id);
             }
@@ -135,7 +183,7 @@ public class IDManager {
          * result
          */
         public static ServiceInstanceID.ServiceInstanceRelationDefine analysisRelationId(String entityId) {
-            String[] parts = entityId.split(Const.RELATION_ID_PARSER_SPLIT);
+            String[] parts = split(entityId, Const.RELATION_ID_CONNECTOR);
             if (parts.length != 2) {
                 throw new RuntimeException("Illegal Service Instance Relation entity id");
             }
@@ -171,6 +219,9 @@ public class IDManager {
      * Endpoint ID related functions.
      */
     public static class EndpointID {
+        private static final InternCache<String, EndpointIDDefinition> DEFINITIONS = new InternCache<>(
+            CACHE_SIZE, EndpointID::doAnalysisId);
+
         /**
          * @param serviceId built by {@link ServiceID#buildId(String, NodeType)}
          * @return endpoint id
@@ -185,7 +236,11 @@ public class IDManager {
          * @return Endpoint id object decoded from {@link #buildId(String, String)} result.
          */
         public static EndpointIDDefinition analysisId(String id) {
-            final String[] strings = id.split(Const.ID_PARSER_SPLIT);
+            return DEFINITIONS.get(id);
+        }
+
+        private static EndpointIDDefinition doAnalysisId(String id) {
+            final String[] strings = split(id, Const.ID_CONNECTOR);
             if (strings.length != 2) {
                 throw new UnexpectedException("Can't split endpoint id into 2 parts, " + id);
             }
@@ -212,7 +267,7 @@ public class IDManager {
          * @return endpoint relation ID object decoded from {@link #buildRelationId(EndpointRelationDefine)} result
          */
         public static EndpointRelationDefine analysisRelationId(String entityId) {
-            String[] parts = entityId.split(Const.RELATION_ID_PARSER_SPLIT);
+            String[] parts = split(entityId, Const.RELATION_ID_CONNECTOR);
             if (parts.length != 4) {
                 throw new UnexpectedException("Illegal endpoint Relation entity id, " + entityId);
             }
@@ -275,6 +330,10 @@ public class IDManager {
      * @return Base74 encoded UTF-8 string
      */
     private static String encode(String text) {
+        return ENCODED_NAMES.get(text);
+    }
+
+    private static String doEncode(String text) {
         return new String(Base64.getEncoder().encode(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
     }
 
@@ -283,6 +342,44 @@ public class IDManager {
      * @return normal literal string
      */
     private static String decode(String base64text) {
+        return DECODED_NAMES.get(base64text);
+    }
+
+    private static String doDecode(String base64text) {
         return new String(Base64.getDecoder().decode(base64text), StandardCharsets.UTF_8);
     }
+
+    /**
+     * Split the ID by the connector without the regex, the result is the same as {@link String#split(String)} of the
+     * escaped connector, including removing the trailing empty strings.
+     */
+    static String[] split(String id, String connector) {
+        final char separator = connector.charAt(0);
+        int count = 1;
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) == separator) {
+                count++;
+            }
+        }
+        if (count == 1) {
+            return new String[] {id};
+        }
+
+        String[] parts = new String[count];
+        int index = 0;
+        int start = 0;
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) == separator) {
+                parts[index++] = id.substring(start, i);
+                start = i + 1;
+            }
+        }
+        parts[index] = id.substring(start);
+
+        int length = count;
+        while (length > 0 && parts[length - 1].isEmpty()) {
+            length--;
+        }
+        return length == count ? parts : Arrays.copyOf(parts, length);
+    }
 }
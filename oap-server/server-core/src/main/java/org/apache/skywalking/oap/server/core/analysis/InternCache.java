@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.function.Function;
+
+/**
+ * A concurrent cache of the results of a pure function, such as the encoding and decoding of the IDs in {@link
+ * IDManager}. The same value instance is returned for the same key, as long as it is in the cache.
+ * <p>
+ * The least recently used entries are evicted when the cache is full, so the hot names stay cached.
+ */
+class InternCache<K, V> {
+    private final Function<K, V> function;
+    private volatile Cache<K, V> cache;
+
+    InternCache(long maxSize, Function<K, V> function) {
+        this.function = function;
+        resize(maxSize);
+    }
+
+    /**
+     * Replace the cache by an empty one of the new max size.
+     */
+    void resize(long maxSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    V get(K key) {
+        final Cache<K, V> current = cache;
+        V value = current.getIfPresent(key);
+        if (value == null) {
+            value = function.apply(key);
+            current.put(key, value);
+        }
+        return value;
+    }
+
+    long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.manual.relation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.instance.ServiceInstanceRelationClientSideMetrics;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.instance.ServiceInstanceRelationServerSideMetrics;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.service.ServiceRelationClientSideMetrics;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.service.ServiceRelationServerSideMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.query.entity.Call;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClient;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClientManager;
+import org.apache.skywalking.oap.server.core.source.DetectPoint;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+
+/**
+ * TopologySnapshot maintains the service and service instance call graph incrementally, from the relation metrics
+ * persisted by the L2 aggregation, so the topology query doesn't need to aggregate all the relation metrics in the
+ * storage.
+ * <p>
+ * Every relation is assigned an index in the dictionary of its kind, and every time bucket of the minute, hour and day
+ * keeps the indexes of the relations in it as a {@link BitSet}. Querying a duration merges the bit sets of the buckets,
+ * then builds the calls of the relations.
+ * <p>
+ * The relation metrics are partitioned across the OAP cluster in the L2 aggregation, so the snapshot is only complete
+ * when this node is the only one in the cluster. Any change of the cluster resets the snapshot, and a duration is
+ * covered only when it starts after the reset and after the evicted buckets, otherwise the storage should be queried.
+ */
+@Slf4j
+public class TopologySnapshot {
+    /**
+     * The number of the buckets kept for each downsampling.
+     */
+    private static final int MINUTE_BUCKETS = 120;
+    private static final int HOUR_BUCKETS = 48;
+    private static final int DAY_BUCKETS = 7;
+    /**
+     * The max number of the relations of each kind, the snapshot is reset when it is reached, to release the relations
+     * no longer existing, such as the ones of the destroyed service instances.
+     */
+    private static final int MAX_RELATIONS = 500_000;
+
+    private final ModuleDefineHolder moduleDefineHolder;
+    private RemoteClientManager remoteClientManager;
+    private volatile List<RemoteClient> clients;
+    /**
+     * Replaced as a whole when the snapshot is reset, the writing to the replaced state is discarded.
+     */
+    private volatile State state;
+
+    public TopologySnapshot(ModuleDefineHolder moduleDefineHolder) {
+        this.moduleDefineHolder = moduleDefineHolder;
+        this.state = new State();
+    }
+
+    /**
+     * @return true if the metrics of the class are recorded in the snapshot.
+     */
+    public static boolean isRelation(Class<? extends Metrics> metricsClass) {
+        return ServiceRelationServerSideMetrics.class.equals(metricsClass)
+            || ServiceRelationClientSideMetrics.class.equals(metricsClass)
+            || ServiceInstanceRelationServerSideMetrics.class.equals(metricsClass)
+            || ServiceInstanceRelationClientSideMetrics.class.equals(metricsClass);
+    }
+
+    /**
+     * Record the relation metrics being persisted.
+     */
+    public void record(Metrics metrics, DownSampling downsampling) {
+        final Kind kind;
+        final String entityId;
+        final String sourceServiceId;
+        final String destServiceId;
+        final int componentId;
+        if (metrics instanceof ServiceRelationServerSideMetrics) {
+            ServiceRelationServerSideMetrics relation = (ServiceRelationServerSideMetrics) metrics;
+            kind = Kind.SERVICE_SERVER_SIDE;
+            entityId = relation.getEntityId();
+            sourceServiceId = relation.getSourceServiceId();
+            destServiceId = relation.getDestServiceId();
+            componentId = relation.getComponentId();
+        } else if (metrics instanceof ServiceRelationClientSideMetrics) {
+            ServiceRelationClientSideMetrics relation = (ServiceRelationClientSideMetrics) metrics;
+            kind = Kind.SERVICE_CLIENT_SIDE;
+            entityId = relation.getEntityId();
+            sourceServiceId = relation.getSourceServiceId();
+            destServiceId = relation.getDestServiceId();
+            componentId = relation.getComponentId();
+        } else if (metrics instanceof ServiceInstanceRelationServerSideMetrics) {
+            ServiceInstanceRelationServerSideMetrics relation = (ServiceInstanceRelationServerSideMetrics) metrics;
+            kind = Kind.INSTANCE_SERVER_SIDE;
+            entityId = relation.getEntityId();
+            sourceServiceId = relation.getSourceServiceId();
+            destServiceId = relation.getDestServiceId();
+            componentId = relation.getComponentId();
+        } else if (metrics instanceof ServiceInstanceRelationClientSideMetrics) {
+            ServiceInstanceRelationClientSideMetrics relation = (ServiceInstanceRelationClientSideMetrics) metrics;
+            kind = Kind.INSTANCE_CLIENT_SIDE;
+            entityId = relation.getEntityId();
+            sourceServiceId = relation.getSourceServiceId();
+            destServiceId = relation.getDestServiceId();
+            componentId = relation.getComponentId();
+        } else {
+            return;
+        }
+
+        if (!isStandalone()) {
+            return;
+        }
+        final State current = state;
+        Buckets buckets = current.buckets.get(downsampling);
+        if (buckets == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(metrics.getTimeBucket());
+        if (bucket == null) {
+            return;
+        }
+        Relation relation = current.relations[kind.ordinal()].get(entityId, sourceServiceId, destServiceId);
+        relation.componentId = componentId;
+        bucket.add(kind, relation.index);
+
+        if (relation.index >= MAX_RELATIONS) {
+            log.info("The number of the {} relations in the topology snapshot exceeds {}, reset it.", kind,
+                     MAX_RELATIONS
+            );
+            state = new State();
+        }
+    }
+
+    /**
+     * @return true if all the relations in the duration are in the snapshot.
+     */
+    public boolean isCovered(DownSampling downsampling, long startTB) {
+        if (!isStandalone()) {
+            return false;
+        }
+        final State current = state;
+        Buckets buckets = current.buckets.get(downsampling);
+        if (buckets == null) {
+            return false;
+        }
+        // The bucket of the reset time is partial.
+        return startTB > TimeBucket.getTimeBucket(current.resetTime, downsampling) && startTB > buckets.evictedBucket;
+    }
+
+    /**
+     * Load the service relations in the duration, the same as {@link org.apache.skywalking.oap.server.core.storage.query.ITopologyQueryDAO}
+     * does.
+     *
+     * @param serviceIds the relations of which the source or the destination is in them, or all relations if null.
+     */
+    public List<Call.CallDetail> loadServiceRelations(DetectPoint detectPoint, DownSampling downsampling,
+                                                      long startTB, long endTB, Collection<String> serviceIds) {
+        final Kind kind = DetectPoint.SERVER.equals(detectPoint) ? Kind.SERVICE_SERVER_SIDE : Kind.SERVICE_CLIENT_SIDE;
+        final Set<String> services = serviceIds == null ? null : new HashSet<>(serviceIds);
+
+        List<Call.CallDetail> calls = new ArrayList<>();
+        for (Relation relation : load(kind, downsampling, startTB, endTB)) {
+            if (services == null
+                || services.contains(relation.sourceServiceId) || services.contains(relation.destServiceId)) {
+                Call.CallDetail call = new Call.CallDetail();
+                call.buildFromServiceRelation(relation.entityId, relation.componentId, detectPoint);
+                calls.add(call);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Load the service instance relations between the two services in the duration, in both directions.
+     */
+    public List<Call.CallDetail> loadInstanceRelations(DetectPoint detectPoint, String clientServiceId,
+                                                       String serverServiceId, DownSampling downsampling,
+                                                       long startTB, long endTB) {
+        final Kind kind = DetectPoint.SERVER.equals(detectPoint) ? Kind.INSTANCE_SERVER_SIDE : Kind.INSTANCE_CLIENT_SIDE;
+
+        List<Call.CallDetail> calls = new ArrayList<>();
+        for (Relation relation : load(kind, downsampling, startTB, endTB)) {
+            if (relation.sourceServiceId.equals(clientServiceId) && relation.destServiceId.equals(serverServiceId)
+                || relation.sourceServiceId.equals(serverServiceId) && relation.destServiceId.equals(clientServiceId)) {
+                Call.CallDetail call = new Call.CallDetail();
+                call.buildFromInstanceRelation(relation.entityId, relation.componentId, detectPoint);
+                calls.add(call);
+            }
+        }
+        return calls;
+    }
+
+    private List<Relation> load(Kind kind, DownSampling downsampling, long startTB, long endTB) {
+        final State current = state;
+        Buckets buckets = current.buckets.get(downsampling);
+        if (buckets == null) {
+            return Collections.emptyList();
+        }
+        BitSet indexes = new BitSet();
+        for (Bucket bucket : buckets.range(startTB, endTB)) {
+            bucket.mergeTo(kind, indexes);
+        }
+        return current.relations[kind.ordinal()].get(indexes);
+    }
+
+    /**
+     * @return true if this node is the only one in the cluster, which persists all the relation metrics.
+     */
+    private boolean isStandalone() {
+        if (remoteClientManager == null) {
+            remoteClientManager = moduleDefineHolder.find(CoreModule.NAME)
+                                                    .provider()
+                                                    .getService(RemoteClientManager.class);
+        }
+        // The clients are rebuilt as a new list when the cluster changes.
+        List<RemoteClient> current = remoteClientManager.getRemoteClient();
+        if (current != clients) {
+            synchronized (this) {
+                if (current != clients) {
+                    state = new State();
+                    clients = current;
+                }
+            }
+        }
+        return current.size() == 1 && current.get(0).getAddress().isSelf();
+    }
+
+    private static class State {
+        private final long resetTime;
+        private final Map<DownSampling, Buckets> buckets;
+        private final Relations[] relations;
+
+        private State() {
+            resetTime = System.currentTimeMillis();
+            buckets = new EnumMap<>(DownSampling.class);
+            buckets.put(DownSampling.Minute, new Buckets(MINUTE_BUCKETS));
+            buckets.put(DownSampling.Hour, new Buckets(HOUR_BUCKETS));
+            buckets.put(DownSampling.Day, new Buckets(DAY_BUCKETS));
+            relations = new Relations[Kind.values().length];
+            for (int i = 0; i < relations.length; i++) {
+                relations[i] = new Relations();
+            }
+        }
+    }
+
+    private enum Kind {
+        SERVICE_SERVER_SIDE, SERVICE_CLIENT_SIDE, INSTANCE_SERVER_SIDE, INSTANCE_CLIENT_SIDE
+    }
+
+    private static class Relation {
+        private final int index;
+        private final String entityId;
+        private final String sourceServiceId;
+        private final String destServiceId;
+        private volatile int componentId;
+
+        private Relation(int index, String entityId, String sourceServiceId, String destServiceId) {
+            this.index = index;
+            this.entityId = entityId;
+            this.sourceServiceId = sourceServiceId;
+            this.destServiceId = destServiceId;
+        }
+    }
+
+    /**
+     * The dictionary of the relations of one kind.
+     */
+    private static class Relations {
+        private final Map<String, Relation> entities = new ConcurrentHashMap<>();
+        private final List<Relation> indexes = new ArrayList<>();
+
+        private Relation get(String entityId, String sourceServiceId, String destServiceId) {
+            Relation relation = entities.get(entityId);
+            if (relation != null) {
+                return relation;
+            }
+            synchronized (this) {
+                return entities.computeIfAbsent(entityId, ignored -> {
+                    Relation created = new Relation(indexes.size(), entityId, sourceServiceId, destServiceId);
+                    indexes.add(created);
+                    return created;
+                });
+            }
+        }
+
+        private synchronized List<Relation> get(BitSet indexes) {
+            List<Relation> result = new ArrayList<>(indexes.cardinality());
+            for (int i = indexes.nextSetBit(0); i >= 0 && i < this.indexes.size(); i = indexes.nextSetBit(i + 1)) {
+                result.add(this.indexes.get(i));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The relations in one time bucket.
+     */
+    private static class Bucket {
+        private final BitSet[] relations;
+
+        private Bucket() {
+            relations = new BitSet[Kind.values().length];
+            for (int i = 0; i < relations.length; i++) {
+                relations[i] = new BitSet();
+            }
+        }
+
+        private synchronized void add(Kind kind, int index) {
+            relations[kind.ordinal()].set(index);
+        }
+
+        private synchronized void mergeTo(Kind kind, BitSet indexes) {
+            indexes.or(relations[kind.ordinal()]);
+        }
+    }
+
+    /**
+     * The latest buckets of one downsampling.
+     */
+    private static class Buckets {
+        private final int maxSize;
+        private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+        /**
+         * The latest time bucket evicted, the relations in and before it are not complete.
+         */
+        private volatile long evictedBucket;
+
+        private Buckets(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return the bucket of the time bucket, or null if it has been evicted.
+         */
+        private Bucket get(long timeBucket) {
+            Bucket bucket = buckets.get(timeBucket);
+            if (bucket != null) {
+                return bucket;
+            }
+            synchronized (this) {
+                if (timeBucket <= evictedBucket) {
+                    return null;
+                }
+                bucket = buckets.computeIfAbsent(timeBucket, ignored -> new Bucket());
+                while (buckets.size() > maxSize) {
+                    evictedBucket = Math.max(evictedBucket, buckets.pollFirstEntry().getKey());
+                }
+                return buckets.get(timeBucket);
+            }
+        }
+
+        private Collection<Bucket> range(long startTB, long endTB) {
+            return buckets.subMap(startTB, true, endTB, true).values();
+        }
+    }
+}
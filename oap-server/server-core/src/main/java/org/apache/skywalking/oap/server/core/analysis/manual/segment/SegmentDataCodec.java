@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.manual.segment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SegmentDataCodec compresses the {@link SegmentRecord#DATA_BINARY} before persistence, if {@link
+ * #setCompressionEnabled(boolean)}.
+ * <p>
+ * The compressed data is in GZIP format, which is recognized by the magic header. The serialized segment never starts
+ * with the magic header, because its first byte would be a protobuf field tag with the invalid wire type 7. So the
+ * compressed and uncompressed data could be stored in the same column, and read by {@link #decode(byte[])} with no
+ * extra flag, the existing data and the data written by the OAP with compression disabled are still readable.
+ */
+public class SegmentDataCodec {
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    private static volatile boolean COMPRESSION_ENABLED = false;
+
+    public static void setCompressionEnabled(final boolean compressionEnabled) {
+        COMPRESSION_ENABLED = compressionEnabled;
+    }
+
+    public static boolean isCompressionEnabled() {
+        return COMPRESSION_ENABLED;
+    }
+
+    /**
+     * @return the data in the storage format, compressed if enabled.
+     */
+    public static byte[] encode(byte[] dataBinary) {
+        if (!COMPRESSION_ENABLED || dataBinary == null || dataBinary.length == 0) {
+            return dataBinary;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(dataBinary.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(dataBinary);
+        } catch (IOException e) {
+            // Not possible, as the data is written into the memory.
+            throw new IllegalStateException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @return the serialized segment, no matter the data in the storage is compressed or not.
+     */
+    public static byte[] decode(byte[] dataBinary) throws IOException {
+        if (!isCompressed(dataBinary)) {
+            return dataBinary;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(dataBinary.length * 4);
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(dataBinary))) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = gzip.read(buffer)) != -1) {
+                output.write(buffer, 0, length);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    static boolean isCompressed(byte[] dataBinary) {
+        return dataBinary != null && dataBinary.length > 2
+            && (dataBinary[0] & 0xff) == GZIP_MAGIC_FIRST
+            && (dataBinary[1] & 0xff) == GZIP_MAGIC_SECOND;
+    }
+}
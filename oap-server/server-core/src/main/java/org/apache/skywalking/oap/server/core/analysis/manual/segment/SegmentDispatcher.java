@@ -26,6 +26,13 @@ public class SegmentDispatcher implements SourceDispatcher<Segment> {
 
     @Override
     public void dispatch(Segment source) {
+        RecordStreamProcessor.getInstance().in(toRecord(source));
+    }
+
+    /**
+     * @return a new record holding the fields of the source, which could be reused after that.
+     */
+    public static SegmentRecord toRecord(Segment source) {
         SegmentRecord segment = new SegmentRecord();
         segment.setSegmentId(source.getSegmentId());
         segment.setTraceId(source.getTraceId());
@@ -40,7 +47,6 @@ public class SegmentDispatcher implements SourceDispatcher<Segment> {
         segment.setDataBinary(source.getDataBinary());
         segment.setTimeBucket(source.getTimeBucket());
         segment.setVersion(source.getVersion());
-
-        RecordStreamProcessor.getInstance().in(segment);
+        return segment;
     }
 }
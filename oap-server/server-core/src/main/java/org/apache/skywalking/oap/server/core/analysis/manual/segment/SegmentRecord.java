@@ -123,7 +123,8 @@ public class SegmentRecord extends Record {
             if (CollectionUtils.isEmpty(storageData.getDataBinary())) {
                 map.put(DATA_BINARY, Const.EMPTY_STRING);
             } else {
-                map.put(DATA_BINARY, new String(Base64.getEncoder().encode(storageData.getDataBinary())));
+                map.put(DATA_BINARY, new String(
+                    Base64.getEncoder().encode(SegmentDataCodec.encode(storageData.getDataBinary()))));
             }
             map.put(VERSION, storageData.getVersion());
             return map;
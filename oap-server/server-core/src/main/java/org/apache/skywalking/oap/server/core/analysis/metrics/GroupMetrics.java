@@ -18,6 +18,11 @@
 package org.apache.skywalking.oap.server.core.analysis.metrics;
 
 public abstract class GroupMetrics extends Metrics {
+    /**
+     * The rough heap size of one element in {@link IntKeyLongValueHashMap}, including the map node, the boxed key and
+     * the {@link IntKeyLongValue}.
+     */
+    private static final int ESTIMATED_ELEMENT_SIZE = 80;
 
     protected void combine(IntKeyLongValueHashMap source, IntKeyLongValueHashMap target) {
         source.forEach((key, element) -> {
@@ -29,4 +34,8 @@ public abstract class GroupMetrics extends Metrics {
             }
         });
     }
+
+    protected int estimatedSize(IntKeyLongValueHashMap group) {
+        return group == null ? 0 : group.size() * ESTIMATED_ELEMENT_SIZE;
+    }
 }
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.metrics;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.IntKeyLongValuePair;
+import org.apache.skywalking.oap.server.core.storage.type.StorageDataComplexObject;
+
+/**
+ * IntKeyLongHistogram is the primitive replacement of {@link IntKeyLongValueHashMap} for the bucket based metrics,
+ * such as {@link PercentileMetrics} and {@link ThermodynamicMetrics}.
+ * <p>
+ * The keys are kept in ascending order in an int array, and the values in a parallel long array, so no boxed key or
+ * value object is created per bucket, {@link #combine(IntKeyLongHistogram)} merges in place, and the buckets could be
+ * iterated in order through {@link #keyAt(int)} and {@link #valueAt(int)} without sorting.
+ * <p>
+ * The storage form is the {@link #COMPACT_PREFIX} followed by the Base64 of the zigzag varint encoded delta keys and
+ * values. The legacy form of {@link IntKeyLongValueHashMap}, `key,value|key,value`, is still accepted by {@link
+ * #toObject(String)}, so the existing data in the storage could be read after upgrading.
+ */
+public class IntKeyLongHistogram implements StorageDataComplexObject {
+    /**
+     * The legacy storage form only contains digits and separators, so it never starts with this prefix.
+     */
+    public static final String COMPACT_PREFIX = "#";
+    /**
+     * The rough heap size of the object header and the two array headers.
+     */
+    private static final int ESTIMATED_BASE_SIZE = 64;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    public IntKeyLongHistogram() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntKeyLongHistogram(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+    }
+
+    public IntKeyLongHistogram(String data) {
+        this();
+        toObject(data);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the key of the bucket at the given position, buckets are in the ascending order of the keys.
+     */
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return the value of the bucket at the given position.
+     */
+    public long valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the value of the given key, or 0 if the bucket doesn't exist.
+     */
+    public long get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? 0 : values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the sum of the values of all buckets.
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    /**
+     * Add the value into the bucket of the given key, the bucket is created if absent.
+     */
+    public void add(int key, long value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            values[index] += value;
+        } else {
+            insert(-(index + 1), key, value);
+        }
+    }
+
+    /**
+     * Set the value of the bucket of the given key, the bucket is created if absent.
+     */
+    public void put(int key, long value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            values[index] = value;
+        } else {
+            insert(-(index + 1), key, value);
+        }
+    }
+
+    /**
+     * Accumulate all buckets of the source into this histogram. Both key arrays are sorted, so the new keys are
+     * counted in one pass, and then the arrays are merged from the tail, without any temporary buffer.
+     */
+    public void combine(IntKeyLongHistogram source) {
+        int newKeys = 0;
+        for (int i = 0, j = 0; j < source.size; ) {
+            if (i == size || keys[i] > source.keys[j]) {
+                newKeys++;
+                j++;
+            } else if (keys[i] == source.keys[j]) {
+                i++;
+                j++;
+            } else {
+                i++;
+            }
+        }
+
+        if (newKeys == 0) {
+            for (int i = 0, j = 0; j < source.size; i++) {
+                if (keys[i] == source.keys[j]) {
+                    values[i] += source.values[j];
+                    j++;
+                }
+            }
+            return;
+        }
+
+        ensureCapacity(size + newKeys);
+        int i = size - 1;
+        int j = source.size - 1;
+        for (int k = size + newKeys - 1; j >= 0; k--) {
+            if (i >= 0 && keys[i] > source.keys[j]) {
+                keys[k] = keys[i];
+                values[k] = values[i];
+                i--;
+            } else if (i >= 0 && keys[i] == source.keys[j]) {
+                keys[k] = keys[i];
+                values[k] = values[i] + source.values[j];
+                i--;
+                j--;
+            } else {
+                keys[k] = source.keys[j];
+                values[k] = source.values[j];
+                j--;
+            }
+        }
+        size += newKeys;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the rough heap size of this histogram in bytes.
+     */
+    public int estimatedSize() {
+        return ESTIMATED_BASE_SIZE + keys.length * (Integer.BYTES + Long.BYTES);
+    }
+
+    public DataIntLongPairList.Builder serialize() {
+        DataIntLongPairList.Builder pairList = DataIntLongPairList.newBuilder();
+        for (int i = 0; i < size; i++) {
+            pairList.addValue(IntKeyLongValuePair.newBuilder().setKey(keys[i]).setValue(values[i]));
+        }
+        return pairList;
+    }
+
+    public void deserialize(DataIntLongPairList pairList) {
+        for (int i = 0; i < pairList.getValueCount(); i++) {
+            IntKeyLongValuePair pair = pairList.getValue(i);
+            add(pair.getKey(), pair.getValue());
+        }
+    }
+
+    @Override
+    public String toStorageData() {
+        byte[] buffer = new byte[5 + size * 15];
+        int position = writeVarLong(buffer, 0, size);
+        int previousKey = 0;
+        for (int i = 0; i < size; i++) {
+            position = writeVarLong(buffer, position, zigzag(keys[i] - previousKey));
+            position = writeVarLong(buffer, position, zigzag(values[i]));
+            previousKey = keys[i];
+        }
+        return COMPACT_PREFIX + Base64.getEncoder().encodeToString(Arrays.copyOf(buffer, position));
+    }
+
+    @Override
+    public void toObject(String data) {
+        clear();
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        if (data.startsWith(COMPACT_PREFIX)) {
+            readCompact(ByteBuffer.wrap(Base64.getDecoder().decode(data.substring(COMPACT_PREFIX.length()))));
+        } else {
+            readLegacy(data);
+        }
+    }
+
+    @Override
+    public void copyFrom(Object source) {
+        IntKeyLongHistogram histogram = (IntKeyLongHistogram) source;
+        ensureCapacity(histogram.size);
+        System.arraycopy(histogram.keys, 0, keys, 0, histogram.size);
+        System.arraycopy(histogram.values, 0, values, 0, histogram.size);
+        size = histogram.size;
+    }
+
+    private void readCompact(ByteBuffer buffer) {
+        int count = (int) readVarLong(buffer);
+        ensureCapacity(count);
+        int key = 0;
+        for (int i = 0; i < count; i++) {
+            key += (int) unzigzag(readVarLong(buffer));
+            put(key, unzigzag(readVarLong(buffer)));
+        }
+    }
+
+    /**
+     * Read the `key,value|key,value` form written by {@link IntKeyLongValueHashMap}, keys are not ordered in it.
+     */
+    private void readLegacy(String data) {
+        int start = 0;
+        while (start < data.length()) {
+            int end = data.indexOf(Const.ARRAY_SPLIT, start);
+            if (end < 0) {
+                end = data.length();
+            }
+            int split = data.indexOf(Const.KEY_VALUE_SPLIT, start);
+            put(Integer.parseInt(data.substring(start, split)), Long.parseLong(data.substring(split + 1, end)));
+            start = end + 1;
+        }
+    }
+
+    private int indexOf(int key) {
+        if (size > 0 && keys[size - 1] < key) {
+            // Fast path for the ascending input, such as deserialization.
+            return -(size + 1);
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, int key, long value) {
+        ensureCapacity(size + 1);
+        if (index < size) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int newCapacity = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -43,10 +43,9 @@ public abstract class Metrics extends StreamData implements StorageData {
     private long timeBucket;
 
     /**
-     * Time in the cache, only work when MetricsPersistentWorker#enableDatabaseSession == true.
+     * The rough heap size of a metrics instance holding only the entity ID, time bucket and a few numeric values.
      */
-    @Getter
-    private long survivalTime = 0L;
+    protected static final int BASE_ESTIMATED_SIZE = 256;
 
     /**
      * Merge the given metrics instance, these two must be the same metrics type.
@@ -75,12 +74,13 @@ public abstract class Metrics extends StreamData implements StorageData {
     public abstract Metrics toDay();
 
     /**
-     * Extend the {@link #survivalTime}
+     * Estimate the heap size of this metrics, used as the weight in the metrics session cache. The metrics holding
+     * variable size values should override this, to make the cache memory budget accurate.
      *
-     * @param value to extend
+     * @return the estimated size in bytes.
      */
-    public void extendSurvivalTime(long value) {
-        survivalTime += value;
+    public int estimatedSize() {
+        return BASE_ESTIMATED_SIZE;
     }
 
     public long toTimeBucketInHour() {
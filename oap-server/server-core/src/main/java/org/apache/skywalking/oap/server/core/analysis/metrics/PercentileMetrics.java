@@ -18,7 +18,6 @@
 
 package org.apache.skywalking.oap.server.core.analysis.metrics;
 
-import java.util.Comparator;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.skywalking.oap.server.core.analysis.metrics.annotation.Arg;
@@ -60,13 +59,13 @@ public abstract class PercentileMetrics extends GroupMetrics implements MultiInt
     @Getter
     @Setter
     @Column(columnName = DATASET, storageOnly = true)
-    private IntKeyLongValueHashMap dataset;
+    private IntKeyLongHistogram dataset;
 
     private boolean isCalculated;
 
     public PercentileMetrics() {
         percentileValues = new IntKeyLongValueHashMap(RANKS.length);
-        dataset = new IntKeyLongValueHashMap(30);
+        dataset = new IntKeyLongHistogram(30);
     }
 
     @Entrance
@@ -74,14 +73,7 @@ public abstract class PercentileMetrics extends GroupMetrics implements MultiInt
         this.isCalculated = false;
         this.precision = precision;
 
-        int index = value / precision;
-        IntKeyLongValue element = dataset.get(index);
-        if (element == null) {
-            element = new IntKeyLongValue(index, 1);
-            dataset.put(element.getKey(), element);
-        } else {
-            element.addValue(1);
-        }
+        dataset.add(value / precision, 1);
     }
 
     @Override
@@ -89,39 +81,41 @@ public abstract class PercentileMetrics extends GroupMetrics implements MultiInt
         this.isCalculated = false;
 
         PercentileMetrics percentileMetrics = (PercentileMetrics) metrics;
-        combine(percentileMetrics.getDataset(), this.dataset);
+        this.dataset.combine(percentileMetrics.getDataset());
     }
 
+    /**
+     * Walk through the sorted buckets once, and resolve the ranks in order, without sorting or temporary arrays.
+     */
     @Override
     public final void calculate() {
 
         if (!isCalculated) {
-            int total = dataset.values().stream().mapToInt(element -> (int) element.getValue()).sum();
+            long total = dataset.total();
 
             int index = 0;
-            int[] roofs = new int[RANKS.length];
-            for (int i = 0; i < RANKS.length; i++) {
-                roofs[i] = Math.round(total * RANKS[i] * 1.0f / 100);
-            }
-
-            int count = 0;
-            IntKeyLongValue[] sortedData = dataset.values()
-                                                  .stream()
-                                                  .sorted(Comparator.comparingInt(IntKeyLongValue::getKey))
-                                                  .toArray(IntKeyLongValue[]::new);
-            for (IntKeyLongValue element : sortedData) {
-                count += element.getValue();
-                for (int i = index; i < roofs.length; i++) {
-                    int roof = roofs[i];
-
-                    if (count >= roof) {
-                        percentileValues.put(index, new IntKeyLongValue(index, element.getKey() * precision));
-                        index++;
-                    } else {
-                        break;
-                    }
+            long count = 0;
+            for (int i = 0; i < dataset.size() && index < RANKS.length; i++) {
+                count += dataset.valueAt(i);
+                while (index < RANKS.length && count >= roof(total, RANKS[index])) {
+                    setPercentileValue(index, dataset.keyAt(i) * precision);
+                    index++;
                 }
             }
+            isCalculated = true;
+        }
+    }
+
+    private static int roof(long total, int rank) {
+        return Math.round(total * rank * 1.0f / 100);
+    }
+
+    private void setPercentileValue(int index, long value) {
+        IntKeyLongValue element = percentileValues.get(index);
+        if (element == null) {
+            percentileValues.put(index, new IntKeyLongValue(index, value));
+        } else {
+            element.setValue(value);
         }
     }
 
@@ -132,4 +126,9 @@ public abstract class PercentileMetrics extends GroupMetrics implements MultiInt
         }
         return values;
     }
+
+    @Override
+    public int estimatedSize() {
+        return BASE_ESTIMATED_SIZE + dataset.estimatedSize() + estimatedSize(percentileValues);
+    }
 }
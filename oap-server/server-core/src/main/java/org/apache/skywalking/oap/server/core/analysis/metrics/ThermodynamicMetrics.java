@@ -51,12 +51,12 @@ public abstract class ThermodynamicMetrics extends GroupMetrics {
     private int numOfSteps = 0;
     /**
      * The special case when the column is isValue = true, but storageOnly = true, because it is {@link
-     * IntKeyLongValueHashMap} type, this column can't be query by the aggregation way.
+     * IntKeyLongHistogram} type, this column can't be query by the aggregation way.
      */
     @Getter
     @Setter
     @Column(columnName = DETAIL_GROUP, isValue = true, storageOnly = true)
-    private IntKeyLongValueHashMap detailGroup = new IntKeyLongValueHashMap(30);
+    private IntKeyLongHistogram detailGroup = new IntKeyLongHistogram(30);
 
     /**
      * Data will be grouped in
@@ -81,19 +81,13 @@ public abstract class ThermodynamicMetrics extends GroupMetrics {
             index = numOfSteps;
         }
 
-        IntKeyLongValue element = detailGroup.get(index);
-        if (element == null) {
-            element = new IntKeyLongValue(index, 1);
-            detailGroup.put(element.getKey(), element);
-        } else {
-            element.addValue(1);
-        }
+        detailGroup.add(index, 1);
     }
 
     @Override
     public void combine(Metrics metrics) {
         ThermodynamicMetrics thermodynamicMetrics = (ThermodynamicMetrics) metrics;
-        combine(thermodynamicMetrics.getDetailGroup(), this.detailGroup);
+        this.detailGroup.combine(thermodynamicMetrics.getDetailGroup());
     }
 
     /**
@@ -102,4 +96,9 @@ public abstract class ThermodynamicMetrics extends GroupMetrics {
     @Override
     public final void calculate() {
     }
+
+    @Override
+    public int estimatedSize() {
+        return BASE_ESTIMATED_SIZE + detailGroup.estimatedSize();
+    }
 }
@@ -49,13 +49,15 @@ public class MetricsAggregateWorker extends AbstractWorker<Metrics> {
     private AbstractWorker<Metrics> nextWorker;
     private final DataCarrier<Metrics> dataCarrier;
     private final MergeDataCache<Metrics> mergeDataCache;
+    private final MetricsFlushPolicy.Trigger flushTrigger;
     private CounterMetrics aggregationCounter;
 
     MetricsAggregateWorker(ModuleDefineHolder moduleDefineHolder, AbstractWorker<Metrics> nextWorker,
-                           String modelName) {
+                           String modelName, MetricsFlushPolicy flushPolicy) {
         super(moduleDefineHolder);
         this.nextWorker = nextWorker;
         this.mergeDataCache = new MergeDataCache<>();
+        this.flushTrigger = flushPolicy.createTrigger(moduleDefineHolder, modelName);
         String name = "METRICS_L1_AGGREGATION";
         this.dataCarrier = new DataCarrier<>("MetricsAggregateWorker." + modelName, name, 2, 10000);
 
@@ -87,7 +89,13 @@ public class MetricsAggregateWorker extends AbstractWorker<Metrics> {
         aggregationCounter.inc();
         aggregate(metrics);
 
-        if (metrics.isEndOfBatch()) {
+        if (metrics.isEndOfBatch() && flushTrigger.shouldFlush()) {
+            sendToNext();
+        }
+    }
+
+    private void onIdle() {
+        if (flushTrigger.shouldFlush()) {
             sendToNext();
         }
     }
@@ -110,14 +118,17 @@ public class MetricsAggregateWorker extends AbstractWorker<Metrics> {
             nextWorker.in(data);
         });
         mergeDataCache.finishReadingLast();
+        flushTrigger.onFlushed();
     }
 
     private void aggregate(Metrics metrics) {
         mergeDataCache.writing();
         if (mergeDataCache.containsKey(metrics)) {
             mergeDataCache.get(metrics).combine(metrics);
+            flushTrigger.onAggregated(true);
         } else {
             mergeDataCache.put(metrics);
+            flushTrigger.onAggregated(false);
         }
 
         mergeDataCache.finishWriting();
@@ -159,5 +170,10 @@ public class MetricsAggregateWorker extends AbstractWorker<Metrics> {
         @Override
         public void onExit() {
         }
+
+        @Override
+        public void nothingToConsume() {
+            aggregator.onIdle();
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * MetricsFlushPolicy decides when the L1 aggregation sends the merged metrics to the L2 aggregation.
+ * <p>
+ * When CoreModuleConfig#l1FlushMaxAge is 0, the merged metrics are sent at the end of every consumed batch, as before.
+ * Otherwise, the metrics are kept merging until one of the triggers fires,
+ * <ul>
+ * <li>the oldest metrics in the cache have waited for the max age, which bounds the latency.</li>
+ * <li>the number of merged entries reaches the max entries, which bounds the memory.</li>
+ * <li>the merge ratio, the number of received metrics per merged entry, reaches the target.</li>
+ * </ul>
+ * The triggers are checked at the end of every consumed batch, and when the queue is idle.
+ */
+public class MetricsFlushPolicy {
+    /**
+     * The buckets of the merge ratio histogram.
+     */
+    private static final double[] MERGE_RATIO_BUCKETS = {
+        1,
+        1.5,
+        2,
+        5,
+        10,
+        20,
+        50,
+        100
+    };
+
+    private final long maxAge;
+    private final int maxEntries;
+    private final double targetMergeRatio;
+
+    public MetricsFlushPolicy(CoreModuleConfig moduleConfig) {
+        this.maxAge = moduleConfig.getL1FlushMaxAge();
+        this.maxEntries = moduleConfig.getL1FlushMaxEntries();
+        this.targetMergeRatio = moduleConfig.getL1FlushMergeRatio();
+    }
+
+    /**
+     * Create the trigger of one merge cache. The trigger isn't thread safe, it should be only used by the consumer
+     * thread of the cache.
+     */
+    Trigger createTrigger(ModuleDefineHolder moduleDefineHolder, String modelName) {
+        return new Trigger(moduleDefineHolder, modelName);
+    }
+
+    class Trigger {
+        private final CounterMetrics flushCounter;
+        private final HistogramMetrics mergeRatioHistogram;
+        private long received;
+        private int entries;
+        private long firstReceivedTime;
+
+        private Trigger(ModuleDefineHolder moduleDefineHolder, String modelName) {
+            MetricsCreator metricsCreator = moduleDefineHolder.find(TelemetryModule.NAME)
+                                                              .provider()
+                                                              .getService(MetricsCreator.class);
+            flushCounter = metricsCreator.createCounter(
+                "metrics_aggregation_flush", "The number of rows sent by the L1 aggregation",
+                new MetricsTag.Keys("metricName", "level"), new MetricsTag.Values(modelName, "1")
+            );
+            mergeRatioHistogram = metricsCreator.createHistogramMetric(
+                "metrics_aggregation_merge_ratio", "The number of received rows per sent row of the L1 aggregation",
+                new MetricsTag.Keys("metricName", "level"), new MetricsTag.Values(modelName, "1"), MERGE_RATIO_BUCKETS
+            );
+        }
+
+        /**
+         * @param merged true if the metrics has been combined into an existing entry of the cache.
+         */
+        void onAggregated(boolean merged) {
+            if (received++ == 0) {
+                firstReceivedTime = System.currentTimeMillis();
+            }
+            if (!merged) {
+                entries++;
+            }
+        }
+
+        boolean shouldFlush() {
+            if (entries == 0) {
+                return false;
+            }
+            if (maxAge <= 0) {
+                return true;
+            }
+            if (maxEntries > 0 && entries >= maxEntries) {
+                return true;
+            }
+            if (targetMergeRatio > 0 && received >= targetMergeRatio * entries) {
+                return true;
+            }
+            return System.currentTimeMillis() - firstReceivedTime >= maxAge;
+        }
+
+        /**
+         * Record the achieved merge ratio, and start a new round.
+         */
+        void onFlushed() {
+            if (entries > 0) {
+                flushCounter.inc(entries);
+                mergeRatioHistogram.observe((double) received / entries);
+            }
+            received = 0;
+            entries = 0;
+        }
+    }
+}
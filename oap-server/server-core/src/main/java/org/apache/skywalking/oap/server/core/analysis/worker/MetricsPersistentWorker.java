@@ -22,7 +22,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,7 +31,9 @@ import org.apache.skywalking.apm.commons.datacarrier.consumer.BulkConsumePool;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPoolFactory;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
 import org.apache.skywalking.oap.server.core.UnexpectedException;
+import org.apache.skywalking.oap.server.core.cache.MetadataCatalog;
 import org.apache.skywalking.oap.server.core.analysis.data.MergeDataCache;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.TopologySnapshot;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.exporter.ExportEvent;
 import org.apache.skywalking.oap.server.core.storage.IMetricsDAO;
@@ -47,28 +48,52 @@ import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
 @Slf4j
 public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDataCache<Metrics>> {
     private final Model model;
-    private final Map<Metrics, Metrics> context;
+    /**
+     * The view of the shared {@link MetricsSessionCache}, only exists when {@link #enableDatabaseSession} == true.
+     */
+    private final MetricsSessionCache.Session session;
+    /**
+     * The metrics written in the current round and the last round. The persistence of the last round may be still in
+     * execution(see PersistenceTimer pipeline mode), so they are kept readable here, even they have been evicted from
+     * the session cache.
+     */
+    private Map<Metrics, Metrics> roundWritten;
+    private Map<Metrics, Metrics> lastRoundWritten;
     private final MergeDataCache<Metrics> mergeDataCache;
     private final IMetricsDAO metricsDAO;
     private final Optional<AbstractWorker<Metrics>> nextAlarmWorker;
     private final Optional<AbstractWorker<ExportEvent>> nextExportWorker;
     private final DataCarrier<Metrics> dataCarrier;
     private final Optional<MetricsTransWorker> transWorker;
+    /**
+     * Exists for the relation metrics only, when CoreModuleConfig#enableTopologySnapshot == true.
+     */
+    private final Optional<TopologySnapshot> topologySnapshot;
+    /**
+     * Exists for the traffic only, when CoreModuleConfig#metadataCatalogRefreshPeriod is positive.
+     */
+    private final Optional<MetadataCatalog> metadataCatalog;
     private final boolean enableDatabaseSession;
     private final boolean supportUpdate;
 
     MetricsPersistentWorker(ModuleDefineHolder moduleDefineHolder, Model model, IMetricsDAO metricsDAO,
                             AbstractWorker<Metrics> nextAlarmWorker, AbstractWorker<ExportEvent> nextExportWorker,
-                            MetricsTransWorker transWorker, boolean enableDatabaseSession, boolean supportUpdate) {
+                            MetricsTransWorker transWorker, MetricsSessionCache sessionCache,
+                            TopologySnapshot topologySnapshot, MetadataCatalog metadataCatalog,
+                            boolean enableDatabaseSession, boolean supportUpdate) {
         super(moduleDefineHolder);
         this.model = model;
-        this.context = new HashMap<>(100);
         this.enableDatabaseSession = enableDatabaseSession;
+        this.session = enableDatabaseSession ? sessionCache.createSession(moduleDefineHolder, model) : null;
+        this.roundWritten = new HashMap<>(100);
+        this.lastRoundWritten = new HashMap<>(100);
         this.mergeDataCache = new MergeDataCache<>();
         this.metricsDAO = metricsDAO;
         this.nextAlarmWorker = Optional.ofNullable(nextAlarmWorker);
         this.nextExportWorker = Optional.ofNullable(nextExportWorker);
         this.transWorker = Optional.ofNullable(transWorker);
+        this.topologySnapshot = Optional.ofNullable(topologySnapshot);
+        this.metadataCatalog = Optional.ofNullable(metadataCatalog);
         this.supportUpdate = supportUpdate;
 
         String name = "METRICS_L2_AGGREGATION";
@@ -91,10 +116,11 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
      * Create the leaf MetricsPersistentWorker, no next step.
      */
     MetricsPersistentWorker(ModuleDefineHolder moduleDefineHolder, Model model, IMetricsDAO metricsDAO,
+                            MetricsSessionCache sessionCache, TopologySnapshot topologySnapshot,
                             boolean enableDatabaseSession, boolean supportUpdate) {
         this(moduleDefineHolder, model, metricsDAO,
              null, null, null,
-             enableDatabaseSession, supportUpdate
+             sessionCache, topologySnapshot, null, enableDatabaseSession, supportUpdate
         );
     }
 
@@ -116,6 +142,11 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
         return mergeDataCache;
     }
 
+    @Override
+    public Model getModel() {
+        return model;
+    }
+
     @Override
     public void prepareBatch(Collection<Metrics> lastCollection, List<PrepareRequest> prepareRequests) {
         long start = System.currentTimeMillis();
@@ -154,7 +185,7 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
     private void flushDataToStorage(List<Metrics> metricsList,
                                     List<PrepareRequest> prepareRequests) {
         try {
-            loadFromStorage(metricsList);
+            Map<Metrics, Metrics> context = loadFromStorage(metricsList);
 
             for (Metrics metrics : metricsList) {
                 Metrics cachedMetrics = context.get(metrics);
@@ -172,6 +203,9 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
                     cachedMetrics.combine(metrics);
                     cachedMetrics.calculate();
                     prepareRequests.add(metricsDAO.prepareBatchUpdate(model, cachedMetrics));
+                    writeToSession(cachedMetrics);
+                    recordTopology(cachedMetrics);
+                    recordMetadata(cachedMetrics);
                     nextWorker(cachedMetrics);
 
                     /*
@@ -181,6 +215,9 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
                         new ExportEvent(metrics, ExportEvent.EventType.INCREMENT)));
                 } else {
                     prepareRequests.add(metricsDAO.prepareBatchInsert(model, metrics));
+                    writeToSession(metrics);
+                    recordTopology(metrics);
+                    recordMetadata(metrics);
                     nextWorker(metrics);
                 }
             }
@@ -213,16 +250,20 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
     }
 
     /**
-     * Load data from the storage, if {@link #enableDatabaseSession} == true, only load data when the id doesn't exist.
+     * Load data from the session, if {@link #enableDatabaseSession} == true, and from the storage for the ones not in
+     * the session.
+     *
+     * @return the existing metrics of the given ones.
      */
-    private void loadFromStorage(List<Metrics> metrics) throws IOException {
-        if (!enableDatabaseSession) {
-            context.clear();
-        }
+    private Map<Metrics, Metrics> loadFromStorage(List<Metrics> metrics) throws IOException {
+        Map<Metrics, Metrics> context = new HashMap<>(metrics.size());
 
         List<String> notInCacheIds = new ArrayList<>();
         for (Metrics metric : metrics) {
-            if (!context.containsKey(metric)) {
+            Metrics cachedMetrics = readFromSession(metric);
+            if (cachedMetrics != null) {
+                context.put(cachedMetrics, cachedMetrics);
+            } else {
                 notInCacheIds.add(metric.id());
             }
         }
@@ -233,20 +274,46 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics, MergeDat
                 context.put(metric, metric);
             }
         }
+        return context;
+    }
+
+    private Metrics readFromSession(Metrics metrics) {
+        if (!enableDatabaseSession) {
+            return null;
+        }
+        Metrics writtenMetrics = lastRoundWritten.get(metrics);
+        if (writtenMetrics != null) {
+            return writtenMetrics;
+        }
+        return session.get(metrics);
+    }
+
+    /**
+     * Write the persisted metrics through to the session, no need to read it back in the next round.
+     * <p>
+     * The metrics is cached before its write is acknowledged, so the following rounds may update a metrics whose
+     * insert failed. {@link IMetricsDAO#prepareBatchUpdate(Model, Metrics)} inserts the metrics in that case.
+     */
+    private void writeToSession(Metrics metrics) {
+        if (enableDatabaseSession) {
+            session.put(metrics);
+            roundWritten.put(metrics, metrics);
+        }
+    }
+
+    private void recordTopology(Metrics metrics) {
+        topologySnapshot.ifPresent(snapshot -> snapshot.record(metrics, model.getDownsampling()));
+    }
+
+    private void recordMetadata(Metrics metrics) {
+        metadataCatalog.ifPresent(catalog -> catalog.record(metrics));
     }
 
     @Override
     public void endOfRound(long tookTime) {
         if (enableDatabaseSession) {
-            Iterator<Metrics> iterator = context.values().iterator();
-            while (iterator.hasNext()) {
-                Metrics metrics = iterator.next();
-                metrics.extendSurvivalTime(tookTime);
-                // 70,000ms means more than one minute.
-                if (metrics.getSurvivalTime() > 70000) {
-                    iterator.remove();
-                }
-            }
+            lastRoundWritten = roundWritten;
+            roundWritten = new HashMap<>(lastRoundWritten.size());
         }
     }
 
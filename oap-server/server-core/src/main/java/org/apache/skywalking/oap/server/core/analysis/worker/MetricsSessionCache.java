@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * MetricsSessionCache hosts the persisted metrics of all {@link MetricsPersistentWorker}s, works when
+ * CoreModuleConfig#enableDatabaseSession == true. The persistent worker merges the new values into the cached metrics
+ * and writes them through to the storage, so no read-before-write happens for the hot entities.
+ * <p>
+ * The memory of the cache is bounded by the estimated size of the metrics, see {@link Metrics#estimatedSize()}, the
+ * least recently used metrics are evicted when the budget is exceeded. The metrics are also expired after they are idle
+ * longer than the TTL of their downsampling.
+ */
+public class MetricsSessionCache {
+    private final Cache<Metrics, CachedMetrics> cache;
+    private final long minuteTTL;
+    private final long hourTTL;
+    private final long dayTTL;
+
+    public MetricsSessionCache(CoreModuleConfig moduleConfig) {
+        this.minuteTTL = TimeUnit.SECONDS.toMillis(moduleConfig.getMetricsSessionMinuteTTL());
+        this.hourTTL = TimeUnit.SECONDS.toMillis(moduleConfig.getMetricsSessionHourTTL());
+        this.dayTTL = TimeUnit.SECONDS.toMillis(moduleConfig.getMetricsSessionDayTTL());
+
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumWeight(moduleConfig.getMetricsSessionCacheMaxSizeInMB() * 1024L * 1024L)
+                                 .weigher((Metrics key, CachedMetrics value) -> value.weight)
+                                 .expireAfterAccess(Math.max(minuteTTL, Math.max(hourTTL, dayTTL)),
+                                                    TimeUnit.MILLISECONDS)
+                                 .<Metrics, CachedMetrics>removalListener(notification -> {
+                                     if (RemovalCause.SIZE.equals(notification.getCause())) {
+                                         notification.getValue().session.evictionCounter.inc();
+                                     } else if (RemovalCause.EXPIRED.equals(notification.getCause())) {
+                                         notification.getValue().session.expirationCounter.inc();
+                                     }
+                                 })
+                                 .build();
+    }
+
+    /**
+     * Create the session of the given persistent worker, the metrics of the worker follow the TTL of its downsampling.
+     */
+    Session createSession(ModuleDefineHolder moduleDefineHolder, Model model) {
+        return new Session(moduleDefineHolder, model.getDownsampling());
+    }
+
+    /**
+     * Remove the metrics which are idle longer than the TTL of their downsampling. The cache only does the maintenance
+     * along with the reads and writes, so this should be called periodically.
+     */
+    public void cleanUp() {
+        final long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Metrics, CachedMetrics>> iterator = cache.asMap().entrySet().iterator();
+        while (iterator.hasNext()) {
+            CachedMetrics cached = iterator.next().getValue();
+            if (cached.isExpired(now)) {
+                iterator.remove();
+                cached.session.expirationCounter.inc();
+            }
+        }
+        cache.cleanUp();
+    }
+
+    private long ttl(DownSampling downSampling) {
+        switch (downSampling) {
+            case Hour:
+                return hourTTL;
+            case Day:
+                return dayTTL;
+            default:
+                return minuteTTL;
+        }
+    }
+
+    /**
+     * The view of the cache for one persistent worker.
+     */
+    class Session {
+        private final long ttl;
+        private final CounterMetrics hitCounter;
+        private final CounterMetrics missCounter;
+        private final CounterMetrics evictionCounter;
+        private final CounterMetrics expirationCounter;
+
+        private Session(ModuleDefineHolder moduleDefineHolder, DownSampling downSampling) {
+            this.ttl = ttl(downSampling);
+
+            MetricsCreator metricsCreator = moduleDefineHolder.find(TelemetryModule.NAME)
+                                                              .provider()
+                                                              .getService(MetricsCreator.class);
+            MetricsTag.Keys keys = new MetricsTag.Keys("level");
+            MetricsTag.Values values = new MetricsTag.Values(downSampling.getName());
+            hitCounter = metricsCreator.createCounter(
+                "metrics_session_cache_hit", "The number of metrics found in the session cache", keys, values);
+            missCounter = metricsCreator.createCounter(
+                "metrics_session_cache_miss", "The number of metrics not found in the session cache", keys, values);
+            evictionCounter = metricsCreator.createCounter(
+                "metrics_session_cache_eviction", "The number of metrics evicted as the cache is full", keys, values);
+            expirationCounter = metricsCreator.createCounter(
+                "metrics_session_cache_expiration", "The number of metrics expired in the session cache", keys,
+                values
+            );
+        }
+
+        /**
+         * @return the cached metrics with the same ID, or null if not found.
+         */
+        Metrics get(Metrics metrics) {
+            CachedMetrics cached = cache.getIfPresent(metrics);
+            final long now = System.currentTimeMillis();
+            if (cached == null || cached.isExpired(now)) {
+                missCounter.inc();
+                return null;
+            }
+            cached.lastAccessTime = now;
+            hitCounter.inc();
+            return cached.metrics;
+        }
+
+        /**
+         * Put the metrics into the cache, or refresh the estimated size of the cached one after it changed.
+         */
+        void put(Metrics metrics) {
+            cache.put(metrics, new CachedMetrics(this, metrics));
+        }
+    }
+
+    private static class CachedMetrics {
+        private final Session session;
+        private final Metrics metrics;
+        private final int weight;
+        private volatile long lastAccessTime;
+
+        private CachedMetrics(Session session, Metrics metrics) {
+            this.session = session;
+            this.metrics = metrics;
+            this.weight = metrics.estimatedSize();
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+
+        private boolean isExpired(long now) {
+            return now - lastAccessTime > session.ttl;
+        }
+    }
+}
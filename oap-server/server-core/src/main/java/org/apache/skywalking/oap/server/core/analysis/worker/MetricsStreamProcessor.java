@@ -31,6 +31,8 @@ import org.apache.skywalking.oap.server.core.analysis.DownSampling;
 import org.apache.skywalking.oap.server.core.analysis.MetricsExtension;
 import org.apache.skywalking.oap.server.core.analysis.Stream;
 import org.apache.skywalking.oap.server.core.analysis.StreamProcessor;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.TopologySnapshot;
+import org.apache.skywalking.oap.server.core.cache.MetadataCatalog;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.config.DownSamplingConfigService;
 import org.apache.skywalking.oap.server.core.storage.IMetricsDAO;
@@ -39,6 +41,7 @@ import org.apache.skywalking.oap.server.core.storage.StorageModule;
 import org.apache.skywalking.oap.server.core.storage.annotation.Storage;
 import org.apache.skywalking.oap.server.core.storage.model.INewModel;
 import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
 import org.apache.skywalking.oap.server.core.worker.IWorkerInstanceSetter;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
 
@@ -58,7 +61,7 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     /**
      * Worker table hosts all entrance workers.
      */
-    private Map<Class<? extends Metrics>, MetricsAggregateWorker> entryWorkers = new HashMap<>();
+    private Map<Class<? extends Metrics>, AbstractWorker<Metrics>> entryWorkers = new HashMap<>();
 
     /**
      * Worker table hosts all persistent workers.
@@ -73,12 +76,50 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     @Getter
     private boolean enableDatabaseSession;
 
+    /**
+     * The session cache shared by all persistent workers, works when {@link #enableDatabaseSession} == true.
+     */
+    @Setter
+    @Getter
+    private MetricsSessionCache sessionCache;
+
+    /**
+     * The topology snapshot recording the relation metrics, exists when CoreModuleConfig#enableTopologySnapshot ==
+     * true.
+     */
+    @Setter
+    @Getter
+    private TopologySnapshot topologySnapshot;
+
+    /**
+     * The metadata catalog recording the traffic, exists when CoreModuleConfig#metadataCatalogRefreshPeriod is
+     * positive.
+     */
+    @Setter
+    @Getter
+    private MetadataCatalog metadataCatalog;
+
+    /**
+     * Hold and forward CoreModuleConfig#l1AggregationShards, {@link ShardedMetricsAggregateWorker} is used when it is
+     * positive.
+     */
+    @Setter
+    @Getter
+    private int l1AggregationShards;
+
+    /**
+     * The flush policy of the L1 aggregation of all metrics.
+     */
+    @Setter
+    @Getter
+    private MetricsFlushPolicy flushPolicy;
+
     public static MetricsStreamProcessor getInstance() {
         return PROCESSOR;
     }
 
     public void in(Metrics metrics) {
-        MetricsAggregateWorker worker = entryWorkers.get(metrics.getClass());
+        AbstractWorker<Metrics> worker = entryWorkers.get(metrics.getClass());
         if (worker != null) {
             worker.in(metrics);
         }
@@ -129,12 +170,14 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
             if (configService.shouldToHour()) {
                 Model model = modelSetter.add(
                     metricsClass, stream.scopeId(), new Storage(stream.name(), DownSampling.Hour), false);
-                hourPersistentWorker = downSamplingWorker(moduleDefineHolder, metricsDAO, model, supportUpdate);
+                hourPersistentWorker = downSamplingWorker(
+                    moduleDefineHolder, metricsDAO, model, metricsClass, supportUpdate);
             }
             if (configService.shouldToDay()) {
                 Model model = modelSetter.add(
                     metricsClass, stream.scopeId(), new Storage(stream.name(), DownSampling.Day), false);
-                dayPersistentWorker = downSamplingWorker(moduleDefineHolder, metricsDAO, model, supportUpdate);
+                dayPersistentWorker = downSamplingWorker(
+                    moduleDefineHolder, metricsDAO, model, metricsClass, supportUpdate);
             }
 
             transWorker = new MetricsTransWorker(
@@ -144,7 +187,7 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
         Model model = modelSetter.add(
             metricsClass, stream.scopeId(), new Storage(stream.name(), DownSampling.Minute), false);
         MetricsPersistentWorker minutePersistentWorker = minutePersistentWorker(
-            moduleDefineHolder, metricsDAO, model, transWorker, supportUpdate);
+            moduleDefineHolder, metricsDAO, model, metricsClass, transWorker, supportUpdate);
 
         String remoteReceiverWorkerName = stream.name() + "_rec";
         IWorkerInstanceSetter workerInstanceSetter = moduleDefineHolder.find(CoreModule.NAME)
@@ -153,8 +196,13 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
         workerInstanceSetter.put(remoteReceiverWorkerName, minutePersistentWorker, metricsClass);
 
         MetricsRemoteWorker remoteWorker = new MetricsRemoteWorker(moduleDefineHolder, remoteReceiverWorkerName);
-        MetricsAggregateWorker aggregateWorker = new MetricsAggregateWorker(
-            moduleDefineHolder, remoteWorker, stream.name());
+        AbstractWorker<Metrics> aggregateWorker;
+        if (l1AggregationShards > 0) {
+            aggregateWorker = new ShardedMetricsAggregateWorker(
+                moduleDefineHolder, remoteWorker, stream.name(), l1AggregationShards, flushPolicy);
+        } else {
+            aggregateWorker = new MetricsAggregateWorker(moduleDefineHolder, remoteWorker, stream.name(), flushPolicy);
+        }
 
         entryWorkers.put(metricsClass, aggregateWorker);
     }
@@ -162,14 +210,16 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     private MetricsPersistentWorker minutePersistentWorker(ModuleDefineHolder moduleDefineHolder,
                                                            IMetricsDAO metricsDAO,
                                                            Model model,
+                                                           Class<? extends Metrics> metricsClass,
                                                            MetricsTransWorker transWorker,
                                                            boolean supportUpdate) {
         AlarmNotifyWorker alarmNotifyWorker = new AlarmNotifyWorker(moduleDefineHolder);
         ExportWorker exportWorker = new ExportWorker(moduleDefineHolder);
 
         MetricsPersistentWorker minutePersistentWorker = new MetricsPersistentWorker(
-            moduleDefineHolder, model, metricsDAO, alarmNotifyWorker, exportWorker, transWorker, enableDatabaseSession,
-            supportUpdate
+            moduleDefineHolder, model, metricsDAO, alarmNotifyWorker, exportWorker, transWorker, sessionCache,
+            topologySnapshot(metricsClass), MetadataCatalog.isTraffic(metricsClass) ? metadataCatalog : null,
+            enableDatabaseSession, supportUpdate
         );
         persistentWorkers.add(minutePersistentWorker);
 
@@ -179,11 +229,18 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     private MetricsPersistentWorker downSamplingWorker(ModuleDefineHolder moduleDefineHolder,
                                                        IMetricsDAO metricsDAO,
                                                        Model model,
+                                                       Class<? extends Metrics> metricsClass,
                                                        boolean supportUpdate) {
         MetricsPersistentWorker persistentWorker = new MetricsPersistentWorker(
-            moduleDefineHolder, model, metricsDAO, enableDatabaseSession, supportUpdate);
+            moduleDefineHolder, model, metricsDAO, sessionCache, topologySnapshot(metricsClass), enableDatabaseSession,
+            supportUpdate
+        );
         persistentWorkers.add(persistentWorker);
 
         return persistentWorker;
     }
+
+    private TopologySnapshot topologySnapshot(Class<? extends Metrics> metricsClass) {
+        return TopologySnapshot.isRelation(metricsClass) ? topologySnapshot : null;
+    }
 }
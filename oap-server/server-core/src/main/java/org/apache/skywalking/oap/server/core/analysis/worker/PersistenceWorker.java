@@ -23,6 +23,7 @@ import java.util.List;
 import org.apache.skywalking.oap.server.core.analysis.data.SWCollection;
 import org.apache.skywalking.oap.server.core.analysis.data.Window;
 import org.apache.skywalking.oap.server.core.storage.StorageData;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
 import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
 import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
@@ -58,6 +59,11 @@ public abstract class PersistenceWorker<INPUT extends StorageData, CACHE extends
 
     public abstract CACHE getCache();
 
+    /**
+     * @return the model of the data persisted by this worker.
+     */
+    public abstract Model getModel();
+
     /**
      * The persistence process is driven by the {@link org.apache.skywalking.oap.server.core.storage.PersistenceTimer}.
      * This is a notification method for the worker when every round finished.
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.BulkConsumePool;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPoolFactory;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.oap.server.core.UnexpectedException;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ShardedMetricsAggregateWorker is the sharded alternative of {@link MetricsAggregateWorker} for the L1 aggregation.
+ * <p>
+ * The metrics are partitioned by the entity hash into the shards. Every shard owns one queue and one merge map, and
+ * both of them are only touched by the consumer thread of the queue, so the shards merge in parallel without any
+ * lock. When the {@link MetricsFlushPolicy} fires, the consumer thread sends the merged metrics to the next worker and
+ * clears the map, rather than switching the cache and waiting for the writer.
+ */
+public class ShardedMetricsAggregateWorker extends AbstractWorker<Metrics> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMetricsAggregateWorker.class);
+
+    private final AbstractWorker<Metrics> nextWorker;
+    private final Shard[] shards;
+    private final CounterMetrics aggregationCounter;
+
+    ShardedMetricsAggregateWorker(ModuleDefineHolder moduleDefineHolder, AbstractWorker<Metrics> nextWorker,
+                                  String modelName, int shardNum, MetricsFlushPolicy flushPolicy) {
+        super(moduleDefineHolder);
+        this.nextWorker = nextWorker;
+
+        String name = "METRICS_L1_AGGREGATION";
+        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(
+            name, BulkConsumePool.Creator.recommendMaxSize() * 2, 20);
+        try {
+            ConsumerPoolFactory.INSTANCE.createIfAbsent(name, creator);
+        } catch (Exception e) {
+            throw new UnexpectedException(e.getMessage(), e);
+        }
+
+        MetricsCreator metricsCreator = moduleDefineHolder.find(TelemetryModule.NAME)
+                                                          .provider()
+                                                          .getService(MetricsCreator.class);
+        aggregationCounter = metricsCreator.createCounter(
+            "metrics_aggregation", "The number of rows in aggregation",
+            new MetricsTag.Keys("metricName", "level", "dimensionality"), new MetricsTag.Values(modelName, "1", "min")
+        );
+
+        this.shards = new Shard[shardNum];
+        for (int i = 0; i < shardNum; i++) {
+            GaugeMetrics queueSize = metricsCreator.createGauge(
+                "metrics_aggregation_queue_size", "The number of metrics waiting in the L1 aggregation shard",
+                new MetricsTag.Keys("metricName", "level", "shard"),
+                new MetricsTag.Values(modelName, "1", String.valueOf(i))
+            );
+            DataCarrier<Metrics> dataCarrier = new DataCarrier<>(
+                "ShardedMetricsAggregateWorker." + modelName + "." + i, name, 1, 10000, BufferType.RING);
+            shards[i] = new Shard(dataCarrier, queueSize, flushPolicy.createTrigger(moduleDefineHolder, modelName));
+            dataCarrier.consume(ConsumerPoolFactory.INSTANCE.get(name), shards[i]);
+        }
+    }
+
+    @Override
+    public final void in(Metrics metrics) {
+        shards[(metrics.remoteHashCode() & Integer.MAX_VALUE) % shards.length].in(metrics);
+    }
+
+    private class Shard implements IConsumer<Metrics> {
+        private final DataCarrier<Metrics> dataCarrier;
+        private final GaugeMetrics queueSize;
+        private final MetricsFlushPolicy.Trigger flushTrigger;
+        /**
+         * Only accessed by the consumer thread of {@link #dataCarrier}.
+         */
+        private final Map<Metrics, Metrics> mergeCache = new HashMap<>();
+
+        private Shard(DataCarrier<Metrics> dataCarrier, GaugeMetrics queueSize,
+                      MetricsFlushPolicy.Trigger flushTrigger) {
+            this.dataCarrier = dataCarrier;
+            this.queueSize = queueSize;
+            this.flushTrigger = flushTrigger;
+        }
+
+        private void in(Metrics metrics) {
+            queueSize.inc();
+            if (!dataCarrier.produce(metrics)) {
+                queueSize.dec();
+            }
+        }
+
+        @Override
+        public void init() {
+
+        }
+
+        @Override
+        public void consume(List<Metrics> data) {
+            queueSize.dec(data.size());
+            aggregationCounter.inc(data.size());
+
+            for (Metrics metrics : data) {
+                Metrics cached = mergeCache.get(metrics);
+                if (cached == null) {
+                    mergeCache.put(metrics, metrics);
+                } else {
+                    cached.combine(metrics);
+                }
+                flushTrigger.onAggregated(cached != null);
+            }
+
+            if (flushTrigger.shouldFlush()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void nothingToConsume() {
+            if (flushTrigger.shouldFlush()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            try {
+                for (Metrics metrics : mergeCache.values()) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(metrics.toString());
+                    }
+                    nextWorker.in(metrics);
+                }
+            } finally {
+                mergeCache.clear();
+                flushTrigger.onFlushed();
+            }
+        }
+
+        @Override
+        public void onError(List<Metrics> data, Throwable t) {
+            logger.error(t.getMessage(), t);
+        }
+
+        @Override
+        public void onExit() {
+        }
+    }
+}
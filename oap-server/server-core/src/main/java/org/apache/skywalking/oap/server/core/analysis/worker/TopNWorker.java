@@ -73,6 +73,11 @@ public class TopNWorker extends PersistenceWorker<TopN, LimitedSizeDataCache<Top
         return limitedSizeDataCache;
     }
 
+    @Override
+    public Model getModel() {
+        return model;
+    }
+
     /**
      * The top N worker persistent cycle is much less than the others, override `flushAndSwitch` to extend the execute
      * time windows.
@@ -0,0 +1,561 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.cache;
+
+import com.google.common.base.Strings;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.analysis.NodeType;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.analysis.manual.endpoint.EndpointTraffic;
+import org.apache.skywalking.oap.server.core.analysis.manual.instance.InstanceTraffic;
+import org.apache.skywalking.oap.server.core.analysis.manual.service.ServiceTraffic;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.query.entity.Attribute;
+import org.apache.skywalking.oap.server.core.query.entity.Database;
+import org.apache.skywalking.oap.server.core.query.entity.Endpoint;
+import org.apache.skywalking.oap.server.core.query.entity.Language;
+import org.apache.skywalking.oap.server.core.query.entity.LanguageTrans;
+import org.apache.skywalking.oap.server.core.query.entity.Service;
+import org.apache.skywalking.oap.server.core.query.entity.ServiceInstance;
+import org.apache.skywalking.oap.server.core.storage.StorageModule;
+import org.apache.skywalking.oap.server.core.storage.query.IMetadataQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+
+import static org.apache.skywalking.oap.server.core.analysis.manual.instance.InstanceTraffic.PropertyUtil.LANGUAGE;
+
+/**
+ * MetadataCatalog keeps the services, the service instances and the endpoints in memory, and serves the metadata
+ * queries in front of the {@link IMetadataQueryDAO} of the storage.
+ * <p>
+ * The traffic persisted by this OAP node is added incrementally through {@link #record(Metrics)}. As every node
+ * persists only a part of the traffic in the cluster, each part of the catalog is reconciled with the storage once per
+ * refresh period, lazily when it is queried. The instances and the endpoints are kept only for the services which have
+ * been queried.
+ */
+public class MetadataCatalog implements IMetadataQueryDAO {
+    /**
+     * The max number of the endpoints of one service loaded into the catalog. The endpoints of the service having more
+     * are searched in the storage.
+     */
+    private static final int MAX_ENDPOINTS_OF_SERVICE = 5000;
+    private static final Comparator<String> NAME_ORDER = Comparator.comparing(MetadataCatalog::lowerCase)
+                                                                   .thenComparing(Comparator.naturalOrder());
+
+    private final ModuleDefineHolder moduleDefineHolder;
+    private final long refreshPeriod;
+    private IMetadataQueryDAO metadataQueryDAO;
+
+    private volatile Services services = new Services(0);
+    private final Map<String, Instances> instances = new ConcurrentHashMap<>();
+    private final Map<String, Endpoints> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Count> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @param refreshPeriod in seconds, the max time of the catalog not reconciled with the storage.
+     */
+    public MetadataCatalog(ModuleDefineHolder moduleDefineHolder, int refreshPeriod) {
+        this.moduleDefineHolder = moduleDefineHolder;
+        this.refreshPeriod = TimeUnit.SECONDS.toMillis(refreshPeriod);
+    }
+
+    private IMetadataQueryDAO getMetadataQueryDAO() {
+        if (metadataQueryDAO == null) {
+            metadataQueryDAO = moduleDefineHolder.find(StorageModule.NAME)
+                                                 .provider()
+                                                 .getService(IMetadataQueryDAO.class);
+        }
+        return metadataQueryDAO;
+    }
+
+    /**
+     * @return true if the metrics of the class are recorded in the catalog.
+     */
+    public static boolean isTraffic(Class<? extends Metrics> metricsClass) {
+        return ServiceTraffic.class.equals(metricsClass)
+            || InstanceTraffic.class.equals(metricsClass)
+            || EndpointTraffic.class.equals(metricsClass);
+    }
+
+    /**
+     * Record the traffic being persisted.
+     */
+    public void record(Metrics metrics) {
+        // The traffic is recorded before flushed into the storage, it is kept until the next reconciliation at least.
+        if (metrics instanceof ServiceTraffic) {
+            ServiceTraffic traffic = (ServiceTraffic) metrics;
+            services.entries.put(
+                traffic.id(),
+                new ServiceEntry(traffic.id(), traffic.getName(), traffic.getNodeType(), System.currentTimeMillis())
+            );
+        } else if (metrics instanceof InstanceTraffic) {
+            InstanceTraffic traffic = (InstanceTraffic) metrics;
+            Instances serviceInstances = instances.get(traffic.getServiceId());
+            if (serviceInstances != null) {
+                serviceInstances.entries.put(traffic.id(), new InstanceEntry(
+                    buildServiceInstance(traffic), traffic.getLastPingTimestamp(), System.currentTimeMillis()));
+            }
+        } else if (metrics instanceof EndpointTraffic) {
+            EndpointTraffic traffic = (EndpointTraffic) metrics;
+            Endpoints serviceEndpoints = endpoints.get(traffic.getServiceId());
+            if (serviceEndpoints != null && serviceEndpoints.complete) {
+                serviceEndpoints.recorded.add(traffic.getName());
+                serviceEndpoints.pending.add(traffic.getName());
+            }
+        }
+    }
+
+    @Override
+    public int numOfService(final long startTimestamp, final long endTimestamp) throws IOException {
+        return count("service", () -> getMetadataQueryDAO().numOfService(startTimestamp, endTimestamp));
+    }
+
+    @Override
+    public int numOfEndpoint() throws IOException {
+        return count("endpoint", () -> getMetadataQueryDAO().numOfEndpoint());
+    }
+
+    @Override
+    public int numOfConjectural(final int nodeTypeValue) throws IOException {
+        return count("conjectural-" + nodeTypeValue, () -> getMetadataQueryDAO().numOfConjectural(nodeTypeValue));
+    }
+
+    @Override
+    public List<Service> getAllServices(final long startTimestamp, final long endTimestamp) throws IOException {
+        return services().list(NodeType.Normal, null);
+    }
+
+    @Override
+    public List<Service> getAllBrowserServices(final long startTimestamp, final long endTimestamp) throws IOException {
+        return services().list(NodeType.Browser, null);
+    }
+
+    @Override
+    public List<Database> getAllDatabases() throws IOException {
+        List<Database> databases = new ArrayList<>();
+        for (Service service : services().list(NodeType.Database, null)) {
+            Database database = new Database();
+            database.setId(service.getId());
+            database.setName(service.getName());
+            databases.add(database);
+        }
+        return databases;
+    }
+
+    /**
+     * The same as the storage, the time range is not considered. The keyword matches the service names containing it,
+     * case-insensitively.
+     */
+    @Override
+    public List<Service> searchServices(final long startTimestamp, final long endTimestamp,
+                                        final String keyword) throws IOException {
+        return services().list(null, Strings.isNullOrEmpty(keyword) ? null : lowerCase(keyword));
+    }
+
+    @Override
+    public Service searchService(final String serviceCode) throws IOException {
+        ServiceEntry entry = services().entries.get(IDManager.ServiceID.buildId(serviceCode, NodeType.Normal));
+        if (entry == null) {
+            // Registered by another node after the reconciliation.
+            return getMetadataQueryDAO().searchService(serviceCode);
+        }
+        return entry.toService();
+    }
+
+    /**
+     * The endpoints of which the names start with the keyword are returned first, followed by the ones containing it.
+     * Both match the keyword case-insensitively.
+     */
+    @Override
+    public List<Endpoint> searchEndpoint(final String keyword, final String serviceId,
+                                         final int limit) throws IOException {
+        Endpoints serviceEndpoints = endpoints.get(serviceId);
+        if (serviceEndpoints == null || !isFresh(serviceEndpoints.reconciledAt)) {
+            serviceEndpoints = reconcileEndpoints(serviceId, serviceEndpoints);
+        }
+        if (!serviceEndpoints.complete) {
+            return getMetadataQueryDAO().searchEndpoint(keyword, serviceId, limit);
+        }
+
+        List<Endpoint> result = new ArrayList<>();
+        for (String name : serviceEndpoints.search(keyword, limit)) {
+            Endpoint endpoint = new Endpoint();
+            endpoint.setId(IDManager.EndpointID.buildId(serviceId, name));
+            endpoint.setName(name);
+            result.add(endpoint);
+        }
+        return result;
+    }
+
+    @Override
+    public List<ServiceInstance> getServiceInstances(final long startTimestamp, final long endTimestamp,
+                                                     final String serviceId) throws IOException {
+        final long minuteTimeBucket = TimeBucket.getMinuteTimeBucket(startTimestamp);
+        Instances serviceInstances = instances.get(serviceId);
+        if (serviceInstances == null || !isFresh(serviceInstances.reconciledAt)
+            || !serviceInstances.isCovered(minuteTimeBucket)) {
+            serviceInstances = reconcileInstances(startTimestamp, endTimestamp, serviceId, serviceInstances);
+        }
+
+        List<ServiceInstance> result = new ArrayList<>();
+        for (InstanceEntry entry : serviceInstances.entries.values()) {
+            if (entry.lastPingTimeBucket >= minuteTimeBucket) {
+                result.add(entry.instance);
+            }
+        }
+        return result;
+    }
+
+    private int count(String key, CountLoader loader) throws IOException {
+        Count count = counts.get(key);
+        if (count == null || !isFresh(count.reconciledAt)) {
+            count = new Count(loader.load());
+            counts.put(key, count);
+        }
+        return count.value;
+    }
+
+    private Services services() throws IOException {
+        final Services current = services;
+        if (isFresh(current.reconciledAt)) {
+            return current;
+        }
+
+        final long now = System.currentTimeMillis();
+        Services reconciled = new Services(now);
+        for (Service service : getMetadataQueryDAO().searchServices(0, 0, null)) {
+            reconciled.put(service, null);
+        }
+        // The node types of the conjectural services other than the database are unknown, they are only searched.
+        for (Service service : getMetadataQueryDAO().getAllServices(0, 0)) {
+            reconciled.put(service, NodeType.Normal);
+        }
+        for (Service service : getMetadataQueryDAO().getAllBrowserServices(0, 0)) {
+            reconciled.put(service, NodeType.Browser);
+        }
+        for (Database database : getMetadataQueryDAO().getAllDatabases()) {
+            reconciled.entries.put(
+                database.getId(), new ServiceEntry(database.getId(), database.getName(), NodeType.Database, now));
+        }
+        services = reconciled;
+        // Keep the traffic recorded since the last reconciliation, which may not be flushed into the storage yet.
+        for (ServiceEntry entry : current.entries.values()) {
+            if (entry.recordedAt > current.reconciledAt) {
+                reconciled.entries.put(entry.id, entry);
+            }
+        }
+        return reconciled;
+    }
+
+    private Instances reconcileInstances(final long startTimestamp, final long endTimestamp, final String serviceId,
+                                         final Instances current) throws IOException {
+        final long now = System.currentTimeMillis();
+        final long minuteTimeBucket = TimeBucket.getMinuteTimeBucket(startTimestamp);
+        Instances reconciled = new Instances(now, minuteTimeBucket);
+        for (ServiceInstance instance : getMetadataQueryDAO().getServiceInstances(
+            startTimestamp, endTimestamp, serviceId)) {
+            // The last ping time is not loaded, the start of the query is the lower bound of it.
+            reconciled.entries.put(instance.getId(), new InstanceEntry(instance, minuteTimeBucket, 0));
+        }
+        instances.put(serviceId, reconciled);
+        if (current != null) {
+            for (Map.Entry<String, InstanceEntry> entry : current.entries.entrySet()) {
+                if (entry.getValue().recordedAt > current.reconciledAt) {
+                    reconciled.entries.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return reconciled;
+    }
+
+    private Endpoints reconcileEndpoints(final String serviceId, final Endpoints current) throws IOException {
+        List<Endpoint> loaded = getMetadataQueryDAO().searchEndpoint(null, serviceId, MAX_ENDPOINTS_OF_SERVICE);
+        Endpoints reconciled = new Endpoints(System.currentTimeMillis(), loaded.size() < MAX_ENDPOINTS_OF_SERVICE);
+        for (Endpoint endpoint : loaded) {
+            reconciled.pending.add(endpoint.getName());
+        }
+        endpoints.put(serviceId, reconciled);
+        if (current != null) {
+            reconciled.pending.addAll(current.recorded);
+        }
+        return reconciled;
+    }
+
+    private boolean isFresh(long reconciledAt) {
+        return System.currentTimeMillis() - reconciledAt < refreshPeriod;
+    }
+
+    private static ServiceInstance buildServiceInstance(InstanceTraffic instanceTraffic) {
+        ServiceInstance serviceInstance = new ServiceInstance();
+        serviceInstance.setId(instanceTraffic.id());
+        serviceInstance.setName(instanceTraffic.getName());
+        serviceInstance.setInstanceUUID(serviceInstance.getId());
+
+        JsonObject properties = instanceTraffic.getProperties();
+        if (properties != null) {
+            for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+                String key = property.getKey();
+                String value = property.getValue().getAsString();
+                if (key.equals(LANGUAGE)) {
+                    serviceInstance.setLanguage(LanguageTrans.INSTANCE.value(value));
+                } else {
+                    serviceInstance.getAttributes().add(new Attribute(key, value));
+                }
+            }
+        } else {
+            serviceInstance.setLanguage(Language.UNKNOWN);
+        }
+        return serviceInstance;
+    }
+
+    private static String lowerCase(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    private interface CountLoader {
+        int load() throws IOException;
+    }
+
+    private static class Count {
+        private final int value;
+        private final long reconciledAt;
+
+        private Count(int value) {
+            this.value = value;
+            this.reconciledAt = System.currentTimeMillis();
+        }
+    }
+
+    private static class ServiceEntry {
+        private final String id;
+        private final String name;
+        /**
+         * Null if unknown.
+         */
+        private final NodeType nodeType;
+        private final long recordedAt;
+
+        private ServiceEntry(String id, String name, NodeType nodeType, long recordedAt) {
+            this.id = id;
+            this.name = name;
+            this.nodeType = nodeType;
+            this.recordedAt = recordedAt;
+        }
+
+        private Service toService() {
+            Service service = new Service();
+            service.setId(id);
+            service.setName(name);
+            return service;
+        }
+    }
+
+    private static class Services {
+        private final long reconciledAt;
+        private final Map<String, ServiceEntry> entries = new ConcurrentHashMap<>();
+
+        private Services(long reconciledAt) {
+            this.reconciledAt = reconciledAt;
+        }
+
+        private void put(Service service, NodeType nodeType) {
+            entries.put(service.getId(), new ServiceEntry(service.getId(), service.getName(), nodeType, reconciledAt));
+        }
+
+        /**
+         * @param nodeType    null for all types.
+         * @param lowerCaseKeyword null for all names.
+         */
+        private List<Service> list(NodeType nodeType, String lowerCaseKeyword) {
+            List<Service> result = new ArrayList<>();
+            for (ServiceEntry entry : entries.values()) {
+                if (nodeType != null && !nodeType.equals(entry.nodeType)) {
+                    continue;
+                }
+                if (lowerCaseKeyword != null && !lowerCase(entry.name).contains(lowerCaseKeyword)) {
+                    continue;
+                }
+                result.add(entry.toService());
+            }
+            return result;
+        }
+    }
+
+    private static class InstanceEntry {
+        private final ServiceInstance instance;
+        private final long lastPingTimeBucket;
+        /**
+         * The time of the traffic recorded, or 0 if the entry is loaded from the storage.
+         */
+        private final long recordedAt;
+
+        private InstanceEntry(ServiceInstance instance, long lastPingTimeBucket, long recordedAt) {
+            this.instance = instance;
+            this.lastPingTimeBucket = lastPingTimeBucket;
+            this.recordedAt = recordedAt;
+        }
+    }
+
+    private static class Instances {
+        private final long reconciledAt;
+        /**
+         * The start of the query loading the instances from the storage.
+         */
+        private final long startTimeBucket;
+        private final Map<String, InstanceEntry> entries = new ConcurrentHashMap<>();
+
+        private Instances(long reconciledAt, long startTimeBucket) {
+            this.reconciledAt = reconciledAt;
+            this.startTimeBucket = startTimeBucket;
+        }
+
+        /**
+         * @return true if the instances pinged since the time bucket are known. The instances loaded from the storage
+         * are unknown if they pinged in the time range between the start of the loading query and the time bucket.
+         */
+        private boolean isCovered(long minuteTimeBucket) {
+            if (minuteTimeBucket < startTimeBucket) {
+                return false;
+            }
+            for (InstanceEntry entry : entries.values()) {
+                if (entry.recordedAt == 0 && entry.lastPingTimeBucket < minuteTimeBucket) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The endpoint names of a service, in the sorted arrays for the prefix search.
+     */
+    private static class Endpoints {
+        private final long reconciledAt;
+        /**
+         * False if the service has more endpoints than {@link #MAX_ENDPOINTS_OF_SERVICE}.
+         */
+        private final boolean complete;
+        /**
+         * The names recorded from the traffic since the reconciliation.
+         */
+        private final Set<String> recorded = ConcurrentHashMap.newKeySet();
+        /**
+         * The new names, merged into the sorted arrays in the next search.
+         */
+        private final Set<String> pending = ConcurrentHashMap.newKeySet();
+        private volatile NameIndex index = new NameIndex(new String[0]);
+
+        private Endpoints(long reconciledAt, boolean complete) {
+            this.reconciledAt = reconciledAt;
+            this.complete = complete;
+        }
+
+        private List<String> search(String keyword, int limit) {
+            if (!pending.isEmpty()) {
+                merge();
+            }
+            final String[] names = index.names;
+            final String[] lowerCaseNames = index.lowerCaseNames;
+
+            List<String> result = new ArrayList<>(Math.min(limit, names.length));
+            if (Strings.isNullOrEmpty(keyword)) {
+                for (int i = 0; i < names.length && result.size() < limit; i++) {
+                    result.add(names[i]);
+                }
+                return result;
+            }
+
+            final String lowerCaseKeyword = lowerCase(keyword);
+            final int prefixStart = lowerBound(lowerCaseNames, lowerCaseKeyword);
+            int prefixEnd = prefixStart;
+            while (prefixEnd < names.length && lowerCaseNames[prefixEnd].startsWith(lowerCaseKeyword)) {
+                if (result.size() < limit) {
+                    result.add(names[prefixEnd]);
+                }
+                prefixEnd++;
+            }
+            for (int i = 0; i < names.length && result.size() < limit; i++) {
+                if (i >= prefixStart && i < prefixEnd) {
+                    continue;
+                }
+                if (lowerCaseNames[i].contains(lowerCaseKeyword)) {
+                    result.add(names[i]);
+                }
+            }
+            return result;
+        }
+
+        private synchronized void merge() {
+            Set<String> merged = new HashSet<>(Arrays.asList(index.names));
+            for (String name : pending) {
+                merged.add(name);
+                pending.remove(name);
+            }
+            String[] sortedNames = merged.toArray(new String[0]);
+            Arrays.sort(sortedNames, NAME_ORDER);
+            index = new NameIndex(sortedNames);
+        }
+
+        /**
+         * @return the index of the first element not less than the key.
+         */
+        private static int lowerBound(String[] sorted, String key) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class NameIndex {
+        private final String[] names;
+        /**
+         * Sorted in the natural order, as the names are sorted by the lower cases first.
+         */
+        private final String[] lowerCaseNames;
+
+        private NameIndex(String[] sortedNames) {
+            this.names = sortedNames;
+            this.lowerCaseNames = new String[sortedNames.length];
+            for (int i = 0; i < sortedNames.length; i++) {
+                lowerCaseNames[i] = lowerCase(sortedNames[i]);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.skywalking.oap.server.core.query;
 import java.io.IOException;
 import java.util.List;
 import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.cache.MetadataCatalog;
 import org.apache.skywalking.oap.server.core.query.entity.ClusterBrief;
 import org.apache.skywalking.oap.server.core.query.entity.Database;
 import org.apache.skywalking.oap.server.core.query.entity.Endpoint;
@@ -35,15 +36,22 @@ import org.apache.skywalking.oap.server.library.module.ModuleManager;
 public class MetadataQueryService implements org.apache.skywalking.oap.server.library.module.Service {
 
     private final ModuleManager moduleManager;
+    /**
+     * Serves the queries in front of the storage, null if CoreModuleConfig#metadataCatalogRefreshPeriod == 0.
+     */
+    private final MetadataCatalog metadataCatalog;
     private IMetadataQueryDAO metadataQueryDAO;
 
-    public MetadataQueryService(ModuleManager moduleManager) {
+    public MetadataQueryService(ModuleManager moduleManager, MetadataCatalog metadataCatalog) {
         this.moduleManager = moduleManager;
+        this.metadataCatalog = metadataCatalog;
     }
 
     private IMetadataQueryDAO getMetadataQueryDAO() {
         if (metadataQueryDAO == null) {
-            metadataQueryDAO = moduleManager.find(StorageModule.NAME).provider().getService(IMetadataQueryDAO.class);
+            metadataQueryDAO = metadataCatalog != null
+                ? metadataCatalog
+                : moduleManager.find(StorageModule.NAME).provider().getService(IMetadataQueryDAO.class);
         }
         return metadataQueryDAO;
     }
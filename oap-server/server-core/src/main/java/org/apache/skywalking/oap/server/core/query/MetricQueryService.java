@@ -18,12 +18,19 @@
 
 package org.apache.skywalking.oap.server.core.query;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.query.entity.IntValues;
@@ -44,10 +51,24 @@ public class MetricQueryService implements Service {
     private static final Logger logger = LoggerFactory.getLogger(MetricQueryService.class);
 
     private final ModuleManager moduleManager;
+    private final MetricsQueryCache queryCache;
+    private final int batchSize;
+    /**
+     * Query the split batches concurrently, the threads are created on demand and released when idle.
+     */
+    private final ThreadPoolExecutor batchExecutor;
     private IMetricsQueryDAO metricQueryDAO;
 
-    public MetricQueryService(ModuleManager moduleManager) {
+    public MetricQueryService(ModuleManager moduleManager, CoreModuleConfig moduleConfig) {
         this.moduleManager = moduleManager;
+        this.queryCache = new MetricsQueryCache(moduleManager, moduleConfig);
+        this.batchSize = moduleConfig.getMetricsQueryBatchSize();
+        final int parallelism = Math.max(1, moduleConfig.getMetricsQueryParallelism());
+        this.batchExecutor = new ThreadPoolExecutor(
+            parallelism, parallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("MetricsQueryBatch-%d").build()
+        );
+        this.batchExecutor.allowCoreThreadTimeOut(true);
     }
 
     private IMetricsQueryDAO getMetricQueryDAO() {
@@ -82,14 +103,73 @@ public class MetricQueryService implements Service {
     public IntValues getLinearIntValues(final String indName, final String id, final DownSampling downsampling,
         final long startTB, final long endTB) throws IOException {
         List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(downsampling, startTB, endTB);
-        List<String> ids = new ArrayList<>();
-        if (StringUtil.isEmpty(id)) {
-            durationPoints.forEach(durationPoint -> ids.add(String.valueOf(durationPoint.getPoint())));
-        } else {
-            durationPoints.forEach(durationPoint -> ids.add(durationPoint.getPoint() + Const.ID_CONNECTOR + id));
+        List<String> ids = buildIds(durationPoints, id);
+
+        return queryCache.getLinearIntValues(
+            indName, downsampling, durationPoints, ids,
+            missed -> getMetricQueryDAO().getLinearIntValues(indName, downsampling, missed, ValueColumnMetadata.INSTANCE
+                .getValueCName(indName))
+        );
+    }
+
+    /**
+     * Query the linear values of multiple entities. The entities are split into the batches by
+     * CoreModuleConfig#metricsQueryBatchSize, which are queried concurrently.
+     *
+     * @return the values of each entity, in the same order of the IDs.
+     */
+    public List<IntValues> getBatchLinearIntValues(final String indName, final List<String> entityIds,
+                                                   final DownSampling downsampling, final long startTB,
+                                                   final long endTB) throws IOException {
+        if (CollectionUtils.isEmpty(entityIds)) {
+            logger.debug("query metrics[{}] w/o IDs", indName);
+            return Collections.emptyList();
+        }
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(downsampling, startTB, endTB);
+        final int entitiesOfBatch = Math.max(1, batchSize / Math.max(1, durationPoints.size()));
+
+        List<List<List<String>>> batches = new ArrayList<>();
+        for (int from = 0; from < entityIds.size(); from += entitiesOfBatch) {
+            List<List<String>> batch = new ArrayList<>();
+            for (String entityId : entityIds.subList(from, Math.min(from + entitiesOfBatch, entityIds.size()))) {
+                batch.add(buildIds(durationPoints, entityId));
+            }
+            batches.add(batch);
+        }
+
+        // The first batch is queried in the current thread.
+        List<Future<List<IntValues>>> futures = new ArrayList<>(batches.size() - 1);
+        for (List<List<String>> batch : batches.subList(1, batches.size())) {
+            futures.add(batchExecutor.submit(() -> getBatchLinearIntValues(indName, downsampling, durationPoints, batch)));
+        }
+        List<IntValues> result = new ArrayList<>(entityIds.size());
+        try {
+            result.addAll(getBatchLinearIntValues(indName, downsampling, durationPoints, batches.get(0)));
+            for (Future<List<IntValues>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
         }
+        return result;
+    }
 
-        return getMetricQueryDAO().getLinearIntValues(indName, downsampling, ids, ValueColumnMetadata.INSTANCE.getValueCName(indName));
+    private List<IntValues> getBatchLinearIntValues(final String indName, final DownSampling downsampling,
+                                                    final List<DurationPoint> durationPoints,
+                                                    final List<List<String>> ids) throws IOException {
+        return queryCache.getBatchLinearIntValues(
+            indName, downsampling, durationPoints, ids,
+            missed -> getMetricQueryDAO().getBatchLinearIntValues(indName, downsampling, missed, ValueColumnMetadata.INSTANCE
+                .getValueCName(indName))
+        );
     }
 
     public List<IntValues> getMultipleLinearIntValues(final String indName, final String id, final int numOfLinear,
@@ -106,15 +186,13 @@ public class MetricQueryService implements Service {
                                                               final List<Integer> linearIndex, final DownSampling downsampling, final long startTB,
                                                               final long endTB) throws IOException {
         List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(downsampling, startTB, endTB);
-        List<String> ids = new ArrayList<>();
-        if (StringUtil.isEmpty(id)) {
-            durationPoints.forEach(durationPoint -> ids.add(String.valueOf(durationPoint.getPoint())));
-        } else {
-            durationPoints.forEach(durationPoint -> ids.add(durationPoint.getPoint() + Const.ID_CONNECTOR + id));
-        }
+        List<String> ids = buildIds(durationPoints, id);
 
-        IntValues[] multipleLinearIntValues = getMetricQueryDAO().getMultipleLinearIntValues(indName, downsampling, ids, linearIndex, ValueColumnMetadata.INSTANCE
-            .getValueCName(indName));
+        IntValues[] multipleLinearIntValues = queryCache.getMultipleLinearIntValues(
+            indName, downsampling, durationPoints, ids, linearIndex,
+            missed -> getMetricQueryDAO().getMultipleLinearIntValues(indName, downsampling, missed, linearIndex, ValueColumnMetadata.INSTANCE
+                .getValueCName(indName))
+        );
 
         List<IntValues> response = new ArrayList<>(linearIndex.size());
         Collections.addAll(response, multipleLinearIntValues);
@@ -124,15 +202,22 @@ public class MetricQueryService implements Service {
     public Thermodynamic getThermodynamic(final String indName, final String id, final DownSampling downsampling,
         final long startTB, final long endTB) throws IOException {
         List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(downsampling, startTB, endTB);
-        List<String> ids = new ArrayList<>();
-        durationPoints.forEach(durationPoint -> {
-            if (id == null) {
-                ids.add(String.valueOf(durationPoint.getPoint()));
-            } else {
-                ids.add(durationPoint.getPoint() + Const.ID_CONNECTOR + id);
-            }
-        });
+        List<String> ids = buildIds(durationPoints, id);
 
-        return getMetricQueryDAO().getThermodynamic(indName, downsampling, ids, ValueColumnMetadata.INSTANCE.getValueCName(indName));
+        return queryCache.getThermodynamic(
+            indName, downsampling, durationPoints, ids,
+            missed -> getMetricQueryDAO().getThermodynamic(indName, downsampling, missed, ValueColumnMetadata.INSTANCE
+                .getValueCName(indName))
+        );
+    }
+
+    private static List<String> buildIds(List<DurationPoint> durationPoints, String id) {
+        List<String> ids = new ArrayList<>(durationPoints.size());
+        if (StringUtil.isEmpty(id)) {
+            durationPoints.forEach(durationPoint -> ids.add(String.valueOf(durationPoint.getPoint())));
+        } else {
+            durationPoints.forEach(durationPoint -> ids.add(durationPoint.getPoint() + Const.ID_CONNECTOR + id));
+        }
+        return ids;
     }
 }
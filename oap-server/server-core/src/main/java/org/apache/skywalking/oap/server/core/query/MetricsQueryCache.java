@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.query.entity.IntValues;
+import org.apache.skywalking.oap.server.core.query.entity.KVInt;
+import org.apache.skywalking.oap.server.core.query.entity.Thermodynamic;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * MetricsQueryCache caches the values of the closed time buckets for {@link MetricQueryService}, keyed by the metrics
+ * name and the ID, which is made of the time bucket and the entity. A bucket is closed when it has ended longer than
+ * {@link CoreModuleConfig#getMetricsQueryCacheBucketDelay()}, its value is expected to be fully persisted.
+ * <p>
+ * The closed bucket could still be updated, by the late data, or when the persistence falls behind, so the values expire
+ * after {@link CoreModuleConfig#getMetricsQueryCacheTTL()}. The storage reports the ID it doesn't have as 0, the same
+ * as the real 0, so 0 values are never cached, or the bucket not persisted yet would be a permanent hole.
+ * <p>
+ * The open buckets at the tail of the duration, and the missed closed buckets, are always fetched from the storage.
+ */
+class MetricsQueryCache {
+    /**
+     * The index of the single value metrics, the multiple linear metrics use the linear index, which is not negative.
+     */
+    private static final int SINGLE_VALUE = -1;
+
+    private final ModuleManager moduleManager;
+    private final Cache<Key, Object> cache;
+    private final long bucketDelay;
+    private CounterMetrics hitCounter;
+    private CounterMetrics missCounter;
+
+    MetricsQueryCache(ModuleManager moduleManager, CoreModuleConfig moduleConfig) {
+        this.moduleManager = moduleManager;
+        this.bucketDelay = TimeUnit.SECONDS.toMillis(moduleConfig.getMetricsQueryCacheBucketDelay());
+        if (moduleConfig.getMetricsQueryCacheMaxSizeInMB() > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                                     .maximumWeight(moduleConfig.getMetricsQueryCacheMaxSizeInMB() * 1024L * 1024L)
+                                     .weigher((Key key, Object value) -> key.weight() + weight(value))
+                                     .expireAfterWrite(moduleConfig.getMetricsQueryCacheTTL(), TimeUnit.SECONDS)
+                                     .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    IntValues getLinearIntValues(String metricsName, DownSampling downsampling, List<DurationPoint> durationPoints,
+                                 List<String> ids, Fetcher<IntValues> fetcher) throws IOException {
+        return getBatchLinearIntValues(
+            metricsName, downsampling, durationPoints, Collections.singletonList(ids),
+            missed -> Collections.singletonList(fetcher.fetch(missed.get(0)))
+        ).get(0);
+    }
+
+    /**
+     * @param ids the IDs of each entity, in the same order of the duration points.
+     * @return the values of each entity, in the same order of the IDs.
+     */
+    List<IntValues> getBatchLinearIntValues(String metricsName, DownSampling downsampling,
+                                            List<DurationPoint> durationPoints, List<List<String>> ids,
+                                            BatchFetcher fetcher) throws IOException {
+        if (!isCacheable(downsampling)) {
+            return fetcher.fetch(ids);
+        }
+
+        final boolean[] closed = closedBuckets(downsampling, durationPoints);
+        final Long[][] values = new Long[ids.size()][];
+        final List<List<String>> missed = new ArrayList<>(ids.size());
+        int numOfMissed = 0;
+        int numOfIds = 0;
+        for (int entity = 0; entity < ids.size(); entity++) {
+            final List<String> entityIds = ids.get(entity);
+            final List<String> entityMissed = new ArrayList<>();
+            values[entity] = new Long[entityIds.size()];
+            for (int i = 0; i < entityIds.size(); i++) {
+                if (closed[i]) {
+                    values[entity][i] = (Long) cache.getIfPresent(new Key(metricsName, entityIds.get(i), SINGLE_VALUE));
+                }
+                if (values[entity][i] == null) {
+                    entityMissed.add(entityIds.get(i));
+                }
+            }
+            missed.add(entityMissed);
+            numOfMissed += entityMissed.size();
+            numOfIds += entityIds.size();
+        }
+        record(numOfIds - numOfMissed, numOfMissed);
+
+        final Map<String, Long> fetched = new HashMap<>();
+        if (numOfMissed > 0) {
+            for (IntValues intValues : fetcher.fetch(missed)) {
+                intValues.getValues().forEach(kvInt -> fetched.put(kvInt.getId(), kvInt.getValue()));
+            }
+        }
+
+        List<IntValues> result = new ArrayList<>(ids.size());
+        for (int entity = 0; entity < ids.size(); entity++) {
+            final List<String> entityIds = ids.get(entity);
+            IntValues intValues = new IntValues();
+            for (int i = 0; i < entityIds.size(); i++) {
+                final String id = entityIds.get(i);
+                Long value = values[entity][i];
+                if (value == null) {
+                    value = fetched.getOrDefault(id, 0L);
+                    if (closed[i] && value != 0) {
+                        cache.put(new Key(metricsName, id, SINGLE_VALUE), value);
+                    }
+                }
+                intValues.addKVInt(kvInt(id, value));
+            }
+            result.add(intValues);
+        }
+        return result;
+    }
+
+    IntValues[] getMultipleLinearIntValues(String metricsName, DownSampling downsampling,
+                                           List<DurationPoint> durationPoints, List<String> ids,
+                                           List<Integer> linearIndex,
+                                           Fetcher<IntValues[]> fetcher) throws IOException {
+        if (!isCacheable(downsampling)) {
+            return fetcher.fetch(ids);
+        }
+
+        final boolean[] closed = closedBuckets(downsampling, durationPoints);
+        final long[][] values = new long[ids.size()][];
+        final List<String> missed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (closed[i]) {
+                values[i] = getCachedValues(metricsName, ids.get(i), linearIndex);
+            }
+            if (values[i] == null) {
+                missed.add(ids.get(i));
+            }
+        }
+        record(ids.size() - missed.size(), missed.size());
+
+        final Map<String, long[]> fetched = new HashMap<>();
+        if (!missed.isEmpty()) {
+            IntValues[] multipleLinearIntValues = fetcher.fetch(missed);
+            for (int index = 0; index < multipleLinearIntValues.length; index++) {
+                for (KVInt kvInt : multipleLinearIntValues[index].getValues()) {
+                    fetched.computeIfAbsent(kvInt.getId(), ignored -> new long[linearIndex.size()])[index] = kvInt.getValue();
+                }
+            }
+        }
+
+        IntValues[] multipleLinearIntValues = new IntValues[linearIndex.size()];
+        for (int index = 0; index < multipleLinearIntValues.length; index++) {
+            multipleLinearIntValues[index] = new IntValues();
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            final String id = ids.get(i);
+            long[] linearValues = values[i];
+            if (linearValues == null) {
+                linearValues = fetched.getOrDefault(id, new long[linearIndex.size()]);
+                if (closed[i] && !isZero(linearValues)) {
+                    for (int index = 0; index < linearValues.length; index++) {
+                        cache.put(new Key(metricsName, id, linearIndex.get(index)), linearValues[index]);
+                    }
+                }
+            }
+            for (int index = 0; index < linearValues.length; index++) {
+                multipleLinearIntValues[index].addKVInt(kvInt(id, linearValues[index]));
+            }
+        }
+        return multipleLinearIntValues;
+    }
+
+    Thermodynamic getThermodynamic(String metricsName, DownSampling downsampling, List<DurationPoint> durationPoints,
+                                   List<String> ids, Fetcher<Thermodynamic> fetcher) throws IOException {
+        if (!isCacheable(downsampling)) {
+            return fetcher.fetch(ids);
+        }
+
+        final boolean[] closed = closedBuckets(downsampling, durationPoints);
+        final ThermodynamicColumn[] columns = new ThermodynamicColumn[ids.size()];
+        final List<String> missed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (closed[i]) {
+                columns[i] = (ThermodynamicColumn) cache.getIfPresent(new Key(metricsName, ids.get(i), SINGLE_VALUE));
+            }
+            if (columns[i] == null) {
+                missed.add(ids.get(i));
+            }
+        }
+        record(ids.size() - missed.size(), missed.size());
+
+        int axisYStep = 0;
+        if (!missed.isEmpty()) {
+            Thermodynamic thermodynamic = fetcher.fetch(missed);
+            axisYStep = thermodynamic.getAxisYStep();
+            List<List<Long>> fetched = toMatrixData(thermodynamic, missed.size());
+            for (int i = 0, missedIndex = 0; i < ids.size(); i++) {
+                if (columns[i] == null) {
+                    columns[i] = new ThermodynamicColumn(fetched.get(missedIndex++), thermodynamic.getAxisYStep());
+                    if (closed[i] && !isZero(columns[i].values)) {
+                        cache.put(new Key(metricsName, ids.get(i), SINGLE_VALUE), columns[i]);
+                    }
+                }
+            }
+        }
+
+        List<List<Long>> thermodynamicValueMatrix = new ArrayList<>(columns.length);
+        int numOfSteps = 0;
+        for (ThermodynamicColumn column : columns) {
+            thermodynamicValueMatrix.add(new ArrayList<>(column.values));
+            numOfSteps = Math.max(numOfSteps, column.values.size());
+            if (axisYStep == 0) {
+                axisYStep = column.axisYStep;
+            }
+        }
+        Thermodynamic thermodynamic = new Thermodynamic();
+        thermodynamic.setAxisYStep(axisYStep);
+        thermodynamic.fromMatrixData(thermodynamicValueMatrix, numOfSteps);
+        return thermodynamic;
+    }
+
+    private boolean isCacheable(DownSampling downsampling) {
+        if (cache == null) {
+            return false;
+        }
+        switch (downsampling) {
+            case Minute:
+            case Hour:
+            case Day:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return whether each bucket of the duration is closed, in the same order.
+     */
+    private boolean[] closedBuckets(DownSampling downsampling, List<DurationPoint> durationPoints) {
+        final long firstOpenBucket = TimeBucket.getTimeBucket(System.currentTimeMillis() - bucketDelay, downsampling);
+        final boolean[] closed = new boolean[durationPoints.size()];
+        int i = 0;
+        for (DurationPoint durationPoint : durationPoints) {
+            closed[i++] = durationPoint.getPoint() < firstOpenBucket;
+        }
+        return closed;
+    }
+
+    /**
+     * @return the cached values of all the linear index, or null if any of them is missed.
+     */
+    private long[] getCachedValues(String metricsName, String id, List<Integer> linearIndex) {
+        long[] values = new long[linearIndex.size()];
+        for (int index = 0; index < values.length; index++) {
+            Long value = (Long) cache.getIfPresent(new Key(metricsName, id, linearIndex.get(index)));
+            if (value == null) {
+                return null;
+            }
+            values[index] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Split the nodes of the thermodynamic back to the columns, as the storage queries them.
+     */
+    private static List<List<Long>> toMatrixData(Thermodynamic thermodynamic, int numOfColumns) {
+        List<List<Long>> thermodynamicValueMatrix = new ArrayList<>(numOfColumns);
+        for (int i = 0; i < numOfColumns; i++) {
+            thermodynamicValueMatrix.add(new ArrayList<>());
+        }
+        for (List<Long> node : thermodynamic.getNodes()) {
+            thermodynamicValueMatrix.get(node.get(0).intValue()).add(node.get(2));
+        }
+        return thermodynamicValueMatrix;
+    }
+
+    private void record(int hits, int misses) {
+        if (hitCounter == null) {
+            MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                                                         .provider()
+                                                         .getService(MetricsCreator.class);
+            missCounter = metricsCreator.createCounter(
+                "metrics_query_cache_miss", "The number of the metrics buckets fetched from the storage",
+                MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+            );
+            hitCounter = metricsCreator.createCounter(
+                "metrics_query_cache_hit", "The number of the metrics buckets found in the query cache",
+                MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+            );
+        }
+        hitCounter.inc(hits);
+        missCounter.inc(misses);
+    }
+
+    private static boolean isZero(long[] values) {
+        for (long value : values) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(List<Long> values) {
+        for (Long value : values) {
+            if (value != null && value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static KVInt kvInt(String id, long value) {
+        KVInt kvInt = new KVInt();
+        kvInt.setId(id);
+        kvInt.setValue(value);
+        return kvInt;
+    }
+
+    private static int weight(Object value) {
+        if (value instanceof ThermodynamicColumn) {
+            return 32 + 24 * ((ThermodynamicColumn) value).values.size();
+        }
+        // Long
+        return 16;
+    }
+
+    /**
+     * Fetch the values of the IDs from the storage.
+     */
+    interface Fetcher<T> {
+        T fetch(List<String> ids) throws IOException;
+    }
+
+    /**
+     * Fetch the values of the IDs of multiple entities from the storage, in one call.
+     */
+    interface BatchFetcher {
+        List<IntValues> fetch(List<List<String>> ids) throws IOException;
+    }
+
+    private static class Key {
+        private final String metricsName;
+        private final String id;
+        private final int index;
+
+        private Key(String metricsName, String id, int index) {
+            this.metricsName = metricsName;
+            this.id = id;
+            this.index = index;
+        }
+
+        /**
+         * The metrics name is shared by all keys of the metrics, only the ID is counted.
+         */
+        private int weight() {
+            return 56 + 2 * id.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return index == key.index && metricsName.equals(key.metricsName) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(metricsName, id, index);
+        }
+    }
+
+    private static class ThermodynamicColumn {
+        private final List<Long> values;
+        private final int axisYStep;
+
+        private ThermodynamicColumn(List<Long> values, int axisYStep) {
+            this.values = values;
+            this.axisYStep = axisYStep;
+        }
+    }
+}
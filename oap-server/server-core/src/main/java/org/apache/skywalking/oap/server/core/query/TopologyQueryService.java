@@ -29,6 +29,7 @@ import org.apache.skywalking.oap.server.core.Const;
 import org.apache.skywalking.oap.server.core.CoreModule;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
 import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.TopologySnapshot;
 import org.apache.skywalking.oap.server.core.config.IComponentLibraryCatalogService;
 import org.apache.skywalking.oap.server.core.query.entity.Call;
 import org.apache.skywalking.oap.server.core.query.entity.Node;
@@ -44,11 +45,16 @@ import org.apache.skywalking.oap.server.library.util.CollectionUtils;
 @Slf4j
 public class TopologyQueryService implements Service {
     private final ModuleManager moduleManager;
+    /**
+     * The in-memory snapshot of the relations, null if CoreModuleConfig#enableTopologySnapshot == false.
+     */
+    private final TopologySnapshot topologySnapshot;
     private ITopologyQueryDAO topologyQueryDAO;
     private IComponentLibraryCatalogService componentLibraryCatalogService;
 
-    public TopologyQueryService(ModuleManager moduleManager) {
+    public TopologyQueryService(ModuleManager moduleManager, TopologySnapshot topologySnapshot) {
         this.moduleManager = moduleManager;
+        this.topologySnapshot = topologySnapshot;
     }
 
     private ITopologyQueryDAO getTopologyQueryDAO() {
@@ -70,10 +76,19 @@ public class TopologyQueryService implements Service {
     public Topology getGlobalTopology(final DownSampling downsampling, final long startTB,
                                       final long endTB) throws IOException {
         log.debug("Downsampling: {}, startTimeBucket: {}, endTimeBucket: {}", downsampling, startTB, endTB);
-        List<Call.CallDetail> serviceRelationServerCalls = getTopologyQueryDAO().loadServiceRelationsDetectedAtServerSide(
-            downsampling, startTB, endTB);
-        List<Call.CallDetail> serviceRelationClientCalls = getTopologyQueryDAO().loadServiceRelationDetectedAtClientSide(
-            downsampling, startTB, endTB);
+        List<Call.CallDetail> serviceRelationServerCalls;
+        List<Call.CallDetail> serviceRelationClientCalls;
+        if (isSnapshotCovered(downsampling, startTB)) {
+            serviceRelationServerCalls = topologySnapshot.loadServiceRelations(
+                DetectPoint.SERVER, downsampling, startTB, endTB, null);
+            serviceRelationClientCalls = topologySnapshot.loadServiceRelations(
+                DetectPoint.CLIENT, downsampling, startTB, endTB, null);
+        } else {
+            serviceRelationServerCalls = getTopologyQueryDAO().loadServiceRelationsDetectedAtServerSide(
+                downsampling, startTB, endTB);
+            serviceRelationClientCalls = getTopologyQueryDAO().loadServiceRelationDetectedAtClientSide(
+                downsampling, startTB, endTB);
+        }
 
         ServiceTopologyBuilder builder = new ServiceTopologyBuilder(moduleManager);
         return builder.build(serviceRelationClientCalls, serviceRelationServerCalls);
@@ -81,10 +96,10 @@ public class TopologyQueryService implements Service {
 
     public Topology getServiceTopology(final DownSampling downsampling, final long startTB, final long endTB,
                                        final List<String> serviceIds) throws IOException {
-        List<Call.CallDetail> serviceRelationClientCalls = getTopologyQueryDAO().loadServiceRelationDetectedAtClientSide(
-            downsampling, startTB, endTB, serviceIds);
-        List<Call.CallDetail> serviceRelationServerCalls = getTopologyQueryDAO().loadServiceRelationsDetectedAtServerSide(
-            downsampling, startTB, endTB, serviceIds);
+        List<Call.CallDetail> serviceRelationClientCalls = loadServiceRelations(
+            DetectPoint.CLIENT, downsampling, startTB, endTB, serviceIds);
+        List<Call.CallDetail> serviceRelationServerCalls = loadServiceRelations(
+            DetectPoint.SERVER, downsampling, startTB, endTB, serviceIds);
 
         ServiceTopologyBuilder builder = new ServiceTopologyBuilder(moduleManager);
         Topology topology = builder.build(serviceRelationClientCalls, serviceRelationServerCalls);
@@ -104,8 +119,8 @@ public class TopologyQueryService implements Service {
         });
         if (CollectionUtils.isNotEmpty(outScopeSourceServiceIds)) {
             // If exist, query them as the server side to get the target's component.
-            List<Call.CallDetail> sourceCalls = getTopologyQueryDAO().loadServiceRelationsDetectedAtServerSide(
-                downsampling, startTB, endTB, outScopeSourceServiceIds);
+            List<Call.CallDetail> sourceCalls = loadServiceRelations(
+                DetectPoint.SERVER, downsampling, startTB, endTB, outScopeSourceServiceIds);
             topology.getNodes().forEach(node -> {
                 if (Strings.isNullOrEmpty(node.getType())) {
                     for (Call.CallDetail call : sourceCalls) {
@@ -131,10 +146,19 @@ public class TopologyQueryService implements Service {
             clientServiceId, serverServiceId, downsampling, startTB, endTB
         );
 
-        List<Call.CallDetail> serviceInstanceRelationClientCalls = getTopologyQueryDAO().loadInstanceRelationDetectedAtClientSide(
-            clientServiceId, serverServiceId, downsampling, startTB, endTB);
-        List<Call.CallDetail> serviceInstanceRelationServerCalls = getTopologyQueryDAO().loadInstanceRelationDetectedAtServerSide(
-            clientServiceId, serverServiceId, downsampling, startTB, endTB);
+        List<Call.CallDetail> serviceInstanceRelationClientCalls;
+        List<Call.CallDetail> serviceInstanceRelationServerCalls;
+        if (isSnapshotCovered(downsampling, startTB)) {
+            serviceInstanceRelationClientCalls = topologySnapshot.loadInstanceRelations(
+                DetectPoint.CLIENT, clientServiceId, serverServiceId, downsampling, startTB, endTB);
+            serviceInstanceRelationServerCalls = topologySnapshot.loadInstanceRelations(
+                DetectPoint.SERVER, clientServiceId, serverServiceId, downsampling, startTB, endTB);
+        } else {
+            serviceInstanceRelationClientCalls = getTopologyQueryDAO().loadInstanceRelationDetectedAtClientSide(
+                clientServiceId, serverServiceId, downsampling, startTB, endTB);
+            serviceInstanceRelationServerCalls = getTopologyQueryDAO().loadInstanceRelationDetectedAtServerSide(
+                clientServiceId, serverServiceId, downsampling, startTB, endTB);
+        }
 
         ServiceInstanceTopologyBuilder builder = new ServiceInstanceTopologyBuilder(moduleManager);
         return builder.build(serviceInstanceRelationClientCalls, serviceInstanceRelationServerCalls);
@@ -170,6 +194,28 @@ public class TopologyQueryService implements Service {
         return topology;
     }
 
+    private List<Call.CallDetail> loadServiceRelations(final DetectPoint detectPoint,
+                                                       final DownSampling downsampling,
+                                                       final long startTB,
+                                                       final long endTB,
+                                                       final List<String> serviceIds) throws IOException {
+        if (isSnapshotCovered(downsampling, startTB)) {
+            return topologySnapshot.loadServiceRelations(detectPoint, downsampling, startTB, endTB, serviceIds);
+        }
+        if (DetectPoint.SERVER.equals(detectPoint)) {
+            return getTopologyQueryDAO().loadServiceRelationsDetectedAtServerSide(
+                downsampling, startTB, endTB, serviceIds);
+        }
+        return getTopologyQueryDAO().loadServiceRelationDetectedAtClientSide(downsampling, startTB, endTB, serviceIds);
+    }
+
+    /**
+     * @return true if the relations could be loaded from the snapshot, rather than the storage.
+     */
+    private boolean isSnapshotCovered(final DownSampling downsampling, final long startTB) {
+        return topologySnapshot != null && topologySnapshot.isCovered(downsampling, startTB);
+    }
+
     private Node buildEndpointNode(String endpointId) {
         Node node = new Node();
         node.setId(endpointId);
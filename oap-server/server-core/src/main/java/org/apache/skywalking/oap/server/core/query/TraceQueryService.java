@@ -18,14 +18,31 @@
 
 package org.apache.skywalking.oap.server.core.query;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
 import org.apache.skywalking.oap.server.core.Const;
 import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentDataCodec;
 import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
 import org.apache.skywalking.oap.server.core.config.IComponentLibraryCatalogService;
 import org.apache.skywalking.oap.server.core.query.entity.KeyValue;
@@ -42,18 +59,39 @@ import org.apache.skywalking.oap.server.core.storage.StorageModule;
 import org.apache.skywalking.oap.server.core.storage.query.ITraceQueryDAO;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.library.module.Service;
-import org.apache.skywalking.oap.server.library.util.CollectionUtils;
 
 import static java.util.Objects.nonNull;
 
+@Slf4j
 public class TraceQueryService implements Service {
 
+    /**
+     * Decode the segments in parallel, when the number of the segments of the trace reaches it.
+     */
+    private static final int PARALLEL_DECODE_THRESHOLD = 32;
+    /**
+     * The sorted spans of the paged traces are cached, so the following pages don't decode and sort the trace again.
+     * The cache is bounded by the total number of the cached spans.
+     */
+    private static final int PAGING_CACHE_MAX_SPANS = 200_000;
+    private static final int PAGING_CACHE_EXPIRE_MINUTES = 1;
+
     private final ModuleManager moduleManager;
+    private final int maxSpansOfQueryTrace;
+    private final Cache<String, List<Span>> pagingSpansCache;
     private ITraceQueryDAO traceQueryDAO;
     private IComponentLibraryCatalogService componentLibraryCatalogService;
 
-    public TraceQueryService(ModuleManager moduleManager) {
+    public TraceQueryService(ModuleManager moduleManager, CoreModuleConfig moduleConfig) {
         this.moduleManager = moduleManager;
+        this.maxSpansOfQueryTrace = moduleConfig.getMaxSpansOfQueryTrace();
+        // A single segment, or the weight limit would be split, and evict the huge traces right away.
+        this.pagingSpansCache = CacheBuilder.newBuilder()
+                                            .concurrencyLevel(1)
+                                            .maximumWeight(PAGING_CACHE_MAX_SPANS)
+                                            .weigher((String traceId, List<Span> spans) -> spans.size())
+                                            .expireAfterAccess(PAGING_CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                                            .build();
     }
 
     private ITraceQueryDAO getTraceQueryDAO() {
@@ -94,38 +132,78 @@ public class TraceQueryService implements Service {
     }
 
     public Trace queryTrace(final String traceId) throws IOException {
+        List<Span> sortedSpans = querySortedSpans(traceId);
+        if (maxSpansOfQueryTrace > 0 && sortedSpans.size() > maxSpansOfQueryTrace) {
+            log.warn(
+                "The trace {} has {} spans, only the first {} spans are returned, query it page by page for all spans.",
+                traceId, sortedSpans.size(), maxSpansOfQueryTrace
+            );
+            sortedSpans = sortedSpans.subList(0, maxSpansOfQueryTrace);
+        }
+
+        Trace trace = new Trace();
+        trace.getSpans().addAll(sortedSpans);
+        return trace;
+    }
+
+    /**
+     * Query the spans of the trace page by page, in the same order as {@link #queryTrace(String)}, for the huge trace.
+     * The first page queries the trace from the storage, the following pages read the sorted spans from the cache, until
+     * they expire.
+     */
+    public Trace queryTrace(final String traceId, final Pagination paging) throws IOException {
+        PaginationUtils.Page page = PaginationUtils.INSTANCE.exchange(paging);
+        List<Span> sortedSpans = page.getFrom() == 0 ? null : pagingSpansCache.getIfPresent(traceId);
+        if (sortedSpans == null) {
+            sortedSpans = querySortedSpans(traceId);
+            pagingSpansCache.put(traceId, sortedSpans);
+        }
+
         Trace trace = new Trace();
+        if (page.getFrom() < sortedSpans.size()) {
+            trace.getSpans().addAll(
+                sortedSpans.subList(page.getFrom(), Math.min(sortedSpans.size(), page.getFrom() + page.getLimit())));
+        }
+        return trace;
+    }
 
+    private List<Span> querySortedSpans(final String traceId) throws IOException {
         List<SegmentRecord> segmentRecords = getTraceQueryDAO().queryByTraceId(traceId);
         if (segmentRecords.isEmpty()) {
-            trace.getSpans().addAll(getTraceQueryDAO().doFlexibleTraceQuery(traceId));
-        } else {
+            return sortSpans(getTraceQueryDAO().doFlexibleTraceQuery(traceId));
+        }
+        return sortSpans(buildSpanList(segmentRecords));
+    }
+
+    private List<Span> buildSpanList(List<SegmentRecord> segmentRecords) throws IOException {
+        if (segmentRecords.size() < PARALLEL_DECODE_THRESHOLD) {
+            List<Span> spans = new ArrayList<>();
             for (SegmentRecord segment : segmentRecords) {
                 if (nonNull(segment)) {
-                    SegmentObject segmentObject = SegmentObject.parseFrom(segment.getDataBinary());
-                    trace.getSpans()
-                         .addAll(buildSpanList(segmentObject));
+                    spans.addAll(buildSpanList(segment));
                 }
             }
+            return spans;
         }
 
-        List<Span> sortedSpans = new LinkedList<>();
-        if (CollectionUtils.isNotEmpty(trace.getSpans())) {
-            List<Span> rootSpans = findRoot(trace.getSpans());
-
-            if (CollectionUtils.isNotEmpty(rootSpans)) {
-                rootSpans.forEach(span -> {
-                    List<Span> childrenSpan = new ArrayList<>();
-                    childrenSpan.add(span);
-                    findChildren(trace.getSpans(), span, childrenSpan);
-                    sortedSpans.addAll(childrenSpan);
-                });
-            }
+        // Initialize the service before the parallel decoding.
+        getComponentLibraryCatalogService();
+        try {
+            return segmentRecords.parallelStream().filter(Objects::nonNull).map(segment -> {
+                try {
+                    return buildSpanList(segment);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).flatMap(Collection::stream).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
 
-        trace.getSpans().clear();
-        trace.getSpans().addAll(sortedSpans);
-        return trace;
+    private List<Span> buildSpanList(SegmentRecord segment) throws IOException {
+        SegmentObject segmentObject = SegmentObject.parseFrom(SegmentDataCodec.decode(segment.getDataBinary()));
+        return buildSpanList(segmentObject);
     }
 
     private List<Span> buildSpanList(SegmentObject segmentObject) {
@@ -206,25 +284,25 @@ public class TraceQueryService implements Service {
         return spans;
     }
 
-    private List<Span> findRoot(List<Span> spans) {
-        List<Span> rootSpans = new ArrayList<>();
-        spans.forEach(span -> {
-            String segmentParentSpanId = span.getSegmentParentSpanId();
-
-            boolean hasParent = false;
-            for (Span subSpan : spans) {
-                if (segmentParentSpanId.equals(subSpan.getSegmentSpanId())) {
-                    hasParent = true;
-                    // if find parent, quick exit
-                    break;
-                }
-            }
+    /**
+     * Sort the spans in the depth-first order of the trace tree, the children follow the order of the given spans. The
+     * children are indexed by the segment span id of their parent, so every span is visited once.
+     */
+    static List<Span> sortSpans(List<Span> spans) {
+        Set<String> segmentSpanIds = new HashSet<>(spans.size());
+        Map<String, List<Span>> childrenIndex = new HashMap<>(spans.size());
+        for (Span span : spans) {
+            segmentSpanIds.add(span.getSegmentSpanId());
+            childrenIndex.computeIfAbsent(span.getSegmentParentSpanId(), parent -> new ArrayList<>(1)).add(span);
+        }
 
-            if (!hasParent) {
+        List<Span> rootSpans = new ArrayList<>();
+        for (Span span : spans) {
+            if (!segmentSpanIds.contains(span.getSegmentParentSpanId())) {
                 span.setRoot(true);
                 rootSpans.add(span);
             }
-        });
+        }
         /*
          * In some cases, there are segment fragments, which could not be linked by Ref,
          * because of two kinds of reasons.
@@ -233,15 +311,27 @@ public class TraceQueryService implements Service {
          * Sorting the segments makes the trace view more readable.
          */
         rootSpans.sort(Comparator.comparing(Span::getStartTime));
-        return rootSpans;
-    }
 
-    private void findChildren(List<Span> spans, Span parentSpan, List<Span> childrenSpan) {
-        spans.forEach(span -> {
-            if (span.getSegmentParentSpanId().equals(parentSpan.getSegmentSpanId())) {
-                childrenSpan.add(span);
-                findChildren(spans, span, childrenSpan);
+        List<Span> sortedSpans = new ArrayList<>(spans.size());
+        // The duplicate span ids could link the spans into a cycle.
+        Set<Span> visited = Collections.newSetFromMap(new IdentityHashMap<>(spans.size()));
+        Deque<Span> stack = new ArrayDeque<>();
+        for (Span rootSpan : rootSpans) {
+            stack.push(rootSpan);
+            while (!stack.isEmpty()) {
+                Span span = stack.pop();
+                if (!visited.add(span)) {
+                    continue;
+                }
+                sortedSpans.add(span);
+                List<Span> children = childrenIndex.get(span.getSegmentSpanId());
+                if (children != null) {
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        stack.push(children.get(i));
+                    }
+                }
             }
-        });
+        }
+        return sortedSpans;
     }
 }
@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.core.query.entity;
 
 import java.util.LinkedList;
+import java.util.List;
 
 public class IntValues {
 
@@ -37,6 +38,10 @@ public class IntValues {
         return defaultValue;
     }
 
+    public List<KVInt> getValues() {
+        return values;
+    }
+
     public KVInt getLast() {
         return values.getLast();
     }
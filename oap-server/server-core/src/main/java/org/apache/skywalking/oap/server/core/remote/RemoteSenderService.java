@@ -25,6 +25,7 @@ import org.apache.skywalking.oap.server.core.remote.client.RemoteClientManager;
 import org.apache.skywalking.oap.server.core.remote.data.StreamData;
 import org.apache.skywalking.oap.server.core.remote.selector.ForeverFirstSelector;
 import org.apache.skywalking.oap.server.core.remote.selector.HashCodeSelector;
+import org.apache.skywalking.oap.server.core.remote.selector.RemoteClientSelector;
 import org.apache.skywalking.oap.server.core.remote.selector.RollingSelector;
 import org.apache.skywalking.oap.server.core.remote.selector.Selector;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
@@ -40,13 +41,21 @@ public class RemoteSenderService implements Service {
     private static final Logger logger = LoggerFactory.getLogger(RemoteSenderService.class);
 
     private final ModuleManager moduleManager;
-    private final HashCodeSelector hashCodeSelector;
+    private final RemoteClientSelector hashCodeSelector;
     private final ForeverFirstSelector foreverFirstSelector;
     private final RollingSelector rollingSelector;
 
     public RemoteSenderService(ModuleManager moduleManager) {
+        this(moduleManager, new HashCodeSelector());
+    }
+
+    /**
+     * @param hashCodeSelector the implementation of {@link Selector#HashCode}, which routes the same stream data to the
+     *                         same OAP node.
+     */
+    public RemoteSenderService(ModuleManager moduleManager, RemoteClientSelector hashCodeSelector) {
         this.moduleManager = moduleManager;
-        this.hashCodeSelector = new HashCodeSelector();
+        this.hashCodeSelector = hashCodeSelector;
         this.foreverFirstSelector = new ForeverFirstSelector();
         this.rollingSelector = new RollingSelector();
     }
@@ -21,6 +21,8 @@ package org.apache.skywalking.oap.server.core.remote;
 import io.grpc.stub.StreamObserver;
 import java.util.Objects;
 import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactInput;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactRemoteCodec;
 import org.apache.skywalking.oap.server.core.remote.data.StreamData;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.Empty;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
@@ -110,6 +112,11 @@ public class RemoteServiceHandler extends RemoteServiceGrpc.RemoteServiceImplBas
         return new StreamObserver<RemoteMessage>() {
             @Override
             public void onNext(RemoteMessage message) {
+                if (!message.getCompactBatch().isEmpty()) {
+                    onCompactBatch(message);
+                    return;
+                }
+
                 remoteInCounter.inc();
                 HistogramMetrics.Timer timer = remoteInHistogram.createTimer();
                 try {
@@ -139,6 +146,46 @@ public class RemoteServiceHandler extends RemoteServiceGrpc.RemoteServiceImplBas
                 }
             }
 
+            /**
+             * Continue the aggregation of the batch encoded by {@link CompactRemoteCodec}.
+             */
+            private void onCompactBatch(RemoteMessage message) {
+                HistogramMetrics.Timer timer = remoteInHistogram.createTimer();
+                try {
+                    CompactRemoteCodec.decode(message.getCompactBatch(), this::onCompactGroup);
+                } catch (Throwable t) {
+                    remoteInErrorCounter.inc();
+                    logger.error(t.getMessage(), t);
+                } finally {
+                    timer.finish();
+                }
+            }
+
+            private void onCompactGroup(String nextWorkerName, int count, CompactInput input) {
+                remoteInCounter.inc(count);
+                RemoteHandleWorker handleWorker = workerInstanceGetter.get(nextWorkerName);
+                if (handleWorker == null) {
+                    remoteInTargetNotFoundCounter.inc(count);
+                    logger.warn(
+                        "Work name [{}] not found. Check OAL script, make sure they are same in the whole cluster.",
+                        nextWorkerName
+                    );
+                    return;
+                }
+
+                try {
+                    AbstractWorker nextWorker = handleWorker.getWorker();
+                    for (int i = 0; i < count; i++) {
+                        StreamData streamData = handleWorker.getStreamDataClass().newInstance();
+                        streamData.deserializeCompact(input);
+                        nextWorker.in(streamData);
+                    }
+                } catch (Throwable t) {
+                    remoteInErrorCounter.inc();
+                    logger.error(t.getMessage(), t);
+                }
+            }
+
             @Override
             public void onError(Throwable throwable) {
                 logger.error(throwable.getMessage(), throwable);
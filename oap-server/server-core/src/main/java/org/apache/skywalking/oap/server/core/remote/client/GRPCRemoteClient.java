@@ -27,6 +27,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.oap.server.core.remote.codec.ProtoRemoteCodec;
+import org.apache.skywalking.oap.server.core.remote.codec.RemoteCodec;
+import org.apache.skywalking.oap.server.core.remote.codec.RemoteOutData;
 import org.apache.skywalking.oap.server.core.remote.data.StreamData;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.Empty;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
@@ -51,10 +54,11 @@ public class GRPCRemoteClient implements RemoteClient {
     private final int channelSize;
     private final int bufferSize;
     private final Address address;
+    private final RemoteCodec remoteCodec;
     private final AtomicInteger concurrentStreamObserverNumber = new AtomicInteger(0);
     private SslContext sslContext;
     private GRPCClient client;
-    private DataCarrier<RemoteMessage> carrier;
+    private DataCarrier<RemoteOutData> carrier;
     private boolean isConnect;
     private CounterMetrics remoteOutCounter;
     private CounterMetrics remoteOutErrorCounter;
@@ -66,8 +70,19 @@ public class GRPCRemoteClient implements RemoteClient {
                             final int bufferSize,
                             final int remoteTimeout,
                             final SslContext sslContext) {
+        this(moduleDefineHolder, address, channelSize, bufferSize, remoteTimeout, sslContext, new ProtoRemoteCodec());
+    }
+
+    public GRPCRemoteClient(final ModuleDefineHolder moduleDefineHolder,
+                            final Address address,
+                            final int channelSize,
+                            final int bufferSize,
+                            final int remoteTimeout,
+                            final SslContext sslContext,
+                            final RemoteCodec remoteCodec) {
 
         this.address = address;
+        this.remoteCodec = remoteCodec;
         this.channelSize = channelSize;
         this.bufferSize = bufferSize;
         this.remoteTimeout = remoteTimeout;
@@ -118,7 +133,7 @@ public class GRPCRemoteClient implements RemoteClient {
         return RemoteServiceGrpc.newStub(getChannel());
     }
 
-    DataCarrier<RemoteMessage> getDataCarrier() {
+    DataCarrier<RemoteOutData> getDataCarrier() {
         if (Objects.isNull(this.carrier)) {
             synchronized (GRPCRemoteClient.class) {
                 if (Objects.isNull(this.carrier)) {
@@ -130,33 +145,28 @@ public class GRPCRemoteClient implements RemoteClient {
     }
 
     /**
-     * Push stream data which need to send to another OAP server.
+     * Push stream data which need to send to another OAP server. The stream data is encoded by the {@link RemoteCodec}
+     * in the consumer thread, so it should not be changed after pushed.
      *
      * @param nextWorkerName the name of a worker which will process this stream data.
      * @param streamData     the entity contains the values.
      */
     @Override
     public void push(String nextWorkerName, StreamData streamData) {
-        RemoteMessage.Builder builder = RemoteMessage.newBuilder();
-        builder.setNextWorkerName(nextWorkerName);
-        builder.setRemoteData(streamData.serialize());
-
-        this.getDataCarrier().produce(builder.build());
+        this.getDataCarrier().produce(new RemoteOutData(nextWorkerName, streamData));
     }
 
-    class RemoteMessageConsumer implements IConsumer<RemoteMessage> {
+    class RemoteMessageConsumer implements IConsumer<RemoteOutData> {
         @Override
         public void init() {
         }
 
         @Override
-        public void consume(List<RemoteMessage> remoteMessages) {
+        public void consume(List<RemoteOutData> remoteOutData) {
             try {
                 StreamObserver<RemoteMessage> streamObserver = createStreamObserver();
-                for (RemoteMessage remoteMessage : remoteMessages) {
-                    remoteOutCounter.inc();
-                    streamObserver.onNext(remoteMessage);
-                }
+                remoteOutCounter.inc(remoteOutData.size());
+                remoteCodec.encode(remoteOutData, streamObserver);
                 streamObserver.onCompleted();
             } catch (Throwable t) {
                 remoteOutErrorCounter.inc();
@@ -165,7 +175,7 @@ public class GRPCRemoteClient implements RemoteClient {
         }
 
         @Override
-        public void onError(List<RemoteMessage> remoteMessages, Throwable t) {
+        public void onError(List<RemoteOutData> remoteOutData, Throwable t) {
             logger.error(t.getMessage(), t);
         }
 
@@ -41,6 +41,8 @@ import lombok.Setter;
 import org.apache.skywalking.oap.server.core.cluster.ClusterModule;
 import org.apache.skywalking.oap.server.core.cluster.ClusterNodesQuery;
 import org.apache.skywalking.oap.server.core.cluster.RemoteInstance;
+import org.apache.skywalking.oap.server.core.remote.codec.ProtoRemoteCodec;
+import org.apache.skywalking.oap.server.core.remote.codec.RemoteCodec;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
 import org.apache.skywalking.oap.server.library.module.Service;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
@@ -64,6 +66,8 @@ public class RemoteClientManager implements Service {
     private volatile List<RemoteClient> usingClients;
     private GaugeMetrics gauge;
     private int remoteTimeout;
+    @Setter
+    private RemoteCodec remoteCodec = new ProtoRemoteCodec();
 
     /**
      * Initial the manager for all remote communication clients.
@@ -221,7 +225,8 @@ public class RemoteClientManager implements Service {
                         newRemoteClients.add(client);
                     } else {
                         RemoteClient client;
-                        client = new GRPCRemoteClient(moduleDefineHolder, address, 1, 3000, remoteTimeout, sslContext);
+                        client = new GRPCRemoteClient(
+                            moduleDefineHolder, address, 1, 3000, remoteTimeout, sslContext, remoteCodec);
                         client.connect();
                         newRemoteClients.add(client);
                     }
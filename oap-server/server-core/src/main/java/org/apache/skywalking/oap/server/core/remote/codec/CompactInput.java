@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.IntKeyLongValuePair;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+
+/**
+ * CompactInput reads the frame written by {@link CompactOutput}.
+ */
+public class CompactInput {
+    private final byte[] buffer;
+    private final String[] dictionary;
+    private final long baseTimeBucket;
+    private int position;
+
+    public CompactInput(byte[] frame) {
+        this.buffer = frame;
+        this.dictionary = new String[readVarInt() + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            int length = readVarInt();
+            dictionary[i] = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+        }
+        this.baseTimeBucket = readLong();
+    }
+
+    public int readInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (buffer[position++] & 0xFFL) << (i * 8);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        return dictionary[readVarInt()];
+    }
+
+    public long readTimeBucket() {
+        return baseTimeBucket + readLong();
+    }
+
+    public void readIntKeyLongValues(IntKeyLongValueHashMap target) {
+        int size = readVarInt();
+        int key = 0;
+        for (int i = 0; i < size; i++) {
+            key += readInt();
+            target.put(key, new IntKeyLongValue(key, readLong()));
+        }
+    }
+
+    public void readIntKeyLongHistogram(IntKeyLongHistogram target) {
+        int size = readVarInt();
+        int key = 0;
+        for (int i = 0; i < size; i++) {
+            key += readInt();
+            target.add(key, readLong());
+        }
+    }
+
+    public RemoteData readRemoteData() {
+        RemoteData.Builder remoteData = RemoteData.newBuilder();
+        int size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            remoteData.addDataStrings(readString());
+        }
+        size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            remoteData.addDataLongs(readLong());
+        }
+        size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            remoteData.addDataDoubles(readDouble());
+        }
+        size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            remoteData.addDataIntegers(readInt());
+        }
+        size = readVarInt();
+        for (int i = 0; i < size; i++) {
+            DataIntLongPairList.Builder pairList = DataIntLongPairList.newBuilder();
+            int pairSize = readVarInt();
+            int key = 0;
+            for (int j = 0; j < pairSize; j++) {
+                key += readInt();
+                pairList.addValue(IntKeyLongValuePair.newBuilder().setKey(key).setValue(readLong()));
+            }
+            remoteData.addDataLists(pairList);
+        }
+        return remoteData.build();
+    }
+
+    int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at " + position);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at " + position);
+    }
+
+    int readFixedInt() {
+        int value = (buffer[position] & 0xFF) << 24
+            | (buffer[position + 1] & 0xFF) << 16
+            | (buffer[position + 2] & 0xFF) << 8
+            | buffer[position + 3] & 0xFF;
+        position += 4;
+        return value;
+    }
+
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void position(int position) {
+        this.position = position;
+    }
+}
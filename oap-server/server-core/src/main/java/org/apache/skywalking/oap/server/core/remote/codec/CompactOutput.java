@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.IntKeyLongValuePair;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+
+/**
+ * CompactOutput writes the stream data of one frame in the compact binary format, read by {@link CompactInput}.
+ * <ul>
+ * <li>int and long values are zigzag varint encoded.</li>
+ * <li>Strings, such as entity IDs, are written once in the dictionary of the frame, and referred by the index.</li>
+ * <li>Time buckets are written as the delta to the first time bucket in the frame.</li>
+ * <li>Keys of {@link IntKeyLongValueHashMap} and {@link IntKeyLongHistogram} are written as the delta to the previous
+ * key.</li>
+ * </ul>
+ */
+public class CompactOutput {
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+    private byte[] buffer;
+    private int position;
+    private boolean hasBaseTimeBucket;
+    private long baseTimeBucket;
+
+    public CompactOutput(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void writeInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            buffer[position++] = (byte) (bits >>> (i * 8));
+        }
+    }
+
+    /**
+     * Write the index of the string in the dictionary, 0 represents null.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionary.size() + 1;
+            dictionary.put(value, index);
+        }
+        writeVarInt(index);
+    }
+
+    public void writeTimeBucket(long timeBucket) {
+        if (!hasBaseTimeBucket) {
+            hasBaseTimeBucket = true;
+            baseTimeBucket = timeBucket;
+        }
+        writeLong(timeBucket - baseTimeBucket);
+    }
+
+    public void writeIntKeyLongValues(IntKeyLongValueHashMap values) {
+        writeVarInt(values.size());
+        int previousKey = 0;
+        for (IntKeyLongValue value : values.values()) {
+            writeInt(value.getKey() - previousKey);
+            writeLong(value.getValue());
+            previousKey = value.getKey();
+        }
+    }
+
+    public void writeIntKeyLongHistogram(IntKeyLongHistogram histogram) {
+        writeVarInt(histogram.size());
+        int previousKey = 0;
+        for (int i = 0; i < histogram.size(); i++) {
+            writeInt(histogram.keyAt(i) - previousKey);
+            writeLong(histogram.valueAt(i));
+            previousKey = histogram.keyAt(i);
+        }
+    }
+
+    /**
+     * Write all values of the {@link RemoteData}, for the stream data without the field-level compact serialization.
+     */
+    public void writeRemoteData(RemoteData.Builder remoteData) {
+        writeVarInt(remoteData.getDataStringsCount());
+        for (int i = 0; i < remoteData.getDataStringsCount(); i++) {
+            writeString(remoteData.getDataStrings(i));
+        }
+        writeVarInt(remoteData.getDataLongsCount());
+        for (int i = 0; i < remoteData.getDataLongsCount(); i++) {
+            writeLong(remoteData.getDataLongs(i));
+        }
+        writeVarInt(remoteData.getDataDoublesCount());
+        for (int i = 0; i < remoteData.getDataDoublesCount(); i++) {
+            writeDouble(remoteData.getDataDoubles(i));
+        }
+        writeVarInt(remoteData.getDataIntegersCount());
+        for (int i = 0; i < remoteData.getDataIntegersCount(); i++) {
+            writeInt(remoteData.getDataIntegers(i));
+        }
+        writeVarInt(remoteData.getDataListsCount());
+        for (int i = 0; i < remoteData.getDataListsCount(); i++) {
+            DataIntLongPairList pairList = remoteData.getDataLists(i);
+            writeVarInt(pairList.getValueCount());
+            int previousKey = 0;
+            for (IntKeyLongValuePair pair : pairList.getValueList()) {
+                writeInt(pair.getKey() - previousKey);
+                writeLong(pair.getValue());
+                previousKey = pair.getKey();
+            }
+        }
+    }
+
+    /**
+     * Write the unsigned varint, for the sizes and indexes.
+     */
+    void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Reserve 4 bytes for a fixed int, which is set through {@link #setFixedInt(int, int)} later.
+     *
+     * @return the position of the fixed int.
+     */
+    int reserveFixedInt() {
+        ensureCapacity(4);
+        int reserved = position;
+        position += 4;
+        return reserved;
+    }
+
+    void setFixedInt(int at, int value) {
+        buffer[at] = (byte) (value >>> 24);
+        buffer[at + 1] = (byte) (value >>> 16);
+        buffer[at + 2] = (byte) (value >>> 8);
+        buffer[at + 3] = (byte) value;
+    }
+
+    int position() {
+        return position;
+    }
+
+    /**
+     * Build the frame, including the dictionary and the base time bucket in the head, then the written data.
+     */
+    ByteString toFrame() {
+        CompactOutput head = new CompactOutput(64 + dictionary.size() * 32);
+        head.writeVarInt(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            head.writeVarInt(bytes.length);
+            head.writeBytes(bytes, 0, bytes.length);
+        }
+        head.writeLong(baseTimeBucket);
+        head.writeBytes(buffer, 0, position);
+        return ByteString.copyFrom(head.buffer, 0, head.position);
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+        }
+    }
+}
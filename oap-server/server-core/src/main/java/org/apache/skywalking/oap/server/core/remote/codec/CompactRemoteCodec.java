@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
+
+/**
+ * The compact codec, one {@link RemoteMessage} carries a batch of stream data in {@link CompactOutput} format, through
+ * {@link StreamData#serializeCompact(CompactOutput)}.
+ * <p>
+ * The frame starts with the string dictionary and the base time bucket, followed by the groups of the stream data.
+ * Each group includes the next worker name, the number of stream data, and the length in bytes, so the receiver could
+ * skip the group when the worker doesn't exist.
+ */
+public class CompactRemoteCodec implements RemoteCodec {
+    public static final String NAME = "compact";
+
+    private final int batchSize;
+
+    public CompactRemoteCodec(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void encode(List<RemoteOutData> outData, StreamObserver<RemoteMessage> streamObserver) {
+        for (int from = 0; from < outData.size(); from += batchSize) {
+            List<RemoteOutData> batch = outData.subList(from, Math.min(from + batchSize, outData.size()));
+            RemoteMessage.Builder builder = RemoteMessage.newBuilder();
+            builder.setCompactBatch(encodeFrame(batch));
+            streamObserver.onNext(builder.build());
+        }
+    }
+
+    static ByteString encodeFrame(List<RemoteOutData> batch) {
+        Map<String, List<StreamData>> groups = new LinkedHashMap<>();
+        for (RemoteOutData data : batch) {
+            groups.computeIfAbsent(data.getNextWorkerName(), name -> new ArrayList<>()).add(data.getStreamData());
+        }
+
+        CompactOutput output = new CompactOutput(batch.size() * 32);
+        groups.forEach((nextWorkerName, streamDataList) -> {
+            output.writeString(nextWorkerName);
+            output.writeVarInt(streamDataList.size());
+            int length = output.reserveFixedInt();
+            for (StreamData streamData : streamDataList) {
+                streamData.serializeCompact(output);
+            }
+            output.setFixedInt(length, output.position() - length - 4);
+        });
+        return output.toFrame();
+    }
+
+    /**
+     * Read the groups in the frame.
+     */
+    public static void decode(ByteString frame, GroupReader reader) {
+        CompactInput input = new CompactInput(frame.toByteArray());
+        while (input.hasRemaining()) {
+            String nextWorkerName = input.readString();
+            int count = input.readVarInt();
+            int length = input.readFixedInt();
+            int end = input.position() + length;
+            try {
+                reader.read(nextWorkerName, count, input);
+            } finally {
+                input.position(end);
+            }
+        }
+    }
+
+    public interface GroupReader {
+        /**
+         * Read the stream data of the group, the unread data of the group is skipped after this returns.
+         *
+         * @param nextWorkerName the name of the worker which processes the stream data.
+         * @param count          the number of stream data in the group.
+         * @param input          positioned at the first stream data.
+         */
+        void read(String nextWorkerName, int count, CompactInput input);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
+
+/**
+ * The default codec, one {@link RemoteMessage} carries one stream data as {@link RemoteData}.
+ */
+public class ProtoRemoteCodec implements RemoteCodec {
+    @Override
+    public void encode(List<RemoteOutData> outData, StreamObserver<RemoteMessage> streamObserver) {
+        for (RemoteOutData data : outData) {
+            RemoteMessage.Builder builder = RemoteMessage.newBuilder();
+            builder.setNextWorkerName(data.getNextWorkerName());
+            builder.setRemoteData(data.getStreamData().serialize());
+            streamObserver.onNext(builder.build());
+        }
+    }
+}
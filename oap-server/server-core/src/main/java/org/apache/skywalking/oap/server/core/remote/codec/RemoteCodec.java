@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
+
+/**
+ * RemoteCodec encodes the stream data sent from one OAP node to another. The receiver side accepts all codecs, so the
+ * codec could be chosen by each node, as long as all nodes in the cluster understand it.
+ */
+public interface RemoteCodec {
+    /**
+     * Encode the stream data, and send them through the given stream observer.
+     */
+    void encode(List<RemoteOutData> outData, StreamObserver<RemoteMessage> streamObserver);
+}
@@ -21,6 +21,9 @@ package org.apache.skywalking.oap.server.core.remote.data;
 import org.apache.skywalking.oap.server.core.analysis.data.QueueData;
 import org.apache.skywalking.oap.server.core.remote.Deserializable;
 import org.apache.skywalking.oap.server.core.remote.Serializable;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactInput;
+import org.apache.skywalking.oap.server.core.remote.codec.CompactOutput;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
 
 public abstract class StreamData implements QueueData, Serializable, Deserializable {
 
@@ -42,4 +45,19 @@ public abstract class StreamData implements QueueData, Serializable, Deserializa
     }
 
     public abstract int remoteHashCode();
+
+    /**
+     * Serialize through the compact remote codec. The default implementation writes the {@link RemoteData} built by
+     * {@link #serialize()}, the metrics generated by OAL override it with the field-level encoding.
+     */
+    public void serializeCompact(CompactOutput output) {
+        output.writeRemoteData(serialize());
+    }
+
+    /**
+     * Deserialize the data written by {@link #serializeCompact(CompactOutput)}.
+     */
+    public void deserializeCompact(CompactInput input) {
+        deserialize(input.readRemoteData());
+    }
 }
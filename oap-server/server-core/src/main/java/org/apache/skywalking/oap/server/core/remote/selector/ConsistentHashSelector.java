@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.selector;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClient;
+import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+
+/**
+ * ConsistentHashSelector routes the stream data through a consistent hash ring of the remote clients. Each client is
+ * placed on the ring as a number of virtual nodes, so when an OAP node joins or leaves, only about 1/N of the stream
+ * data moves to a different node, and the sessions of the metrics persistent workers on the other nodes keep valid.
+ * <p>
+ * The owned hash space of each client is bounded by loadFactor * (1 / N). The arcs beyond that spill over to the next
+ * client clockwise, which has spare capacity. The bound is on the hash space rather than on the runtime traffic,
+ * because every OAP node must route the same stream data to the same node, for the L2 aggregation to be correct.
+ * <p>
+ * The hash of the stream data mixes the class name with {@link StreamData#remoteHashCode()}, so the metrics of a hot
+ * service are spread to different nodes, per metrics.
+ * <p>
+ * The ring is rebuilt when the client list changes, which is replaced by RemoteClientManager when the cluster nodes
+ * are refreshed.
+ */
+public class ConsistentHashSelector implements RemoteClientSelector {
+    public static final String NAME = "consistentHash";
+
+    private final int virtualNodes;
+    private final double loadFactor;
+    private volatile Ring ring;
+
+    public ConsistentHashSelector(int virtualNodes, double loadFactor) {
+        this.virtualNodes = virtualNodes;
+        this.loadFactor = Math.max(loadFactor, 1.0);
+    }
+
+    @Override
+    public RemoteClient select(List<RemoteClient> clients, StreamData streamData) {
+        Ring current = ring;
+        if (current == null || current.clients != clients) {
+            current = new Ring(clients, virtualNodes, loadFactor);
+            ring = current;
+        }
+        return current.select(hash(streamData));
+    }
+
+    private static int hash(StreamData streamData) {
+        int hash = 31 * streamData.getClass().getName().hashCode() + streamData.remoteHashCode();
+        // The finalization mix of MurmurHash3, spread the bits of the hashCode over the ring.
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    static class Ring {
+        private static final long RING_SIZE = 1L << 32;
+
+        private final List<RemoteClient> clients;
+        /**
+         * The positions of the virtual nodes in unsigned int order, and the owner clients of the arcs ending at them.
+         */
+        private final int[] positions;
+        private final RemoteClient[] owners;
+
+        Ring(List<RemoteClient> clients, int virtualNodes, double loadFactor) {
+            this.clients = clients;
+            final int clientSize = clients.size();
+
+            long[] nodes = new long[clientSize * virtualNodes];
+            for (int i = 0; i < clientSize; i++) {
+                String address = clients.get(i).getAddress().toString();
+                for (int v = 0; v < virtualNodes; v++) {
+                    int position = Hashing.murmur3_32().hashString(address + "#" + v, StandardCharsets.UTF_8).asInt();
+                    // Unsigned position in the high bits, client index in the low bits.
+                    nodes[i * virtualNodes + v] = (Integer.toUnsignedLong(position) << 16) | i;
+                }
+            }
+            Arrays.sort(nodes);
+
+            positions = new int[nodes.length];
+            owners = new RemoteClient[nodes.length];
+            final long capacity = (long) Math.ceil(loadFactor * RING_SIZE / Math.max(clientSize, 1));
+            long[] owned = new long[clientSize];
+            for (int n = 0; n < nodes.length; n++) {
+                long position = nodes[n] >>> 16;
+                long previous = n == 0 ? (nodes[nodes.length - 1] >>> 16) - RING_SIZE : nodes[n - 1] >>> 16;
+                long arc = position - previous;
+
+                int owner = (int) (nodes[n] & 0xFFFF);
+                for (int step = 1; step < nodes.length && owned[owner] + arc > capacity; step++) {
+                    int next = (int) (nodes[(n + step) % nodes.length] & 0xFFFF);
+                    if (owned[next] + arc <= capacity) {
+                        owner = next;
+                    }
+                }
+                owned[owner] += arc;
+                positions[n] = (int) position;
+                owners[n] = clients.get(owner);
+            }
+        }
+
+        RemoteClient select(int hash) {
+            int low = 0;
+            int high = positions.length - 1;
+            if (Integer.compareUnsigned(hash, positions[high]) > 0) {
+                return owners[0];
+            }
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (Integer.compareUnsigned(positions[middle], hash) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return owners[low];
+        }
+    }
+}
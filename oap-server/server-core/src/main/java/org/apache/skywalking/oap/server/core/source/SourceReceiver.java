@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.oap.server.core.source;
 
+import java.util.List;
 import org.apache.skywalking.oap.server.library.module.Service;
 
 /**
@@ -26,4 +27,11 @@ import org.apache.skywalking.oap.server.library.module.Service;
  */
 public interface SourceReceiver extends Service {
     void receive(Source source);
+
+    /**
+     * Receive a batch of sources, for the receivers which have aggregated the data locally.
+     */
+    default void receive(List<? extends Source> sources) {
+        sources.forEach(this::receive);
+    }
 }
@@ -48,7 +48,9 @@ public interface IMetricsDAO extends DAO {
     InsertRequest prepareBatchInsert(Model model, Metrics metrics) throws IOException;
 
     /**
-     * Transfer the given metrics to an executable update statement.
+     * Transfer the given metrics to an executable update statement. The statement should insert the metrics when it
+     * doesn't exist. The persistent worker keeps the written metrics in the session, and updates them in the following
+     * rounds without reading back, so the update could follow an insert which failed.
      *
      * @return UpdateRequest should follow the database client driver datatype, in order to make sure it could be
      * executed ASAP.
@@ -18,12 +18,19 @@
 
 package org.apache.skywalking.oap.server.core.storage;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
 import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.worker.MetricsSessionCache;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
 import org.apache.skywalking.oap.server.core.analysis.worker.PersistenceWorker;
 import org.apache.skywalking.oap.server.core.analysis.worker.TopNStreamProcessor;
@@ -48,9 +55,19 @@ public enum PersistenceTimer {
     private CounterMetrics errorCounter;
     private HistogramMetrics prepareLatency;
     private HistogramMetrics executeLatency;
+    private HistogramMetrics backPressureLatency;
     private long lastTime = System.currentTimeMillis();
     private final List<PrepareRequest> prepareRequests = new ArrayList<>(50000);
 
+    /**
+     * Following are only used in the pipeline mode, see {@link CoreModuleConfig#isEnablePersistencePipeline()}.
+     */
+    private MetricsCreator metricsCreator;
+    private ExecutorService preparePool;
+    private ExecutorService executePool;
+    private Future<?> executingRound;
+    private final Map<PersistenceWorker, HistogramMetrics> modelPrepareLatencies = new ConcurrentHashMap<>();
+
     PersistenceTimer() {
         this.debug = System.getProperty("debug") != null;
     }
@@ -59,16 +76,34 @@ public enum PersistenceTimer {
         logger.info("persistence timer start");
         IBatchDAO batchDAO = moduleManager.find(StorageModule.NAME).provider().getService(IBatchDAO.class);
 
-        MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
-                                                     .provider()
-                                                     .getService(MetricsCreator.class);
+        metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                                      .provider()
+                                      .getService(MetricsCreator.class);
         errorCounter = metricsCreator.createCounter("persistence_timer_bulk_error_count", "Error execution of the prepare stage in persistence timer", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE);
         prepareLatency = metricsCreator.createHistogramMetric("persistence_timer_bulk_prepare_latency", "Latency of the prepare stage in persistence timer", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE);
         executeLatency = metricsCreator.createHistogramMetric("persistence_timer_bulk_execute_latency", "Latency of the execute stage in persistence timer", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE);
+        backPressureLatency = metricsCreator.createHistogramMetric("persistence_timer_bulk_back_pressure_latency", "Latency of waiting for the previous execute stage in persistence timer", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE);
 
         if (!isStarted) {
-            Executors.newSingleThreadScheduledExecutor()
-                     .scheduleWithFixedDelay(new RunnableWithExceptionProtection(() -> extractDataAndSave(batchDAO), t -> logger
+            Runnable round;
+            if (moduleConfig.isEnablePersistencePipeline() && moduleConfig.isEnableDatabaseSession()) {
+                logger.info("persistence timer works in the pipeline mode, prepare threads: {}", moduleConfig.getPersistencePrepareThreads());
+                preparePool = Executors.newFixedThreadPool(
+                    Math.max(1, moduleConfig.getPersistencePrepareThreads()),
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("PersistenceTimer-Prepare-%d").build()
+                );
+                executePool = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("PersistenceTimer-Execute-%d").build());
+                round = () -> pipelinedExtractDataAndSave(batchDAO, persistenceWorkers());
+            } else {
+                if (moduleConfig.isEnablePersistencePipeline()) {
+                    logger.warn("persistence pipeline requires enableDatabaseSession=true, fall back to the serial mode.");
+                }
+                round = () -> extractDataAndSave(batchDAO);
+            }
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("PersistenceTimer-%d").build())
+                     .scheduleWithFixedDelay(new RunnableWithExceptionProtection(round, t -> logger
                          .error("Extract data and save failure.", t)), 5, moduleConfig.getPersistentPeriod(), TimeUnit.SECONDS);
 
             this.isStarted = true;
@@ -86,11 +121,7 @@ public enum PersistenceTimer {
             HistogramMetrics.Timer timer = prepareLatency.createTimer();
 
             try {
-                List<PersistenceWorker> persistenceWorkers = new ArrayList<>();
-                persistenceWorkers.addAll(TopNStreamProcessor.getInstance().getPersistentWorkers());
-                persistenceWorkers.addAll(MetricsStreamProcessor.getInstance().getPersistentWorkers());
-
-                persistenceWorkers.forEach(worker -> {
+                persistenceWorkers().forEach(worker -> {
                     if (logger.isDebugEnabled()) {
                         logger.debug("extract {} worker data and save", worker.getClass().getName());
                     }
@@ -101,6 +132,7 @@ public enum PersistenceTimer {
 
                     worker.endOfRound(System.currentTimeMillis() - lastTime);
                 });
+                cleanUpSessionCache();
 
                 if (debug) {
                     logger.info("build batch persistence duration: {} ms", System.currentTimeMillis() - startTime);
@@ -133,4 +165,128 @@ public enum PersistenceTimer {
             logger.info("Batch persistence duration: {} ms", System.currentTimeMillis() - startTime);
         }
     }
+
+    /**
+     * The pipeline mode of {@link #extractDataAndSave(IBatchDAO)}. The workers prepare their requests in parallel in the
+     * {@link #preparePool}, and the requests execute in the {@link #executePool}, while the timer goes on to the next
+     * round. Only one round could be in execution, if storage falls behind, the timer waits before submitting the
+     * next round, and the data stays in the worker caches.
+     * <p>
+     * Read-back of the next round doesn't see the data in execution, the metrics persistent workers are required to keep
+     * the data written in the last round in their sessions, so this mode requires enableDatabaseSession = true.
+     */
+    void pipelinedExtractDataAndSave(IBatchDAO batchDAO, List<PersistenceWorker> persistenceWorkers) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Extract data and save in pipeline");
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            List<PrepareRequest> roundRequests;
+            HistogramMetrics.Timer timer = prepareLatency.createTimer();
+            try {
+                final long tookTime = System.currentTimeMillis() - lastTime;
+                List<Callable<List<PrepareRequest>>> tasks = new ArrayList<>(persistenceWorkers.size());
+                persistenceWorkers.forEach(worker -> tasks.add(() -> prepare(worker, tookTime)));
+
+                roundRequests = new ArrayList<>();
+                for (Future<List<PrepareRequest>> future : preparePool.invokeAll(tasks)) {
+                    roundRequests.addAll(future.get());
+                }
+                cleanUpSessionCache();
+
+                if (debug) {
+                    logger.info("build batch persistence duration: {} ms", System.currentTimeMillis() - startTime);
+                }
+            } finally {
+                timer.finish();
+            }
+
+            awaitExecutingRound();
+
+            if (CollectionUtils.isNotEmpty(roundRequests)) {
+                executingRound = executePool.submit(() -> {
+                    HistogramMetrics.Timer executeLatencyTimer = executeLatency.createTimer();
+                    try {
+                        batchDAO.synchronous(roundRequests);
+                    } catch (Throwable e) {
+                        errorCounter.inc();
+                        logger.error(e.getMessage(), e);
+                    } finally {
+                        executeLatencyTimer.finish();
+                    }
+                });
+            }
+        } catch (Throwable e) {
+            errorCounter.inc();
+            logger.error(e.getMessage(), e);
+        } finally {
+            lastTime = System.currentTimeMillis();
+        }
+
+        if (debug) {
+            logger.info("Batch persistence prepare duration: {} ms", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private static List<PersistenceWorker> persistenceWorkers() {
+        List<PersistenceWorker> persistenceWorkers = new ArrayList<>();
+        persistenceWorkers.addAll(TopNStreamProcessor.getInstance().getPersistentWorkers());
+        persistenceWorkers.addAll(MetricsStreamProcessor.getInstance().getPersistentWorkers());
+        return persistenceWorkers;
+    }
+
+    private List<PrepareRequest> prepare(PersistenceWorker worker, long tookTime) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("extract {} worker data and save", worker.getClass().getName());
+        }
+
+        List<PrepareRequest> workerRequests = new ArrayList<>();
+        HistogramMetrics.Timer timer = modelPrepareLatency(worker).createTimer();
+        try {
+            if (worker.flushAndSwitch()) {
+                worker.buildBatchRequests(workerRequests);
+            }
+
+            worker.endOfRound(tookTime);
+        } catch (Throwable e) {
+            errorCounter.inc();
+            logger.error(e.getMessage(), e);
+        } finally {
+            timer.finish();
+        }
+        return workerRequests;
+    }
+
+    private void cleanUpSessionCache() {
+        MetricsSessionCache sessionCache = MetricsStreamProcessor.getInstance().getSessionCache();
+        if (sessionCache != null && MetricsStreamProcessor.getInstance().isEnableDatabaseSession()) {
+            sessionCache.cleanUp();
+        }
+    }
+
+    /**
+     * Back pressure of the pipeline, block the timer until the previous round finished.
+     */
+    private void awaitExecutingRound() throws Exception {
+        if (executingRound == null) {
+            return;
+        }
+        HistogramMetrics.Timer timer = backPressureLatency.createTimer();
+        try {
+            executingRound.get();
+        } finally {
+            executingRound = null;
+            timer.finish();
+        }
+    }
+
+    private HistogramMetrics modelPrepareLatency(PersistenceWorker worker) {
+        return modelPrepareLatencies.computeIfAbsent(worker, w -> metricsCreator.createHistogramMetric(
+            "persistence_timer_model_prepare_latency", "Latency of the prepare stage of one model in persistence timer",
+            new MetricsTag.Keys("metricName", "dimensionality"),
+            new MetricsTag.Values(w.getModel().getName(), w.getModel().getDownsampling().getName())
+        ));
+    }
 }
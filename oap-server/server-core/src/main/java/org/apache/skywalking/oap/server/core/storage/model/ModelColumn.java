@@ -20,6 +20,7 @@ package org.apache.skywalking.oap.server.core.storage.model;
 
 import com.google.gson.JsonObject;
 import lombok.Getter;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
 import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
 
 @Getter
@@ -49,9 +50,10 @@ public class ModelColumn {
             this.length = 0;
         }
         /*
-         * byte[] and {@link IntKeyLongValueHashMap} could never be query.
+         * byte[], {@link IntKeyLongValueHashMap} and {@link IntKeyLongHistogram} could never be query.
          */
-        if (type.equals(byte[].class) || type.equals(IntKeyLongValueHashMap.class)) {
+        if (type.equals(byte[].class) || type.equals(IntKeyLongValueHashMap.class) || type.equals(
+            IntKeyLongHistogram.class)) {
             this.storageOnly = true;
         } else {
             if (storageOnly && isValue) {
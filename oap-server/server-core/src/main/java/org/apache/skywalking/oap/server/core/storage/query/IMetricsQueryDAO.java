@@ -19,9 +19,13 @@
 package org.apache.skywalking.oap.server.core.storage.query;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
 import org.apache.skywalking.oap.server.core.query.entity.IntValues;
+import org.apache.skywalking.oap.server.core.query.entity.KVInt;
 import org.apache.skywalking.oap.server.core.query.entity.Thermodynamic;
 import org.apache.skywalking.oap.server.core.query.sql.Function;
 import org.apache.skywalking.oap.server.core.query.sql.Where;
@@ -35,6 +39,38 @@ public interface IMetricsQueryDAO extends DAO {
     IntValues getLinearIntValues(String indName, DownSampling downsampling, List<String> ids,
                                  String valueCName) throws IOException;
 
+    /**
+     * Query the linear values of multiple entities in one storage call. The default implementation queries the IDs of
+     * all entities through {@link #getLinearIntValues(String, DownSampling, List, String)} together.
+     *
+     * @param ids the IDs of each entity.
+     * @return the values of each entity, in the same order of the IDs, 0 if the ID doesn't exist.
+     */
+    default List<IntValues> getBatchLinearIntValues(String indName, DownSampling downsampling, List<List<String>> ids,
+                                                    String valueCName) throws IOException {
+        List<String> allIds = new ArrayList<>();
+        ids.forEach(allIds::addAll);
+        Map<String, Long> values = new HashMap<>(allIds.size());
+        if (!allIds.isEmpty()) {
+            for (KVInt kvInt : getLinearIntValues(indName, downsampling, allIds, valueCName).getValues()) {
+                values.put(kvInt.getId(), kvInt.getValue());
+            }
+        }
+
+        List<IntValues> result = new ArrayList<>(ids.size());
+        for (List<String> entityIds : ids) {
+            IntValues intValues = new IntValues();
+            for (String id : entityIds) {
+                KVInt kvInt = new KVInt();
+                kvInt.setId(id);
+                kvInt.setValue(values.getOrDefault(id, 0L));
+                intValues.addKVInt(kvInt);
+            }
+            result.add(intValues);
+        }
+        return result;
+    }
+
     IntValues[] getMultipleLinearIntValues(String indName, DownSampling downsampling, List<String> ids,
                                            List<Integer> linearIndex, String valueCName) throws IOException;
 
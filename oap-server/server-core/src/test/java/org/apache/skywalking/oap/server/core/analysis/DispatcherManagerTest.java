@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.source.Source;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DispatcherManagerTest {
+    private static final List<String> DISPATCHED = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        DISPATCHED.clear();
+    }
+
+    @Test
+    public void testForwardBatch() throws Exception {
+        DispatcherManager manager = new DispatcherManager();
+        manager.addIfAsSourceDispatcher(SourceADispatcher.class);
+        manager.addIfAsSourceDispatcher(SourceBDispatcher.class);
+
+        manager.forward(Arrays.asList(
+            new SourceA("a1"), new SourceA("a2"), null, new SourceB("b1"), new SourceC(), new SourceA("a3")));
+
+        Assert.assertEquals(Arrays.asList("A:a1", "A:a2", "B:b1", "A:a3"), DISPATCHED);
+    }
+
+    public static class SourceA extends Source {
+        private final String id;
+
+        public SourceA() {
+            this(null);
+        }
+
+        SourceA(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public int scope() {
+            return 10001;
+        }
+
+        @Override
+        public String getEntityId() {
+            return id;
+        }
+    }
+
+    public static class SourceB extends SourceA {
+        public SourceB() {
+            this(null);
+        }
+
+        SourceB(String id) {
+            super(id);
+        }
+
+        @Override
+        public int scope() {
+            return 10002;
+        }
+    }
+
+    public static class SourceC extends SourceA {
+        @Override
+        public int scope() {
+            return 10003;
+        }
+    }
+
+    public static class SourceADispatcher implements SourceDispatcher<SourceA> {
+        @Override
+        public void dispatch(SourceA source) {
+            DISPATCHED.add("A:" + source.getEntityId());
+        }
+    }
+
+    public static class SourceBDispatcher implements SourceDispatcher<SourceB> {
+        @Override
+        public void dispatch(SourceB source) {
+            DISPATCHED.add("B:" + source.getEntityId());
+        }
+    }
+}
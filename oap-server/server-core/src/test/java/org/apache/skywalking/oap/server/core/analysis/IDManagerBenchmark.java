@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.apache.skywalking.oap.server.core.Const;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the cached {@link IDManager} with the uncached Base64 encoding and regex splitting, for 20 services, 5
+ * instances and 50 endpoints per service, which is the way a span or a metrics is analyzed.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class IDManagerBenchmark {
+    private static final int SERVICES = 20;
+    private static final int INSTANCES = 5;
+    private static final int ENDPOINTS = 50;
+
+    private String[] serviceNames;
+    private String[] instanceNames;
+    private String[] endpointNames;
+    private String[] instanceIds;
+    private String[] endpointIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        serviceNames = new String[SERVICES];
+        instanceNames = new String[SERVICES * INSTANCES];
+        endpointNames = new String[SERVICES * ENDPOINTS];
+        instanceIds = new String[SERVICES * INSTANCES];
+        endpointIds = new String[SERVICES * ENDPOINTS];
+        for (int i = 0; i < SERVICES; i++) {
+            serviceNames[i] = "service-" + i;
+            final String serviceId = uncachedServiceId(serviceNames[i]);
+            for (int j = 0; j < INSTANCES; j++) {
+                int index = i * INSTANCES + j;
+                instanceNames[index] = "instance-" + j + "@10.0.0." + i;
+                instanceIds[index] = serviceId + Const.ID_CONNECTOR + uncachedEncode(instanceNames[index]);
+            }
+            for (int j = 0; j < ENDPOINTS; j++) {
+                int index = i * ENDPOINTS + j;
+                endpointNames[index] = "/api/v1/orders/" + j + "/{id}";
+                endpointIds[index] = serviceId + Const.ID_CONNECTOR + uncachedEncode(endpointNames[index]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void uncachedBuildId(Blackhole blackhole) {
+        for (int i = 0; i < endpointNames.length; i++) {
+            final String serviceId = uncachedServiceId(serviceNames[i / ENDPOINTS]);
+            blackhole.consume(serviceId + Const.ID_CONNECTOR + uncachedEncode(endpointNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void cachedBuildId(Blackhole blackhole) {
+        for (int i = 0; i < endpointNames.length; i++) {
+            final String serviceId = IDManager.ServiceID.buildId(serviceNames[i / ENDPOINTS], NodeType.Normal);
+            blackhole.consume(IDManager.EndpointID.buildId(serviceId, endpointNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void uncachedAnalysisId(Blackhole blackhole) {
+        for (String instanceId : instanceIds) {
+            final String[] strings = instanceId.split(Const.ID_PARSER_SPLIT);
+            blackhole.consume(new IDManager.ServiceInstanceID.InstanceIDDefinition(
+                strings[0], uncachedDecode(strings[1])));
+        }
+        for (String endpointId : endpointIds) {
+            final String[] strings = endpointId.split(Const.ID_PARSER_SPLIT);
+            blackhole.consume(new IDManager.EndpointID.EndpointIDDefinition(strings[0], uncachedDecode(strings[1])));
+        }
+    }
+
+    @Benchmark
+    public void cachedAnalysisId(Blackhole blackhole) {
+        for (String instanceId : instanceIds) {
+            blackhole.consume(IDManager.ServiceInstanceID.analysisId(instanceId));
+        }
+        for (String endpointId : endpointIds) {
+            blackhole.consume(IDManager.EndpointID.analysisId(endpointId));
+        }
+    }
+
+    private static String uncachedServiceId(String name) {
+        return uncachedEncode(name) + Const.SERVICE_ID_CONNECTOR + 1;
+    }
+
+    private static String uncachedEncode(String text) {
+        return new String(Base64.getEncoder().encode(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    private static String uncachedDecode(String base64text) {
+        return new String(Base64.getDecoder().decode(base64text), StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(IDManagerBenchmark.class.getName())
+                                          .addProfiler(GCProfiler.class)
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.oap.server.core.analysis;
 
+import org.apache.skywalking.oap.server.core.Const;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -49,4 +50,23 @@ public class IDManagerTest {
         Assert.assertEquals(define, serviceRelationDefine);
     }
 
+    @Test
+    public void testEndpointID() {
+        final String serviceId = IDManager.ServiceID.buildId("Service", NodeType.Normal);
+        final String endpointId = IDManager.EndpointID.buildId(serviceId, "/api/v1_orders-{id}.json");
+
+        final IDManager.EndpointID.EndpointIDDefinition define = IDManager.EndpointID.analysisId(endpointId);
+        Assert.assertEquals(serviceId, define.getServiceId());
+        Assert.assertEquals("/api/v1_orders-{id}.json", define.getEndpointName());
+        Assert.assertSame(define, IDManager.EndpointID.analysisId(endpointId));
+    }
+
+    @Test
+    public void testSplit() {
+        final String[] ids = {"", "a", "a.b", "a..b", ".a", "a.", "a.b..", "..", "YQ==.1"};
+        for (String id : ids) {
+            Assert.assertArrayEquals(
+                id, id.split(Const.SERVICE_ID_PARSER_SPLIT), IDManager.split(id, Const.SERVICE_ID_CONNECTOR));
+        }
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InternCacheTest {
+    @Test
+    public void testHotKeysStayCached() {
+        AtomicInteger calls = new AtomicInteger();
+        InternCache<String, String> cache = new InternCache<>(100, key -> {
+            if (key.equals("hot")) {
+                calls.incrementAndGet();
+            }
+            return key + "-value";
+        });
+
+        String hot = cache.get("hot");
+        for (int i = 0; i < 1000; i++) {
+            cache.get("cold-" + i);
+            Assert.assertSame(hot, cache.get("hot"));
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testResize() {
+        InternCache<String, String> cache = new InternCache<>(100, key -> key + "-value");
+        for (int i = 0; i < 100; i++) {
+            cache.get("key-" + i);
+        }
+        cache.resize(10);
+        Assert.assertEquals(0, cache.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("key-" + i + "-value", cache.get("key-" + i));
+        }
+        Assert.assertTrue(cache.size() <= 10);
+    }
+}
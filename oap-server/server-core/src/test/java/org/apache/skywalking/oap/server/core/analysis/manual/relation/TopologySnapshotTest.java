@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.manual.relation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.instance.ServiceInstanceRelationClientSideMetrics;
+import org.apache.skywalking.oap.server.core.analysis.manual.relation.service.ServiceRelationServerSideMetrics;
+import org.apache.skywalking.oap.server.core.query.entity.Call;
+import org.apache.skywalking.oap.server.core.remote.client.Address;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClient;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClientManager;
+import org.apache.skywalking.oap.server.core.source.DetectPoint;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TopologySnapshotTest {
+    private RemoteClientManager remoteClientManager;
+    private TopologySnapshot snapshot;
+    private long minute;
+
+    @Before
+    public void setUp() {
+        remoteClientManager = Mockito.mock(RemoteClientManager.class);
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(RemoteClientManager.class)).thenReturn(remoteClientManager);
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        ModuleDefineHolder moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(CoreModule.NAME)).thenReturn(providerHolder);
+
+        List<RemoteClient> standalone = clients(new Address("127.0.0.1", 11800, true));
+        Mockito.when(remoteClientManager.getRemoteClient()).thenReturn(standalone);
+        snapshot = new TopologySnapshot(moduleDefineHolder);
+        minute = TimeBucket.getMinuteTimeBucket(System.currentTimeMillis());
+    }
+
+    @Test
+    public void testLoadServiceRelations() {
+        snapshot.record(serviceRelation("a", "b", minute + 1), DownSampling.Minute);
+        snapshot.record(serviceRelation("b", "c", minute + 2), DownSampling.Minute);
+        snapshot.record(serviceRelation("a", "b", minute + 2), DownSampling.Minute);
+
+        Assert.assertFalse(snapshot.isCovered(DownSampling.Minute, minute));
+        Assert.assertTrue(snapshot.isCovered(DownSampling.Minute, minute + 1));
+
+        List<Call.CallDetail> calls = snapshot.loadServiceRelations(
+            DetectPoint.SERVER, DownSampling.Minute, minute + 1, minute + 2, null);
+        Assert.assertEquals(2, calls.size());
+
+        calls = snapshot.loadServiceRelations(
+            DetectPoint.SERVER, DownSampling.Minute, minute + 1, minute + 1, null);
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("a", calls.get(0).getSource());
+        Assert.assertEquals("b", calls.get(0).getTarget());
+        Assert.assertEquals(DetectPoint.SERVER, calls.get(0).getDetectPoint());
+
+        calls = snapshot.loadServiceRelations(
+            DetectPoint.SERVER, DownSampling.Minute, minute + 1, minute + 2, Collections.singletonList("c"));
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("b", calls.get(0).getSource());
+
+        Assert.assertTrue(snapshot.loadServiceRelations(
+            DetectPoint.CLIENT, DownSampling.Minute, minute + 1, minute + 2, null).isEmpty());
+    }
+
+    @Test
+    public void testLoadInstanceRelations() {
+        ServiceInstanceRelationClientSideMetrics metrics = new ServiceInstanceRelationClientSideMetrics();
+        metrics.setTimeBucket(minute + 1);
+        metrics.setSourceServiceId("a");
+        metrics.setDestServiceId("b");
+        metrics.setEntityId(IDManager.ServiceInstanceID.buildRelationId(
+            new IDManager.ServiceInstanceID.ServiceInstanceRelationDefine(
+                IDManager.ServiceInstanceID.buildId("a", "a1"), IDManager.ServiceInstanceID.buildId("b", "b1"))));
+        metrics.setComponentId(1);
+        snapshot.record(metrics, DownSampling.Minute);
+
+        Assert.assertEquals(1, snapshot.loadInstanceRelations(
+            DetectPoint.CLIENT, "a", "b", DownSampling.Minute, minute + 1, minute + 1).size());
+        Assert.assertEquals(1, snapshot.loadInstanceRelations(
+            DetectPoint.CLIENT, "b", "a", DownSampling.Minute, minute + 1, minute + 1).size());
+        Assert.assertTrue(snapshot.loadInstanceRelations(
+            DetectPoint.CLIENT, "a", "c", DownSampling.Minute, minute + 1, minute + 1).isEmpty());
+    }
+
+    @Test
+    public void testNotCoveredInCluster() {
+        snapshot.record(serviceRelation("a", "b", minute + 1), DownSampling.Minute);
+        Assert.assertTrue(snapshot.isCovered(DownSampling.Minute, minute + 1));
+
+        List<RemoteClient> cluster = clients(
+            new Address("127.0.0.1", 11800, true), new Address("127.0.0.2", 11800, false));
+        Mockito.when(remoteClientManager.getRemoteClient()).thenReturn(cluster);
+        Assert.assertFalse(snapshot.isCovered(DownSampling.Minute, minute + 1));
+
+        // Back to standalone, the relations recorded before are discarded.
+        List<RemoteClient> standalone = clients(new Address("127.0.0.1", 11800, true));
+        Mockito.when(remoteClientManager.getRemoteClient()).thenReturn(standalone);
+        Assert.assertTrue(snapshot.loadServiceRelations(
+            DetectPoint.SERVER, DownSampling.Minute, minute + 1, minute + 1, null).isEmpty());
+    }
+
+    @Test
+    public void testEvictedBucketsNotCovered() {
+        for (int i = 1; i <= 121; i++) {
+            snapshot.record(serviceRelation("a", "b", minute + i), DownSampling.Minute);
+        }
+        Assert.assertFalse(snapshot.isCovered(DownSampling.Minute, minute + 1));
+        Assert.assertTrue(snapshot.isCovered(DownSampling.Minute, minute + 2));
+    }
+
+    private static ServiceRelationServerSideMetrics serviceRelation(String source, String dest, long timeBucket) {
+        ServiceRelationServerSideMetrics metrics = new ServiceRelationServerSideMetrics();
+        metrics.setTimeBucket(timeBucket);
+        metrics.setSourceServiceId(source);
+        metrics.setDestServiceId(dest);
+        metrics.setEntityId(
+            IDManager.ServiceID.buildRelationId(new IDManager.ServiceID.ServiceRelationDefine(source, dest)));
+        metrics.setComponentId(1);
+        return metrics;
+    }
+
+    private static List<RemoteClient> clients(Address... addresses) {
+        RemoteClient[] clients = new RemoteClient[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            clients[i] = Mockito.mock(RemoteClient.class);
+            Mockito.when(clients[i].getAddress()).thenReturn(addresses[i]);
+        }
+        return Arrays.asList(clients);
+    }
+}
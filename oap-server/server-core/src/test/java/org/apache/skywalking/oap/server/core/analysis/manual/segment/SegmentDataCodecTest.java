@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.manual.segment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SegmentDataCodecTest {
+    /**
+     * A serialized segment starts with the tag of the trace id field, 0x0a.
+     */
+    private static final byte[] SEGMENT = buildSegment();
+
+    @After
+    public void tearDown() {
+        SegmentDataCodec.setCompressionEnabled(false);
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        byte[] encoded = SegmentDataCodec.encode(SEGMENT);
+        Assert.assertSame(SEGMENT, encoded);
+        Assert.assertArrayEquals(SEGMENT, SegmentDataCodec.decode(encoded));
+    }
+
+    @Test
+    public void testCompressed() throws IOException {
+        SegmentDataCodec.setCompressionEnabled(true);
+        byte[] encoded = SegmentDataCodec.encode(SEGMENT);
+        Assert.assertTrue(SegmentDataCodec.isCompressed(encoded));
+        Assert.assertTrue(encoded.length < SEGMENT.length);
+        Assert.assertArrayEquals(SEGMENT, SegmentDataCodec.decode(encoded));
+    }
+
+    @Test
+    public void testReadUncompressedAfterEnabled() throws IOException {
+        SegmentDataCodec.setCompressionEnabled(true);
+        Assert.assertArrayEquals(SEGMENT, SegmentDataCodec.decode(SEGMENT));
+        Assert.assertArrayEquals(new byte[0], SegmentDataCodec.decode(new byte[0]));
+    }
+
+    @Test
+    public void testStorageBuilder() throws IOException {
+        SegmentDataCodec.setCompressionEnabled(true);
+        SegmentRecord record = new SegmentRecord();
+        record.setSegmentId("segment-1");
+        record.setDataBinary(SEGMENT);
+
+        SegmentRecord.Builder builder = new SegmentRecord.Builder();
+        Map<String, Object> map = builder.data2Map(record);
+
+        SegmentRecord read = builder.map2Data(map);
+        Assert.assertArrayEquals(SEGMENT, SegmentDataCodec.decode(read.getDataBinary()));
+    }
+
+    private static byte[] buildSegment() {
+        StringBuilder segment = new StringBuilder("\ntrace-id");
+        for (int i = 0; i < 50; i++) {
+            segment.append("/api/users/{id}:").append(i).append(";");
+        }
+        return segment.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
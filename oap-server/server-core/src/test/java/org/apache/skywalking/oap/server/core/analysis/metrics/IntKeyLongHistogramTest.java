@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntKeyLongHistogramTest {
+
+    private IntKeyLongHistogram histogram;
+
+    @Before
+    public void init() {
+        histogram = new IntKeyLongHistogram(2);
+        histogram.add(5, 500);
+        histogram.add(6, 600);
+        histogram.add(1, 100);
+        histogram.add(2, 200);
+        histogram.add(7, 700);
+    }
+
+    @Test
+    public void keepKeysInOrder() {
+        Assert.assertEquals(5, histogram.size());
+        int[] keys = {1, 2, 5, 6, 7};
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(keys[i], histogram.keyAt(i));
+            Assert.assertEquals(keys[i] * 100, histogram.valueAt(i));
+        }
+        Assert.assertEquals(2100, histogram.total());
+        Assert.assertEquals(0, histogram.get(3));
+    }
+
+    @Test
+    public void combine() {
+        IntKeyLongHistogram source = new IntKeyLongHistogram();
+        source.add(0, 1);
+        source.add(2, 2);
+        source.add(4, 4);
+        source.add(9, 9);
+
+        histogram.combine(source);
+
+        Assert.assertEquals(8, histogram.size());
+        Assert.assertEquals(1, histogram.get(0));
+        Assert.assertEquals(100, histogram.get(1));
+        Assert.assertEquals(202, histogram.get(2));
+        Assert.assertEquals(4, histogram.get(4));
+        Assert.assertEquals(500, histogram.get(5));
+        Assert.assertEquals(9, histogram.get(9));
+
+        histogram.combine(source);
+        Assert.assertEquals(8, histogram.size());
+        Assert.assertEquals(204, histogram.get(2));
+    }
+
+    @Test
+    public void storageData() {
+        String data = histogram.toStorageData();
+        Assert.assertTrue(data.startsWith(IntKeyLongHistogram.COMPACT_PREFIX));
+
+        IntKeyLongHistogram restored = new IntKeyLongHistogram(data);
+        Assert.assertEquals(data, restored.toStorageData());
+        Assert.assertEquals(histogram.size(), restored.size());
+        for (int i = 0; i < histogram.size(); i++) {
+            Assert.assertEquals(histogram.keyAt(i), restored.keyAt(i));
+            Assert.assertEquals(histogram.valueAt(i), restored.valueAt(i));
+        }
+
+        Assert.assertTrue(new IntKeyLongHistogram(new IntKeyLongHistogram().toStorageData()).isEmpty());
+    }
+
+    @Test
+    public void toObjectFromLegacyData() {
+        IntKeyLongHistogram restored = new IntKeyLongHistogram();
+        restored.toObject("6,600|1,100|7,700|2,200|5,500");
+
+        Assert.assertEquals(histogram.toStorageData(), restored.toStorageData());
+    }
+
+    @Test
+    public void copyFrom() {
+        IntKeyLongHistogram copy = new IntKeyLongHistogram(1);
+        copy.copyFrom(histogram);
+
+        Assert.assertEquals(histogram.toStorageData(), copy.toStorageData());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetricsFlushPolicyTest {
+    private ModuleDefineHolder moduleDefineHolder;
+    private CoreModuleConfig config;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        config = new CoreModuleConfig();
+    }
+
+    @Test
+    public void testFlushEveryBatchByDefault() {
+        MetricsFlushPolicy.Trigger trigger = new MetricsFlushPolicy(config).createTrigger(moduleDefineHolder, "test");
+        Assert.assertFalse(trigger.shouldFlush());
+
+        trigger.onAggregated(false);
+        Assert.assertTrue(trigger.shouldFlush());
+
+        trigger.onFlushed();
+        Assert.assertFalse(trigger.shouldFlush());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        config.setL1FlushMaxAge(60000);
+        config.setL1FlushMaxEntries(2);
+        MetricsFlushPolicy.Trigger trigger = new MetricsFlushPolicy(config).createTrigger(moduleDefineHolder, "test");
+
+        trigger.onAggregated(false);
+        trigger.onAggregated(true);
+        Assert.assertFalse(trigger.shouldFlush());
+
+        trigger.onAggregated(false);
+        Assert.assertTrue(trigger.shouldFlush());
+    }
+
+    @Test
+    public void testMergeRatio() {
+        config.setL1FlushMaxAge(60000);
+        config.setL1FlushMergeRatio(3);
+        MetricsFlushPolicy.Trigger trigger = new MetricsFlushPolicy(config).createTrigger(moduleDefineHolder, "test");
+
+        trigger.onAggregated(false);
+        trigger.onAggregated(false);
+        trigger.onAggregated(true);
+        trigger.onAggregated(true);
+        trigger.onAggregated(true);
+        Assert.assertFalse(trigger.shouldFlush());
+
+        trigger.onAggregated(true);
+        Assert.assertTrue(trigger.shouldFlush());
+    }
+
+    @Test
+    public void testMaxAge() throws InterruptedException {
+        config.setL1FlushMaxAge(20);
+        MetricsFlushPolicy.Trigger trigger = new MetricsFlushPolicy(config).createTrigger(moduleDefineHolder, "test");
+
+        trigger.onAggregated(false);
+        Assert.assertFalse(trigger.shouldFlush());
+
+        Thread.sleep(30);
+        Assert.assertTrue(trigger.shouldFlush());
+    }
+}
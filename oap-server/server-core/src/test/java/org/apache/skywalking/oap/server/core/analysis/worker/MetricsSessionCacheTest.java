@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.util.Collections;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.metrics.MaxLongMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetricsSessionCacheTest {
+    private ModuleDefineHolder moduleDefineHolder;
+    private CoreModuleConfig config;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        config = new CoreModuleConfig();
+    }
+
+    @Test
+    public void testWriteThrough() {
+        MetricsSessionCache.Session session = new MetricsSessionCache(config).createSession(
+            moduleDefineHolder, model(DownSampling.Minute));
+
+        MetricsImpl metrics = new MetricsImpl("a");
+        session.put(metrics);
+
+        Assert.assertSame(metrics, session.get(new MetricsImpl("a")));
+        Assert.assertNull(session.get(new MetricsImpl("b")));
+    }
+
+    @Test
+    public void testTTLOfDownSampling() throws InterruptedException {
+        config.setMetricsSessionMinuteTTL(0);
+        MetricsSessionCache cache = new MetricsSessionCache(config);
+        MetricsSessionCache.Session minuteSession = cache.createSession(moduleDefineHolder, model(DownSampling.Minute));
+        MetricsSessionCache.Session hourSession = cache.createSession(moduleDefineHolder, model(DownSampling.Hour));
+
+        minuteSession.put(new MetricsImpl("minute"));
+        hourSession.put(new MetricsImpl("hour"));
+        Thread.sleep(10);
+        cache.cleanUp();
+
+        Assert.assertNull(minuteSession.get(new MetricsImpl("minute")));
+        Assert.assertNotNull(hourSession.get(new MetricsImpl("hour")));
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        config.setMetricsSessionCacheMaxSizeInMB(1);
+        MetricsSessionCache.Session session = new MetricsSessionCache(config).createSession(
+            moduleDefineHolder, model(DownSampling.Minute));
+
+        final int total = 10000;
+        for (int i = 0; i < total; i++) {
+            session.put(new MetricsImpl(String.valueOf(i)));
+        }
+
+        int cached = 0;
+        for (int i = 0; i < total; i++) {
+            if (session.get(new MetricsImpl(String.valueOf(i))) != null) {
+                cached++;
+            }
+        }
+        Assert.assertTrue(cached > 0);
+        Assert.assertTrue(cached * new MetricsImpl("").estimatedSize() <= 1024 * 1024);
+    }
+
+    private static Model model(DownSampling downSampling) {
+        return new Model("test", Collections.emptyList(), Collections.emptyList(), 0, downSampling, false);
+    }
+
+    private static class MetricsImpl extends MaxLongMetrics {
+        private final String id;
+
+        private MetricsImpl(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MetricsImpl && id.equals(((MetricsImpl) obj).id);
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return 0;
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.metrics.CountMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ShardedMetricsAggregateWorkerTest {
+    private ModuleDefineHolder moduleDefineHolder;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+    }
+
+    @Test(timeout = 10000)
+    public void testMergeInShards() throws InterruptedException {
+        final int entities = 16;
+        final int times = 500;
+
+        Map<String, AtomicLong> received = new ConcurrentHashMap<>();
+        Map<String, Set<String>> receivedThreads = new ConcurrentHashMap<>();
+        AbstractWorker<Metrics> nextWorker = new AbstractWorker<Metrics>(moduleDefineHolder) {
+            @Override
+            public void in(Metrics metrics) {
+                received.computeIfAbsent(metrics.id(), id -> new AtomicLong())
+                        .addAndGet(((MetricsImpl) metrics).getValue());
+                receivedThreads.computeIfAbsent(metrics.id(), id -> ConcurrentHashMap.newKeySet())
+                               .add(Thread.currentThread().getName());
+            }
+        };
+        ShardedMetricsAggregateWorker worker = new ShardedMetricsAggregateWorker(
+            moduleDefineHolder, nextWorker, "test", 4, new MetricsFlushPolicy(new CoreModuleConfig()));
+
+        for (int i = 0; i < times; i++) {
+            for (int entity = 0; entity < entities; entity++) {
+                MetricsImpl metrics = new MetricsImpl(String.valueOf(entity));
+                metrics.combine(1);
+                worker.in(metrics);
+            }
+        }
+
+        while (total(received) < entities * times) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(entities, received.size());
+        for (int entity = 0; entity < entities; entity++) {
+            Assert.assertEquals(times, received.get(String.valueOf(entity)).get());
+            // Every entity is merged by the consumer thread of its own shard only.
+            Assert.assertEquals(1, receivedThreads.get(String.valueOf(entity)).size());
+        }
+    }
+
+    private static long total(Map<String, AtomicLong> received) {
+        long total = 0;
+        for (AtomicLong value : received.values()) {
+            total += value.get();
+        }
+        return total;
+    }
+
+    private static class MetricsImpl extends CountMetrics {
+        private final String id;
+
+        private MetricsImpl(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MetricsImpl && id.equals(((MetricsImpl) obj).id);
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.skywalking.oap.server.core.analysis.IDManager;
+import org.apache.skywalking.oap.server.core.analysis.NodeType;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.analysis.manual.endpoint.EndpointTraffic;
+import org.apache.skywalking.oap.server.core.analysis.manual.instance.InstanceTraffic;
+import org.apache.skywalking.oap.server.core.analysis.manual.service.ServiceTraffic;
+import org.apache.skywalking.oap.server.core.query.entity.Endpoint;
+import org.apache.skywalking.oap.server.core.query.entity.Service;
+import org.apache.skywalking.oap.server.core.query.entity.ServiceInstance;
+import org.apache.skywalking.oap.server.core.storage.StorageModule;
+import org.apache.skywalking.oap.server.core.storage.query.IMetadataQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetadataCatalogTest {
+    private static final String SERVICE_ID = IDManager.ServiceID.buildId("svc", NodeType.Normal);
+
+    private IMetadataQueryDAO metadataQueryDAO;
+    private MetadataCatalog catalog;
+
+    @Before
+    public void setUp() {
+        metadataQueryDAO = Mockito.mock(IMetadataQueryDAO.class);
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(IMetadataQueryDAO.class)).thenReturn(metadataQueryDAO);
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        ModuleDefineHolder moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(StorageModule.NAME)).thenReturn(providerHolder);
+
+        catalog = new MetadataCatalog(moduleDefineHolder, 3600);
+    }
+
+    @Test
+    public void testServices() throws IOException {
+        Service service = service("svc", NodeType.Normal);
+        Service browser = service("web", NodeType.Browser);
+        Mockito.when(metadataQueryDAO.searchServices(0, 0, null)).thenReturn(Arrays.asList(service, browser));
+        Mockito.when(metadataQueryDAO.getAllServices(0, 0)).thenReturn(Collections.singletonList(service));
+        Mockito.when(metadataQueryDAO.getAllBrowserServices(0, 0)).thenReturn(Collections.singletonList(browser));
+
+        Assert.assertEquals(Collections.singletonList("svc"), names(catalog.getAllServices(0, 0)));
+        Assert.assertEquals(Collections.singletonList("web"), names(catalog.getAllBrowserServices(0, 0)));
+
+        ServiceTraffic traffic = new ServiceTraffic();
+        traffic.setName("New-Service");
+        traffic.setNodeType(NodeType.Normal);
+        catalog.record(traffic);
+
+        Assert.assertEquals(2, catalog.getAllServices(0, 0).size());
+        Assert.assertEquals(Collections.singletonList("New-Service"), names(catalog.searchServices(0, 0, "new")));
+        Assert.assertEquals("svc", catalog.searchService("svc").getName());
+        // Reconciled once only in the refresh period.
+        Mockito.verify(metadataQueryDAO, Mockito.times(1)).searchServices(0, 0, null);
+    }
+
+    @Test
+    public void testSearchEndpoint() throws IOException {
+        List<Endpoint> loaded = new ArrayList<>();
+        for (String name : Arrays.asList("/user/list", "/order/get", "/User/create", "/admin/user")) {
+            loaded.add(endpoint(name));
+        }
+        Mockito.when(metadataQueryDAO.searchEndpoint(Mockito.isNull(String.class), Mockito.eq(SERVICE_ID), Mockito.anyInt()))
+               .thenReturn(loaded);
+
+        Assert.assertEquals(
+            Arrays.asList("/User/create", "/user/list", "/admin/user"),
+            names(catalog.searchEndpoint("/user", SERVICE_ID, 10))
+        );
+        Assert.assertEquals(
+            Arrays.asList("/User/create", "/user/list"), names(catalog.searchEndpoint("/user", SERVICE_ID, 2)));
+        Assert.assertTrue(catalog.searchEndpoint("/none", SERVICE_ID, 10).isEmpty());
+        Assert.assertEquals(4, catalog.searchEndpoint(null, SERVICE_ID, 10).size());
+        Assert.assertEquals(
+            IDManager.EndpointID.buildId(SERVICE_ID, "/order/get"),
+            catalog.searchEndpoint("order", SERVICE_ID, 10).get(0).getId()
+        );
+
+        EndpointTraffic traffic = new EndpointTraffic();
+        traffic.setServiceId(SERVICE_ID);
+        traffic.setName("/user/delete");
+        catalog.record(traffic);
+        Assert.assertEquals(4, catalog.searchEndpoint("user", SERVICE_ID, 10).size());
+
+        Mockito.verify(metadataQueryDAO, Mockito.times(1))
+               .searchEndpoint(Mockito.isNull(String.class), Mockito.eq(SERVICE_ID), Mockito.anyInt());
+    }
+
+    @Test
+    public void testSearchEndpointOfLargeService() throws IOException {
+        List<Endpoint> loaded = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            loaded.add(endpoint("/" + i));
+        }
+        Mockito.when(metadataQueryDAO.searchEndpoint(Mockito.isNull(String.class), Mockito.eq(SERVICE_ID), Mockito.anyInt()))
+               .thenReturn(loaded);
+        Mockito.when(metadataQueryDAO.searchEndpoint("/1", SERVICE_ID, 10))
+               .thenReturn(Collections.singletonList(endpoint("/1")));
+
+        Assert.assertEquals(Collections.singletonList("/1"), names(catalog.searchEndpoint("/1", SERVICE_ID, 10)));
+    }
+
+    @Test
+    public void testServiceInstances() throws IOException {
+        final long now = System.currentTimeMillis();
+        final long start = now - 15 * 60_000L;
+        ServiceInstance loaded = new ServiceInstance();
+        loaded.setId(IDManager.ServiceInstanceID.buildId(SERVICE_ID, "loaded"));
+        loaded.setName("loaded");
+        Mockito.when(metadataQueryDAO.getServiceInstances(start, now, SERVICE_ID))
+               .thenReturn(Collections.singletonList(loaded));
+
+        Assert.assertEquals(Collections.singletonList("loaded"), instanceNames(
+            catalog.getServiceInstances(start, now, SERVICE_ID)));
+
+        InstanceTraffic traffic = new InstanceTraffic();
+        traffic.setServiceId(SERVICE_ID);
+        traffic.setName("recorded");
+        traffic.setLastPingTimestamp(TimeBucket.getMinuteTimeBucket(now));
+        catalog.record(traffic);
+
+        Assert.assertEquals(2, catalog.getServiceInstances(start, now, SERVICE_ID).size());
+        Mockito.verify(metadataQueryDAO, Mockito.times(1)).getServiceInstances(start, now, SERVICE_ID);
+
+        // The last ping of the loaded instance is unknown after a later start, reconcile again.
+        final long laterStart = start + 60_000L;
+        Mockito.when(metadataQueryDAO.getServiceInstances(laterStart, now, SERVICE_ID))
+               .thenReturn(Collections.emptyList());
+        Assert.assertEquals(Collections.singletonList("recorded"), instanceNames(
+            catalog.getServiceInstances(laterStart, now, SERVICE_ID)));
+        Mockito.verify(metadataQueryDAO, Mockito.times(1)).getServiceInstances(laterStart, now, SERVICE_ID);
+    }
+
+    private static Service service(String name, NodeType nodeType) {
+        Service service = new Service();
+        service.setId(IDManager.ServiceID.buildId(name, nodeType));
+        service.setName(name);
+        return service;
+    }
+
+    private static Endpoint endpoint(String name) {
+        Endpoint endpoint = new Endpoint();
+        endpoint.setId(IDManager.EndpointID.buildId(SERVICE_ID, name));
+        endpoint.setName(name);
+        return endpoint;
+    }
+
+    private static List<String> names(List<?> entities) {
+        return entities.stream().map(entity -> {
+            if (entity instanceof Service) {
+                return ((Service) entity).getName();
+            }
+            return ((Endpoint) entity).getName();
+        }).collect(Collectors.toList());
+    }
+
+    private static List<String> instanceNames(List<ServiceInstance> instances) {
+        return instances.stream().map(ServiceInstance::getName).collect(Collectors.toList());
+    }
+}
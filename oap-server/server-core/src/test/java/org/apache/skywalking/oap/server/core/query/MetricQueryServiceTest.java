@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.query.entity.IntValues;
+import org.apache.skywalking.oap.server.core.query.entity.KVInt;
+import org.apache.skywalking.oap.server.core.query.entity.Thermodynamic;
+import org.apache.skywalking.oap.server.core.query.sql.Function;
+import org.apache.skywalking.oap.server.core.query.sql.Where;
+import org.apache.skywalking.oap.server.core.storage.StorageModule;
+import org.apache.skywalking.oap.server.core.storage.annotation.ValueColumnMetadata;
+import org.apache.skywalking.oap.server.core.storage.query.IMetricsQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetricQueryServiceTest {
+    private List<List<String>> calls;
+    private MetricQueryService metricQueryService;
+
+    @Before
+    public void setUp() {
+        ValueColumnMetadata.INSTANCE.putIfAbsent("service_cpm", "value", Function.Avg);
+        calls = Collections.synchronizedList(new ArrayList<>());
+
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(IMetricsQueryDAO.class)).thenReturn(new MetricsQueryDAO());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(StorageModule.NAME)).thenReturn(providerHolder);
+
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setMetricsQueryCacheMaxSizeInMB(0);
+        config.setMetricsQueryBatchSize(10);
+        config.setMetricsQueryParallelism(2);
+        metricQueryService = new MetricQueryService(moduleManager, config);
+    }
+
+    @Test
+    public void testBatchesSplitAndMerged() throws IOException {
+        List<String> entityIds = Arrays.asList("e0", "e1", "e2", "e3", "e4");
+        List<IntValues> values = metricQueryService.getBatchLinearIntValues(
+            "service_cpm", entityIds, DownSampling.Minute, 201901010000L, 201901010004L);
+
+        // 5 minutes for each entity, 2 entities in a batch.
+        Assert.assertEquals(3, calls.size());
+        for (List<String> call : calls) {
+            Assert.assertTrue(call.size() <= 10);
+        }
+        Assert.assertEquals(entityIds.size(), values.size());
+        for (int i = 0; i < entityIds.size(); i++) {
+            List<KVInt> kvInts = values.get(i).getValues();
+            Assert.assertEquals(5, kvInts.size());
+            Assert.assertEquals("201901010000_e" + i, kvInts.get(0).getId());
+            Assert.assertEquals(i, kvInts.get(4).getValue());
+        }
+    }
+
+    @Test
+    public void testEmptyIds() throws IOException {
+        Assert.assertTrue(metricQueryService.getBatchLinearIntValues(
+            "service_cpm", Collections.emptyList(), DownSampling.Minute, 201901010000L, 201901010004L).isEmpty());
+        Assert.assertTrue(calls.isEmpty());
+    }
+
+    /**
+     * The value of each ID is the number of the entity.
+     */
+    private class MetricsQueryDAO implements IMetricsQueryDAO {
+        @Override
+        public IntValues getLinearIntValues(String indName, DownSampling downsampling, List<String> ids,
+                                            String valueCName) {
+            calls.add(ids);
+            IntValues intValues = new IntValues();
+            for (String id : ids) {
+                KVInt kvInt = new KVInt();
+                kvInt.setId(id);
+                kvInt.setValue(Long.parseLong(id.substring(id.lastIndexOf('e') + 1)));
+                intValues.addKVInt(kvInt);
+            }
+            return intValues;
+        }
+
+        @Override
+        public IntValues getValues(String indName, DownSampling downsampling, long startTB, long endTB, Where where,
+                                   String valueCName, Function function) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IntValues[] getMultipleLinearIntValues(String indName, DownSampling downsampling, List<String> ids,
+                                                      List<Integer> linearIndex, String valueCName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Thermodynamic getThermodynamic(String indName, DownSampling downsampling, List<String> ids,
+                                              String valueCName) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
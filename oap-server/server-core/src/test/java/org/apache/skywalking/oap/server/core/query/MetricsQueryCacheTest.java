@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
+import org.apache.skywalking.oap.server.core.query.entity.IntValues;
+import org.apache.skywalking.oap.server.core.query.entity.KVInt;
+import org.apache.skywalking.oap.server.core.query.entity.Thermodynamic;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class MetricsQueryCacheTest {
+    private ModuleManager moduleManager;
+    private MetricsQueryCache queryCache;
+    private List<List<String>> fetches;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setMetricsQueryCacheBucketDelay(0);
+        queryCache = new MetricsQueryCache(moduleManager, config);
+        fetches = new ArrayList<>();
+    }
+
+    @Test
+    public void testClosedBucketsCached() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute, 201901010000L, 201901010004L);
+        List<String> ids = ids(durationPoints);
+
+        IntValues first = queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+        IntValues second = queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+
+        Assert.assertEquals(1, fetches.size());
+        Assert.assertEquals(ids, fetches.get(0));
+        Assert.assertEquals(values(first), values(second));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), values(second));
+        Assert.assertEquals(ids, second.getValues().stream().map(KVInt::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testOpenBucketsRefetched() throws Exception {
+        final long now = System.currentTimeMillis();
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute,
+            TimeBucket.getTimeBucket(now - 4 * 60_000, DownSampling.Minute),
+            TimeBucket.getTimeBucket(now, DownSampling.Minute)
+        );
+        List<String> ids = ids(durationPoints);
+
+        queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+        IntValues second = queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+
+        Assert.assertEquals(2, fetches.size());
+        Assert.assertTrue(fetches.get(1).size() < ids.size());
+        Assert.assertEquals(ids.get(ids.size() - 1), fetches.get(1).get(fetches.get(1).size() - 1));
+        Assert.assertEquals(ids, second.getValues().stream().map(KVInt::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBatchLinearIntValues() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute, 201901010000L, 201901010002L);
+        List<String> cachedIds = ids(durationPoints);
+        queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, cachedIds, this::linear);
+
+        List<String> otherIds = durationPoints.stream()
+                                              .map(point -> point.getPoint() + "_other")
+                                              .collect(Collectors.toList());
+        List<IntValues> batch = queryCache.getBatchLinearIntValues(
+            "m", DownSampling.Minute, durationPoints, Arrays.asList(cachedIds, otherIds), missed -> {
+                Assert.assertTrue(missed.get(0).isEmpty());
+                return missed.stream().map(this::linear).collect(Collectors.toList());
+            });
+
+        Assert.assertEquals(3, fetches.size());
+        Assert.assertEquals(otherIds, fetches.get(2));
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals(cachedIds, batch.get(0).getValues().stream().map(KVInt::getId).collect(Collectors.toList()));
+        Assert.assertEquals(otherIds, batch.get(1).getValues().stream().map(KVInt::getId).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), values(batch.get(1)));
+    }
+
+    @Test
+    public void testMultipleLinearIntValues() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Hour, 2019010100L, 2019010102L);
+        List<String> ids = ids(durationPoints);
+
+        queryCache.getMultipleLinearIntValues(
+            "m", DownSampling.Hour, durationPoints, ids, Arrays.asList(0, 1, 2), missed -> multipleLinear(missed, 3));
+        // The index 3 is never queried.
+        queryCache.getMultipleLinearIntValues(
+            "m", DownSampling.Hour, durationPoints, ids, Arrays.asList(2, 3), missed -> multipleLinear(missed, 2));
+        IntValues[] cached = queryCache.getMultipleLinearIntValues(
+            "m", DownSampling.Hour, durationPoints, ids, Arrays.asList(0, 2), missed -> multipleLinear(missed, 2));
+
+        Assert.assertEquals(2, fetches.size());
+        Assert.assertEquals(2, cached.length);
+        Assert.assertEquals(Arrays.asList(10L, 20L, 30L), values(cached[0]));
+        Assert.assertEquals(Arrays.asList(10L, 20L, 30L), values(cached[1]));
+    }
+
+    @Test
+    public void testThermodynamic() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Day, 20190101L, 20190103L);
+        List<String> ids = ids(durationPoints);
+
+        Thermodynamic first = queryCache.getThermodynamic("m", DownSampling.Day, durationPoints, ids, this::thermodynamic);
+        Thermodynamic second = queryCache.getThermodynamic("m", DownSampling.Day, durationPoints, ids, this::thermodynamic);
+
+        Assert.assertEquals(1, fetches.size());
+        Assert.assertEquals(first.getAxisYStep(), second.getAxisYStep());
+        Assert.assertEquals(first.getNodes(), second.getNodes());
+        Assert.assertEquals(2 * ids.size(), second.getNodes().size());
+    }
+
+    @Test
+    public void testMissingValuesNotCached() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute, 201901010000L, 201901010002L);
+        List<String> ids = ids(durationPoints);
+
+        // The last bucket isn't persisted yet, the storage reports it as 0.
+        IntValues first = queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, missed -> {
+            IntValues intValues = linear(missed);
+            intValues.getValues().get(intValues.getValues().size() - 1).setValue(0);
+            return intValues;
+        });
+        IntValues second = queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+
+        Assert.assertEquals(Arrays.asList(1L, 2L, 0L), values(first));
+        Assert.assertEquals(2, fetches.size());
+        Assert.assertEquals(Arrays.asList(ids.get(2)), fetches.get(1));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), values(second));
+    }
+
+    @Test
+    public void testCachedValuesExpire() throws Exception {
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setMetricsQueryCacheBucketDelay(0);
+        config.setMetricsQueryCacheTTL(0);
+        queryCache = new MetricsQueryCache(moduleManager, config);
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute, 201901010000L, 201901010002L);
+        List<String> ids = ids(durationPoints);
+
+        queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+        Thread.sleep(10);
+        queryCache.getLinearIntValues("m", DownSampling.Minute, durationPoints, ids, this::linear);
+
+        Assert.assertEquals(2, fetches.size());
+        Assert.assertEquals(ids, fetches.get(1));
+    }
+
+    @Test
+    public void testSecondNotCached() throws Exception {
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Second, 20190101000000L, 20190101000002L);
+        List<String> ids = ids(durationPoints);
+
+        queryCache.getLinearIntValues("m", DownSampling.Second, durationPoints, ids, this::linear);
+        queryCache.getLinearIntValues("m", DownSampling.Second, durationPoints, ids, this::linear);
+
+        Assert.assertEquals(2, fetches.size());
+        Assert.assertEquals(ids, fetches.get(1));
+    }
+
+    private static List<String> ids(List<DurationPoint> durationPoints) {
+        return durationPoints.stream().map(point -> point.getPoint() + "_entity").collect(Collectors.toList());
+    }
+
+    private static List<Long> values(IntValues intValues) {
+        return intValues.getValues().stream().map(KVInt::getValue).collect(Collectors.toList());
+    }
+
+    /**
+     * The value of the bucket is the minute, hour or day of it, plus 1.
+     */
+    private static long valueOf(String id) {
+        return Long.parseLong(id.substring(0, id.indexOf('_'))) % 100 + 1;
+    }
+
+    private IntValues linear(List<String> ids) {
+        fetches.add(ids);
+        IntValues intValues = new IntValues();
+        ids.forEach(id -> intValues.addKVInt(kvInt(id, valueOf(id))));
+        return intValues;
+    }
+
+    private IntValues[] multipleLinear(List<String> ids, int numOfLinear) {
+        fetches.add(ids);
+        IntValues[] multipleLinearIntValues = new IntValues[numOfLinear];
+        for (int i = 0; i < numOfLinear; i++) {
+            multipleLinearIntValues[i] = new IntValues();
+            for (String id : ids) {
+                multipleLinearIntValues[i].addKVInt(kvInt(id, valueOf(id) * 10));
+            }
+        }
+        return multipleLinearIntValues;
+    }
+
+    private Thermodynamic thermodynamic(List<String> ids) {
+        fetches.add(ids);
+        List<List<Long>> thermodynamicValueMatrix = new ArrayList<>();
+        for (String id : ids) {
+            thermodynamicValueMatrix.add(new ArrayList<>(Arrays.asList(valueOf(id), valueOf(id) + 1)));
+        }
+        Thermodynamic thermodynamic = new Thermodynamic();
+        thermodynamic.setAxisYStep(100);
+        thermodynamic.fromMatrixData(thermodynamicValueMatrix, 2);
+        return thermodynamic;
+    }
+
+    private static KVInt kvInt(String id, long value) {
+        KVInt kvInt = new KVInt();
+        kvInt.setId(id);
+        kvInt.setValue(value);
+        return kvInt;
+    }
+}
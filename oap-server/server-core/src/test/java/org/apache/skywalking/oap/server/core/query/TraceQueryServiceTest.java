@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.query.entity.Pagination;
+import org.apache.skywalking.oap.server.core.query.entity.Span;
+import org.apache.skywalking.oap.server.core.query.entity.Trace;
+import org.apache.skywalking.oap.server.core.storage.StorageModule;
+import org.apache.skywalking.oap.server.core.storage.query.ITraceQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TraceQueryServiceTest {
+    private ModuleManager moduleManager;
+    private ITraceQueryDAO traceQueryDAO;
+    private List<Span> spans;
+
+    @Before
+    public void setUp() throws IOException {
+        spans = new ArrayList<>(Arrays.asList(
+            span("s2", 1, 0, 30),
+            span("s1", 2, 1, 12),
+            span("s1", 0, -1, 10),
+            span("s1", 1, 0, 11),
+            span("s3", 0, -1, 20),
+            span("s1", 3, 1, 13)
+        ));
+        // Linked to s1.2 by the ref.
+        spans.get(0).setSegmentParentSpanId("s1.2");
+
+        traceQueryDAO = Mockito.mock(ITraceQueryDAO.class);
+        Mockito.when(traceQueryDAO.queryByTraceId("trace")).thenReturn(Collections.emptyList());
+        Mockito.when(traceQueryDAO.doFlexibleTraceQuery("trace")).thenReturn(spans);
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(ITraceQueryDAO.class)).thenReturn(traceQueryDAO);
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(StorageModule.NAME)).thenReturn(providerHolder);
+    }
+
+    @Test
+    public void testSortSpans() {
+        List<Span> sortedSpans = TraceQueryService.sortSpans(spans);
+
+        Assert.assertEquals(Arrays.asList("s1.0", "s1.1", "s1.2", "s2.1", "s1.3", "s3.0"), ids(sortedSpans));
+        Assert.assertTrue(sortedSpans.get(0).isRoot());
+        Assert.assertTrue(sortedSpans.get(5).isRoot());
+        Assert.assertFalse(sortedSpans.get(1).isRoot());
+    }
+
+    @Test
+    public void testSortSpansOfDuplicateIds() {
+        List<Span> sortedSpans = TraceQueryService.sortSpans(Arrays.asList(
+            span("s1", 0, -1, 10),
+            span("s1", 0, 0, 11)
+        ));
+
+        Assert.assertEquals(Arrays.asList("s1.0", "s1.0"), ids(sortedSpans));
+    }
+
+    @Test
+    public void testMaxSpans() throws IOException {
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setMaxSpansOfQueryTrace(3);
+
+        Trace trace = new TraceQueryService(moduleManager, config).queryTrace("trace");
+
+        Assert.assertEquals(Arrays.asList("s1.0", "s1.1", "s1.2"), ids(trace.getSpans()));
+    }
+
+    @Test
+    public void testPaging() throws IOException {
+        TraceQueryService traceQueryService = new TraceQueryService(moduleManager, new CoreModuleConfig());
+        Pagination paging = new Pagination();
+        paging.setPageSize(4);
+
+        paging.setPageNum(1);
+        Assert.assertEquals(
+            Arrays.asList("s1.0", "s1.1", "s1.2", "s2.1"), ids(traceQueryService.queryTrace("trace", paging).getSpans()));
+        paging.setPageNum(2);
+        Assert.assertEquals(Arrays.asList("s1.3", "s3.0"), ids(traceQueryService.queryTrace("trace", paging).getSpans()));
+        paging.setPageNum(3);
+        Assert.assertTrue(traceQueryService.queryTrace("trace", paging).getSpans().isEmpty());
+        // The following pages are read from the cache.
+        Mockito.verify(traceQueryDAO, Mockito.times(1)).doFlexibleTraceQuery("trace");
+
+        // The first page queries the trace again.
+        paging.setPageNum(1);
+        Assert.assertEquals(4, traceQueryService.queryTrace("trace", paging).getSpans().size());
+        Mockito.verify(traceQueryDAO, Mockito.times(2)).doFlexibleTraceQuery("trace");
+    }
+
+    private static Span span(String segmentId, int spanId, int parentSpanId, long startTime) {
+        Span span = new Span();
+        span.setSegmentId(segmentId);
+        span.setSpanId(spanId);
+        span.setParentSpanId(parentSpanId);
+        span.setStartTime(startTime);
+        span.setSegmentSpanId(segmentId + "." + spanId);
+        span.setSegmentParentSpanId(segmentId + "." + parentSpanId);
+        return span;
+    }
+
+    private static List<String> ids(List<Span> spans) {
+        return spans.stream().map(Span::getSegmentSpanId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
+import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactRemoteCodecTest {
+
+    @Test
+    public void testFieldLevelEncoding() {
+        CompactOutput output = new CompactOutput(8);
+        IntKeyLongValueHashMap values = new IntKeyLongValueHashMap();
+        values.put(3, new IntKeyLongValue(3, 30));
+        values.put(1, new IntKeyLongValue(1, -10));
+        values.put(100, new IntKeyLongValue(100, Long.MAX_VALUE));
+
+        output.writeString("service-a");
+        output.writeString(null);
+        output.writeString("service-a");
+        output.writeTimeBucket(202010181230L);
+        output.writeTimeBucket(202010181229L);
+        output.writeLong(Long.MIN_VALUE);
+        output.writeInt(-1);
+        output.writeDouble(0.25);
+        output.writeIntKeyLongValues(values);
+
+        CompactInput input = new CompactInput(output.toFrame().toByteArray());
+        Assert.assertEquals("service-a", input.readString());
+        Assert.assertNull(input.readString());
+        Assert.assertEquals("service-a", input.readString());
+        Assert.assertEquals(202010181230L, input.readTimeBucket());
+        Assert.assertEquals(202010181229L, input.readTimeBucket());
+        Assert.assertEquals(Long.MIN_VALUE, input.readLong());
+        Assert.assertEquals(-1, input.readInt());
+        Assert.assertEquals(0.25, input.readDouble(), 0);
+        IntKeyLongValueHashMap readValues = new IntKeyLongValueHashMap();
+        input.readIntKeyLongValues(readValues);
+        Assert.assertEquals(values, readValues);
+        Assert.assertEquals(Long.MAX_VALUE, readValues.get(100).getValue());
+        Assert.assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    public void testRemoteDataFallback() {
+        RemoteData.Builder remoteData = RemoteData.newBuilder();
+        remoteData.addDataStrings("endpoint").addDataStrings("endpoint");
+        remoteData.addDataLongs(202010181230L);
+        remoteData.addDataDoubles(1.5);
+        remoteData.addDataIntegers(-7);
+        remoteData.addDataLists(DataIntLongPairList.newBuilder().addValue(
+            new IntKeyLongValue(5, 50).serialize()).addValue(new IntKeyLongValue(2, 20).serialize()));
+
+        CompactOutput output = new CompactOutput(8);
+        output.writeRemoteData(remoteData);
+
+        Assert.assertEquals(remoteData.build(), new CompactInput(output.toFrame().toByteArray()).readRemoteData());
+    }
+
+    @Test
+    public void testFrameGroups() {
+        List<RemoteOutData> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new RemoteOutData(i % 2 == 0 ? "even" : "odd", new TestStreamData(i)));
+        }
+        ByteString frame = CompactRemoteCodec.encodeFrame(batch);
+
+        List<Long> even = new ArrayList<>();
+        List<Long> odd = new ArrayList<>();
+        CompactRemoteCodec.decode(frame, (nextWorkerName, count, input) -> {
+            Assert.assertEquals(5, count);
+            if ("odd".equals(nextWorkerName)) {
+                // Skipped by the codec.
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                TestStreamData data = new TestStreamData(0);
+                data.deserializeCompact(input);
+                even.add(data.value);
+            }
+        });
+        CompactRemoteCodec.decode(frame, (nextWorkerName, count, input) -> {
+            if ("odd".equals(nextWorkerName)) {
+                for (int i = 0; i < count; i++) {
+                    TestStreamData data = new TestStreamData(0);
+                    data.deserializeCompact(input);
+                    odd.add(data.value);
+                }
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(0L, 2L, 4L, 6L, 8L), even);
+        Assert.assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L), odd);
+    }
+
+    private static class TestStreamData extends StreamData {
+        private long value;
+
+        private TestStreamData(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return 0;
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+            this.value = remoteData.getDataLongs(0);
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return RemoteData.newBuilder().addDataLongs(value);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.codec;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
+import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.DataIntLongPairList;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.IntKeyLongValuePair;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare {@link ProtoRemoteCodec} and {@link CompactRemoteCodec}, for a batch of 500 percentile-like metrics of 50
+ * endpoints, which is the typical L1 to L2 traffic.
+ * <p>
+ * The proto path serializes one {@link RemoteMessage} per metrics, the compact path encodes the whole batch in one
+ * frame.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class RemoteCodecBenchmark {
+    private static final String WORKER_NAME = "endpoint_percentile_rec";
+
+    private List<RemoteOutData> batch;
+    private List<byte[]> protoMessages;
+    private ByteString compactFrame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        batch = createBatch();
+        protoMessages = encodeProto(batch);
+        compactFrame = CompactRemoteCodec.encodeFrame(batch);
+    }
+
+    @Benchmark
+    public void protoEncode(Blackhole blackhole) {
+        blackhole.consume(encodeProto(batch));
+    }
+
+    @Benchmark
+    public void compactEncode(Blackhole blackhole) {
+        blackhole.consume(CompactRemoteCodec.encodeFrame(batch));
+    }
+
+    @Benchmark
+    public void protoDecode(Blackhole blackhole) throws InvalidProtocolBufferException {
+        for (byte[] message : protoMessages) {
+            TestMetrics metrics = new TestMetrics();
+            metrics.deserialize(RemoteMessage.parseFrom(message).getRemoteData());
+            blackhole.consume(metrics);
+        }
+    }
+
+    @Benchmark
+    public void compactDecode(Blackhole blackhole) {
+        CompactRemoteCodec.decode(compactFrame, (nextWorkerName, count, input) -> {
+            for (int i = 0; i < count; i++) {
+                TestMetrics metrics = new TestMetrics();
+                metrics.deserializeCompact(input);
+                blackhole.consume(metrics);
+            }
+        });
+    }
+
+    private static List<byte[]> encodeProto(List<RemoteOutData> batch) {
+        List<byte[]> messages = new ArrayList<>(batch.size());
+        for (RemoteOutData data : batch) {
+            RemoteMessage.Builder builder = RemoteMessage.newBuilder();
+            builder.setNextWorkerName(data.getNextWorkerName());
+            builder.setRemoteData(data.getStreamData().serialize());
+            messages.add(builder.build().toByteArray());
+        }
+        return messages;
+    }
+
+    private static List<RemoteOutData> createBatch() {
+        List<RemoteOutData> batch = new ArrayList<>(500);
+        for (int i = 0; i < 500; i++) {
+            TestMetrics metrics = new TestMetrics();
+            metrics.entityId = "c2VydmljZS1h.1_" + "L2FwaS92MS9vcmRlcnMve2lkfQ==" + (i % 50);
+            metrics.timeBucket = 202010181230L - i % 3;
+            metrics.precision = 10;
+            metrics.total = i * 17L;
+            for (int j = 0; j < 20; j++) {
+                metrics.dataset.put(j * 3, new IntKeyLongValue(j * 3, j + i));
+            }
+            batch.add(new RemoteOutData(WORKER_NAME, metrics));
+        }
+        return batch;
+    }
+
+    /**
+     * Fields and codec methods in the way OAL generates.
+     */
+    private static class TestMetrics extends StreamData {
+        private String entityId;
+        private long timeBucket;
+        private long total;
+        private int precision;
+        private IntKeyLongValueHashMap dataset = new IntKeyLongValueHashMap(30);
+
+        @Override
+        public int remoteHashCode() {
+            return entityId.hashCode();
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            RemoteData.Builder remoteBuilder = RemoteData.newBuilder();
+            remoteBuilder.addDataStrings(entityId);
+            remoteBuilder.addDataLongs(timeBucket);
+            remoteBuilder.addDataLongs(total);
+            remoteBuilder.addDataIntegers(precision);
+            DataIntLongPairList.Builder pairListBuilder = DataIntLongPairList.newBuilder();
+            for (IntKeyLongValue value : dataset.values()) {
+                pairListBuilder.addValue(value.serialize());
+            }
+            remoteBuilder.addDataLists(pairListBuilder);
+            return remoteBuilder;
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+            entityId = remoteData.getDataStrings(0);
+            timeBucket = remoteData.getDataLongs(0);
+            total = remoteData.getDataLongs(1);
+            precision = remoteData.getDataIntegers(0);
+            for (IntKeyLongValuePair element : remoteData.getDataLists(0).getValueList()) {
+                dataset.put(element.getKey(), new IntKeyLongValue(element.getKey(), element.getValue()));
+            }
+        }
+
+        @Override
+        public void serializeCompact(CompactOutput output) {
+            output.writeString(entityId);
+            output.writeTimeBucket(timeBucket);
+            output.writeLong(total);
+            output.writeInt(precision);
+            output.writeIntKeyLongValues(dataset);
+        }
+
+        @Override
+        public void deserializeCompact(CompactInput input) {
+            entityId = input.readString();
+            timeBucket = input.readTimeBucket();
+            total = input.readLong();
+            precision = input.readInt();
+            input.readIntKeyLongValues(dataset);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(RemoteCodecBenchmark.class.getName())
+                                          .addProfiler(GCProfiler.class)
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote.selector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.oap.server.core.remote.client.Address;
+import org.apache.skywalking.oap.server.core.remote.client.RemoteClient;
+import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ConsistentHashSelectorTest {
+    private static final int DATA_SIZE = 100_000;
+
+    @Test
+    public void testBoundedLoad() {
+        ConsistentHashSelector selector = new ConsistentHashSelector(160, 1.25);
+        List<RemoteClient> clients = clients(6);
+
+        Map<RemoteClient, Integer> counts = new HashMap<>();
+        for (int i = 0; i < DATA_SIZE; i++) {
+            counts.merge(selector.select(clients, new TestStreamData(i)), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(6, counts.size());
+        counts.values().forEach(count -> Assert.assertTrue(count < DATA_SIZE / 6 * 1.3));
+    }
+
+    @Test
+    public void testMovementWhenNodeJoins() {
+        ConsistentHashSelector selector = new ConsistentHashSelector(160, 1.25);
+        List<RemoteClient> clients = clients(6);
+        List<RemoteClient> selected = new ArrayList<>(DATA_SIZE);
+        for (int i = 0; i < DATA_SIZE; i++) {
+            selected.add(selector.select(clients, new TestStreamData(i)));
+        }
+
+        List<RemoteClient> newClients = new ArrayList<>(clients);
+        newClients.add(client(6));
+        int moved = 0;
+        for (int i = 0; i < DATA_SIZE; i++) {
+            RemoteClient client = selector.select(newClients, new TestStreamData(i));
+            if (client != selected.get(i)) {
+                moved++;
+            }
+        }
+
+        // About 1/7 of the data moves to the new node, the HashCodeSelector moves about 6/7.
+        Assert.assertTrue(moved < DATA_SIZE / 7 * 1.5);
+    }
+
+    @Test
+    public void testSameDataToSameNode() {
+        List<RemoteClient> clients = clients(3);
+        RemoteClient selected = new ConsistentHashSelector(160, 1.25).select(clients, new TestStreamData(1));
+        Assert.assertSame(selected, new ConsistentHashSelector(160, 1.25).select(clients, new TestStreamData(1)));
+    }
+
+    private static List<RemoteClient> clients(int size) {
+        List<RemoteClient> clients = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            clients.add(client(i));
+        }
+        return clients;
+    }
+
+    private static RemoteClient client(int index) {
+        RemoteClient client = Mockito.mock(RemoteClient.class);
+        Mockito.when(client.getAddress()).thenReturn(new Address("10.0.0." + index, 11800, false));
+        return client;
+    }
+
+    private static class TestStreamData extends StreamData {
+        private final int id;
+
+        private TestStreamData(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return 17 * 31 + String.valueOf(id).hashCode();
+        }
+
+        @Override
+        public void deserialize(RemoteData remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.analysis.data.SWCollection;
+import org.apache.skywalking.oap.server.core.analysis.data.Window;
+import org.apache.skywalking.oap.server.core.analysis.worker.PersistenceWorker;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class PersistenceTimerTest {
+    private final List<String> prepareThreads = new CopyOnWriteArrayList<>();
+    private final List<String> executeThreads = new CopyOnWriteArrayList<>();
+    private final List<Integer> executedRounds = new CopyOnWriteArrayList<>();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPipelineOverlapAndBackPressure() throws Exception {
+        final CountDownLatch executionStarted = new CountDownLatch(1);
+        final CountDownLatch executionReleased = new CountDownLatch(1);
+        IBatchDAO batchDAO = Mockito.mock(IBatchDAO.class);
+        Mockito.doAnswer(invocation -> {
+            executeThreads.add(Thread.currentThread().getName());
+            executionStarted.countDown();
+            executionReleased.await();
+            executedRounds.add(((List<PrepareRequest>) invocation.getArguments()[0]).size());
+            return null;
+        }).when(batchDAO).synchronous(Matchers.anyList());
+
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setEnableDatabaseSession(true);
+        config.setEnablePersistencePipeline(true);
+        config.setPersistencePrepareThreads(2);
+        config.setPersistentPeriod(3600);
+        PersistenceTimer.INSTANCE.start(moduleManager(batchDAO), config);
+
+        final List<PersistenceWorker> workers = Arrays.asList(worker("metrics-a"), worker("metrics-b"));
+
+        // The first round returns once prepared, while its requests are still executing.
+        PersistenceTimer.INSTANCE.pipelinedExtractDataAndSave(batchDAO, workers);
+        Assert.assertTrue(executionStarted.await(10, TimeUnit.SECONDS));
+
+        // The second round prepares in the meantime, then waits for the execution of the first round.
+        Thread secondRound = new Thread(() -> PersistenceTimer.INSTANCE.pipelinedExtractDataAndSave(batchDAO, workers));
+        secondRound.start();
+        for (PersistenceWorker worker : workers) {
+            Mockito.verify(worker, Mockito.timeout(10_000).times(2)).flushAndSwitch();
+        }
+        secondRound.join(200);
+        Assert.assertTrue(secondRound.isAlive());
+        Mockito.verify(batchDAO, Mockito.times(1)).synchronous(Matchers.anyList());
+
+        executionReleased.countDown();
+        secondRound.join(10_000);
+        Assert.assertFalse(secondRound.isAlive());
+        Mockito.verify(batchDAO, Mockito.timeout(10_000).times(2)).synchronous(Matchers.anyList());
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (executedRounds.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(Arrays.asList(2, 2), executedRounds);
+
+        Assert.assertEquals(4, prepareThreads.size());
+        prepareThreads.forEach(name -> Assert.assertTrue(name, name.startsWith("PersistenceTimer-Prepare-")));
+        executeThreads.forEach(name -> Assert.assertTrue(name, name.startsWith("PersistenceTimer-Execute-")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PersistenceWorker worker(String name) {
+        SWCollection collection = Mockito.mock(SWCollection.class);
+        Mockito.when(collection.collection()).thenReturn(Collections.emptyList());
+        Window cache = Mockito.mock(Window.class);
+        Mockito.when(cache.getLast()).thenReturn(collection);
+
+        PersistenceWorker worker = Mockito.mock(PersistenceWorker.class);
+        Mockito.when(worker.flushAndSwitch()).thenReturn(true);
+        Mockito.when(worker.getCache()).thenReturn(cache);
+        Mockito.when(worker.getModel()).thenReturn(
+            new Model(name, Collections.emptyList(), Collections.emptyList(), 0, DownSampling.Minute, false));
+        Mockito.doAnswer(invocation -> {
+            prepareThreads.add(Thread.currentThread().getName());
+            ((List<PrepareRequest>) invocation.getArguments()[1]).add(Mockito.mock(PrepareRequest.class));
+            return null;
+        }).when(worker).prepareBatch(Matchers.anyCollection(), Matchers.anyList());
+        return worker;
+    }
+
+    private static ModuleManager moduleManager(IBatchDAO batchDAO) {
+        ModuleServiceHolder storageServices = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(storageServices.getService(IBatchDAO.class)).thenReturn(batchDAO);
+        ModuleProviderHolder storageProvider = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(storageProvider.provider()).thenReturn(storageServices);
+
+        ModuleServiceHolder telemetryServices = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(telemetryServices.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder telemetryProvider = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(telemetryProvider.provider()).thenReturn(telemetryServices);
+
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(StorageModule.NAME)).thenReturn(storageProvider);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(telemetryProvider);
+        return moduleManager;
+    }
+}
@@ -60,6 +60,7 @@ import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oap.server.library.client.Client;
 import org.apache.skywalking.oap.server.library.client.request.InsertRequest;
 import org.apache.skywalking.oap.server.library.client.request.UpdateRequest;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
@@ -71,6 +72,8 @@ import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
@@ -80,11 +83,13 @@ import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 /**
  * ElasticSearchClient connects to the ES server by using ES client APIs.
@@ -328,6 +333,21 @@ public class ElasticSearchClient implements Client {
         return client.search(searchRequest);
     }
 
+    /**
+     * Get the documents of the given index by ids asynchronously, only the included fields of the source are returned.
+     * The listener is notified in the IO thread of the client.
+     */
+    public void asynchronousMultiGet(String indexName, List<String> ids, String[] includes,
+                                     ActionListener<MultiGetResponse> listener) {
+        indexName = formatIndexName(indexName);
+        FetchSourceContext fetchSource = new FetchSourceContext(true, includes, Strings.EMPTY_ARRAY);
+        MultiGetRequest request = new MultiGetRequest();
+        for (String id : ids) {
+            request.add(new MultiGetRequest.Item(indexName, TYPE, id).fetchSourceContext(fetchSource));
+        }
+        client.multiGetAsync(request, listener);
+    }
+
     public void forceInsert(String indexName, String id, XContentBuilder source) throws IOException {
         IndexRequest request = (IndexRequest) prepareInsert(indexName, id, source);
         request.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
@@ -384,6 +404,17 @@ public class ElasticSearchClient implements Client {
         }
     }
 
+    /**
+     * Execute the bulk asynchronously, with the same settings of {@link #synchronousBulk(BulkRequest)}. The listener
+     * is notified in the IO thread of the client.
+     */
+    public void asynchronousBulk(BulkRequest request, ActionListener<BulkResponse> listener) {
+        request.timeout(TimeValue.timeValueMinutes(2));
+        request.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+        request.waitForActiveShards(ActiveShardCount.ONE);
+        client.bulkAsync(request, listener);
+    }
+
     public BulkProcessor createBulkProcessor(int bulkActions, int flushInterval, int concurrentRequests) {
         BulkProcessor.Listener listener = createBulkListener();
 
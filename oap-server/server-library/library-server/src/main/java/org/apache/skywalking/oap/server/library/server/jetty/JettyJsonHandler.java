@@ -57,6 +57,12 @@ public abstract class JettyJsonHandler extends JettyHandler {
     protected final void doPost(HttpServletRequest req, HttpServletResponse resp) {
         try {
             reply(resp, doPost(req));
+        } catch (ServiceUnavailableException e) {
+            try {
+                replyError(resp, e.getMessage(), HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } catch (IOException replyException) {
+                logger.error(replyException.getMessage(), e);
+            }
         } catch (ArgumentsParseException | IOException e) {
             try {
                 replyError(resp, e.getMessage(), HttpServletResponse.SC_BAD_REQUEST);
@@ -16,18 +16,17 @@
  *
  */
 
-package org.apache.skywalking.oap.server.receiver.zipkin.analysis;
+package org.apache.skywalking.oap.server.library.server.jetty;
 
-import java.util.List;
-import org.apache.skywalking.oap.server.receiver.zipkin.ZipkinReceiverConfig;
-import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.CacheFactory;
-import zipkin2.Span;
+import java.io.IOException;
 
-public class ZipkinSkyWalkingTransfer {
-    public void doTransfer(ZipkinReceiverConfig config, List<Span> spanList) {
-        spanList.forEach(span -> {
-            // In Zipkin, the local service name represents the application owner.
-            CacheFactory.INSTANCE.get(config).addSpan(span);
-        });
+/**
+ * The request can't be handled now, such as the server is overloaded, the client should retry later. It is replied
+ * with the HTTP status 503.
+ */
+public class ServiceUnavailableException extends IOException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
     }
 }
@@ -68,6 +68,18 @@ public class MetricQuery implements GraphQLQueryResolver {
             .getStep()), startTimeBucket, endTimeBucket);
     }
 
+    /**
+     * The linear values of multiple entities, in the same order of the IDs of the conditions.
+     */
+    public List<IntValues> getBatchLinearIntValues(final BatchMetricConditions metrics,
+        final Duration duration) throws IOException {
+        long startTimeBucket = DurationUtils.INSTANCE.exchangeToTimeBucket(duration.getStart());
+        long endTimeBucket = DurationUtils.INSTANCE.exchangeToTimeBucket(duration.getEnd());
+
+        return getMetricQueryService().getBatchLinearIntValues(metrics.getName(), metrics.getIds(), StepToDownSampling
+            .transform(duration.getStep()), startTimeBucket, endTimeBucket);
+    }
+
     public List<IntValues> getMultipleLinearIntValues(final MetricCondition metrics, final int numOfLinear,
         final Duration duration) throws IOException, ParseException {
         long startTimeBucket = DurationUtils.INSTANCE.exchangeToTimeBucket(duration.getStart());
@@ -89,4 +89,11 @@ public class TraceQuery implements GraphQLQueryResolver {
     public Trace queryTrace(final String traceId) throws IOException {
         return getQueryService().queryTrace(traceId);
     }
+
+    public Trace queryTrace(final String traceId, final Pagination paging) throws IOException {
+        if (paging == null) {
+            return getQueryService().queryTrace(traceId);
+        }
+        return getQueryService().queryTrace(traceId, paging);
+    }
 }
@@ -24,15 +24,24 @@ import io.envoyproxy.envoy.service.metrics.v2.StreamMetricsMessage;
 import io.envoyproxy.envoy.service.metrics.v2.StreamMetricsResponse;
 import io.grpc.stub.StreamObserver;
 import io.prometheus.client.Metrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.util.StringUtil;
+import org.apache.skywalking.oap.server.core.Const;
 import org.apache.skywalking.oap.server.core.CoreModule;
 import org.apache.skywalking.oap.server.core.analysis.IDManager;
 import org.apache.skywalking.oap.server.core.analysis.TimeBucket;
 import org.apache.skywalking.oap.server.core.source.EnvoyInstanceMetric;
 import org.apache.skywalking.oap.server.core.analysis.NodeType;
 import org.apache.skywalking.oap.server.core.source.ServiceInstanceUpdate;
+import org.apache.skywalking.oap.server.core.source.Source;
 import org.apache.skywalking.oap.server.core.source.SourceReceiver;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
@@ -43,6 +52,12 @@ import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
 
 @Slf4j
 public class MetricServiceGRPCHandler extends MetricsServiceGrpc.MetricsServiceImplBase {
+    /**
+     * The metrics only used by the maxDouble function in the OAL, the max value in every minute is enough for them.
+     */
+    private static final Set<String> MAX_AGGREGATED_METRICS = new HashSet<>(Arrays.asList(
+        "server.memory_heap_size", "server.total_connections", "server.parent_connections"));
+
     private final SourceReceiver sourceReceiver;
     private CounterMetrics counter;
     private HistogramMetrics histogram;
@@ -68,6 +83,8 @@ public class MetricServiceGRPCHandler extends MetricsServiceGrpc.MetricsServiceI
             private volatile boolean isFirst = true;
             private String serviceName = null;
             private String serviceInstanceName = null;
+            private String serviceId = null;
+            private String serviceInstanceId = null;
 
             @Override
             public void onNext(StreamMetricsMessage message) {
@@ -96,6 +113,12 @@ public class MetricServiceGRPCHandler extends MetricsServiceGrpc.MetricsServiceI
                     if (serviceName == null) {
                         serviceName = serviceInstanceName;
                     }
+
+                    if (StringUtil.isNotEmpty(serviceName) && StringUtil.isNotEmpty(serviceInstanceName)) {
+                        // The identity of the stream never changes, build the IDs only once.
+                        serviceId = IDManager.ServiceID.buildId(serviceName, NodeType.Normal);
+                        serviceInstanceId = IDManager.ServiceInstanceID.buildId(serviceId, serviceInstanceName);
+                    }
                 }
 
                 if (log.isDebugEnabled()) {
@@ -105,69 +128,109 @@ public class MetricServiceGRPCHandler extends MetricsServiceGrpc.MetricsServiceI
                     );
                 }
 
-                if (StringUtil.isNotEmpty(serviceName) && StringUtil.isNotEmpty(serviceInstanceName)) {
+                if (serviceInstanceId != null) {
                     List<Metrics.MetricFamily> list = message.getEnvoyMetricsList();
-                    boolean needHeartbeatUpdate = true;
-                    for (int i = 0; i < list.size(); i++) {
-                        counter.inc();
-
-                        final String serviceId = IDManager.ServiceID.buildId(serviceName, NodeType.Normal);
-                        final String serviceInstanceId = IDManager.ServiceInstanceID.buildId(
-                            serviceId, serviceInstanceName);
-
-                        HistogramMetrics.Timer timer = histogram.createTimer();
-                        try {
-                            Metrics.MetricFamily metricFamily = list.get(i);
-                            double value = 0;
-                            long timestamp = 0;
-                            switch (metricFamily.getType()) {
-                                case GAUGE:
-                                    for (Metrics.Metric metrics : metricFamily.getMetricList()) {
-                                        timestamp = metrics.getTimestampMs();
-                                        value = metrics.getGauge().getValue();
-
-                                        if (timestamp > 1000000000000000000L) {
-                                            /**
-                                             * Several versions of envoy in istio.deps send timestamp in nanoseconds,
-                                             * instead of milliseconds(protocol says).
-                                             *
-                                             * Sadly, but have to fix it forcedly.
-                                             *
-                                             * An example of timestamp is '1552303033488741055', clearly it is not in milliseconds.
-                                             *
-                                             * This should be removed in the future.
-                                             */
-                                            timestamp /= 1_000_000;
-                                        }
-
-                                        EnvoyInstanceMetric metricSource = new EnvoyInstanceMetric();
-                                        metricSource.setServiceId(serviceId);
-                                        metricSource.setServiceName(serviceName);
-                                        metricSource.setId(serviceInstanceId);
-                                        metricSource.setName(serviceInstanceName);
-                                        metricSource.setMetricName(metricFamily.getName());
-                                        metricSource.setValue(value);
-                                        metricSource.setTimeBucket(TimeBucket.getMinuteTimeBucket(timestamp));
-                                        sourceReceiver.receive(metricSource);
-                                    }
-                                    break;
-                                default:
-                                    continue;
-                            }
-                            if (needHeartbeatUpdate) {
-                                // Send heartbeat
-                                ServiceInstanceUpdate serviceInstanceUpdate = new ServiceInstanceUpdate();
-                                serviceInstanceUpdate.setName(serviceInstanceName);
-                                serviceInstanceUpdate.setServiceId(serviceId);
-                                serviceInstanceUpdate.setTimeBucket(TimeBucket.getMinuteTimeBucket(timestamp));
-                                sourceReceiver.receive(serviceInstanceUpdate);
-                                needHeartbeatUpdate = false;
-                            }
-                        } finally {
-                            timer.finish();
+                    counter.inc(list.size());
+
+                    HistogramMetrics.Timer timer = histogram.createTimer();
+                    try {
+                        sourceReceiver.receive(aggregate(list));
+                    } finally {
+                        timer.finish();
+                    }
+                }
+            }
+
+            /**
+             * Only the max value of every series of the {@link #MAX_AGGREGATED_METRICS} in every minute is kept, which
+             * is the same as the maxDouble function of them in the OAL. The other GAUGE and COUNTER metrics are sent as
+             * they are.
+             *
+             * @return the metric sources, and the heartbeat of the instance if any metric exists.
+             */
+            private List<Source> aggregate(List<Metrics.MetricFamily> list) {
+                List<Source> sources = new ArrayList<>();
+                Map<String, EnvoyInstanceMetric> maxMetrics = new HashMap<>();
+                long latestTimeBucket = 0;
+                for (Metrics.MetricFamily metricFamily : list) {
+                    final Metrics.MetricType type = metricFamily.getType();
+                    if (type != Metrics.MetricType.GAUGE && type != Metrics.MetricType.COUNTER) {
+                        continue;
+                    }
+                    final boolean maxAggregated = type == Metrics.MetricType.GAUGE
+                        && MAX_AGGREGATED_METRICS.contains(metricFamily.getName());
+                    for (Metrics.Metric metrics : metricFamily.getMetricList()) {
+                        long timestamp = metrics.getTimestampMs();
+                        double value = type == Metrics.MetricType.GAUGE
+                            ? metrics.getGauge().getValue()
+                            : metrics.getCounter().getValue();
+
+                        if (timestamp > 1000000000000000000L) {
+                            /**
+                             * Several versions of envoy in istio.deps send timestamp in nanoseconds,
+                             * instead of milliseconds(protocol says).
+                             *
+                             * Sadly, but have to fix it forcedly.
+                             *
+                             * An example of timestamp is '1552303033488741055', clearly it is not in milliseconds.
+                             *
+                             * This should be removed in the future.
+                             */
+                            timestamp /= 1_000_000;
+                        }
+                        final long timeBucket = TimeBucket.getMinuteTimeBucket(timestamp);
+                        latestTimeBucket = Math.max(latestTimeBucket, timeBucket);
+
+                        if (!maxAggregated) {
+                            sources.add(metricSource(metricFamily.getName(), value, timeBucket));
+                            continue;
+                        }
+                        final String seriesKey = seriesKey(timeBucket, metricFamily.getName(), metrics);
+                        EnvoyInstanceMetric metricSource = maxMetrics.get(seriesKey);
+                        if (metricSource == null) {
+                            metricSource = metricSource(metricFamily.getName(), value, timeBucket);
+                            maxMetrics.put(seriesKey, metricSource);
+                            sources.add(metricSource);
+                        } else if (value > metricSource.getValue()) {
+                            metricSource.setValue(value);
                         }
                     }
                 }
+
+                if (sources.isEmpty()) {
+                    return Collections.emptyList();
+                }
+
+                // Send heartbeat
+                ServiceInstanceUpdate serviceInstanceUpdate = new ServiceInstanceUpdate();
+                serviceInstanceUpdate.setName(serviceInstanceName);
+                serviceInstanceUpdate.setServiceId(serviceId);
+                serviceInstanceUpdate.setTimeBucket(latestTimeBucket);
+                sources.add(serviceInstanceUpdate);
+                return sources;
+            }
+
+            /**
+             * The series are identified by the name and the labels.
+             */
+            private String seriesKey(long timeBucket, String metricName, Metrics.Metric metrics) {
+                StringBuilder key = new StringBuilder().append(timeBucket).append(Const.ID_CONNECTOR).append(metricName);
+                for (Metrics.LabelPair label : metrics.getLabelList()) {
+                    key.append(Const.ID_CONNECTOR).append(label.getName()).append('=').append(label.getValue());
+                }
+                return key.toString();
+            }
+
+            private EnvoyInstanceMetric metricSource(String metricName, double value, long timeBucket) {
+                EnvoyInstanceMetric metricSource = new EnvoyInstanceMetric();
+                metricSource.setServiceId(serviceId);
+                metricSource.setServiceName(serviceName);
+                metricSource.setId(serviceInstanceId);
+                metricSource.setName(serviceInstanceName);
+                metricSource.setMetricName(metricName);
+                metricSource.setValue(value);
+                metricSource.setTimeBucket(timeBucket);
+                return metricSource;
             }
 
             @Override
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.envoy;
+
+import io.envoyproxy.envoy.api.v2.core.Node;
+import io.envoyproxy.envoy.service.metrics.v2.StreamMetricsMessage;
+import io.grpc.stub.StreamObserver;
+import io.prometheus.client.Metrics;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.source.EnvoyInstanceMetric;
+import org.apache.skywalking.oap.server.core.source.ServiceInstanceUpdate;
+import org.apache.skywalking.oap.server.core.source.Source;
+import org.apache.skywalking.oap.server.core.source.SourceReceiver;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class MetricServiceGRPCHandlerTest {
+    private static final long TIMESTAMP = 1588000000000L;
+
+    private SourceReceiver sourceReceiver;
+    private MetricServiceGRPCHandler handler;
+
+    @Before
+    public void setUp() {
+        sourceReceiver = Mockito.mock(SourceReceiver.class);
+        ModuleServiceHolder coreServices = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(coreServices.getService(SourceReceiver.class)).thenReturn(sourceReceiver);
+        ModuleProviderHolder coreProvider = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(coreProvider.provider()).thenReturn(coreServices);
+
+        ModuleServiceHolder telemetryServices = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(telemetryServices.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder telemetryProvider = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(telemetryProvider.provider()).thenReturn(telemetryServices);
+
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(CoreModule.NAME)).thenReturn(coreProvider);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(telemetryProvider);
+        handler = new MetricServiceGRPCHandler(moduleManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSeriesOfLabels() {
+        StreamMetricsMessage message = StreamMetricsMessage.newBuilder()
+            .setIdentifier(StreamMetricsMessage.Identifier.newBuilder()
+                                                          .setNode(Node.newBuilder()
+                                                                       .setId("instance")
+                                                                       .setCluster("service")))
+            .addEnvoyMetrics(Metrics.MetricFamily.newBuilder()
+                                                 .setName("server.total_connections")
+                                                 .setType(Metrics.MetricType.GAUGE)
+                                                 .addMetric(gauge("zone-a", 10))
+                                                 .addMetric(gauge("zone-a", 30))
+                                                 .addMetric(gauge("zone-b", 20)))
+            .addEnvoyMetrics(Metrics.MetricFamily.newBuilder()
+                                                 .setName("cluster.upstream_rq_total")
+                                                 .setType(Metrics.MetricType.COUNTER)
+                                                 .addMetric(counter("cluster-a", 5))
+                                                 .addMetric(counter("cluster-b", 7)))
+            .build();
+
+        StreamObserver<StreamMetricsMessage> observer = handler.streamMetrics(Mockito.mock(StreamObserver.class));
+        observer.onNext(message);
+
+        ArgumentCaptor<List> sources = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(sourceReceiver).receive(sources.capture());
+        List<Source> received = sources.getValue();
+        Assert.assertTrue(received.get(received.size() - 1) instanceof ServiceInstanceUpdate);
+
+        List<EnvoyInstanceMetric> metrics = received.stream()
+                                                    .filter(source -> source instanceof EnvoyInstanceMetric)
+                                                    .map(source -> (EnvoyInstanceMetric) source)
+                                                    .collect(Collectors.toList());
+        // The max of every series of the max aggregated metric, the counters as they are.
+        Assert.assertEquals(4, metrics.size());
+        Assert.assertEquals(30, valueOf(metrics, "server.total_connections", 0), 0);
+        Assert.assertEquals(20, valueOf(metrics, "server.total_connections", 1), 0);
+        Assert.assertEquals(5, valueOf(metrics, "cluster.upstream_rq_total", 0), 0);
+        Assert.assertEquals(7, valueOf(metrics, "cluster.upstream_rq_total", 1), 0);
+    }
+
+    private static double valueOf(List<EnvoyInstanceMetric> metrics, String metricName, int index) {
+        return metrics.stream()
+                      .filter(metric -> metric.getMetricName().equals(metricName))
+                      .collect(Collectors.toList())
+                      .get(index)
+                      .getValue();
+    }
+
+    private static Metrics.Metric.Builder gauge(String zone, double value) {
+        return Metrics.Metric.newBuilder()
+                             .setTimestampMs(TIMESTAMP)
+                             .addLabel(Metrics.LabelPair.newBuilder().setName("zone").setValue(zone))
+                             .setGauge(Metrics.Gauge.newBuilder().setValue(value));
+    }
+
+    private static Metrics.Metric.Builder counter(String cluster, double value) {
+        return Metrics.Metric.newBuilder()
+                             .setTimestampMs(TIMESTAMP)
+                             .addLabel(Metrics.LabelPair.newBuilder().setName("cluster").setValue(cluster))
+                             .setCounter(Metrics.Counter.newBuilder().setValue(value));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.oap.server.configuration.api.ConfigChangeWatcher;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.receiver.trace.module.TraceModule;
+
+/**
+ * The sample rates of the services, which override the {@link TraceServiceModuleConfig#getSampleRate()}. The setting
+ * format is `service-a:5000,service-b:100`, the precision of the rate is 1/10000.
+ */
+@Slf4j
+public class ServiceSampleRatesAndWatcher extends ConfigChangeWatcher {
+    private final AtomicReference<Map<String, Integer>> sampleRates;
+    private final AtomicReference<String> settingsString;
+
+    public ServiceSampleRatesAndWatcher(String config, TraceModuleProvider provider) {
+        super(TraceModule.NAME, provider, "serviceSampleRates");
+        sampleRates = new AtomicReference<>(Collections.emptyMap());
+        settingsString = new AtomicReference<>(Const.EMPTY_STRING);
+
+        activeSetting(config);
+    }
+
+    private void activeSetting(String config) {
+        Map<String, Integer> newSampleRates = new HashMap<>();
+        for (String setting : config.split(",")) {
+            // The service name may include the colon, so split by the last one.
+            final int index = setting.lastIndexOf(':');
+            if (index <= 0) {
+                continue;
+            }
+            try {
+                newSampleRates.put(
+                    setting.substring(0, index).trim(), Integer.parseInt(setting.substring(index + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignore the illegal service sample rate setting: {}", setting);
+            }
+        }
+
+        sampleRates.set(newSampleRates);
+        settingsString.set(config);
+    }
+
+    /**
+     * @return the sample rate of the service, or the default rate if not set.
+     */
+    public int getSampleRate(String service, int defaultRate) {
+        final Integer sampleRate = sampleRates.get().get(service);
+        return sampleRate == null ? defaultRate : sampleRate;
+    }
+
+    @Override
+    public void notify(ConfigChangeEvent value) {
+        if (EventType.DELETE.equals(value.getEventType())) {
+            activeSetting("");
+        } else {
+            activeSetting(value.getNewValue());
+        }
+    }
+
+    @Override
+    public String value() {
+        return settingsString.get();
+    }
+}
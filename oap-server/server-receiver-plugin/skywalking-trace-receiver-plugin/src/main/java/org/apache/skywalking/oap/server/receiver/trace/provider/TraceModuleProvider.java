@@ -18,6 +18,8 @@
 
 package org.apache.skywalking.oap.server.receiver.trace.provider;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oap.server.configuration.api.ConfigurationModule;
 import org.apache.skywalking.oap.server.configuration.api.DynamicConfigurationService;
 import org.apache.skywalking.oap.server.core.CoreModule;
@@ -33,18 +35,25 @@ import org.apache.skywalking.oap.server.receiver.trace.module.TraceModule;
 import org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.grpc.TraceSegmentReportServiceHandler;
 import org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.rest.TraceSegmentReportServletHandler;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.ISegmentParserService;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentAnalysisPipeline;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentParserListenerManager;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentParserServiceImpl;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.MultiScopesAnalysisListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.NetworkAddressAliasMappingListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.SegmentAnalysisListener;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.TraceSegmentSampler;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.TraceTailSampler;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
 
+@Slf4j
 public class TraceModuleProvider extends ModuleProvider {
 
     private final TraceServiceModuleConfig moduleConfig;
     private DBLatencyThresholdsAndWatcher thresholds;
     private UninstrumentedGatewaysConfig uninstrumentedGatewaysConfig;
+    private ServiceSampleRatesAndWatcher serviceSampleRates;
+    private SegmentAnalysisPipeline segmentAnalysisPipeline;
+    private TraceTailSampler tailSampler;
 
     public TraceModuleProvider() {
         this.moduleConfig = new TraceServiceModuleConfig();
@@ -71,11 +80,22 @@ public class TraceModuleProvider extends ModuleProvider {
 
         uninstrumentedGatewaysConfig = new UninstrumentedGatewaysConfig(this);
 
+        serviceSampleRates = new ServiceSampleRatesAndWatcher(moduleConfig.getServiceSampleRates(), this);
+
         moduleConfig.setDbLatencyThresholdsAndWatcher(thresholds);
         moduleConfig.setUninstrumentedGatewaysConfig(uninstrumentedGatewaysConfig);
-
+        moduleConfig.setServiceSampleRatesAndWatcher(serviceSampleRates);
+
+        if (moduleConfig.getTailSamplingWindow() > 0) {
+            if (moduleConfig.getSampleRate() < 10000 || StringUtil.isNotEmpty(moduleConfig.getServiceSampleRates())) {
+                log.warn("sampleRate and serviceSampleRates are ignored when the tail sampling is enabled, "
+                             + "use tailSamplingRate instead.");
+            }
+            tailSampler = new TraceTailSampler(getManager(), moduleConfig);
+        }
+        segmentAnalysisPipeline = new SegmentAnalysisPipeline(getManager(), listenerManager(), moduleConfig);
         this.registerServiceImplementation(
-            ISegmentParserService.class, new SegmentParserServiceImpl(getManager(), listenerManager(), moduleConfig));
+            ISegmentParserService.class, new SegmentParserServiceImpl(segmentAnalysisPipeline));
     }
 
     @Override
@@ -92,12 +112,19 @@ public class TraceModuleProvider extends ModuleProvider {
                                                                 .getService(JettyHandlerRegister.class);
         dynamicConfigurationService.registerConfigChangeWatcher(thresholds);
         dynamicConfigurationService.registerConfigChangeWatcher(uninstrumentedGatewaysConfig);
+        dynamicConfigurationService.registerConfigChangeWatcher(serviceSampleRates);
+
+        if (tailSampler != null) {
+            tailSampler.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(tailSampler::stop, "TraceTailSampler-Stop"));
+        }
+        segmentAnalysisPipeline.start();
 
         grpcHandlerRegister.addHandler(
-            new TraceSegmentReportServiceHandler(getManager(), listenerManager(), moduleConfig));
+            new TraceSegmentReportServiceHandler(getManager(), segmentAnalysisPipeline));
 
         jettyHandlerRegister.addHandler(
-            new TraceSegmentReportServletHandler(getManager(), listenerManager(), moduleConfig));
+            new TraceSegmentReportServletHandler(getManager(), segmentAnalysisPipeline));
     }
 
     @Override
@@ -121,7 +148,7 @@ public class TraceModuleProvider extends ModuleProvider {
             listenerManager.add(new MultiScopesAnalysisListener.Factory());
             listenerManager.add(new NetworkAddressAliasMappingListener.Factory());
         }
-        listenerManager.add(new SegmentAnalysisListener.Factory(moduleConfig.getSampleRate()));
+        listenerManager.add(new SegmentAnalysisListener.Factory(new TraceSegmentSampler(moduleConfig), tailSampler));
 
         return listenerManager;
     }
@@ -43,6 +43,23 @@ public class TraceServiceModuleConfig extends ModuleConfig {
     @Setter
     @Getter
     private int sampleRate = 10000;
+    /**
+     * Make the sampling decision by the trace id, rather than the segment id, so the segments of one trace are sampled
+     * or ignored together, even they are received by different OAP nodes.
+     */
+    @Setter
+    @Getter
+    private boolean sampleByTraceId = false;
+    /**
+     * The sample rates of the services overriding the {@link #sampleRate}, such as `service-a:5000,service-b:100`.
+     * It could be changed through the dynamic configuration too.
+     */
+    @Setter
+    @Getter
+    private String serviceSampleRates = "";
+    @Setter
+    @Getter
+    private ServiceSampleRatesAndWatcher serviceSampleRatesAndWatcher;
     /**
      * Some of the agent can not have the upstream real network address, such as https://github.com/apache/skywalking-nginx-lua.
      * service instance mapping and service instance client side relation are ignored.
@@ -79,4 +96,69 @@ public class TraceServiceModuleConfig extends ModuleConfig {
     @Setter
     @Getter
     private int maxSlowSQLLength = 2000;
+    /**
+     * The number of threads analyzing the segments. The received segments are queued and analyzed asynchronously, if
+     * it is larger than 0. Otherwise, the segments are analyzed in the gRPC and HTTP threads.
+     */
+    @Setter
+    @Getter
+    private int analysisWorkers = 0;
+    /**
+     * The max number of segments waiting for analysis, when {@link #analysisWorkers} is larger than 0.
+     */
+    @Setter
+    @Getter
+    private int analysisQueueSize = 10000;
+    /**
+     * The behavior when the analysis queue is full. "drop" drops the segment with the dropped counter increased,
+     * "reject" drops the segment and rejects the stream of the agent too.
+     */
+    @Setter
+    @Getter
+    private String analysisOverloadPolicy = "drop";
+    /**
+     * The window of the tail sampling, the segments are buffered by trace id in the window, then the whole trace is
+     * sampled or dropped together. Unit, second. The tail sampling is disabled if it is 0.
+     * <p>
+     * The {@link #sampleRate} and {@link #serviceSampleRates} are ignored when the tail sampling is enabled, use
+     * {@link #tailSamplingRate} instead, so the tail sampling sees all the segments of the traces.
+     * <p>
+     * The decision is made by every OAP node for the segments it receives, so the segments of one trace received by
+     * different nodes may get different decisions, unless the agents of the trace report to the same node.
+     */
+    @Setter
+    @Getter
+    private int tailSamplingWindow = 0;
+    /**
+     * The max size of the segments buffered by the tail sampling. The oldest traces are decided earlier than the window
+     * when it is full.
+     */
+    @Setter
+    @Getter
+    private int tailSamplingMaxBufferSizeInMB = 256;
+    /**
+     * Sample the trace if any segment of it is error.
+     */
+    @Setter
+    @Getter
+    private boolean tailSamplingKeepErrorTrace = true;
+    /**
+     * Sample the trace if the duration of it is not less than the threshold. Unit, millisecond. Disabled if it is not
+     * larger than 0.
+     */
+    @Setter
+    @Getter
+    private long tailSamplingLatencyThreshold = 3000;
+    /**
+     * Sample the trace if any segment of it is in these endpoints, split by comma.
+     */
+    @Setter
+    @Getter
+    private String tailSamplingEndpoints = "";
+    /**
+     * The sample rate of the traces not matching any other tail sampling policy. The precision is 1/10000.
+     */
+    @Setter
+    @Getter
+    private int tailSamplingRate = 100;
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.grpc;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+
+/**
+ * RawSegment is the received segment with its original serialized bytes, which are persisted as they are, rather than
+ * serializing the parsed {@link SegmentObject} again.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RawSegment {
+    private final SegmentObject segment;
+    private final byte[] bytes;
+
+    /**
+     * Marshaller keeps the bytes read from the wire, which replaces the default protobuf marshaller of the segment
+     * report method.
+     */
+    public static class Marshaller implements MethodDescriptor.Marshaller<RawSegment> {
+        @Override
+        public InputStream stream(RawSegment value) {
+            return new ByteArrayInputStream(value.bytes != null ? value.bytes : value.segment.toByteArray());
+        }
+
+        @Override
+        public RawSegment parse(InputStream stream) {
+            try {
+                byte[] bytes = ByteStreams.toByteArray(stream);
+                return new RawSegment(SegmentObject.parseFrom(bytes), bytes);
+            } catch (InvalidProtocolBufferException e) {
+                throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence")
+                                     .withCause(e)
+                                     .asRuntimeException();
+            } catch (IOException e) {
+                throw Status.INTERNAL.withDescription("Failed to read the segment")
+                                     .withCause(e)
+                                     .asRuntimeException();
+            }
+        }
+    }
+}
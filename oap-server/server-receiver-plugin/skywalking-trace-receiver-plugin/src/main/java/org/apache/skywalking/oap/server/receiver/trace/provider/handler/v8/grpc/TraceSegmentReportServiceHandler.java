@@ -18,6 +18,11 @@
 
 package org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.grpc;
 
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.network.common.v3.Commands;
@@ -25,9 +30,7 @@ import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
 import org.apache.skywalking.apm.network.language.agent.v3.TraceSegmentReportServiceGrpc;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.library.server.grpc.GRPCHandler;
-import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
-import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentParserListenerManager;
-import org.apache.skywalking.oap.server.receiver.trace.provider.parser.TraceAnalyzer;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentAnalysisPipeline;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
 import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
 import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
@@ -36,18 +39,12 @@ import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
 
 @Slf4j
 public class TraceSegmentReportServiceHandler extends TraceSegmentReportServiceGrpc.TraceSegmentReportServiceImplBase implements GRPCHandler {
-    private final ModuleManager moduleManager;
-    private final SegmentParserListenerManager listenerManager;
-    private final TraceServiceModuleConfig config;
+    private final SegmentAnalysisPipeline pipeline;
     private HistogramMetrics histogram;
     private CounterMetrics errorCounter;
 
-    public TraceSegmentReportServiceHandler(ModuleManager moduleManager,
-                                            SegmentParserListenerManager listenerManager,
-                                            TraceServiceModuleConfig config) {
-        this.moduleManager = moduleManager;
-        this.listenerManager = listenerManager;
-        this.config = config;
+    public TraceSegmentReportServiceHandler(ModuleManager moduleManager, SegmentAnalysisPipeline pipeline) {
+        this.pipeline = pipeline;
         MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
                                                      .provider()
                                                      .getService(MetricsCreator.class);
@@ -60,20 +57,76 @@ public class TraceSegmentReportServiceHandler extends TraceSegmentReportServiceG
         );
     }
 
+    /**
+     * Bind the segment report method with {@link RawSegment.Marshaller}, so the segments are persisted in the received
+     * bytes.
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+        final ServerServiceDefinition definition = super.bindService();
+        final MethodDescriptor<SegmentObject, Commands> collectMethod =
+            TraceSegmentReportServiceGrpc.getCollectMethod();
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(
+            definition.getServiceDescriptor().getName());
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            if (!collectMethod.getFullMethodName().equals(method.getMethodDescriptor().getFullMethodName())) {
+                builder.addMethod(method);
+            }
+        }
+        builder.addMethod(
+            collectMethod.toBuilder(new RawSegment.Marshaller(), collectMethod.getResponseMarshaller()).build(),
+            ServerCalls.asyncClientStreamingCall(this::collectRawSegments)
+        );
+        return builder.build();
+    }
+
     @Override
     public StreamObserver<SegmentObject> collect(StreamObserver<Commands> responseObserver) {
+        final StreamObserver<RawSegment> rawSegmentObserver = collectRawSegments(responseObserver);
         return new StreamObserver<SegmentObject>() {
             @Override
             public void onNext(SegmentObject segment) {
+                rawSegmentObserver.onNext(new RawSegment(segment, null));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                rawSegmentObserver.onError(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                rawSegmentObserver.onCompleted();
+            }
+        };
+    }
+
+    private StreamObserver<RawSegment> collectRawSegments(StreamObserver<Commands> responseObserver) {
+        return new StreamObserver<RawSegment>() {
+            /**
+             * The stream has been closed by the server, because of the overload.
+             */
+            private boolean rejected = false;
+
+            @Override
+            public void onNext(RawSegment segment) {
                 if (log.isDebugEnabled()) {
                     log.debug("receive segment");
                 }
+                if (rejected) {
+                    return;
+                }
 
                 HistogramMetrics.Timer timer = histogram.createTimer();
                 try {
-                    final TraceAnalyzer traceAnalyzer = new TraceAnalyzer(
-                        moduleManager, listenerManager, config);
-                    traceAnalyzer.doAnalysis(segment);
+                    if (!pipeline.submit(segment.getSegment(), segment.getBytes())
+                        && pipeline.isRejectWhenOverloaded()) {
+                        rejected = true;
+                        responseObserver.onError(
+                            Status.RESOURCE_EXHAUSTED.withDescription("The segment analysis is overloaded")
+                                                     .asRuntimeException());
+                    }
                 } catch (Exception e) {
                     errorCounter.inc();
                 } finally {
@@ -84,11 +137,16 @@ public class TraceSegmentReportServiceHandler extends TraceSegmentReportServiceG
             @Override
             public void onError(Throwable throwable) {
                 log.error(throwable.getMessage(), throwable);
-                responseObserver.onCompleted();
+                if (!rejected) {
+                    responseObserver.onCompleted();
+                }
             }
 
             @Override
             public void onCompleted() {
+                if (rejected) {
+                    return;
+                }
                 responseObserver.onNext(Commands.newBuilder().build());
                 responseObserver.onCompleted();
             }
@@ -20,15 +20,15 @@ package org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.rest
 
 import com.google.gson.JsonElement;
 import java.io.BufferedReader;
+import java.io.IOException;
 import javax.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.library.server.jetty.JettyJsonHandler;
+import org.apache.skywalking.oap.server.library.server.jetty.ServiceUnavailableException;
 import org.apache.skywalking.oap.server.library.util.ProtoBufJsonUtils;
-import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
-import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentParserListenerManager;
-import org.apache.skywalking.oap.server.receiver.trace.provider.parser.TraceAnalyzer;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentAnalysisPipeline;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
 import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
 import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
@@ -38,18 +38,12 @@ import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
 @Slf4j
 public class TraceSegmentReportServletHandler extends JettyJsonHandler {
 
-    private final ModuleManager moduleManager;
-    private final SegmentParserListenerManager listenerManager;
-    private final TraceServiceModuleConfig config;
+    private final SegmentAnalysisPipeline pipeline;
     private HistogramMetrics histogram;
     private CounterMetrics errorCounter;
 
-    public TraceSegmentReportServletHandler(ModuleManager moduleManager,
-                                            SegmentParserListenerManager listenerManager,
-                                            TraceServiceModuleConfig config) {
-        this.moduleManager = moduleManager;
-        this.listenerManager = listenerManager;
-        this.config = config;
+    public TraceSegmentReportServletHandler(ModuleManager moduleManager, SegmentAnalysisPipeline pipeline) {
+        this.pipeline = pipeline;
         MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
                                                      .provider()
                                                      .getService(MetricsCreator.class);
@@ -73,7 +67,7 @@ public class TraceSegmentReportServletHandler extends JettyJsonHandler {
     }
 
     @Override
-    protected JsonElement doPost(HttpServletRequest req) {
+    protected JsonElement doPost(HttpServletRequest req) throws IOException {
         if (log.isDebugEnabled()) {
             log.debug("receive stream segment");
         }
@@ -81,6 +75,7 @@ public class TraceSegmentReportServletHandler extends JettyJsonHandler {
 
         StringBuilder stringBuilder = new StringBuilder();
         String line;
+        boolean accepted = true;
         try {
             BufferedReader reader = req.getReader();
             while ((line = reader.readLine()) != null) {
@@ -90,8 +85,7 @@ public class TraceSegmentReportServletHandler extends JettyJsonHandler {
             SegmentObject.Builder upstreamSegmentBuilder = SegmentObject.newBuilder();
             ProtoBufJsonUtils.fromJSON(stringBuilder.toString(), upstreamSegmentBuilder);
 
-            final TraceAnalyzer traceAnalyzer = new TraceAnalyzer(moduleManager, listenerManager, config);
-            traceAnalyzer.doAnalysis(upstreamSegmentBuilder.build());
+            accepted = pipeline.submit(upstreamSegmentBuilder.build());
         } catch (Exception e) {
             errorCounter.inc();
             log.error(e.getMessage(), e);
@@ -99,6 +93,10 @@ public class TraceSegmentReportServletHandler extends JettyJsonHandler {
             timer.finish();
         }
 
+        if (!accepted && pipeline.isRejectWhenOverloaded()) {
+            throw new ServiceUnavailableException("The segment analysis is overloaded");
+        }
+
         return null;
     }
 }
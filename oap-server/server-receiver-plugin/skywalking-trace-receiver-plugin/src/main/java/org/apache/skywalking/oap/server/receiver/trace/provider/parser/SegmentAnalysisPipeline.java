@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.parser;
+
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * SegmentAnalysisPipeline decouples the segment analysis from the receiver threads. The received segments are queued
+ * in a bounded {@link DataCarrier}, and analyzed by {@link TraceServiceModuleConfig#getAnalysisWorkers()} threads, so
+ * the slow listeners or storage don't block the gRPC and HTTP threads, and the analysis parallelism is sized
+ * separately.
+ * <p>
+ * When the queue is full, the segment is dropped, and the receiver decides whether to reject the agent, based on
+ * {@link #isRejectWhenOverloaded()}.
+ * <p>
+ * If no analysis worker is configured, the segments are analyzed in the receiver thread as before.
+ * <p>
+ * The segments are dropped before {@link #start()}.
+ */
+@Slf4j
+public class SegmentAnalysisPipeline {
+    public static final String OVERLOAD_POLICY_DROP = "drop";
+    public static final String OVERLOAD_POLICY_REJECT = "reject";
+
+    private final ModuleManager moduleManager;
+    private final SegmentParserListenerManager listenerManager;
+    private final TraceServiceModuleConfig config;
+    private final boolean rejectWhenOverloaded;
+    private DataCarrier<PendingSegment> dataCarrier;
+    private GaugeMetrics queueSize;
+    private HistogramMetrics queueLatency;
+    private HistogramMetrics analysisLatency;
+    private CounterMetrics droppedCounter;
+    private volatile boolean started = false;
+
+    public SegmentAnalysisPipeline(ModuleManager moduleManager,
+                                   SegmentParserListenerManager listenerManager,
+                                   TraceServiceModuleConfig config) {
+        this.moduleManager = moduleManager;
+        this.listenerManager = listenerManager;
+        this.config = config;
+        this.rejectWhenOverloaded = OVERLOAD_POLICY_REJECT.equalsIgnoreCase(config.getAnalysisOverloadPolicy());
+    }
+
+    /**
+     * Create the telemetry, and start the analysis workers if configured.
+     */
+    public void start() {
+        MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                                                     .provider()
+                                                     .getService(MetricsCreator.class);
+        analysisLatency = metricsCreator.createHistogramMetric(
+            "trace_analysis_latency", "The latency of the segment analysis",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+
+        final int workers = config.getAnalysisWorkers();
+        if (workers <= 0) {
+            started = true;
+            return;
+        }
+        queueSize = metricsCreator.createGauge(
+            "trace_analysis_queue_size", "The number of segments waiting for analysis",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        queueLatency = metricsCreator.createHistogramMetric(
+            "trace_analysis_queue_latency", "The waiting time of the segments in the analysis queue",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        droppedCounter = metricsCreator.createCounter(
+            "trace_analysis_dropped_count", "The number of segments dropped because the analysis queue is full",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+
+        dataCarrier = new DataCarrier<>(
+            "SegmentAnalysisPipeline", "SEGMENT_ANALYSIS", workers,
+            Math.max(1, config.getAnalysisQueueSize() / workers), BufferType.RING
+        );
+        dataCarrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+        dataCarrier.consume(new AnalysisConsumer(), workers);
+        started = true;
+    }
+
+    /**
+     * Analyze the segment, or queue it for the analysis workers.
+     *
+     * @return false if the segment is dropped, because the analysis queue is full, or the pipeline isn't started.
+     */
+    public boolean submit(SegmentObject segment) {
+        return submit(segment, null);
+    }
+
+    /**
+     * Same as {@link #submit(SegmentObject)}, but the segment is persisted in the received bytes, which must be the
+     * serialized form of the segment.
+     *
+     * @param rawSegment the received bytes, or null if the segment isn't received in the protobuf format.
+     * @return false if the segment is dropped, because the analysis queue is full, or the pipeline isn't started.
+     */
+    public boolean submit(SegmentObject segment, byte[] rawSegment) {
+        if (!started) {
+            return false;
+        }
+        if (dataCarrier == null) {
+            analyze(segment, rawSegment);
+            return true;
+        }
+
+        queueSize.inc();
+        if (!dataCarrier.produce(new PendingSegment(segment, rawSegment, System.currentTimeMillis()))) {
+            queueSize.dec();
+            droppedCounter.inc();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the receiver should reject the agent, when the segment is dropped by {@link
+     * #submit(SegmentObject)}.
+     */
+    public boolean isRejectWhenOverloaded() {
+        return rejectWhenOverloaded;
+    }
+
+    private void analyze(SegmentObject segment, byte[] rawSegment) {
+        HistogramMetrics.Timer timer = analysisLatency.createTimer();
+        try {
+            TraceAnalyzer.current(moduleManager, listenerManager, config).doAnalysis(segment, rawSegment);
+        } finally {
+            timer.finish();
+        }
+    }
+
+    private class AnalysisConsumer implements IConsumer<PendingSegment> {
+        @Override
+        public void init() {
+
+        }
+
+        @Override
+        public void consume(List<PendingSegment> data) {
+            queueSize.dec(data.size());
+            final long now = System.currentTimeMillis();
+            for (PendingSegment pending : data) {
+                queueLatency.observe((now - pending.queuedTime) / 1000d);
+                analyze(pending.segment, pending.rawSegment);
+            }
+        }
+
+        @Override
+        public void onError(List<PendingSegment> data, Throwable t) {
+            log.error(t.getMessage(), t);
+        }
+
+        @Override
+        public void onExit() {
+
+        }
+    }
+
+    private static class PendingSegment {
+        private final SegmentObject segment;
+        private final byte[] rawSegment;
+        private final long queuedTime;
+
+        private PendingSegment(SegmentObject segment, byte[] rawSegment, long queuedTime) {
+            this.segment = segment;
+            this.rawSegment = rawSegment;
+            this.queuedTime = queuedTime;
+        }
+    }
+}
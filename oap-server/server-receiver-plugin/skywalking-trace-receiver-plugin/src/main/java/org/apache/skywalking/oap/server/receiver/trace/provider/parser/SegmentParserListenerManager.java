@@ -18,7 +18,7 @@
 
 package org.apache.skywalking.oap.server.receiver.trace.provider.parser;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.AnalysisListenerFactory;
 
@@ -27,7 +27,7 @@ public class SegmentParserListenerManager implements ISegmentParserListenerManag
     private final List<AnalysisListenerFactory> spanListenerFactories;
 
     public SegmentParserListenerManager() {
-        this.spanListenerFactories = new LinkedList<>();
+        this.spanListenerFactories = new ArrayList<>();
     }
 
     @Override
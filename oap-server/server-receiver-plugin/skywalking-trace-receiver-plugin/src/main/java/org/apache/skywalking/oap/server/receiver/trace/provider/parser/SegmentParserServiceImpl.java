@@ -19,28 +19,19 @@
 package org.apache.skywalking.oap.server.receiver.trace.provider.parser;
 
 import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
-import org.apache.skywalking.oap.server.library.module.ModuleManager;
-import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
 
 /**
  * The open service to the receivers.
  */
 public class SegmentParserServiceImpl implements ISegmentParserService {
-    private ModuleManager moduleManager;
-    private SegmentParserListenerManager listenerManager;
-    private TraceServiceModuleConfig config;
+    private final SegmentAnalysisPipeline pipeline;
 
-    public SegmentParserServiceImpl(ModuleManager moduleManager,
-                                    SegmentParserListenerManager listenerManager,
-                                    TraceServiceModuleConfig config) {
-        this.moduleManager = moduleManager;
-        this.listenerManager = listenerManager;
-        this.config = config;
+    public SegmentParserServiceImpl(SegmentAnalysisPipeline pipeline) {
+        this.pipeline = pipeline;
     }
 
     @Override
     public void send(SegmentObject segment) {
-        final TraceAnalyzer traceAnalyzer = new TraceAnalyzer(moduleManager, listenerManager, config);
-        traceAnalyzer.doAnalysis(segment);
+        pipeline.submit(segment);
     }
 }
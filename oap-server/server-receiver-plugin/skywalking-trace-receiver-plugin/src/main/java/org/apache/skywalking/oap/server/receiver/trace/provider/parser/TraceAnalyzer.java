@@ -28,31 +28,65 @@ import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.AnalysisListener;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.AnalysisListenerFactory;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.EntryAnalysisListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.ExitAnalysisListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.FirstAnalysisListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.LocalAnalysisListener;
 import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.SegmentListener;
 
+/**
+ * TraceAnalyzer notifies the listeners created by the {@link SegmentParserListenerManager} to analyze the segments.
+ * <p>
+ * The listeners are created at the first analysis, and reset for the following ones, if they support {@link
+ * AnalysisListener#reset()}. So one TraceAnalyzer could analyze many segments one by one, but it is not thread safe,
+ * use {@link #current(ModuleManager, SegmentParserListenerManager, TraceServiceModuleConfig)} to get the analyzer of
+ * the current thread.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class TraceAnalyzer {
+    private static final ThreadLocal<TraceAnalyzer> CURRENT = new ThreadLocal<>();
+
     private final ModuleManager moduleManager;
     private final SegmentParserListenerManager listenerManager;
     private final TraceServiceModuleConfig config;
-    private List<AnalysisListener> analysisListeners = new ArrayList<>();
+    private final List<AnalysisListener> analysisListeners = new ArrayList<>();
+
+    /**
+     * @return the analyzer owned by the current thread, which is created at the first time.
+     */
+    public static TraceAnalyzer current(ModuleManager moduleManager,
+                                        SegmentParserListenerManager listenerManager,
+                                        TraceServiceModuleConfig config) {
+        TraceAnalyzer analyzer = CURRENT.get();
+        if (analyzer == null || analyzer.listenerManager != listenerManager) {
+            analyzer = new TraceAnalyzer(moduleManager, listenerManager, config);
+            CURRENT.set(analyzer);
+        }
+        return analyzer;
+    }
 
     public void doAnalysis(SegmentObject segmentObject) {
+        doAnalysis(segmentObject, null);
+    }
+
+    /**
+     * @param rawSegment the received bytes of the segment, which are persisted rather than serializing the segment
+     *                   again. Null if not available.
+     */
+    public void doAnalysis(SegmentObject segmentObject, byte[] rawSegment) {
         if (segmentObject.getSpansList().size() == 0) {
             return;
         }
 
-        createSpanListeners();
+        prepareSpanListeners();
 
         try {
-            notifySegmentListener(segmentObject);
+            notifySegmentListener(segmentObject, rawSegment);
 
-            segmentObject.getSpansList().forEach(spanObject -> {
+            for (int i = 0; i < segmentObject.getSpansCount(); i++) {
+                final SpanObject spanObject = segmentObject.getSpans(i);
                 if (spanObject.getSpanId() == 0) {
                     notifyFirstListener(spanObject, segmentObject);
                 }
@@ -67,7 +101,7 @@ public class TraceAnalyzer {
                     log.error("span type value was unexpected, span type name: {}", spanObject.getSpanType()
                                                                                               .name());
                 }
-            });
+            }
 
             notifyListenerToBuild();
         } catch (Throwable e) {
@@ -76,53 +110,72 @@ public class TraceAnalyzer {
     }
 
     private void notifyListenerToBuild() {
-        analysisListeners.forEach(AnalysisListener::build);
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            analysisListeners.get(i).build();
+        }
     }
 
     private void notifyExitListener(SpanObject span, SegmentObject segmentObject) {
-        analysisListeners.forEach(listener -> {
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            final AnalysisListener listener = analysisListeners.get(i);
             if (listener.containsPoint(AnalysisListener.Point.Exit)) {
                 ((ExitAnalysisListener) listener).parseExit(span, segmentObject);
             }
-        });
+        }
     }
 
     private void notifyEntryListener(SpanObject span, SegmentObject segmentObject) {
-        analysisListeners.forEach(listener -> {
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            final AnalysisListener listener = analysisListeners.get(i);
             if (listener.containsPoint(AnalysisListener.Point.Entry)) {
                 ((EntryAnalysisListener) listener).parseEntry(span, segmentObject);
             }
-        });
+        }
     }
 
     private void notifyLocalListener(SpanObject span, SegmentObject segmentObject) {
-        analysisListeners.forEach(listener -> {
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            final AnalysisListener listener = analysisListeners.get(i);
             if (listener.containsPoint(AnalysisListener.Point.Local)) {
                 ((LocalAnalysisListener) listener).parseLocal(span, segmentObject);
             }
-        });
+        }
     }
 
     private void notifyFirstListener(SpanObject span, SegmentObject segmentObject) {
-        analysisListeners.forEach(listener -> {
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            final AnalysisListener listener = analysisListeners.get(i);
             if (listener.containsPoint(AnalysisListener.Point.First)) {
                 ((FirstAnalysisListener) listener).parseFirst(span, segmentObject);
             }
-        });
+        }
     }
 
-    private void notifySegmentListener(SegmentObject segmentObject) {
-        analysisListeners.forEach(listener -> {
+    private void notifySegmentListener(SegmentObject segmentObject, byte[] rawSegment) {
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            final AnalysisListener listener = analysisListeners.get(i);
             if (listener.containsPoint(AnalysisListener.Point.Segment)) {
-                ((SegmentListener) listener).parseSegment(segmentObject);
+                ((SegmentListener) listener).parseSegment(segmentObject, rawSegment);
             }
-        });
+        }
     }
 
-    private void createSpanListeners() {
-        listenerManager.getSpanListenerFactories()
-                       .forEach(
-                           spanListenerFactory -> analysisListeners.add(
-                               spanListenerFactory.create(moduleManager, config)));
+    /**
+     * Create the listeners at the first analysis. For the following ones, reset the listeners, and create the ones not
+     * supporting reset again.
+     */
+    private void prepareSpanListeners() {
+        final List<AnalysisListenerFactory> factories = listenerManager.getSpanListenerFactories();
+        if (analysisListeners.isEmpty()) {
+            for (AnalysisListenerFactory factory : factories) {
+                analysisListeners.add(factory.create(moduleManager, config));
+            }
+            return;
+        }
+        for (int i = 0; i < analysisListeners.size(); i++) {
+            if (!analysisListeners.get(i).reset()) {
+                analysisListeners.set(i, factories.get(i).create(moduleManager, config));
+            }
+        }
     }
 }
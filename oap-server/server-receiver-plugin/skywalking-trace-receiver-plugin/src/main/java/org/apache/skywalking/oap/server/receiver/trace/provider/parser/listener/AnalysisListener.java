@@ -33,6 +33,16 @@ public interface AnalysisListener {
      */
     boolean containsPoint(Point point);
 
+    /**
+     * Clear the state of the last analyzed segment, then the listener is reused for the next segment, rather than
+     * created again by the {@link AnalysisListenerFactory}.
+     *
+     * @return false if the listener doesn't support reuse, which is the default.
+     */
+    default boolean reset() {
+        return false;
+    }
+
     /**
      * Analysis point when the analysis core traverses the segment
      */
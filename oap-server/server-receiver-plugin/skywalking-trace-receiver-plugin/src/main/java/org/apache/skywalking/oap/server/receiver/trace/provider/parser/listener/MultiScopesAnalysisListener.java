@@ -19,7 +19,6 @@
 package org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
@@ -62,8 +61,8 @@ public class MultiScopesAnalysisListener implements EntryAnalysisListener, ExitA
 
     private MultiScopesAnalysisListener(ModuleManager moduleManager, TraceServiceModuleConfig config) {
         this.sourceReceiver = moduleManager.find(CoreModule.NAME).provider().getService(SourceReceiver.class);
-        this.entrySourceBuilders = new LinkedList<>();
-        this.exitSourceBuilders = new LinkedList<>();
+        this.entrySourceBuilders = new ArrayList<>(10);
+        this.exitSourceBuilders = new ArrayList<>(10);
         this.slowDatabaseAccesses = new ArrayList<>(10);
         this.networkAddressAliasCache = moduleManager.find(CoreModule.NAME)
                                                      .provider()
@@ -76,6 +75,14 @@ public class MultiScopesAnalysisListener implements EntryAnalysisListener, ExitA
         return Point.Entry.equals(point) || Point.Exit.equals(point);
     }
 
+    @Override
+    public boolean reset() {
+        entrySourceBuilders.clear();
+        exitSourceBuilders.clear();
+        slowDatabaseAccesses.clear();
+        return true;
+    }
+
     /**
      * All entry spans are transferred as the Service, Instance and Endpoint related sources. Entry spans are treated on
      * the behalf of the observability status of the service reported these spans.
@@ -252,7 +259,8 @@ public class MultiScopesAnalysisListener implements EntryAnalysisListener, ExitA
 
     @Override
     public void build() {
-        entrySourceBuilders.forEach(entrySourceBuilder -> {
+        for (int i = 0; i < entrySourceBuilders.size(); i++) {
+            final SourceBuilder entrySourceBuilder = entrySourceBuilders.get(i);
             sourceReceiver.receive(entrySourceBuilder.toAll());
             sourceReceiver.receive(entrySourceBuilder.toService());
             sourceReceiver.receive(entrySourceBuilder.toServiceInstance());
@@ -271,9 +279,10 @@ public class MultiScopesAnalysisListener implements EntryAnalysisListener, ExitA
             if (endpointRelation != null) {
                 sourceReceiver.receive(endpointRelation);
             }
-        });
+        }
 
-        exitSourceBuilders.forEach(exitSourceBuilder -> {
+        for (int i = 0; i < exitSourceBuilders.size(); i++) {
+            final SourceBuilder exitSourceBuilder = exitSourceBuilders.get(i);
             sourceReceiver.receive(exitSourceBuilder.toService());
             sourceReceiver.receive(exitSourceBuilder.toServiceRelation());
 
@@ -287,9 +296,11 @@ public class MultiScopesAnalysisListener implements EntryAnalysisListener, ExitA
             if (RequestType.DATABASE.equals(exitSourceBuilder.getType())) {
                 sourceReceiver.receive(exitSourceBuilder.toDatabaseAccess());
             }
-        });
+        }
 
-        slowDatabaseAccesses.forEach(sourceReceiver::receive);
+        for (int i = 0; i < slowDatabaseAccesses.size(); i++) {
+            sourceReceiver.receive(slowDatabaseAccesses.get(i));
+        }
     }
 
     public static class Factory implements AnalysisListenerFactory {
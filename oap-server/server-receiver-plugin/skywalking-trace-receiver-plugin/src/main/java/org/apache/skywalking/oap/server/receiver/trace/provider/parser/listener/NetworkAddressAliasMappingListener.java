@@ -91,6 +91,11 @@ public class NetworkAddressAliasMappingListener implements EntryAnalysisListener
         return Point.Entry.equals(point);
     }
 
+    @Override
+    public boolean reset() {
+        return true;
+    }
+
     public static class Factory implements AnalysisListenerFactory {
 
         @Override
@@ -40,6 +40,7 @@ import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModu
 public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnalysisListener, SegmentListener {
     private final SourceReceiver sourceReceiver;
     private final TraceSegmentSampler sampler;
+    private final TraceTailSampler tailSampler;
     private final Segment segment = new Segment();
     private SAMPLE_STATUS sampleStatus = SAMPLE_STATUS.UNKNOWN;
     private String serviceId = Const.EMPTY_STRING;
@@ -49,9 +50,16 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
     private long endTimestamp;
     private int duration;
     private boolean isError;
-
-    private SegmentAnalysisListener(ModuleManager moduleManager, TraceSegmentSampler sampler) {
+    /**
+     * The received bytes of the segment, persisted as they are if available.
+     */
+    private byte[] rawSegment;
+
+    private SegmentAnalysisListener(ModuleManager moduleManager,
+                                    TraceSegmentSampler sampler,
+                                    TraceTailSampler tailSampler) {
         this.sampler = sampler;
+        this.tailSampler = tailSampler;
         this.sourceReceiver = moduleManager.find(CoreModule.NAME).provider().getService(SourceReceiver.class);
     }
 
@@ -60,6 +68,36 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         return Point.First.equals(point) || Point.Entry.equals(point) || Point.Segment.equals(point);
     }
 
+    /**
+     * The {@link #segment} is reused too, as the dispatchers copy it into the record synchronously.
+     */
+    @Override
+    public boolean reset() {
+        segment.setSegmentId(null);
+        segment.setTraceId(null);
+        segment.setServiceId(null);
+        segment.setServiceInstanceId(null);
+        segment.setEndpointName(null);
+        segment.setEndpointId(null);
+        segment.setStartTime(0);
+        segment.setEndTime(0);
+        segment.setLatency(0);
+        segment.setIsError(0);
+        segment.setDataBinary(null);
+        segment.setVersion(0);
+        segment.setTimeBucket(0);
+        sampleStatus = SAMPLE_STATUS.UNKNOWN;
+        serviceId = Const.EMPTY_STRING;
+        endpointId = Const.EMPTY_STRING;
+        endpointName = Const.EMPTY_STRING;
+        startTimestamp = 0;
+        endTimestamp = 0;
+        duration = 0;
+        isError = false;
+        rawSegment = null;
+        return true;
+    }
+
     @Override
     public void parseFirst(SpanObject span, SegmentObject segmentObject) {
         if (sampleStatus.equals(SAMPLE_STATUS.IGNORE)) {
@@ -84,7 +122,7 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         segment.setTimeBucket(timeBucket);
         segment.setEndTime(endTimestamp);
         segment.setIsError(BooleanUtils.booleanToValue(isError));
-        segment.setDataBinary(segmentObject.toByteArray());
+        segment.setDataBinary(rawSegment != null ? rawSegment : segmentObject.toByteArray());
         segment.setVersion(3);
 
         endpointId = IDManager.EndpointID.buildId(
@@ -109,10 +147,17 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         endpointName = span.getOperationName();
     }
 
+    @Override
+    public void parseSegment(SegmentObject segmentObject, byte[] rawSegment) {
+        this.rawSegment = rawSegment;
+        parseSegment(segmentObject);
+    }
+
     @Override
     public void parseSegment(SegmentObject segmentObject) {
         if (sampleStatus.equals(SAMPLE_STATUS.UNKNOWN) || sampleStatus.equals(SAMPLE_STATUS.IGNORE)) {
-            if (sampler.shouldSample(segmentObject.getTraceSegmentId())) {
+            // The tail sampler samples the whole traces, it requires all the segments rather than the sampled ones.
+            if (tailSampler != null || sampler.shouldSample(segmentObject)) {
                 sampleStatus = SAMPLE_STATUS.SAMPLED;
             } else {
                 sampleStatus = SAMPLE_STATUS.IGNORE;
@@ -124,7 +169,8 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         }
 
         segment.setTraceId(segmentObject.getTraceId());
-        segmentObject.getSpansList().forEach(span -> {
+        for (int i = 0; i < segmentObject.getSpansCount(); i++) {
+            final SpanObject span = segmentObject.getSpans(i);
             if (startTimestamp == 0 || startTimestamp > span.getStartTime()) {
                 startTimestamp = span.getStartTime();
             }
@@ -134,7 +180,7 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
             if (!isError && span.getIsError()) {
                 isError = true;
             }
-        });
+        }
         final long accurateDuration = endTimestamp - startTimestamp;
         duration = accurateDuration > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) accurateDuration;
     }
@@ -152,7 +198,11 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         segment.setEndpointId(endpointId);
         segment.setEndpointName(endpointName);
 
-        sourceReceiver.receive(segment);
+        if (tailSampler != null) {
+            tailSampler.receive(segment);
+        } else {
+            sourceReceiver.receive(segment);
+        }
     }
 
     private enum SAMPLE_STATUS {
@@ -161,14 +211,24 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
 
     public static class Factory implements AnalysisListenerFactory {
         private final TraceSegmentSampler sampler;
+        private final TraceTailSampler tailSampler;
 
         public Factory(int segmentSamplingRate) {
-            this.sampler = new TraceSegmentSampler(segmentSamplingRate);
+            this(new TraceSegmentSampler(segmentSamplingRate), null);
+        }
+
+        /**
+         * @param tailSampler buffers the segments for the trace level sampling, rather than forwarding them to the
+         *                    persistence directly. Null if the tail sampling is disabled.
+         */
+        public Factory(TraceSegmentSampler sampler, TraceTailSampler tailSampler) {
+            this.sampler = sampler;
+            this.tailSampler = tailSampler;
         }
 
         @Override
         public AnalysisListener create(ModuleManager moduleManager, TraceServiceModuleConfig config) {
-            return new SegmentAnalysisListener(moduleManager, sampler);
+            return new SegmentAnalysisListener(moduleManager, sampler, tailSampler);
         }
     }
 }
@@ -25,4 +25,12 @@ import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
  */
 public interface SegmentListener extends AnalysisListener {
     void parseSegment(SegmentObject segmentObject);
+
+    /**
+     * @param rawSegment the received bytes of the segment, or null if the segment isn't received in the protobuf
+     *                   format.
+     */
+    default void parseSegment(SegmentObject segmentObject, byte[] rawSegment) {
+        parseSegment(segmentObject);
+    }
 }
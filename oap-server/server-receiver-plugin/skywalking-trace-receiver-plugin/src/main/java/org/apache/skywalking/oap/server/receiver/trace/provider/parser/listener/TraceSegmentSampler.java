@@ -18,18 +18,66 @@
 
 package org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.oap.server.receiver.trace.provider.ServiceSampleRatesAndWatcher;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+
 /**
  * The sampler makes the sampling mechanism works at backend side. Sample result: [0,sampleRate) sampled, (sampleRate,~)
  * ignored
+ * <p>
+ * In the trace id mode, the decision is made by the murmur3 hash of the trace id, so all the segments of the trace are
+ * sampled or ignored together, by every OAP node independently. Otherwise, it is made by the segment id.
  */
 public class TraceSegmentSampler {
-    private int sampleRate = 10000;
+    private static final int PRECISION = 10000;
+    private static final HashFunction TRACE_ID_HASH = Hashing.murmur3_32();
+
+    private final int sampleRate;
+    private final boolean sampleByTraceId;
+    private final TraceServiceModuleConfig config;
 
     public TraceSegmentSampler(int sampleRate) {
+        this(sampleRate, false, null);
+    }
+
+    /**
+     * The sample rates of the services override the {@link TraceServiceModuleConfig#getSampleRate()}, they are read
+     * through {@link TraceServiceModuleConfig#getServiceSampleRatesAndWatcher()} at every sampling.
+     */
+    public TraceSegmentSampler(TraceServiceModuleConfig config) {
+        this(config.getSampleRate(), config.isSampleByTraceId(), config);
+    }
+
+    private TraceSegmentSampler(int sampleRate, boolean sampleByTraceId, TraceServiceModuleConfig config) {
         this.sampleRate = sampleRate;
+        this.sampleByTraceId = sampleByTraceId;
+        this.config = config;
+    }
+
+    public boolean shouldSample(SegmentObject segmentObject) {
+        final ServiceSampleRatesAndWatcher serviceSampleRates = config == null
+            ? null
+            : config.getServiceSampleRatesAndWatcher();
+        final int rate = serviceSampleRates == null
+            ? sampleRate
+            : serviceSampleRates.getSampleRate(segmentObject.getService(), sampleRate);
+        if (rate >= PRECISION) {
+            return true;
+        }
+        if (sampleByTraceId) {
+            return traceIdBucket(segmentObject.getTraceId()) < rate;
+        }
+        return segmentObject.getTraceSegmentId().hashCode() % PRECISION < rate;
     }
 
-    public boolean shouldSample(String segmentId) {
-        return segmentId.hashCode() % 10000 < sampleRate;
+    /**
+     * @return the stable bucket of the trace id in [0, 10000), which is the same in all OAP nodes.
+     */
+    public static int traceIdBucket(String traceId) {
+        return Math.floorMod(TRACE_ID_HASH.hashString(traceId, StandardCharsets.UTF_8).asInt(), PRECISION);
     }
 }
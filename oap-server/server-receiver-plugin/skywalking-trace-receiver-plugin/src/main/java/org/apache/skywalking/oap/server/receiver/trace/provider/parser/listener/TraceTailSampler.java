@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.apm.util.StringUtil;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentDispatcher;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
+import org.apache.skywalking.oap.server.core.analysis.worker.RecordStreamProcessor;
+import org.apache.skywalking.oap.server.core.source.Segment;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.util.BooleanUtils;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * TraceTailSampler makes the sampling decision for the whole trace, rather than the {@link TraceSegmentSampler} making
+ * it for every segment at the beginning.
+ * <p>
+ * The segments are buffered by the trace id, until {@link TraceServiceModuleConfig#getTailSamplingWindow()} passed
+ * since the first segment of the trace is received, or the buffer is full, then the trace is sampled if any of the
+ * following policies matches, and all the segments of it are sent to the {@link RecordStreamProcessor} together.
+ * <pre>
+ * 1. error, any segment of the trace is error.
+ * 2. latency, the duration of the trace is not less than the threshold.
+ * 3. endpoint, any segment of the trace is in the endpoint allow-list.
+ * 4. rate, the trace id hash is in the sample rate, for the traces not matching the above.
+ * </pre>
+ * The decision is cached for a while, for the segments arriving after it's made.
+ * <p>
+ * The decision is made by this OAP node only, the segments of one trace received by other nodes are decided by them
+ * separately.
+ */
+@Slf4j
+public class TraceTailSampler {
+    /**
+     * The estimated size of the segment record, except the data binary.
+     */
+    private static final int RECORD_OVERHEAD_SIZE = 256;
+    private static final int DECISION_CACHE_SIZE = 100_000;
+
+    private static final String POLICY_ERROR = "error";
+    private static final String POLICY_LATENCY = "latency";
+    private static final String POLICY_ENDPOINT = "endpoint";
+    private static final String POLICY_RATE = "rate";
+    /**
+     * The segments arriving after the decision of the trace is made.
+     */
+    private static final String POLICY_DECIDED = "decided";
+
+    private final ModuleDefineHolder moduleDefineHolder;
+    private final Consumer<SegmentRecord> persistence;
+    private final long window;
+    private final long maxBufferSize;
+    private final boolean keepErrorTrace;
+    private final long latencyThreshold;
+    private final Set<String> endpoints;
+    private final int sampleRate;
+
+    private final ConcurrentHashMap<String, BufferedTrace> traces = new ConcurrentHashMap<>();
+    /**
+     * The buffered traces in the order of receiving the first segment.
+     */
+    private final Queue<BufferedTrace> arrivalQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bufferSize = new AtomicLong();
+    private final Cache<String, Boolean> decisions;
+    private ScheduledExecutorService scheduler;
+
+    private GaugeMetrics bufferedSegments;
+    private CounterMetrics droppedCounter;
+    private CounterMetrics errorSampledCounter;
+    private CounterMetrics latencySampledCounter;
+    private CounterMetrics endpointSampledCounter;
+    private CounterMetrics rateSampledCounter;
+    private CounterMetrics decidedSampledCounter;
+
+    public TraceTailSampler(ModuleDefineHolder moduleDefineHolder, TraceServiceModuleConfig config) {
+        this(moduleDefineHolder, config, RecordStreamProcessor.getInstance()::in);
+    }
+
+    TraceTailSampler(ModuleDefineHolder moduleDefineHolder,
+                     TraceServiceModuleConfig config,
+                     Consumer<SegmentRecord> persistence) {
+        this.moduleDefineHolder = moduleDefineHolder;
+        this.persistence = persistence;
+        this.window = TimeUnit.SECONDS.toMillis(config.getTailSamplingWindow());
+        this.maxBufferSize = config.getTailSamplingMaxBufferSizeInMB() * 1024L * 1024L;
+        this.keepErrorTrace = config.isTailSamplingKeepErrorTrace();
+        this.latencyThreshold = config.getTailSamplingLatencyThreshold();
+        this.endpoints = StringUtil.isEmpty(config.getTailSamplingEndpoints())
+            ? Collections.emptySet()
+            : new HashSet<>(Arrays.asList(config.getTailSamplingEndpoints().split("\\s*,\\s*")));
+        this.sampleRate = config.getTailSamplingRate();
+        this.decisions = CacheBuilder.newBuilder()
+                                     .maximumSize(DECISION_CACHE_SIZE)
+                                     .expireAfterWrite(window * 2, TimeUnit.MILLISECONDS)
+                                     .build();
+    }
+
+    /**
+     * Create the telemetry, and start the timer making the decisions for the traces out of the window.
+     */
+    public void start() {
+        MetricsCreator metricsCreator = moduleDefineHolder.find(TelemetryModule.NAME)
+                                                          .provider()
+                                                          .getService(MetricsCreator.class);
+        bufferedSegments = metricsCreator.createGauge(
+            "trace_tail_sampling_buffered_segments", "The number of segments waiting for the tail sampling decision",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        droppedCounter = metricsCreator.createCounter(
+            "trace_tail_sampling_dropped_count", "The number of segments dropped by the tail sampling",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        errorSampledCounter = createSampledCounter(metricsCreator, POLICY_ERROR);
+        latencySampledCounter = createSampledCounter(metricsCreator, POLICY_LATENCY);
+        endpointSampledCounter = createSampledCounter(metricsCreator, POLICY_ENDPOINT);
+        rateSampledCounter = createSampledCounter(metricsCreator, POLICY_RATE);
+        decidedSampledCounter = createSampledCounter(metricsCreator, POLICY_DECIDED);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("TraceTailSampler-%d").build());
+        scheduler.scheduleAtFixedRate(
+            new RunnableWithExceptionProtection(
+                () -> flush(System.currentTimeMillis()),
+                t -> log.error("Trace tail sampling failure.", t)
+            ), 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the timer, and make the decisions for all the buffered traces.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(Long.MAX_VALUE);
+    }
+
+    private CounterMetrics createSampledCounter(MetricsCreator metricsCreator, String policy) {
+        return metricsCreator.createCounter(
+            "trace_tail_sampling_sampled_count", "The number of segments sampled by the tail sampling",
+            new MetricsTag.Keys("policy"), new MetricsTag.Values(policy)
+        );
+    }
+
+    /**
+     * Buffer the segment, or persist or drop it directly if the decision of the trace has been made.
+     */
+    public void receive(Segment source) {
+        final SegmentRecord record = SegmentDispatcher.toRecord(source);
+        final String traceId = record.getTraceId();
+
+        final Boolean decision = decisions.getIfPresent(traceId);
+        if (decision != null) {
+            apply(record, decision, decidedSampledCounter);
+            return;
+        }
+
+        final long size = estimateSize(record);
+        final Boolean[] lateDecision = new Boolean[1];
+        final BufferedTrace trace = traces.computeIfAbsent(traceId, id -> {
+            // The decision may be made after the check above, and the decided trace has been removed already.
+            lateDecision[0] = decisions.getIfPresent(id);
+            if (lateDecision[0] != null) {
+                return null;
+            }
+            BufferedTrace newTrace = new BufferedTrace(id, System.currentTimeMillis());
+            arrivalQueue.offer(newTrace);
+            return newTrace;
+        });
+        if (trace == null) {
+            apply(record, lateDecision[0], decidedSampledCounter);
+            return;
+        }
+        synchronized (trace) {
+            if (!trace.decided) {
+                trace.segments.add(record);
+                trace.size += size;
+                bufferSize.addAndGet(size);
+                bufferedSegments.inc();
+            } else {
+                // The decision has been made by others, after the trace is found.
+                apply(record, trace.sampled, decidedSampledCounter);
+                return;
+            }
+        }
+
+        // Make the decisions for the oldest traces earlier, when the buffer is full.
+        BufferedTrace oldest;
+        while (bufferSize.get() > maxBufferSize && (oldest = arrivalQueue.poll()) != null) {
+            decide(oldest);
+        }
+    }
+
+    /**
+     * Make the decisions for the traces out of the window.
+     */
+    void flush(long now) {
+        BufferedTrace trace;
+        while ((trace = arrivalQueue.peek()) != null && trace.firstReceivedTime + window <= now) {
+            trace = arrivalQueue.poll();
+            if (trace != null) {
+                decide(trace);
+            }
+        }
+    }
+
+    private void decide(BufferedTrace trace) {
+        final List<SegmentRecord> segments;
+        final CounterMetrics sampledCounter;
+        synchronized (trace) {
+            sampledCounter = matchPolicy(trace);
+            trace.sampled = sampledCounter != null;
+            trace.decided = true;
+            segments = trace.segments;
+            trace.segments = null;
+        }
+        // Cache the decision before removing the trace. The following segments find the decided trace, or the decision
+        // when they create the new trace, see #receive.
+        decisions.put(trace.traceId, trace.sampled);
+        traces.remove(trace.traceId, trace);
+        bufferSize.addAndGet(-trace.size);
+        bufferedSegments.dec(segments.size());
+
+        for (int i = 0; i < segments.size(); i++) {
+            apply(segments.get(i), trace.sampled, sampledCounter);
+        }
+    }
+
+    /**
+     * @return the counter of the matched policy, or null if the trace should be dropped.
+     */
+    private CounterMetrics matchPolicy(BufferedTrace trace) {
+        long startTime = Long.MAX_VALUE;
+        long endTime = Long.MIN_VALUE;
+        boolean endpointMatched = false;
+        for (int i = 0; i < trace.segments.size(); i++) {
+            final SegmentRecord segment = trace.segments.get(i);
+            if (keepErrorTrace && BooleanUtils.valueToBoolean(segment.getIsError())) {
+                return errorSampledCounter;
+            }
+            startTime = Math.min(startTime, segment.getStartTime());
+            endTime = Math.max(endTime, segment.getEndTime());
+            if (!endpointMatched && segment.getEndpointName() != null) {
+                endpointMatched = endpoints.contains(segment.getEndpointName());
+            }
+        }
+        if (latencyThreshold > 0 && endTime - startTime >= latencyThreshold) {
+            return latencySampledCounter;
+        }
+        if (endpointMatched) {
+            return endpointSampledCounter;
+        }
+        if (TraceSegmentSampler.traceIdBucket(trace.traceId) < sampleRate) {
+            return rateSampledCounter;
+        }
+        return null;
+    }
+
+    private void apply(SegmentRecord segment, boolean sampled, CounterMetrics sampledCounter) {
+        if (sampled) {
+            sampledCounter.inc();
+            persistence.accept(segment);
+        } else {
+            droppedCounter.inc();
+        }
+    }
+
+    private static long estimateSize(SegmentRecord record) {
+        return RECORD_OVERHEAD_SIZE + (record.getDataBinary() == null ? 0 : record.getDataBinary().length);
+    }
+
+    private static class BufferedTrace {
+        private final String traceId;
+        private final long firstReceivedTime;
+        private List<SegmentRecord> segments = new ArrayList<>();
+        private long size;
+        private boolean decided;
+        private boolean sampled;
+
+        private BufferedTrace(String traceId, long firstReceivedTime) {
+            this.traceId = traceId;
+            this.firstReceivedTime = firstReceivedTime;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider;
+
+import org.apache.skywalking.oap.server.configuration.api.ConfigChangeWatcher;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ServiceSampleRatesAndWatcherTest {
+    @Test
+    public void testSampleRates() {
+        ServiceSampleRatesAndWatcher watcher = new ServiceSampleRatesAndWatcher(
+            "service-a:5000, service-b:100,ns:service-c:0,illegal", Mockito.mock(TraceModuleProvider.class));
+
+        Assert.assertEquals(5000, watcher.getSampleRate("service-a", 10000));
+        Assert.assertEquals(100, watcher.getSampleRate("service-b", 10000));
+        Assert.assertEquals(0, watcher.getSampleRate("ns:service-c", 10000));
+        Assert.assertEquals(10000, watcher.getSampleRate("service-d", 10000));
+    }
+
+    @Test
+    public void testDynamicUpdate() {
+        ServiceSampleRatesAndWatcher watcher = new ServiceSampleRatesAndWatcher(
+            "service-a:5000", Mockito.mock(TraceModuleProvider.class));
+
+        watcher.notify(new ConfigChangeWatcher.ConfigChangeEvent(
+            "service-a:100", ConfigChangeWatcher.EventType.MODIFY));
+        Assert.assertEquals(100, watcher.getSampleRate("service-a", 10000));
+        Assert.assertEquals("service-a:100", watcher.value());
+
+        watcher.notify(new ConfigChangeWatcher.ConfigChangeEvent(null, ConfigChangeWatcher.EventType.DELETE));
+        Assert.assertEquals(10000, watcher.getSampleRate("service-a", 10000));
+    }
+}
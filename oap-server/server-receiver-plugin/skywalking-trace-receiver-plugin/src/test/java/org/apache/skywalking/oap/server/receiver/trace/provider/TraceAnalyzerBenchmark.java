@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.language.agent.v3.RefType;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentReference;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanLayer;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.cache.NetworkAddressAliasCache;
+import org.apache.skywalking.oap.server.core.source.Source;
+import org.apache.skywalking.oap.server.core.source.SourceReceiver;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.library.module.Service;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentParserListenerManager;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.TraceAnalyzer;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.MultiScopesAnalysisListener;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.NetworkAddressAliasMappingListener;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.SegmentAnalysisListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the allocation of creating a {@link TraceAnalyzer} and its listeners per segment, with the reused analyzer
+ * of the current thread. Run with the {@link GCProfiler}, and compare the gc.alloc.rate.norm of both.
+ * <p>
+ * The corpus includes the typical segments of a web service, an RPC provider calling a database, and an MQ consumer.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class TraceAnalyzerBenchmark {
+    private static final int CORPUS_SIZE = 64;
+
+    private ModuleManager moduleManager;
+    private SegmentParserListenerManager listenerManager;
+    private TraceServiceModuleConfig config;
+    private List<SegmentObject> corpus;
+    private int received;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TraceModuleProvider provider = new TraceModuleProvider();
+        config = new TraceServiceModuleConfig();
+        config.setDbLatencyThresholdsAndWatcher(new DBLatencyThresholdsAndWatcher("default:200,mysql:100", provider));
+        config.setUninstrumentedGatewaysConfig(new UninstrumentedGatewaysConfig(provider));
+
+        Map<Class<?>, Service> services = new HashMap<>();
+        services.put(SourceReceiver.class, new SourceReceiver() {
+            @Override
+            public void receive(Source source) {
+                received++;
+            }
+        });
+        services.put(NetworkAddressAliasCache.class, new NetworkAddressAliasCache(new CoreModuleConfig()));
+        ModuleServiceHolder serviceHolder = new ModuleServiceHolder() {
+            @Override
+            public void registerServiceImplementation(Class<? extends Service> serviceType, Service service) {
+                services.put(serviceType, service);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Service> T getService(Class<T> serviceType) {
+                return (T) services.get(serviceType);
+            }
+        };
+        moduleManager = new ModuleManager() {
+            @Override
+            public ModuleProviderHolder find(String moduleName) {
+                if (!CoreModule.NAME.equals(moduleName)) {
+                    throw new IllegalArgumentException(moduleName);
+                }
+                return () -> serviceHolder;
+            }
+        };
+
+        listenerManager = new SegmentParserListenerManager();
+        listenerManager.add(new MultiScopesAnalysisListener.Factory());
+        listenerManager.add(new NetworkAddressAliasMappingListener.Factory());
+        listenerManager.add(new SegmentAnalysisListener.Factory(10000));
+
+        corpus = createCorpus();
+    }
+
+    @Benchmark
+    public void newAnalyzerPerSegment(Blackhole blackhole) {
+        for (SegmentObject segment : corpus) {
+            new TraceAnalyzer(moduleManager, listenerManager, config).doAnalysis(segment);
+        }
+        blackhole.consume(received);
+    }
+
+    @Benchmark
+    public void reusedAnalyzer(Blackhole blackhole) {
+        for (SegmentObject segment : corpus) {
+            TraceAnalyzer.current(moduleManager, listenerManager, config).doAnalysis(segment);
+        }
+        blackhole.consume(received);
+    }
+
+    private static List<SegmentObject> createCorpus() {
+        final long startTime = System.currentTimeMillis();
+        List<SegmentObject> corpus = new ArrayList<>(CORPUS_SIZE);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            switch (i % 3) {
+                case 0:
+                    corpus.add(webSegment(i, startTime));
+                    break;
+                case 1:
+                    corpus.add(rpcSegment(i, startTime));
+                    break;
+                default:
+                    corpus.add(mqSegment(i, startTime));
+                    break;
+            }
+        }
+        return corpus;
+    }
+
+    private static SegmentObject webSegment(int i, long startTime) {
+        return SegmentObject.newBuilder()
+                            .setTraceId("trace-" + i)
+                            .setTraceSegmentId("segment-web-" + i)
+                            .setService("web")
+                            .setServiceInstance("web-instance-" + i % 4)
+                            .addSpans(span(0, -1, SpanType.Entry, SpanLayer.Http, "/api/orders/" + i % 8, startTime))
+                            .addSpans(span(1, 0, SpanType.Local, SpanLayer.Unknown, "OrderController.list", startTime))
+                            .addSpans(span(2, 1, SpanType.Exit, SpanLayer.RPCFramework, "OrderService.list", startTime)
+                                          .setPeer("rpc:20880"))
+                            .build();
+    }
+
+    private static SegmentObject rpcSegment(int i, long startTime) {
+        SpanObject.Builder entry = span(0, -1, SpanType.Entry, SpanLayer.RPCFramework, "OrderService.list", startTime)
+            .addRefs(reference(i, "web", "/api/orders/" + i % 8, "rpc:20880"));
+        SpanObject.Builder query = span(1, 0, SpanType.Exit, SpanLayer.Database, "Mysql/JDBI/Statement/execute",
+                                        startTime
+        ).setPeer("mysql:3306")
+         .addTags(KeyStringValuePair.newBuilder().setKey("db.type").setValue("mysql"))
+         .addTags(KeyStringValuePair.newBuilder().setKey("db.statement").setValue("select * from orders where id = ?"));
+        return SegmentObject.newBuilder()
+                            .setTraceId("trace-" + i)
+                            .setTraceSegmentId("segment-rpc-" + i)
+                            .setService("order")
+                            .setServiceInstance("order-instance-" + i % 4)
+                            .addSpans(entry)
+                            .addSpans(query)
+                            .build();
+    }
+
+    private static SegmentObject mqSegment(int i, long startTime) {
+        SpanObject.Builder entry = span(0, -1, SpanType.Entry, SpanLayer.MQ, "Kafka/orders/Consumer", startTime)
+            .setPeer("kafka:9092")
+            .addRefs(reference(i, "order", "OrderService.list", "kafka:9092"));
+        return SegmentObject.newBuilder()
+                            .setTraceId("trace-" + i)
+                            .setTraceSegmentId("segment-mq-" + i)
+                            .setService("notifier")
+                            .setServiceInstance("notifier-instance-" + i % 4)
+                            .addSpans(entry)
+                            .addSpans(span(1, 0, SpanType.Local, SpanLayer.Unknown, "Notifier.send", startTime))
+                            .build();
+    }
+
+    private static SpanObject.Builder span(int spanId, int parentSpanId, SpanType type, SpanLayer layer,
+                                           String operationName, long startTime) {
+        return SpanObject.newBuilder()
+                         .setSpanId(spanId)
+                         .setParentSpanId(parentSpanId)
+                         .setSpanType(type)
+                         .setSpanLayer(layer)
+                         .setOperationName(operationName)
+                         .setStartTime(startTime + spanId * 10)
+                         .setEndTime(startTime + 100 - spanId * 10)
+                         .setComponentId(1);
+    }
+
+    private static SegmentReference.Builder reference(int i, String parentService, String parentEndpoint,
+                                                      String address) {
+        return SegmentReference.newBuilder()
+                               .setRefType(RefType.CrossProcess)
+                               .setTraceId("trace-" + i)
+                               .setParentTraceSegmentId("segment-parent-" + i)
+                               .setParentSpanId(0)
+                               .setParentService(parentService)
+                               .setParentServiceInstance(parentService + "-instance-" + i % 4)
+                               .setParentEndpoint(parentEndpoint)
+                               .setNetworkAddressUsedAtPeer(address);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(TraceAnalyzerBenchmark.class.getName())
+                                          .addProfiler(GCProfiler.class)
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
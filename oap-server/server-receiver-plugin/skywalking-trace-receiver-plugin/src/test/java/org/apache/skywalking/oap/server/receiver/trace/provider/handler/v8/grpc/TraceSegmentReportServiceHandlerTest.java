@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import org.apache.skywalking.apm.network.common.v3.Commands;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentAnalysisPipeline;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class TraceSegmentReportServiceHandlerTest {
+    private ModuleManager moduleManager;
+    private SegmentAnalysisPipeline pipeline;
+    private StreamObserver<Commands> responseObserver;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        pipeline = Mockito.mock(SegmentAnalysisPipeline.class);
+        Mockito.when(pipeline.submit(Matchers.any(SegmentObject.class), Matchers.any(byte[].class)))
+               .thenReturn(false);
+        responseObserver = Mockito.mock(StreamObserver.class);
+    }
+
+    @Test
+    public void testRejectWhenOverloaded() {
+        Mockito.when(pipeline.isRejectWhenOverloaded()).thenReturn(true);
+        StreamObserver<SegmentObject> observer = new TraceSegmentReportServiceHandler(moduleManager, pipeline)
+            .collect(responseObserver);
+
+        observer.onNext(SegmentObject.getDefaultInstance());
+        observer.onNext(SegmentObject.getDefaultInstance());
+        observer.onCompleted();
+
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        Mockito.verify(responseObserver).onError(error.capture());
+        Assert.assertEquals(
+            Status.Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) error.getValue()).getStatus().getCode());
+        // The rejected stream doesn't take more segments, nor complete again.
+        Mockito.verify(pipeline, Mockito.times(1)).submit(Matchers.any(SegmentObject.class), Matchers.any(byte[].class));
+        Mockito.verify(responseObserver, Mockito.never()).onNext(Matchers.any(Commands.class));
+        Mockito.verify(responseObserver, Mockito.never()).onCompleted();
+    }
+
+    @Test
+    public void testDropWhenOverloaded() {
+        Mockito.when(pipeline.isRejectWhenOverloaded()).thenReturn(false);
+        StreamObserver<SegmentObject> observer = new TraceSegmentReportServiceHandler(moduleManager, pipeline)
+            .collect(responseObserver);
+
+        observer.onNext(SegmentObject.getDefaultInstance());
+        observer.onNext(SegmentObject.getDefaultInstance());
+        observer.onCompleted();
+
+        Mockito.verify(pipeline, Mockito.times(2)).submit(Matchers.any(SegmentObject.class), Matchers.any(byte[].class));
+        Mockito.verify(responseObserver, Mockito.never()).onError(Matchers.any(Throwable.class));
+        Mockito.verify(responseObserver).onNext(Matchers.any(Commands.class));
+        Mockito.verify(responseObserver).onCompleted();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.handler.v8.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.library.server.jetty.ServiceUnavailableException;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.SegmentAnalysisPipeline;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class TraceSegmentReportServletHandlerTest {
+    private SegmentAnalysisPipeline pipeline;
+    private TraceSegmentReportServletHandler handler;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        pipeline = Mockito.mock(SegmentAnalysisPipeline.class);
+        Mockito.when(pipeline.submit(Matchers.any(SegmentObject.class))).thenReturn(false);
+        handler = new TraceSegmentReportServletHandler(moduleManager, pipeline);
+    }
+
+    @Test
+    public void testRejectWhenOverloaded() throws IOException {
+        Mockito.when(pipeline.isRejectWhenOverloaded()).thenReturn(true);
+        try {
+            handler.doPost(request());
+            Assert.fail("The overloaded request should be rejected");
+        } catch (ServiceUnavailableException e) {
+            Assert.assertEquals("The segment analysis is overloaded", e.getMessage());
+        }
+        Mockito.verify(pipeline).submit(Matchers.any(SegmentObject.class));
+    }
+
+    @Test
+    public void testDropWhenOverloaded() throws IOException {
+        Mockito.when(pipeline.isRejectWhenOverloaded()).thenReturn(false);
+        Assert.assertNull(handler.doPost(request()));
+        Mockito.verify(pipeline).submit(Matchers.any(SegmentObject.class));
+    }
+
+    private static HttpServletRequest request() throws IOException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getReader()).thenReturn(new BufferedReader(new StringReader("{\"traceId\": \"trace-1\"}")));
+        return request;
+    }
+}
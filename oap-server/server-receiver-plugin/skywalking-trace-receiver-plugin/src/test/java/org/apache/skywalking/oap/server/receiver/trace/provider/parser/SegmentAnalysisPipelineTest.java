@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.parser;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+import org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener.AnalysisListener;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SegmentAnalysisPipelineTest {
+    private ModuleManager moduleManager;
+    private TraceServiceModuleConfig config;
+    private SegmentParserListenerManager listenerManager;
+    private AtomicInteger dropped;
+    private AtomicInteger analyzed;
+    private CountDownLatch analysisStarted;
+    private CountDownLatch analysisReleased;
+
+    @Before
+    public void setUp() {
+        dropped = new AtomicInteger();
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop() {
+            @Override
+            public CounterMetrics createCounter(String name, String tips, MetricsTag.Keys tagKeys,
+                                                MetricsTag.Values tagValues) {
+                if (!"trace_analysis_dropped_count".equals(name)) {
+                    return super.createCounter(name, tips, tagKeys, tagValues);
+                }
+                return new CounterMetrics() {
+                    @Override
+                    public void inc() {
+                        dropped.incrementAndGet();
+                    }
+
+                    @Override
+                    public void inc(double value) {
+                        dropped.addAndGet((int) value);
+                    }
+                };
+            }
+        });
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        analyzed = new AtomicInteger();
+        analysisStarted = new CountDownLatch(1);
+        analysisReleased = new CountDownLatch(1);
+        listenerManager = new SegmentParserListenerManager();
+        listenerManager.add((moduleManager, config) -> new AnalysisListener() {
+            @Override
+            public void build() {
+                analysisStarted.countDown();
+                try {
+                    analysisReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                analyzed.incrementAndGet();
+            }
+
+            @Override
+            public boolean containsPoint(Point point) {
+                return false;
+            }
+        });
+
+        config = new TraceServiceModuleConfig();
+    }
+
+    @Test
+    public void testDroppedBeforeStart() {
+        analysisReleased.countDown();
+        SegmentAnalysisPipeline pipeline = new SegmentAnalysisPipeline(moduleManager, listenerManager, config);
+
+        Assert.assertFalse(pipeline.submit(segment()));
+        Assert.assertEquals(0, analyzed.get());
+    }
+
+    @Test
+    public void testAnalyzedInReceiverThreadWithoutWorkers() {
+        analysisReleased.countDown();
+        SegmentAnalysisPipeline pipeline = new SegmentAnalysisPipeline(moduleManager, listenerManager, config);
+        pipeline.start();
+
+        Assert.assertTrue(pipeline.submit(segment()));
+        Assert.assertEquals(1, analyzed.get());
+        Assert.assertEquals(0, dropped.get());
+    }
+
+    @Test
+    public void testDroppedWhenQueueIsFull() throws InterruptedException {
+        config.setAnalysisWorkers(1);
+        config.setAnalysisQueueSize(1);
+        SegmentAnalysisPipeline pipeline = new SegmentAnalysisPipeline(moduleManager, listenerManager, config);
+        pipeline.start();
+        Assert.assertFalse(pipeline.isRejectWhenOverloaded());
+
+        // The only worker takes the first segment, and blocks in the analysis.
+        Assert.assertTrue(pipeline.submit(segment()));
+        Assert.assertTrue(analysisStarted.await(10, TimeUnit.SECONDS));
+        // The second segment fills the queue, the third one is dropped.
+        Assert.assertTrue(pipeline.submit(segment()));
+        Assert.assertFalse(pipeline.submit(segment()));
+        Assert.assertFalse(pipeline.submit(segment()));
+        Assert.assertEquals(2, dropped.get());
+
+        analysisReleased.countDown();
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (analyzed.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, analyzed.get());
+        Assert.assertTrue(pipeline.submit(segment()));
+    }
+
+    @Test
+    public void testRejectPolicy() {
+        config.setAnalysisWorkers(1);
+        config.setAnalysisOverloadPolicy(SegmentAnalysisPipeline.OVERLOAD_POLICY_REJECT);
+        SegmentAnalysisPipeline pipeline = new SegmentAnalysisPipeline(moduleManager, listenerManager, config);
+        Assert.assertTrue(pipeline.isRejectWhenOverloaded());
+    }
+
+    private static SegmentObject segment() {
+        return SegmentObject.newBuilder()
+                            .setTraceId("trace-1")
+                            .addSpans(SpanObject.newBuilder().setSpanId(0).setSpanType(SpanType.Local))
+                            .build();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener;
+
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.oap.server.configuration.api.ConfigChangeWatcher;
+import org.apache.skywalking.oap.server.receiver.trace.provider.ServiceSampleRatesAndWatcher;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceModuleProvider;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TraceSegmentSamplerTest {
+    @Test
+    public void testTraceIdBucket() {
+        for (int i = 0; i < 1000; i++) {
+            String traceId = "trace-" + i;
+            int bucket = TraceSegmentSampler.traceIdBucket(traceId);
+            Assert.assertTrue(bucket >= 0 && bucket < 10000);
+            Assert.assertEquals(bucket, TraceSegmentSampler.traceIdBucket(new String(traceId.toCharArray())));
+        }
+    }
+
+    @Test
+    public void testTraceIdBucketIsStable() {
+        // The bucket must be the same in all OAP nodes and versions, as the segments of one trace are reported to
+        // different nodes.
+        Assert.assertEquals(7247, TraceSegmentSampler.traceIdBucket("1.2.3"));
+    }
+
+    @Test
+    public void testServiceSampleRates() {
+        TraceServiceModuleConfig config = new TraceServiceModuleConfig();
+        config.setSampleRate(10000);
+        config.setSampleByTraceId(true);
+        ServiceSampleRatesAndWatcher watcher = new ServiceSampleRatesAndWatcher(
+            "service-b:0", Mockito.mock(TraceModuleProvider.class));
+        config.setServiceSampleRatesAndWatcher(watcher);
+        TraceSegmentSampler sampler = new TraceSegmentSampler(config);
+
+        Assert.assertTrue(sampler.shouldSample(segment("service-a")));
+        Assert.assertFalse(sampler.shouldSample(segment("service-b")));
+
+        // The dynamic configuration changes the rates of the created sampler.
+        watcher.notify(new ConfigChangeWatcher.ConfigChangeEvent("service-a:0", ConfigChangeWatcher.EventType.MODIFY));
+        Assert.assertFalse(sampler.shouldSample(segment("service-a")));
+        Assert.assertTrue(sampler.shouldSample(segment("service-b")));
+    }
+
+    private static SegmentObject segment(String service) {
+        return SegmentObject.newBuilder()
+                            .setService(service)
+                            .setTraceId("trace-1")
+                            .setTraceSegmentId("segment-1")
+                            .build();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.trace.provider.parser.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
+import org.apache.skywalking.oap.server.core.source.Segment;
+import org.apache.skywalking.oap.server.core.source.SourceReceiver;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.receiver.trace.provider.TraceServiceModuleConfig;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TraceTailSamplerTest {
+    private static final long WINDOW = 10_000;
+
+    private ModuleDefineHolder moduleDefineHolder;
+    private TraceServiceModuleConfig config;
+    private List<SegmentRecord> persisted;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        config = new TraceServiceModuleConfig();
+        config.setTailSamplingWindow((int) (WINDOW / 1000));
+        config.setTailSamplingLatencyThreshold(1000);
+        config.setTailSamplingEndpoints("/checkout, /pay");
+        config.setTailSamplingRate(0);
+        persisted = new ArrayList<>();
+    }
+
+    @Test
+    public void testBufferedInWindow() {
+        TraceTailSampler sampler = createSampler();
+        sampler.receive(segment("trace-1", "segment-1", "/checkout", 0, 10, false));
+
+        sampler.flush(System.currentTimeMillis());
+        Assert.assertTrue(persisted.isEmpty());
+
+        sampler.flush(System.currentTimeMillis() + WINDOW);
+        Assert.assertEquals(1, persisted.size());
+    }
+
+    @Test
+    public void testWholeTraceSampled() {
+        TraceTailSampler sampler = createSampler();
+        sampler.receive(segment("trace-1", "segment-1", "/users", 0, 10, false));
+        sampler.receive(segment("trace-1", "segment-2", "/users", 5, 8, true));
+        sampler.receive(segment("trace-2", "segment-3", "/users", 0, 10, false));
+        sampler.receive(segment("trace-2", "segment-4", "/users", 5, 8, false));
+        sampler.flush(System.currentTimeMillis() + WINDOW);
+
+        Assert.assertEquals(2, persisted.size());
+        Assert.assertEquals("segment-1", persisted.get(0).getSegmentId());
+        Assert.assertEquals("segment-2", persisted.get(1).getSegmentId());
+    }
+
+    @Test
+    public void testPolicies() {
+        config.setTailSamplingKeepErrorTrace(false);
+        TraceTailSampler sampler = createSampler();
+        sampler.receive(segment("error", "segment-1", "/users", 0, 10, true));
+        sampler.receive(segment("slow", "segment-2", "/users", 0, 600, false));
+        sampler.receive(segment("slow", "segment-3", "/users", 500, 1000, false));
+        sampler.receive(segment("endpoint", "segment-4", "/pay", 0, 10, false));
+        sampler.flush(System.currentTimeMillis() + WINDOW);
+
+        Assert.assertEquals(3, persisted.size());
+        Assert.assertEquals("segment-2", persisted.get(0).getSegmentId());
+        Assert.assertEquals("segment-3", persisted.get(1).getSegmentId());
+        Assert.assertEquals("segment-4", persisted.get(2).getSegmentId());
+    }
+
+    @Test
+    public void testRate() {
+        config.setTailSamplingRate(10000);
+        TraceTailSampler sampler = createSampler();
+        sampler.receive(segment("trace-1", "segment-1", "/users", 0, 10, false));
+        sampler.flush(System.currentTimeMillis() + WINDOW);
+
+        Assert.assertEquals(1, persisted.size());
+    }
+
+    @Test
+    public void testLateSegmentFollowsDecision() {
+        TraceTailSampler sampler = createSampler();
+        sampler.receive(segment("trace-1", "segment-1", "/users", 0, 10, true));
+        sampler.receive(segment("trace-2", "segment-2", "/users", 0, 10, false));
+        sampler.flush(System.currentTimeMillis() + WINDOW);
+        Assert.assertEquals(1, persisted.size());
+
+        sampler.receive(segment("trace-1", "segment-3", "/users", 20, 30, false));
+        sampler.receive(segment("trace-2", "segment-4", "/users", 20, 30, false));
+        Assert.assertEquals(2, persisted.size());
+        Assert.assertEquals("segment-3", persisted.get(1).getSegmentId());
+    }
+
+    @Test
+    public void testConcurrentLateSegmentsFollowDecision() throws InterruptedException {
+        List<SegmentRecord> sampled = Collections.synchronizedList(new ArrayList<>());
+        TraceTailSampler sampler = new TraceTailSampler(moduleDefineHolder, config, sampled::add);
+        sampler.start();
+        final int total = 10_000;
+        sampler.receive(segment("trace-1", "segment-0", "/users", 0, 10, true));
+
+        AtomicBoolean receiving = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (receiving.get()) {
+                sampler.flush(Long.MAX_VALUE);
+            }
+        });
+        flusher.start();
+        for (int i = 1; i < total; i++) {
+            sampler.receive(segment("trace-1", "segment-" + i, "/users", 0, 10, false));
+        }
+        receiving.set(false);
+        flusher.join();
+        sampler.flush(Long.MAX_VALUE);
+
+        // No segment is decided without the error one.
+        Assert.assertEquals(total, sampled.size());
+    }
+
+    @Test
+    public void testBufferFull() {
+        config.setTailSamplingMaxBufferSizeInMB(1);
+        TraceTailSampler sampler = createSampler();
+        byte[] data = new byte[600 * 1024];
+        Segment first = segment("trace-1", "segment-1", "/users", 0, 10, true);
+        first.setDataBinary(data);
+        sampler.receive(first);
+        Assert.assertTrue(persisted.isEmpty());
+
+        Segment second = segment("trace-2", "segment-2", "/users", 0, 10, true);
+        second.setDataBinary(data);
+        sampler.receive(second);
+        Assert.assertEquals(1, persisted.size());
+        Assert.assertEquals("segment-1", persisted.get(0).getSegmentId());
+    }
+
+    @Test
+    public void testHeadSamplingSkipped() {
+        // The head sampling would ignore all the segments.
+        config.setSampleRate(0);
+        config.setSampleByTraceId(true);
+        ModuleManager moduleManager = moduleManager();
+        TraceTailSampler sampler = new TraceTailSampler(moduleManager, config, persisted::add);
+        sampler.start();
+        AnalysisListener listener = new SegmentAnalysisListener.Factory(new TraceSegmentSampler(config), sampler)
+            .create(moduleManager, config);
+
+        analyze(listener, segmentObject("trace-1", "segment-1", false));
+        analyze(listener, segmentObject("trace-1", "segment-2", true));
+        analyze(listener, segmentObject("trace-2", "segment-3", false));
+        Assert.assertTrue(persisted.isEmpty());
+
+        // The buffered traces are decided at stopping.
+        sampler.stop();
+        Assert.assertEquals(2, persisted.size());
+        Assert.assertEquals("segment-1", persisted.get(0).getSegmentId());
+        Assert.assertEquals("segment-2", persisted.get(1).getSegmentId());
+    }
+
+    @Test
+    public void testHeadSamplingWithoutTailSampler() {
+        config.setSampleRate(0);
+        config.setSampleByTraceId(true);
+        ModuleManager moduleManager = moduleManager();
+        AnalysisListener listener = new SegmentAnalysisListener.Factory(new TraceSegmentSampler(config), null)
+            .create(moduleManager, config);
+
+        analyze(listener, segmentObject("trace-1", "segment-1", true));
+        Mockito.verify(moduleManager.find(CoreModule.NAME).provider().getService(SourceReceiver.class), Mockito.never())
+               .receive(Mockito.any(Segment.class));
+    }
+
+    private ModuleManager moduleManager() {
+        ModuleServiceHolder coreServices = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(coreServices.getService(SourceReceiver.class)).thenReturn(Mockito.mock(SourceReceiver.class));
+        ModuleProviderHolder coreProvider = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(coreProvider.provider()).thenReturn(coreServices);
+
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        ModuleProviderHolder telemetryProvider = moduleDefineHolder.find(TelemetryModule.NAME);
+        Mockito.when(moduleManager.find(TelemetryModule.NAME)).thenReturn(telemetryProvider);
+        Mockito.when(moduleManager.find(CoreModule.NAME)).thenReturn(coreProvider);
+        return moduleManager;
+    }
+
+    /**
+     * Notify the listener in the same order as {@link org.apache.skywalking.oap.server.receiver.trace.provider.parser.TraceAnalyzer}.
+     */
+    private static void analyze(AnalysisListener listener, SegmentObject segmentObject) {
+        SegmentAnalysisListener segmentListener = (SegmentAnalysisListener) listener;
+        segmentListener.parseSegment(segmentObject);
+        segmentListener.parseFirst(segmentObject.getSpans(0), segmentObject);
+        segmentListener.build();
+        segmentListener.reset();
+    }
+
+    private static SegmentObject segmentObject(String traceId, String segmentId, boolean isError) {
+        return SegmentObject.newBuilder()
+                            .setTraceId(traceId)
+                            .setTraceSegmentId(segmentId)
+                            .setService("service")
+                            .addSpans(SpanObject.newBuilder()
+                                                .setSpanId(0)
+                                                .setSpanType(SpanType.Entry)
+                                                .setOperationName("/users")
+                                                .setStartTime(0)
+                                                .setEndTime(10)
+                                                .setIsError(isError))
+                            .build();
+    }
+
+    private TraceTailSampler createSampler() {
+        TraceTailSampler sampler = new TraceTailSampler(moduleDefineHolder, config, persisted::add);
+        sampler.start();
+        return sampler;
+    }
+
+    private static Segment segment(String traceId,
+                                   String segmentId,
+                                   String endpointName,
+                                   long startTime,
+                                   long endTime,
+                                   boolean isError) {
+        Segment segment = new Segment();
+        segment.setTraceId(traceId);
+        segment.setSegmentId(segmentId);
+        segment.setEndpointName(endpointName);
+        segment.setStartTime(startTime);
+        segment.setEndTime(endTime);
+        segment.setIsError(isError ? 1 : 0);
+        return segment;
+    }
+}
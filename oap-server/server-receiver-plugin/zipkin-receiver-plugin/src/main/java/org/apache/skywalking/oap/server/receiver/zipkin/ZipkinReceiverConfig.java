@@ -30,6 +30,10 @@ public class ZipkinReceiverConfig extends ModuleConfig {
     private String contextPath;
     private int expireTime = 20;
     private int maxCacheSize = 1_000_000;
+    /**
+     * The number of the shards of the span cache, the traces are distributed into the shards by the trace id.
+     */
+    private int cacheShards = 16;
     private boolean needAnalysis = false;
     private boolean registerZipkinEndpoint = true;
 }
@@ -19,7 +19,7 @@
 package org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache;
 
 import org.apache.skywalking.oap.server.receiver.zipkin.ZipkinReceiverConfig;
-import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.caffeine.CaffeineSpanCache;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.sharded.ShardedSpanCache;
 
 public class CacheFactory {
     public static final CacheFactory INSTANCE = new CacheFactory();
@@ -33,7 +33,7 @@ public class CacheFactory {
         if (implementor == null) {
             synchronized (INSTANCE) {
                 if (implementor == null) {
-                    implementor = new CaffeineSpanCache(config);
+                    implementor = new ShardedSpanCache(config);
                 }
             }
         }
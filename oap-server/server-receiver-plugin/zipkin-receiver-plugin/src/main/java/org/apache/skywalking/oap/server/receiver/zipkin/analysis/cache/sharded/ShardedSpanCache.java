@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.sharded;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.oap.server.receiver.zipkin.ZipkinReceiverConfig;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.ISpanCache;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.data.ZipkinTrace;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.transform.Zipkin2SkyWalkingTransfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import zipkin2.Span;
+
+/**
+ * Span cache assembles the spans into the traces, and transfers the trace after it expires.
+ * <p>
+ * The traces are distributed into the shards by the trace id, every shard is a concurrent map with an expiry queue,
+ * so the writers of different traces don't block each other. All traces share the same expire time, so the expiry
+ * queue is always in the order of deadline, and the ticker only checks the heads of the queues, rather than walking
+ * through the whole cache.
+ */
+public class ShardedSpanCache implements ISpanCache {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSpanCache.class);
+
+    private final Shard[] shards;
+    private final long expireTimeInMillis;
+    private final int maxShardSize;
+    private final Consumer<ZipkinTrace> expiredTraceHandler;
+
+    public ShardedSpanCache(ZipkinReceiverConfig config) {
+        this(config, ShardedSpanCache::transfer);
+        Executors.newSingleThreadScheduledExecutor()
+                 .scheduleAtFixedRate(
+                     new RunnableWithExceptionProtection(
+                         () -> expire(System.currentTimeMillis()),
+                         t -> logger.error("Zipkin span cache expiring failure.", t)
+                     ), 1, 1, TimeUnit.SECONDS);
+    }
+
+    ShardedSpanCache(ZipkinReceiverConfig config, Consumer<ZipkinTrace> expiredTraceHandler) {
+        final int shardNum = Math.max(1, config.getCacheShards());
+        this.shards = new Shard[shardNum];
+        for (int i = 0; i < shardNum; i++) {
+            shards[i] = new Shard();
+        }
+        this.expireTimeInMillis = TimeUnit.SECONDS.toMillis(config.getExpireTime());
+        this.maxShardSize = Math.max(1, config.getMaxCacheSize() / shardNum);
+        this.expiredTraceHandler = expiredTraceHandler;
+    }
+
+    @Override
+    public void addSpan(Span span) {
+        addSpan(span, System.currentTimeMillis());
+    }
+
+    void addSpan(Span span, long now) {
+        shards[Math.floorMod(span.traceId().hashCode(), shards.length)].add(span, now);
+    }
+
+    /**
+     * Transfer the traces which are expired at the given time.
+     */
+    void expire(long now) {
+        for (Shard shard : shards) {
+            shard.expire(now);
+        }
+    }
+
+    /**
+     * Zipkin trace finished by the expired rule.
+     */
+    private static void transfer(ZipkinTrace trace) {
+        try {
+            Zipkin2SkyWalkingTransfer.INSTANCE.transfer(trace);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            logger.warn("Zipkin trace:" + trace);
+        }
+    }
+
+    private class Shard {
+        private final Map<String, Entry> traces = new ConcurrentHashMap<>();
+        private final Queue<Entry> expiryQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private void add(Span span, long now) {
+            final String traceId = span.traceId();
+            while (true) {
+                Entry entry = traces.computeIfAbsent(traceId, id -> {
+                    Entry newEntry = new Entry(id, now + expireTimeInMillis);
+                    expiryQueue.offer(newEntry);
+                    size.incrementAndGet();
+                    return newEntry;
+                });
+                if (entry.trace.addSpan(span)) {
+                    break;
+                }
+                // The trace has been expired, the span starts a new one.
+                traces.remove(traceId, entry);
+            }
+
+            // Finish the oldest traces in advance, when the shard is full.
+            while (size.get() > maxShardSize) {
+                Entry oldest = expiryQueue.poll();
+                if (oldest == null) {
+                    break;
+                }
+                finish(oldest);
+            }
+        }
+
+        private void expire(long now) {
+            Entry head;
+            while ((head = expiryQueue.peek()) != null && head.deadline <= now) {
+                if (expiryQueue.remove(head)) {
+                    finish(head);
+                }
+            }
+        }
+
+        private void finish(Entry entry) {
+            entry.trace.close();
+            traces.remove(entry.traceId, entry);
+            size.decrementAndGet();
+            expiredTraceHandler.accept(entry.trace);
+        }
+    }
+
+    private static class Entry {
+        private final String traceId;
+        private final long deadline;
+        private final ZipkinTrace trace;
+
+        private Entry(String traceId, long deadline) {
+            this.traceId = traceId;
+            this.deadline = deadline;
+            this.trace = new ZipkinTrace();
+        }
+    }
+}
@@ -26,16 +26,36 @@ import zipkin2.Span;
 public class ZipkinTrace {
     private List<Span> spans;
     private ReentrantLock spanWriteLock;
+    private boolean closed;
 
     public ZipkinTrace() {
         spans = new LinkedList<>();
         spanWriteLock = new ReentrantLock();
     }
 
-    public void addSpan(Span span) {
+    /**
+     * @return false if the trace has been closed, the span should be added into a new trace.
+     */
+    public boolean addSpan(Span span) {
         spanWriteLock.lock();
         try {
+            if (closed) {
+                return false;
+            }
             spans.add(span);
+            return true;
+        } finally {
+            spanWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting spans, called when the trace is expired and about to be transferred.
+     */
+    public void close() {
+        spanWriteLock.lock();
+        try {
+            closed = true;
         } finally {
             spanWriteLock.unlock();
         }
@@ -49,8 +69,4 @@ public class ZipkinTrace {
     public String toString() {
         return "ZipkinTrace{" + "spans=" + spans + '}';
     }
-
-    public static class TriggerTrace extends ZipkinTrace {
-
-    }
 }
@@ -21,12 +21,13 @@ package org.apache.skywalking.oap.server.receiver.zipkin.handler;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.skywalking.oap.server.core.source.SourceReceiver;
 import org.apache.skywalking.oap.server.receiver.zipkin.ZipkinReceiverConfig;
-import org.apache.skywalking.oap.server.receiver.zipkin.analysis.ZipkinSkyWalkingTransfer;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.CacheFactory;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.ISpanCache;
 import org.apache.skywalking.oap.server.receiver.zipkin.trace.SpanForward;
 import zipkin2.Span;
 import zipkin2.codec.SpanBytesDecoder;
@@ -39,7 +40,21 @@ public class SpanProcessor {
     }
 
     void convert(ZipkinReceiverConfig config, SpanBytesDecoder decoder, HttpServletRequest request) throws IOException {
+        Consumer<Span> consumer;
+        if (config.isNeedAnalysis()) {
+            ISpanCache spanCache = CacheFactory.INSTANCE.get(config);
+            consumer = spanCache::addSpan;
+        } else {
+            SpanForward forward = new SpanForward(config, receiver);
+            consumer = forward::send;
+        }
+
         InputStream inputStream = getInputStream(request);
+        if (SpanStreamDecoder.isSupported(decoder)) {
+            new SpanStreamDecoder(decoder, consumer).decode(inputStream);
+            return;
+        }
+
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         byte[] buffer = new byte[2048];
         int readCntOnce;
@@ -48,15 +63,7 @@ public class SpanProcessor {
             out.write(buffer, 0, readCntOnce);
         }
 
-        List<Span> spanList = decoder.decodeList(out.toByteArray());
-
-        if (config.isNeedAnalysis()) {
-            ZipkinSkyWalkingTransfer transfer = new ZipkinSkyWalkingTransfer();
-            transfer.doTransfer(config, spanList);
-        } else {
-            SpanForward forward = new SpanForward(config, receiver);
-            forward.send(spanList);
-        }
+        decoder.decodeList(out.toByteArray()).forEach(consumer);
     }
 
     private InputStream getInputStream(HttpServletRequest request) throws IOException {
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.zipkin.handler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesDecoder;
+
+/**
+ * Decode the spans one by one while reading the request body, rather than reading the whole body into the memory and
+ * decoding the span list at once.
+ * <p>
+ * The JSON array is split into the span objects by tracking the nesting of the braces. The proto3 ListOfSpans is split
+ * by the length prefix of every span field. The thrift list isn't supported, use {@link #isSupported(SpanBytesDecoder)}
+ * to check before decoding.
+ */
+class SpanStreamDecoder {
+    private static final int PROTO3_SPAN_FIELD_KEY = (1 << 3) | 2;
+
+    private final SpanBytesDecoder decoder;
+    private final Consumer<Span> consumer;
+    private final ByteArrayOutputStream element = new ByteArrayOutputStream(1024);
+    private final List<Span> decoded = new ArrayList<>(1);
+
+    SpanStreamDecoder(SpanBytesDecoder decoder, Consumer<Span> consumer) {
+        this.decoder = decoder;
+        this.consumer = consumer;
+    }
+
+    static boolean isSupported(SpanBytesDecoder decoder) {
+        return decoder == SpanBytesDecoder.JSON_V1 || decoder == SpanBytesDecoder.JSON_V2
+            || decoder == SpanBytesDecoder.PROTO3;
+    }
+
+    void decode(InputStream inputStream) throws IOException {
+        InputStream in = new BufferedInputStream(inputStream);
+        if (decoder == SpanBytesDecoder.PROTO3) {
+            decodeProto3(in);
+        } else if (decoder == SpanBytesDecoder.JSON_V1 || decoder == SpanBytesDecoder.JSON_V2) {
+            decodeJson(in);
+        } else {
+            throw new IllegalArgumentException("Streaming decode isn't supported by " + decoder.name());
+        }
+    }
+
+    private void decodeJson(InputStream in) throws IOException {
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (depth == 0) {
+                // Out of the span objects, only the array brackets, commas and whitespaces are here.
+                if (b == '{') {
+                    depth = 1;
+                    element.write(b);
+                }
+                continue;
+            }
+            element.write(b);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{') {
+                depth++;
+            } else if (b == '}') {
+                depth--;
+                if (depth == 0) {
+                    emit();
+                }
+            }
+        }
+        if (depth != 0) {
+            throw new EOFException("Incomplete span in the JSON body");
+        }
+    }
+
+    private void decodeProto3(InputStream in) throws IOException {
+        int key;
+        while ((key = readVarint(in, null)) != -1) {
+            if (key == PROTO3_SPAN_FIELD_KEY) {
+                // Keep the key and length, the decoder reads the span as a ListOfSpans with only one element.
+                writeVarint(key);
+                int length = readVarint(in, element);
+                readFully(in, length, element);
+                emit();
+            } else {
+                skipField(in, key);
+            }
+        }
+    }
+
+    private void emit() {
+        byte[] bytes = element.toByteArray();
+        element.reset();
+        decoder.decode(bytes, decoded);
+        for (Span span : decoded) {
+            consumer.accept(span);
+        }
+        decoded.clear();
+    }
+
+    private void skipField(InputStream in, int key) throws IOException {
+        switch (key & 0x07) {
+            case 0:
+                readVarint(in, null);
+                break;
+            case 1:
+                readFully(in, 8, null);
+                break;
+            case 2:
+                readFully(in, readVarint(in, null), null);
+                break;
+            case 5:
+                readFully(in, 4, null);
+                break;
+            default:
+                throw new IOException("Malformed proto3 span list, wire type " + (key & 0x07));
+        }
+    }
+
+    /**
+     * @param copy to keep the raw bytes of the varint, nullable.
+     * @return -1 if the stream ends before the varint starts.
+     */
+    private static int readVarint(InputStream in, ByteArrayOutputStream copy) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Incomplete varint in the proto3 body");
+            }
+            if (copy != null) {
+                copy.write(b);
+            }
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in the proto3 body");
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            element.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        element.write(value);
+    }
+
+    private static void readFully(InputStream in, int length, ByteArrayOutputStream copy) throws IOException {
+        if (length < 0) {
+            throw new IOException("Malformed length in the proto3 body");
+        }
+        byte[] buffer = new byte[Math.min(length, 2048)];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, Math.min(remaining, buffer.length));
+            if (read == -1) {
+                throw new EOFException("Incomplete span in the proto3 body");
+            }
+            if (copy != null) {
+                copy.write(buffer, 0, read);
+            }
+            remaining -= read;
+        }
+    }
+}
@@ -41,44 +41,46 @@ public class SpanForward {
     }
 
     public void send(List<Span> spanList) {
-        spanList.forEach(span -> {
-            ZipkinSpan zipkinSpan = new ZipkinSpan();
-            zipkinSpan.setTraceId(span.traceId());
-            zipkinSpan.setSpanId(span.id());
-            String serviceName = span.localServiceName();
-            if (StringUtil.isEmpty(serviceName)) {
-                serviceName = "Unknown";
-            }
-            zipkinSpan.setServiceId(IDManager.ServiceID.buildId(serviceName, NodeType.Normal));
+        spanList.forEach(this::send);
+    }
+
+    public void send(Span span) {
+        ZipkinSpan zipkinSpan = new ZipkinSpan();
+        zipkinSpan.setTraceId(span.traceId());
+        zipkinSpan.setSpanId(span.id());
+        String serviceName = span.localServiceName();
+        if (StringUtil.isEmpty(serviceName)) {
+            serviceName = "Unknown";
+        }
+        zipkinSpan.setServiceId(IDManager.ServiceID.buildId(serviceName, NodeType.Normal));
 
-            String spanName = span.name();
-            Span.Kind kind = span.kind();
-            switch (kind) {
-                case SERVER:
-                case CONSUMER:
-                    if (!StringUtil.isEmpty(spanName)) {
-                        zipkinSpan.setEndpointId(IDManager.EndpointID.buildId(zipkinSpan.getServiceId(), span.name()));
-                    }
-            }
-            if (!StringUtil.isEmpty(spanName)) {
-                zipkinSpan.setEndpointName(spanName);
-            }
-            long startTime = span.timestampAsLong() / 1000;
-            zipkinSpan.setStartTime(startTime);
-            if (startTime != 0) {
-                long timeBucket = TimeBucket.getRecordTimeBucket(zipkinSpan.getStartTime());
-                zipkinSpan.setTimeBucket(timeBucket);
-            }
+        String spanName = span.name();
+        Span.Kind kind = span.kind();
+        switch (kind) {
+            case SERVER:
+            case CONSUMER:
+                if (!StringUtil.isEmpty(spanName)) {
+                    zipkinSpan.setEndpointId(IDManager.EndpointID.buildId(zipkinSpan.getServiceId(), span.name()));
+                }
+        }
+        if (!StringUtil.isEmpty(spanName)) {
+            zipkinSpan.setEndpointName(spanName);
+        }
+        long startTime = span.timestampAsLong() / 1000;
+        zipkinSpan.setStartTime(startTime);
+        if (startTime != 0) {
+            long timeBucket = TimeBucket.getRecordTimeBucket(zipkinSpan.getStartTime());
+            zipkinSpan.setTimeBucket(timeBucket);
+        }
 
-            long latency = span.durationAsLong() / 1000;
+        long latency = span.durationAsLong() / 1000;
 
-            zipkinSpan.setEndTime(startTime + latency);
-            zipkinSpan.setIsError(BooleanUtils.booleanToValue(false));
-            zipkinSpan.setEncode(SpanEncode.PROTO3);
-            zipkinSpan.setLatency((int) latency);
-            zipkinSpan.setDataBinary(SpanBytesEncoder.PROTO3.encode(span));
+        zipkinSpan.setEndTime(startTime + latency);
+        zipkinSpan.setIsError(BooleanUtils.booleanToValue(false));
+        zipkinSpan.setEncode(SpanEncode.PROTO3);
+        zipkinSpan.setLatency((int) latency);
+        zipkinSpan.setDataBinary(SpanBytesEncoder.PROTO3.encode(span));
 
-            receiver.receive(zipkinSpan);
-        });
+        receiver.receive(zipkinSpan);
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.zipkin.analysis.cache.sharded;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.receiver.zipkin.ZipkinReceiverConfig;
+import org.apache.skywalking.oap.server.receiver.zipkin.analysis.data.ZipkinTrace;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import zipkin2.Span;
+
+public class ShardedSpanCacheTest {
+    private ZipkinReceiverConfig config;
+    private List<ZipkinTrace> finished;
+
+    @Before
+    public void setUp() {
+        config = new ZipkinReceiverConfig();
+        config.setExpireTime(20);
+        config.setCacheShards(4);
+        finished = new ArrayList<>();
+    }
+
+    @Test
+    public void testExpire() {
+        ShardedSpanCache cache = new ShardedSpanCache(config, finished::add);
+        cache.addSpan(span("a", "1"), 0);
+        cache.addSpan(span("b", "1"), 5_000);
+        cache.addSpan(span("a", "2"), 10_000);
+
+        cache.expire(19_999);
+        Assert.assertEquals(0, finished.size());
+
+        cache.expire(20_000);
+        Assert.assertEquals(1, finished.size());
+        Assert.assertEquals(2, finished.get(0).getSpans().size());
+
+        cache.expire(25_000);
+        Assert.assertEquals(2, finished.size());
+        Assert.assertEquals(1, finished.get(1).getSpans().size());
+    }
+
+    @Test
+    public void testSpanAfterExpiredStartsNewTrace() {
+        ShardedSpanCache cache = new ShardedSpanCache(config, finished::add);
+        cache.addSpan(span("a", "1"), 0);
+        cache.expire(20_000);
+        cache.addSpan(span("a", "2"), 21_000);
+        cache.expire(41_000);
+
+        Assert.assertEquals(2, finished.size());
+        Assert.assertEquals("1", finished.get(0).getSpans().get(0).id().substring(15));
+        Assert.assertEquals("2", finished.get(1).getSpans().get(0).id().substring(15));
+    }
+
+    @Test
+    public void testMaxCacheSize() {
+        config.setCacheShards(1);
+        config.setMaxCacheSize(2);
+        ShardedSpanCache cache = new ShardedSpanCache(config, finished::add);
+        cache.addSpan(span("a", "1"), 0);
+        cache.addSpan(span("b", "1"), 1);
+        cache.addSpan(span("c", "1"), 2);
+
+        Assert.assertEquals(1, finished.size());
+        Assert.assertEquals("000000000000000a", finished.get(0).getSpans().get(0).traceId());
+    }
+
+    private static Span span(String traceId, String id) {
+        return Span.newBuilder().traceId(traceId).id(id).name("test").build();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.receiver.zipkin.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import zipkin2.Endpoint;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesDecoder;
+import zipkin2.codec.SpanBytesEncoder;
+
+public class SpanStreamDecoderTest {
+    private final List<Span> spans = Arrays.asList(
+        span("1a8a1b5bdd791b8a", "get /{id}", "frontend"),
+        span("d7d5b93dcda767c8", "get \"api\\\"}", "backend")
+    );
+
+    @Test
+    public void testJsonV2() throws IOException {
+        assertDecoded(SpanBytesDecoder.JSON_V2, SpanBytesEncoder.JSON_V2.encodeList(spans));
+    }
+
+    @Test
+    public void testJsonV1() throws IOException {
+        assertDecoded(SpanBytesDecoder.JSON_V1, SpanBytesEncoder.JSON_V1.encodeList(spans));
+    }
+
+    @Test
+    public void testProto3() throws IOException {
+        assertDecoded(SpanBytesDecoder.PROTO3, SpanBytesEncoder.PROTO3.encodeList(spans));
+    }
+
+    @Test
+    public void testThriftIsNotSupported() {
+        Assert.assertFalse(SpanStreamDecoder.isSupported(SpanBytesDecoder.THRIFT));
+    }
+
+    private static void assertDecoded(SpanBytesDecoder decoder, byte[] body) throws IOException {
+        List<Span> decoded = new ArrayList<>();
+        new SpanStreamDecoder(decoder, decoded::add).decode(new ByteArrayInputStream(body));
+        Assert.assertEquals(2, decoded.size());
+        Assert.assertEquals(decoder.decodeList(body), decoded);
+    }
+
+    private static Span span(String id, String name, String serviceName) {
+        return Span.newBuilder()
+                   .traceId("5b0e64354eea4fa71a8a1b5bdd791b8a")
+                   .id(id)
+                   .name(name)
+                   .kind(Span.Kind.SERVER)
+                   .timestamp(1527669813700123L)
+                   .duration(11295L)
+                   .localEndpoint(Endpoint.newBuilder().serviceName(serviceName).build())
+                   .putTag("http.path", "/{id}")
+                   .build();
+    }
+}
@@ -45,6 +45,33 @@ public class StorageModuleElasticsearchConfig extends ModuleConfig {
     private int concurrentRequests = 2;
     @Setter
     private int syncBulkActions = 3;
+    /**
+     * Write the persistence rounds through {@link org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.StreamingBulkWriter},
+     * which splits the round into concurrent bulks, and retries the rejected documents.
+     */
+    @Setter
+    private boolean enableStreamingBulk = false;
+    /**
+     * The max number of actions, and the max size in MB, of one bulk in the streaming mode.
+     */
+    @Setter
+    private int streamingBulkActions = 2000;
+    @Setter
+    private int streamingBulkSizeInMB = 5;
+    /**
+     * The max number of in-flight bulks in the streaming mode.
+     */
+    @Setter
+    private int streamingConcurrentRequests = 4;
+    /**
+     * The retry policy of the rejected documents in the streaming mode. The back-off doubles in every retry.
+     */
+    @Setter
+    private int streamingBulkMaxRetries = 3;
+    @Setter
+    private long streamingBulkRetryBackoff = 1000;
+    @Setter
+    private int streamingBulkRetryQueueSize = 10000;
     /**
      * @since 7.0.0 This could be managed inside {@link #secretsManagementFile}
      */
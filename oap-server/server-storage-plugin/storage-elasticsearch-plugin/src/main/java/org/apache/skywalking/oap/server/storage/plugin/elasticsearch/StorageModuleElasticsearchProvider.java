@@ -57,6 +57,7 @@ import org.apache.skywalking.oap.server.library.util.MultipleFilesChangeMonitor;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.BatchProcessEsDAO;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.HistoryDeleteEsDAO;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.StorageEsDAO;
+import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.StreamingBulkWriter;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.StorageEsInstaller;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.TimeSeriesUtils;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.cache.NetworkAddressAliasEsDAO;
@@ -144,9 +145,16 @@ public class StorageModuleElasticsearchProvider extends ModuleProvider {
             indexNameConverters(config.getNameSpace())
         );
 
-        this.registerServiceImplementation(
-            IBatchDAO.class, new BatchProcessEsDAO(elasticSearchClient, config.getBulkActions(), config
-                .getFlushInterval(), config.getConcurrentRequests()));
+        BatchProcessEsDAO batchProcessEsDAO = new BatchProcessEsDAO(
+            elasticSearchClient, config.getBulkActions(), config.getFlushInterval(), config.getConcurrentRequests());
+        if (config.isEnableStreamingBulk()) {
+            batchProcessEsDAO.setStreamingBulkWriter(new StreamingBulkWriter(
+                elasticSearchClient, getManager(), config.getStreamingBulkActions(), config.getStreamingBulkSizeInMB(),
+                config.getStreamingConcurrentRequests(), config.getStreamingBulkMaxRetries(),
+                config.getStreamingBulkRetryBackoff(), config.getStreamingBulkRetryQueueSize()
+            ));
+        }
+        this.registerServiceImplementation(IBatchDAO.class, batchProcessEsDAO);
         this.registerServiceImplementation(StorageDAO.class, new StorageEsDAO(elasticSearchClient));
         this.registerServiceImplementation(
             IHistoryDeleteDAO.class, new HistoryDeleteEsDAO(elasticSearchClient));
@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
 
 import java.util.List;
+import lombok.Setter;
 import org.apache.skywalking.oap.server.core.storage.IBatchDAO;
 import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchClient;
 import org.apache.skywalking.oap.server.library.client.request.InsertRequest;
@@ -39,6 +40,11 @@ public class BatchProcessEsDAO extends EsDAO implements IBatchDAO {
     private final int bulkActions;
     private final int flushInterval;
     private final int concurrentRequests;
+    /**
+     * Write the persistence rounds through the streaming bulks, if set.
+     */
+    @Setter
+    private StreamingBulkWriter streamingBulkWriter;
 
     public BatchProcessEsDAO(ElasticSearchClient client, int bulkActions, int flushInterval, int concurrentRequests) {
         super(client);
@@ -58,6 +64,10 @@ public class BatchProcessEsDAO extends EsDAO implements IBatchDAO {
 
     @Override
     public void synchronous(List<PrepareRequest> prepareRequests) {
+        if (streamingBulkWriter != null) {
+            streamingBulkWriter.write(prepareRequests);
+            return;
+        }
         if (CollectionUtils.isNotEmpty(prepareRequests)) {
             BulkRequest request = new BulkRequest();
 
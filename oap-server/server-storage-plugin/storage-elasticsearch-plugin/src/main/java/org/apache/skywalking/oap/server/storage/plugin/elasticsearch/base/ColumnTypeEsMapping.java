@@ -20,6 +20,7 @@ package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
 
 import com.google.gson.JsonObject;
 import org.apache.skywalking.oap.server.core.analysis.NodeType;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
 import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
 import org.apache.skywalking.oap.server.core.storage.model.DataTypeMapping;
 
@@ -35,7 +36,7 @@ public class ColumnTypeEsMapping implements DataTypeMapping {
             return "double";
         } else if (String.class.equals(type)) {
             return "keyword";
-        } else if (IntKeyLongValueHashMap.class.equals(type)) {
+        } else if (IntKeyLongValueHashMap.class.equals(type) || IntKeyLongHistogram.class.equals(type)) {
             return "text";
         } else if (byte[].class.equals(type)) {
             return "binary";
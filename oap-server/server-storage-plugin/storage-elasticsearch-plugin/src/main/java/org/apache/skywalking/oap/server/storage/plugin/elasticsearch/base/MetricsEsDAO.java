@@ -20,7 +20,14 @@ package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.storage.IMetricsDAO;
 import org.apache.skywalking.oap.server.core.storage.StorageBuilder;
@@ -28,20 +35,112 @@ import org.apache.skywalking.oap.server.core.storage.model.Model;
 import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchClient;
 import org.apache.skywalking.oap.server.library.client.request.InsertRequest;
 import org.apache.skywalking.oap.server.library.client.request.UpdateRequest;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 public class MetricsEsDAO extends EsDAO implements IMetricsDAO {
 
     protected final StorageBuilder<Metrics> storageBuilder;
+    /**
+     * The columns of the model, all the other fields of the source are excluded from the multi get.
+     */
+    private volatile String[] sourceIncludes;
 
     protected MetricsEsDAO(ElasticSearchClient client, StorageBuilder<Metrics> storageBuilder) {
         super(client);
         this.storageBuilder = storageBuilder;
     }
 
+    /**
+     * Read the metrics back through the multi get of the exact indexes, which are located by the time buckets in the
+     * ids. The ids of different indexes are read concurrently. The ids not starting with a time bucket are read
+     * through {@link #searchByIds(Model, List)}.
+     */
     @Override
     public List<Metrics> multiGet(Model model, List<String> ids) throws IOException {
+        Map<String, List<String>> idsOfIndexes = new HashMap<>();
+        List<String> unlocatedIds = null;
+        for (String id : ids) {
+            String indexName = locateIndex(model, id);
+            if (indexName == null) {
+                if (unlocatedIds == null) {
+                    unlocatedIds = new ArrayList<>();
+                }
+                unlocatedIds.add(id);
+            } else {
+                idsOfIndexes.computeIfAbsent(indexName, name -> new ArrayList<>()).add(id);
+            }
+        }
+
+        List<Metrics> result = new ArrayList<>(ids.size());
+        if (!idsOfIndexes.isEmpty()) {
+            result.addAll(multiGet(model, idsOfIndexes));
+        }
+        if (unlocatedIds != null) {
+            result.addAll(searchByIds(model, unlocatedIds));
+        }
+        return result;
+    }
+
+    private List<Metrics> multiGet(Model model, Map<String, List<String>> idsOfIndexes) throws IOException {
+        final String[] includes = getSourceIncludes(model);
+        final List<Metrics> result = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        final CountDownLatch finished = new CountDownLatch(idsOfIndexes.size());
+
+        idsOfIndexes.forEach((indexName, ids) -> {
+            try {
+                getClient().asynchronousMultiGet(indexName, ids, includes, new ActionListener<MultiGetResponse>() {
+                    @Override
+                    public void onResponse(MultiGetResponse response) {
+                        try {
+                            for (MultiGetItemResponse item : response.getResponses()) {
+                                if (item.isFailed()) {
+                                    if (!isIndexNotFound(item.getFailure().getFailure())) {
+                                        error.compareAndSet(null, item.getFailure().getFailure());
+                                    }
+                                } else if (item.getResponse().isExists()) {
+                                    result.add(storageBuilder.map2Data(item.getResponse().getSourceAsMap()));
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            error.compareAndSet(null, e);
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        error.compareAndSet(null, e);
+                        finished.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+                finished.countDown();
+            }
+        });
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the metrics of " + model.getName(), e);
+        }
+        if (error.get() != null) {
+            throw new IOException("Failed to read the metrics of " + model.getName(), error.get());
+        }
+        return result;
+    }
+
+    /**
+     * Read the metrics through the ids query of the alias, which covers all indexes of the model.
+     */
+    protected List<Metrics> searchByIds(Model model, List<String> ids) throws IOException {
         SearchResponse response = getClient().ids(model.getName(), ids.toArray(new String[0]));
 
         List<Metrics> result = new ArrayList<>((int) response.getHits().totalHits);
@@ -52,6 +151,46 @@ public class MetricsEsDAO extends EsDAO implements IMetricsDAO {
         return result;
     }
 
+    /**
+     * @return the index of the metrics with the given id, or null if the id doesn't start with a time bucket.
+     */
+    static String locateIndex(Model model, String id) {
+        if (DownSampling.None.equals(model.getDownsampling())) {
+            return model.getName();
+        }
+        int split = id.indexOf(Const.ID_CONNECTOR);
+        if (split <= 0) {
+            return null;
+        }
+        long timeBucket = 0;
+        for (int i = 0; i < split; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            timeBucket = timeBucket * 10 + (c - '0');
+        }
+        return TimeSeriesUtils.writeIndexName(model, timeBucket);
+    }
+
+    /**
+     * The index of a new day is created by the first write, so it may not exist when reading.
+     */
+    private static boolean isIndexNotFound(Exception e) {
+        return e.getMessage() != null && e.getMessage().contains("index_not_found_exception");
+    }
+
+    private String[] getSourceIncludes(Model model) {
+        if (sourceIncludes == null) {
+            String[] includes = new String[model.getColumns().size()];
+            for (int i = 0; i < includes.length; i++) {
+                includes[i] = model.getColumns().get(i).getColumnName().getName();
+            }
+            sourceIncludes = includes;
+        }
+        return sourceIncludes;
+    }
+
     @Override
     public InsertRequest prepareBatchInsert(Model model, Metrics metrics) throws IOException {
         XContentBuilder builder = map2builder(storageBuilder.data2Map(metrics));
@@ -63,6 +202,9 @@ public class MetricsEsDAO extends EsDAO implements IMetricsDAO {
     public UpdateRequest prepareBatchUpdate(Model model, Metrics metrics) throws IOException {
         XContentBuilder builder = map2builder(storageBuilder.data2Map(metrics));
         String modelName = TimeSeriesUtils.writeIndexName(model, metrics.getTimeBucket());
-        return getClient().prepareUpdate(modelName, metrics.id(), builder);
+        UpdateRequest request = getClient().prepareUpdate(modelName, metrics.id(), builder);
+        // The whole document is written, so it is used as the upsert, in case the previous insert failed.
+        ((org.elasticsearch.action.update.UpdateRequest) request).docAsUpsert(true);
+        return request;
     }
 }
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchClient;
+import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * StreamingBulkWriter writes the prepare requests of one persistence round through multiple bulks, rather than one
+ * giant bulk.
+ * <p>
+ * The requests are split into bulks by the number of actions and the estimated size, and at most {@link
+ * #concurrentRequests} bulks are in flight at the same time. So one slow shard only delays the bulks including its
+ * documents.
+ * <p>
+ * The failed items of the response are retried rather than logged only, if the failure is temporary, such as the
+ * rejection of a busy node. The failed items are kept in a bounded retry queue, and written with the following rounds,
+ * after an exponential back-off. A retried item is abandoned if the document is written again by the newer round, as
+ * the persistent worker always writes the whole document. If the abandoned item creates the document, the newer update
+ * is turned into an upsert, otherwise it fails with the missing document.
+ */
+public class StreamingBulkWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingBulkWriter.class);
+
+    private final ElasticSearchClient client;
+    private final ModuleDefineHolder moduleManager;
+    private final int bulkActions;
+    private final long bulkSizeInBytes;
+    private final int concurrentRequests;
+    private final Semaphore inFlightBulks;
+    private final int maxRetries;
+    private final long retryBackoff;
+    private final BlockingQueue<RetryItem> retryQueue;
+    private final Map<String, IndexMetrics> indexMetrics = new ConcurrentHashMap<>();
+    /**
+     * The telemetry is created by the first {@link #write(List)}, before any bulk is sent, and read in the IO threads
+     * of the client.
+     */
+    private MetricsCreator metricsCreator;
+    private HistogramMetrics bulkLatency;
+    private GaugeMetrics retryQueueSize;
+
+    public StreamingBulkWriter(ElasticSearchClient client, ModuleDefineHolder moduleManager, int bulkActions,
+                               int bulkSizeInMB, int concurrentRequests, int maxRetries, long retryBackoff,
+                               int retryQueueSize) {
+        this.client = client;
+        this.moduleManager = moduleManager;
+        this.bulkActions = bulkActions;
+        this.bulkSizeInBytes = bulkSizeInMB * 1024L * 1024L;
+        this.concurrentRequests = concurrentRequests;
+        this.inFlightBulks = new Semaphore(concurrentRequests);
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.retryQueue = new LinkedBlockingQueue<>(retryQueueSize);
+    }
+
+    /**
+     * Write the requests, and the due retry items, return when all bulks are responded. If the thread is interrupted,
+     * the bulks not sent yet are retried by the following rounds, and the interrupt status is restored after the bulks
+     * in flight are responded.
+     */
+    public void write(List<PrepareRequest> prepareRequests) {
+        if (metricsCreator == null) {
+            createMetrics();
+        }
+        List<DocWriteRequest> requests = new ArrayList<>(prepareRequests.size() + retryQueue.size());
+        for (PrepareRequest prepareRequest : prepareRequests) {
+            requests.add((DocWriteRequest) prepareRequest);
+        }
+        final int firstRetried = requests.size();
+        List<RetryItem> retried = drainRetryQueue(requests);
+        int[] attempts = new int[requests.size() + retried.size()];
+        for (int i = 0; i < retried.size(); i++) {
+            requests.add(retried.get(i).request);
+            attempts[firstRetried + i] = retried.get(i).attempts;
+        }
+
+        List<Bulk> bulks = split(requests, attempts);
+        CountDownLatch finished = new CountDownLatch(bulks.size());
+        boolean interrupted = false;
+        int sent = 0;
+        for (Bulk bulk : bulks) {
+            if (!interrupted) {
+                try {
+                    inFlightBulks.acquire();
+                    send(bulk, finished);
+                    sent++;
+                    continue;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    logger.error("Interrupted before sending the bulk, {} bulks are retried later.", bulks.size() - sent);
+                }
+            }
+            for (int i = 0; i < bulk.request.requests().size(); i++) {
+                retryLater(bulk.request.requests().get(i), bulk.attempts[i]);
+            }
+            finished.countDown();
+        }
+
+        // Wait for the bulks in flight even if interrupted, they would overlap the following round otherwise.
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        retryQueueSize.setValue(retryQueue.size());
+    }
+
+    private void send(Bulk bulk, CountDownLatch finished) {
+        final long startTime = System.currentTimeMillis();
+        try {
+            client.asynchronousBulk(bulk.request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    try {
+                        bulkLatency.observe((System.currentTimeMillis() - startTime) / 1000d);
+                        onBulkResponse(bulk, response);
+                    } finally {
+                        inFlightBulks.release();
+                        finished.countDown();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    try {
+                        logger.error("Failed to execute the bulk of {} actions.", bulk.request.numberOfActions(), e);
+                        for (int i = 0; i < bulk.request.requests().size(); i++) {
+                            retryLater(bulk.request.requests().get(i), bulk.attempts[i]);
+                        }
+                    } finally {
+                        inFlightBulks.release();
+                        finished.countDown();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightBulks.release();
+            finished.countDown();
+            throw e;
+        }
+    }
+
+    private void onBulkResponse(Bulk bulk, BulkResponse response) {
+        for (BulkItemResponse item : response.getItems()) {
+            IndexMetrics metrics = getIndexMetrics(item.getIndex());
+            if (!item.isFailed()) {
+                metrics.written.inc();
+                continue;
+            }
+
+            metrics.rejected.inc();
+            RestStatus status = item.getFailure().getStatus();
+            if (isRetryable(status)) {
+                retryLater(bulk.request.requests().get(item.getItemId()), bulk.attempts[item.getItemId()]);
+            } else {
+                metrics.dropped.inc();
+                logger.warn(
+                    "Failed to write the document {} of index {}, status: {}, message: {}", item.getId(),
+                    item.getIndex(), status, item.getFailureMessage()
+                );
+            }
+        }
+    }
+
+    private void retryLater(DocWriteRequest request, int attempts) {
+        if (attempts >= maxRetries) {
+            getIndexMetrics(request.index()).dropped.inc();
+            logger.warn("Drop the document {} of index {}, after {} retries.", request.id(), request.index(), attempts);
+            return;
+        }
+        long retryTime = System.currentTimeMillis() + (retryBackoff << attempts);
+        if (!retryQueue.offer(new RetryItem(request, attempts + 1, retryTime))) {
+            getIndexMetrics(request.index()).dropped.inc();
+            logger.warn("Drop the document {} of index {}, the retry queue is full.", request.id(), request.index());
+        }
+    }
+
+    /**
+     * @return the retry items, which are due and not superseded by the given requests. The others, which are not due
+     * yet, are put back into the queue.
+     */
+    private List<RetryItem> drainRetryQueue(List<DocWriteRequest> requests) {
+        if (retryQueue.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        Map<String, DocWriteRequest> documents = new HashMap<>(requests.size());
+        for (DocWriteRequest request : requests) {
+            documents.put(documentOf(request), request);
+        }
+
+        List<RetryItem> due = new ArrayList<>();
+        List<RetryItem> notDue = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        RetryItem item;
+        while ((item = retryQueue.poll()) != null) {
+            DocWriteRequest newer = documents.get(documentOf(item.request));
+            if (newer != null) {
+                if (createsDocument(item.request) && newer instanceof UpdateRequest) {
+                    upsert((UpdateRequest) newer);
+                }
+                continue;
+            }
+            if (item.retryTime <= now) {
+                due.add(item);
+            } else {
+                notDue.add(item);
+            }
+        }
+        for (RetryItem retryItem : notDue) {
+            if (!retryQueue.offer(retryItem)) {
+                getIndexMetrics(retryItem.request.index()).dropped.inc();
+            }
+        }
+        return due;
+    }
+
+    private List<Bulk> split(List<DocWriteRequest> requests, int[] attempts) {
+        List<Bulk> bulks = new ArrayList<>(requests.size() / bulkActions + 1);
+        Bulk bulk = null;
+        for (int i = 0; i < requests.size(); i++) {
+            if (bulk == null) {
+                bulk = new Bulk(Math.min(bulkActions, requests.size() - i));
+            }
+            DocWriteRequest request = requests.get(i);
+            if (request instanceof IndexRequest) {
+                bulk.request.add((IndexRequest) request);
+            } else {
+                bulk.request.add((UpdateRequest) request);
+            }
+            bulk.attempts[bulk.request.numberOfActions() - 1] = attempts[i];
+
+            if (bulk.request.numberOfActions() >= bulkActions || bulk.request.estimatedSizeInBytes() >= bulkSizeInBytes) {
+                bulks.add(bulk);
+                bulk = null;
+            }
+        }
+        if (bulk != null) {
+            bulks.add(bulk);
+        }
+        return bulks;
+    }
+
+    private static boolean createsDocument(DocWriteRequest request) {
+        return request instanceof IndexRequest
+            || request instanceof UpdateRequest && ((UpdateRequest) request).docAsUpsert();
+    }
+
+    /**
+     * The document of the update is the whole document, so it is the upsert too.
+     */
+    private static void upsert(UpdateRequest request) {
+        if (request.doc() != null) {
+            request.docAsUpsert(true);
+        }
+    }
+
+    private static boolean isRetryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= 500;
+    }
+
+    private static String documentOf(DocWriteRequest request) {
+        return request.index() + Const.ID_CONNECTOR + request.id();
+    }
+
+    /**
+     * The index name without the time suffix, such as service_resp_time of service_resp_time-20200401.
+     */
+    private static String logicIndexName(String indexName) {
+        int split = indexName.lastIndexOf(Const.LINE);
+        if (split <= 0) {
+            return indexName;
+        }
+        for (int i = split + 1; i < indexName.length(); i++) {
+            if (!Character.isDigit(indexName.charAt(i))) {
+                return indexName;
+            }
+        }
+        return indexName.substring(0, split);
+    }
+
+    private IndexMetrics getIndexMetrics(String indexName) {
+        return indexMetrics.computeIfAbsent(logicIndexName(indexName), IndexMetrics::new);
+    }
+
+    private void createMetrics() {
+        metricsCreator = moduleManager.find(TelemetryModule.NAME).provider().getService(MetricsCreator.class);
+        bulkLatency = metricsCreator.createHistogramMetric(
+            "elasticsearch_bulk_latency", "The latency of the streaming bulk", MetricsTag.EMPTY_KEY,
+            MetricsTag.EMPTY_VALUE
+        );
+        retryQueueSize = metricsCreator.createGauge(
+            "elasticsearch_bulk_retry_queue_size", "The number of documents waiting for retry",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+    }
+
+    private class IndexMetrics {
+        private final CounterMetrics written;
+        private final CounterMetrics rejected;
+        private final CounterMetrics dropped;
+
+        private IndexMetrics(String indexName) {
+            MetricsTag.Keys keys = new MetricsTag.Keys("index");
+            MetricsTag.Values values = new MetricsTag.Values(indexName);
+            written = metricsCreator.createCounter(
+                "elasticsearch_bulk_written_count", "The number of documents written by the streaming bulk", keys,
+                values
+            );
+            rejected = metricsCreator.createCounter(
+                "elasticsearch_bulk_rejected_count", "The number of failed documents of the streaming bulk", keys,
+                values
+            );
+            dropped = metricsCreator.createCounter(
+                "elasticsearch_bulk_dropped_count", "The number of documents abandoned by the streaming bulk", keys,
+                values
+            );
+        }
+    }
+
+    private static class Bulk {
+        private final BulkRequest request = new BulkRequest();
+        /**
+         * The number of retries of every action in the bulk.
+         */
+        private final int[] attempts;
+
+        private Bulk(int maxActions) {
+            this.attempts = new int[maxActions];
+        }
+    }
+
+    private static class RetryItem {
+        private final DocWriteRequest request;
+        private final int attempts;
+        private final long retryTime;
+
+        private RetryItem(DocWriteRequest request, int attempts, long retryTime) {
+            this.request = request;
+            this.attempts = attempts;
+            this.retryTime = retryTime;
+        }
+    }
+}
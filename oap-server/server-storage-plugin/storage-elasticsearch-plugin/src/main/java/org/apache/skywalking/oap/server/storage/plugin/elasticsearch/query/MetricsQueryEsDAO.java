@@ -24,7 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
-import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
 import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.ThermodynamicMetrics;
@@ -185,16 +185,16 @@ public class MetricsQueryEsDAO extends EsDAO implements IMetricsQueryDAO {
                 numOfSteps = ((Number) source.get(ThermodynamicMetrics.NUM_OF_STEPS)).intValue() + 1;
 
                 String value = (String) source.get(ThermodynamicMetrics.DETAIL_GROUP);
-                IntKeyLongValueHashMap intKeyLongValues = new IntKeyLongValueHashMap(5);
-                intKeyLongValues.toObject(value);
+                IntKeyLongHistogram detailGroup = new IntKeyLongHistogram(numOfSteps);
+                detailGroup.toObject(value);
 
                 List<Long> axisYValues = new ArrayList<>();
                 for (int i = 0; i < numOfSteps; i++) {
                     axisYValues.add(0L);
                 }
 
-                for (IntKeyLongValue intKeyLongValue : intKeyLongValues.values()) {
-                    axisYValues.set(intKeyLongValue.getKey(), intKeyLongValue.getValue());
+                for (int i = 0; i < detailGroup.size(); i++) {
+                    axisYValues.set(detailGroup.keyAt(i), detailGroup.valueAt(i));
                 }
 
                 thermodynamicValueMatrix.add(axisYValues);
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
+
+import java.util.ArrayList;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsEsDAOTest {
+    @Test
+    public void testLocateIndex() {
+        Assert.assertEquals(
+            "service_resp_time-20200401", MetricsEsDAO.locateIndex(model(DownSampling.Minute), "202004011230_c2VydmljZQ==.1"));
+        Assert.assertEquals(
+            "service_resp_time-20200401", MetricsEsDAO.locateIndex(model(DownSampling.Hour), "2020040112_c2VydmljZQ==.1"));
+        Assert.assertEquals(
+            "service_resp_time-20200401", MetricsEsDAO.locateIndex(model(DownSampling.Day), "20200401_c2VydmljZQ==.1"));
+        Assert.assertEquals("service_resp_time", MetricsEsDAO.locateIndex(model(DownSampling.None), "c2VydmljZQ==.1"));
+    }
+
+    @Test
+    public void testLocateIndexWithoutTimeBucket() {
+        Assert.assertNull(MetricsEsDAO.locateIndex(model(DownSampling.Minute), "c2VydmljZQ==.1_1"));
+        Assert.assertNull(MetricsEsDAO.locateIndex(model(DownSampling.Minute), "c2VydmljZQ==.1"));
+    }
+
+    private Model model(DownSampling downSampling) {
+        return new Model("service_resp_time", new ArrayList<>(), new ArrayList<>(), 0, downSampling, false);
+    }
+}
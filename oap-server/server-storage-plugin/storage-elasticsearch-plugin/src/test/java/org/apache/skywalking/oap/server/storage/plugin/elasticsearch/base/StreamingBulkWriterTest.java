@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchClient;
+import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchInsertRequest;
+import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchUpdateRequest;
+import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class StreamingBulkWriterTest {
+    private static final String INDEX = "service_resp_time-20200401";
+
+    private ModuleDefineHolder moduleDefineHolder;
+    private ElasticSearchClient client;
+    private List<List<String>> sentBulks;
+    /**
+     * The ids of the failed documents in the responses, the others are written successfully.
+     */
+    private List<String> failedIds;
+    private RestStatus failedStatus;
+
+    @Before
+    public void setUp() {
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(new MetricsCreatorNoop());
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        moduleDefineHolder = Mockito.mock(ModuleDefineHolder.class);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        sentBulks = new ArrayList<>();
+        failedIds = new ArrayList<>();
+        failedStatus = RestStatus.TOO_MANY_REQUESTS;
+        client = Mockito.mock(ElasticSearchClient.class);
+        Mockito.doAnswer(invocation -> {
+            BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+            @SuppressWarnings("unchecked")
+            ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[1];
+            listener.onResponse(respond(request));
+            return null;
+        }).when(client).asynchronousBulk(Matchers.any(BulkRequest.class), Matchers.any());
+    }
+
+    @Test
+    public void testSplitByActions() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 2, 5, 2, 3, 0, 100);
+        writer.write(requests("a", "b", "c", "d", "e"));
+
+        Assert.assertEquals(3, sentBulks.size());
+        Assert.assertEquals(Arrays.asList("a", "b"), sentBulks.get(0));
+        Assert.assertEquals(Arrays.asList("c", "d"), sentBulks.get(1));
+        Assert.assertEquals(Arrays.asList("e"), sentBulks.get(2));
+    }
+
+    @Test
+    public void testRetryRejectedOnly() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 10, 5, 2, 3, 0, 100);
+        failedIds.add("b");
+        writer.write(requests("a", "b", "c"));
+        failedIds.clear();
+        writer.write(requests("d"));
+
+        Assert.assertEquals(2, sentBulks.size());
+        Assert.assertEquals(Arrays.asList("d", "b"), sentBulks.get(1));
+    }
+
+    @Test
+    public void testRetrySupersededByNewerRound() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 10, 5, 2, 3, 0, 100);
+        failedIds.add("b");
+        writer.write(requests("a", "b"));
+        failedIds.clear();
+        writer.write(requests("b"));
+
+        Assert.assertEquals(Arrays.asList("b"), sentBulks.get(1));
+    }
+
+    @Test
+    public void testRetriedInsertSupersededByUpdate() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 10, 5, 2, 3, 0, 100);
+        failedIds.add("b");
+        writer.write(requests("a", "b"));
+        failedIds.clear();
+        ElasticSearchUpdateRequest update = new ElasticSearchUpdateRequest(INDEX, "type", "b");
+        update.doc(Collections.singletonMap("id", "b"));
+        writer.write(Collections.singletonList(update));
+
+        Assert.assertEquals(Arrays.asList("b"), sentBulks.get(1));
+        Assert.assertTrue(update.docAsUpsert());
+    }
+
+    @Test
+    public void testMetricsCreatedOnce() {
+        AtomicInteger histograms = new AtomicInteger();
+        MetricsCreator metricsCreator = new MetricsCreatorNoop() {
+            @Override
+            public HistogramMetrics createHistogramMetric(String name, String tips, MetricsTag.Keys tagKeys,
+                                                          MetricsTag.Values tagValues, double... buckets) {
+                histograms.incrementAndGet();
+                return super.createHistogramMetric(name, tips, tagKeys, tagValues, buckets);
+            }
+        };
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(MetricsCreator.class)).thenReturn(metricsCreator);
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        Mockito.when(moduleDefineHolder.find(TelemetryModule.NAME)).thenReturn(providerHolder);
+
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 1, 5, 2, 3, 0, 100);
+        writer.write(requests("a", "b", "c"));
+        writer.write(requests("d"));
+
+        Assert.assertEquals(1, histograms.get());
+    }
+
+    @Test
+    public void testNotRetryable() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 10, 5, 2, 3, 0, 100);
+        failedIds.add("b");
+        failedStatus = RestStatus.BAD_REQUEST;
+        writer.write(requests("a", "b"));
+        writer.write(requests("c"));
+
+        Assert.assertEquals(Arrays.asList("c"), sentBulks.get(1));
+    }
+
+    @Test
+    public void testMaxRetries() {
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 10, 5, 2, 2, 0, 100);
+        failedIds.add("a");
+        writer.write(requests("a"));
+        writer.write(new ArrayList<>());
+        writer.write(new ArrayList<>());
+        writer.write(new ArrayList<>());
+
+        Assert.assertEquals(3, sentBulks.size());
+    }
+
+    @Test
+    public void testInterruptedWaitsForInFlightBulks() throws InterruptedException {
+        List<Runnable> pendingResponses = new CopyOnWriteArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+            @SuppressWarnings("unchecked")
+            ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[1];
+            pendingResponses.add(() -> listener.onResponse(respond(request)));
+            return null;
+        }).when(client).asynchronousBulk(Matchers.any(BulkRequest.class), Matchers.any());
+        StreamingBulkWriter writer = new StreamingBulkWriter(client, moduleDefineHolder, 1, 5, 1, 3, 0, 100);
+
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        Thread writeThread = new Thread(() -> {
+            writer.write(requests("a", "b", "c"));
+            interruptRestored.set(Thread.currentThread().isInterrupted());
+        });
+        writeThread.start();
+        // The first bulk is in flight, the second one waits for it.
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (pendingResponses.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        writeThread.interrupt();
+        writeThread.join(200);
+        Assert.assertTrue(writeThread.isAlive());
+
+        pendingResponses.get(0).run();
+        writeThread.join(10_000);
+        Assert.assertFalse(writeThread.isAlive());
+        Assert.assertTrue(interruptRestored.get());
+        Assert.assertEquals(1, pendingResponses.size());
+
+        // The unsent bulks are retried by the following round.
+        Mockito.doAnswer(invocation -> {
+            BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+            @SuppressWarnings("unchecked")
+            ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[1];
+            listener.onResponse(respond(request));
+            return null;
+        }).when(client).asynchronousBulk(Matchers.any(BulkRequest.class), Matchers.any());
+        writer.write(new ArrayList<>());
+        Assert.assertEquals(
+            Arrays.asList(Arrays.asList("a"), Arrays.asList("b"), Arrays.asList("c")), sentBulks);
+    }
+
+    private List<PrepareRequest> requests(String... ids) {
+        List<PrepareRequest> requests = new ArrayList<>(ids.length);
+        for (String id : ids) {
+            ElasticSearchInsertRequest request = new ElasticSearchInsertRequest(INDEX, "type", id);
+            request.source(Collections.singletonMap("id", id));
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private BulkResponse respond(BulkRequest request) {
+        List<String> ids = new ArrayList<>();
+        BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+        for (int i = 0; i < items.length; i++) {
+            DocWriteRequest action = request.requests().get(i);
+            ids.add(action.id());
+            if (failedIds.contains(action.id())) {
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure(
+                    action.index(), action.type(), action.id(), new RuntimeException("rejected"), failedStatus));
+            } else {
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX, new IndexResponse(
+                    new ShardId(action.index(), "_na_", 0), action.type(), action.id(), 1, 1, 1, true));
+            }
+        }
+        sentBulks.add(ids);
+        return new BulkResponse(items, 1);
+    }
+}
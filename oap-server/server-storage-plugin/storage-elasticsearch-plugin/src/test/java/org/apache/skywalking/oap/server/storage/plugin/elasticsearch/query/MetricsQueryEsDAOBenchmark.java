@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.elasticsearch.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.DownSampling;
+import org.apache.skywalking.oap.server.core.query.DurationPoint;
+import org.apache.skywalking.oap.server.core.query.DurationUtils;
+import org.apache.skywalking.oap.server.core.query.MetricQueryService;
+import org.apache.skywalking.oap.server.core.query.sql.Function;
+import org.apache.skywalking.oap.server.core.storage.StorageModule;
+import org.apache.skywalking.oap.server.core.storage.annotation.ValueColumnMetadata;
+import org.apache.skywalking.oap.server.core.storage.query.IMetricsQueryDAO;
+import org.apache.skywalking.oap.server.library.client.elasticsearch.ElasticSearchClient;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.module.ModuleProviderHolder;
+import org.apache.skywalking.oap.server.library.module.ModuleServiceHolder;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the per-entity {@link MetricQueryService#getLinearIntValues} with the batched
+ * {@link MetricQueryService#getBatchLinearIntValues}, for a dashboard of 100 instances in the last hour. The query
+ * cache is disabled, so every query reaches the storage.
+ * <p>
+ * A running ElasticSearch is required, the address is set by the system property {@code es.clusterNodes}, localhost:9200
+ * by default.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Benchmark)
+public class MetricsQueryEsDAOBenchmark {
+    private static final String CLUSTER_NODES = System.getProperty("es.clusterNodes", "localhost:9200");
+    private static final String METRICS = "benchmark_instance_cpm";
+    private static final int ENTITIES = 100;
+    private static final long START_TB = 201901010000L;
+    private static final long END_TB = 201901010059L;
+
+    private ElasticSearchClient client;
+    private MetricQueryService metricQueryService;
+    private List<String> entityIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        client = new ElasticSearchClient(CLUSTER_NODES, "http", null, null, null, null, Collections.emptyList());
+        client.connect();
+        if (client.isExistsIndex(METRICS)) {
+            client.deleteByIndexName(METRICS);
+        }
+        client.createIndex(METRICS);
+
+        entityIds = new ArrayList<>(ENTITIES);
+        List<DurationPoint> durationPoints = DurationUtils.INSTANCE.getDurationPoints(
+            DownSampling.Minute, START_TB, END_TB);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < ENTITIES; i++) {
+            final String entityId = "instance-" + i;
+            entityIds.add(entityId);
+            for (DurationPoint point : durationPoints) {
+                bulkRequest.add((IndexRequest) client.prepareInsert(
+                    METRICS, point.getPoint() + Const.ID_CONNECTOR + entityId,
+                    XContentFactory.jsonBuilder().startObject()
+                                   .field("value", (long) i)
+                                   .field("time_bucket", point.getPoint())
+                                   .endObject()
+                ));
+            }
+        }
+        client.synchronousBulk(bulkRequest);
+
+        ValueColumnMetadata.INSTANCE.putIfAbsent(METRICS, "value", Function.Avg);
+        ModuleServiceHolder serviceHolder = Mockito.mock(ModuleServiceHolder.class);
+        Mockito.when(serviceHolder.getService(IMetricsQueryDAO.class)).thenReturn(new MetricsQueryEsDAO(client));
+        ModuleProviderHolder providerHolder = Mockito.mock(ModuleProviderHolder.class);
+        Mockito.when(providerHolder.provider()).thenReturn(serviceHolder);
+        ModuleManager moduleManager = Mockito.mock(ModuleManager.class);
+        Mockito.when(moduleManager.find(StorageModule.NAME)).thenReturn(providerHolder);
+
+        CoreModuleConfig config = new CoreModuleConfig();
+        config.setMetricsQueryCacheMaxSizeInMB(0);
+        metricQueryService = new MetricQueryService(moduleManager, config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.deleteByIndexName(METRICS);
+        client.shutdown();
+    }
+
+    @Benchmark
+    public void serialLinearIntValues(Blackhole blackhole) throws IOException {
+        for (String entityId : entityIds) {
+            blackhole.consume(metricQueryService.getLinearIntValues(
+                METRICS, entityId, DownSampling.Minute, START_TB, END_TB));
+        }
+    }
+
+    @Benchmark
+    public void batchLinearIntValues(Blackhole blackhole) throws IOException {
+        blackhole.consume(metricQueryService.getBatchLinearIntValues(
+            METRICS, entityIds, DownSampling.Minute, START_TB, END_TB));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(MetricsQueryEsDAOBenchmark.class.getName())
+                                          .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                          .forks(1)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
@@ -52,6 +52,7 @@ import org.apache.skywalking.oap.server.library.module.ServiceNotProvidedExcepti
 import org.apache.skywalking.oap.server.library.util.MultipleFilesChangeMonitor;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.BatchProcessEsDAO;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.HistoryDeleteEsDAO;
+import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.base.StreamingBulkWriter;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.cache.NetworkAddressAliasEsDAO;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.query.ProfileTaskLogEsDAO;
 import org.apache.skywalking.oap.server.storage.plugin.elasticsearch.query.ProfileTaskQueryEsDAO;
@@ -138,10 +139,16 @@ public class StorageModuleElasticsearch7Provider extends ModuleProvider {
             indexNameConverters(config.getNameSpace())
         );
 
-        this.registerServiceImplementation(
-            IBatchDAO.class, new BatchProcessEsDAO(elasticSearch7Client, config.getBulkActions(),
-                                                   config.getFlushInterval(), config.getConcurrentRequests()
+        BatchProcessEsDAO batchProcessEsDAO = new BatchProcessEsDAO(
+            elasticSearch7Client, config.getBulkActions(), config.getFlushInterval(), config.getConcurrentRequests());
+        if (config.isEnableStreamingBulk()) {
+            batchProcessEsDAO.setStreamingBulkWriter(new StreamingBulkWriter(
+                elasticSearch7Client, getManager(), config.getStreamingBulkActions(), config.getStreamingBulkSizeInMB(),
+                config.getStreamingConcurrentRequests(), config.getStreamingBulkMaxRetries(),
+                config.getStreamingBulkRetryBackoff(), config.getStreamingBulkRetryQueueSize()
             ));
+        }
+        this.registerServiceImplementation(IBatchDAO.class, batchProcessEsDAO);
         this.registerServiceImplementation(StorageDAO.class, new StorageEs7DAO(elasticSearch7Client));
         this.registerServiceImplementation(
             IHistoryDeleteDAO.class, new HistoryDeleteEsDAO(elasticSearch7Client));
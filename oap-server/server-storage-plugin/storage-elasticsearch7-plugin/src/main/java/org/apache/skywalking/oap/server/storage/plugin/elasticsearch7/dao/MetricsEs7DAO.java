@@ -36,7 +36,7 @@ public class MetricsEs7DAO extends MetricsEsDAO {
     }
 
     @Override
-    public List<Metrics> multiGet(Model model, List<String> ids) throws IOException {
+    protected List<Metrics> searchByIds(Model model, List<String> ids) throws IOException {
         SearchResponse response = getClient().ids(model.getName(), ids.toArray(new String[0]));
 
         List<Metrics> result = new ArrayList<>((int) response.getHits().getTotalHits().value);
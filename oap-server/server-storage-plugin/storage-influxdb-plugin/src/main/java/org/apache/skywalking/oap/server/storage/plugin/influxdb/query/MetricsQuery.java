@@ -27,7 +27,7 @@ import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
-import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
 import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
 import org.apache.skywalking.oap.server.core.analysis.metrics.ThermodynamicMetrics;
 import org.apache.skywalking.oap.server.core.query.entity.IntValues;
@@ -272,14 +272,14 @@ public class MetricsQuery implements IMetricsQueryDAO {
         for (List<Object> values : series.getValues()) {
             numOfSteps = (int) values.get(2) + 1;
             axisYStep = (int) values.get(1);
-            IntKeyLongValueHashMap intKeyLongValues = new IntKeyLongValueHashMap(5);
-            intKeyLongValues.toObject((String) values.get(3));
+            IntKeyLongHistogram detailGroup = new IntKeyLongHistogram(numOfSteps);
+            detailGroup.toObject((String) values.get(3));
             List<Long> axisYValues = new ArrayList<>(numOfSteps);
             for (int i = 0; i < numOfSteps; i++) {
                 axisYValues.add(0L);
             }
-            for (IntKeyLongValue intKeyLongValue : intKeyLongValues.values()) {
-                axisYValues.set(intKeyLongValue.getKey(), intKeyLongValue.getValue());
+            for (int i = 0; i < detailGroup.size(); i++) {
+                axisYValues.set(detailGroup.keyAt(i), detailGroup.valueAt(i));
             }
             thermodynamicValueMatrix.put((String) values.get(4), axisYValues);
         }
@@ -42,7 +42,18 @@ public class SQLExecutor implements InsertRequest, UpdateRequest {
         this.param = param;
     }
 
+    protected SQLExecutor(SQLExecutor executor) {
+        this(executor.sql, executor.param);
+    }
+
     public void invoke(Connection connection) throws SQLException {
+        execute(connection);
+    }
+
+    /**
+     * @return the number of the updated rows, or -1 if the statement is a query.
+     */
+    protected int execute(Connection connection) throws SQLException {
         PreparedStatement preparedStatement = connection.prepareStatement(sql);
 
         for (int i = 0; i < param.size(); i++) {
@@ -51,5 +62,6 @@ public class SQLExecutor implements InsertRequest, UpdateRequest {
 
         logger.debug("execute aql in batch: {}", sql);
         preparedStatement.execute();
+        return preparedStatement.getUpdateCount();
     }
 }
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Execute the update, and the insert if no row is updated.
+ */
+public class UpsertSQLExecutor extends SQLExecutor {
+    private final SQLExecutor insertExecutor;
+
+    public UpsertSQLExecutor(SQLExecutor updateExecutor, SQLExecutor insertExecutor) {
+        super(updateExecutor);
+        this.insertExecutor = insertExecutor;
+    }
+
+    @Override
+    public void invoke(Connection connection) throws SQLException {
+        if (execute(connection) == 0) {
+            insertExecutor.invoke(connection);
+        }
+    }
+}
@@ -56,6 +56,6 @@ public class H2MetricsDAO extends H2SQLExecutor implements IMetricsDAO {
 
     @Override
     public SQLExecutor prepareBatchUpdate(Model model, Metrics metrics) throws IOException {
-        return getUpdateExecutor(model.getName(), metrics, storageBuilder);
+        return getUpsertExecutor(model.getName(), metrics, storageBuilder);
     }
 }
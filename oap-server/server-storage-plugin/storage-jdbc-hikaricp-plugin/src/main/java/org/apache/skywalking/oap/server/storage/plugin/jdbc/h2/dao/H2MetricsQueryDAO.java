@@ -27,7 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
-import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValue;
+import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongHistogram;
 import org.apache.skywalking.oap.server.core.analysis.metrics.IntKeyLongValueHashMap;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.ThermodynamicMetrics;
@@ -237,16 +237,16 @@ public class H2MetricsQueryDAO extends H2SQLExecutor implements IMetricsQueryDAO
                     String id = resultSet.getString("id");
                     numOfSteps = resultSet.getInt("num_of_steps") + 1;
                     String value = resultSet.getString("detail_group");
-                    IntKeyLongValueHashMap intKeyLongValues = new IntKeyLongValueHashMap(5);
-                    intKeyLongValues.toObject(value);
+                    IntKeyLongHistogram detailGroup = new IntKeyLongHistogram(numOfSteps);
+                    detailGroup.toObject(value);
 
                     List<Long> axisYValues = new ArrayList<>();
                     for (int i = 0; i < numOfSteps; i++) {
                         axisYValues.add(0L);
                     }
 
-                    for (IntKeyLongValue intKeyLongValue : intKeyLongValues.values()) {
-                        axisYValues.set(intKeyLongValue.getKey(), intKeyLongValue.getValue());
+                    for (int i = 0; i < detailGroup.size(); i++) {
+                        axisYValues.set(detailGroup.keyAt(i), detailGroup.valueAt(i));
                     }
 
                     thermodynamicValueMatrix.put(id, axisYValues);
@@ -37,6 +37,7 @@ import org.apache.skywalking.oap.server.storage.plugin.jdbc.ArrayParamBuilder;
 import org.apache.skywalking.oap.server.storage.plugin.jdbc.SQLBuilder;
 import org.apache.skywalking.oap.server.storage.plugin.jdbc.SQLExecutor;
 import org.apache.skywalking.oap.server.storage.plugin.jdbc.TableMetaInfo;
+import org.apache.skywalking.oap.server.storage.plugin.jdbc.UpsertSQLExecutor;
 
 @Slf4j
 public class H2SQLExecutor {
@@ -157,4 +158,13 @@ public class H2SQLExecutor {
 
         return new SQLExecutor(sqlBuilder.toString(), param);
     }
+
+    /**
+     * @return the executor updates the row of the given data, and inserts it if the row doesn't exist.
+     */
+    protected <T extends StorageData> SQLExecutor getUpsertExecutor(String modelName, T metrics,
+                                                                    StorageBuilder<T> storageBuilder) throws IOException {
+        return new UpsertSQLExecutor(
+            getUpdateExecutor(modelName, metrics, storageBuilder), getInsertExecutor(modelName, metrics, storageBuilder));
+    }
 }
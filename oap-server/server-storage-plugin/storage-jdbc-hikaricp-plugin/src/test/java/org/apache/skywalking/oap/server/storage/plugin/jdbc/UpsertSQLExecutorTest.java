@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class UpsertSQLExecutorTest {
+    private static final String UPDATE = "UPDATE service_cpm SET value= ? WHERE id = ?";
+    private static final String INSERT = "INSERT INTO service_cpm VALUES(?,?)";
+
+    @Test
+    public void testUpdateExisting() throws Exception {
+        Connection connection = connection(1);
+
+        executor().invoke(connection);
+
+        Mockito.verify(connection).prepareStatement(UPDATE);
+        Mockito.verify(connection, Mockito.never()).prepareStatement(INSERT);
+    }
+
+    @Test
+    public void testInsertAbsent() throws Exception {
+        Connection connection = connection(0);
+
+        executor().invoke(connection);
+
+        Mockito.verify(connection).prepareStatement(UPDATE);
+        Mockito.verify(connection).prepareStatement(INSERT);
+    }
+
+    private static UpsertSQLExecutor executor() {
+        return new UpsertSQLExecutor(
+            new SQLExecutor(UPDATE, Collections.singletonList("1")),
+            new SQLExecutor(INSERT, Collections.singletonList("1"))
+        );
+    }
+
+    private static Connection connection(int updateCount) throws Exception {
+        PreparedStatement update = Mockito.mock(PreparedStatement.class);
+        Mockito.when(update.getUpdateCount()).thenReturn(updateCount);
+        PreparedStatement insert = Mockito.mock(PreparedStatement.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.prepareStatement(UPDATE)).thenReturn(update);
+        Mockito.when(connection.prepareStatement(INSERT)).thenReturn(insert);
+        return connection;
+    }
+}
@@ -76,7 +76,7 @@ public class ProfileSnapshotExporterTest {
                .thenReturn(new ComponentLibraryCatalogService());
         Mockito.when(moduleProvider.getService(ProfileTaskQueryService.class)).thenReturn(taskQueryService);
         Mockito.when(moduleProvider.getService(TraceQueryService.class))
-               .thenReturn(new TraceQueryService(moduleManager));
+               .thenReturn(new TraceQueryService(moduleManager, coreModuleConfig));
 
         try (final Reader reader = ResourceUtils.read("profile.yml");) {
             exportedData = new Yaml().loadAs(reader, ExportedData.class);